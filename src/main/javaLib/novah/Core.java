@@ -20,6 +20,7 @@ import io.lacuna.bifurcan.List;
 import io.lacuna.bifurcan.Map;
 import io.lacuna.bifurcan.Set;
 import novah.function.Function;
+import novah.function.Function2;
 
 import java.io.BufferedReader;
 import java.io.InputStream;
@@ -783,6 +784,116 @@ public class Core {
         return acc;
     }
 
+    /**
+     * Runs a fused pipeline of maps and filters over this list in a single traversal.
+     * `stages` has one character per function: 'm' for map and 'f' for filter.
+     * Stages are in reverse order: the last one runs first.
+     */
+    public static List<Object> fuseList(String stages, Object[] fns, List<Object> list) {
+        var res = new List<>().linear();
+        for (long i = 0; i < list.size(); i++) {
+            var elem = runStages(stages, fns, list.nth(i));
+            if (elem != SKIP) res.addLast(elem);
+        }
+        return res.forked();
+    }
+
+    /**
+     * Like `fuseList` but returns a set.
+     */
+    public static Set<Object> fuseSet(String stages, Object[] fns, Set<Object> set) {
+        var res = new Set<>().linear();
+        for (long i = 0; i < set.size(); i++) {
+            var elem = runStages(stages, fns, set.nth(i));
+            if (elem != SKIP) res.add(elem);
+        }
+        return res.forked();
+    }
+
+    /**
+     * Folds over the result of a fused pipeline without building it.
+     * The folding function takes the accumulator and the element at once.
+     */
+    public static Object fuseFoldList(String stages, Function2<Object, Object, Object> f, Object init,
+                                      Object[] fns, List<Object> list) {
+        var acc = init;
+        for (long i = 0; i < list.size(); i++) {
+            var elem = runStages(stages, fns, list.nth(i));
+            if (elem != SKIP) acc = f.apply2(acc, elem);
+        }
+        return acc;
+    }
+
+    /**
+     * Like `fuseFoldList` but folds over a set.
+     */
+    public static Object fuseFoldSet(String stages, Function2<Object, Object, Object> f, Object init,
+                                     Object[] fns, Set<Object> set) {
+        var acc = init;
+        for (long i = 0; i < set.size(); i++) {
+            var elem = runStages(stages, fns, set.nth(i));
+            if (elem != SKIP) acc = f.apply2(acc, elem);
+        }
+        return acc;
+    }
+
+    private static final Object SKIP = new Object();
+
+    @SuppressWarnings("unchecked")
+    private static Object runStages(String stages, Object[] fns, Object elem) {
+        for (int s = fns.length - 1; s >= 0; s--) {
+            var fn = (Function<Object, Object>) fns[s];
+            if (stages.charAt(s) == 'm') elem = fn.apply(elem);
+            else if (!(Boolean) fn.apply(elem)) return SKIP;
+        }
+        return elem;
+    }
+
+    /**
+     * Applies a chain of updates to a map using a single linear map.
+     * Updates are in evaluation order, outermost first, so the last one is applied first:
+     * 'p' puts a key and a value and 'r' removes a key.
+     */
+    public static Map<Object, Object> batchMap(String ops, Object[] args, Map<Object, Object> map) {
+        var linear = map.isLinear();
+        var res = linear ? map : map.linear();
+        var i = args.length;
+        for (int op = ops.length() - 1; op >= 0; op--) {
+            if (ops.charAt(op) == 'p') {
+                i -= 2;
+                res = (Map<Object, Object>) res.put(args[i], args[i + 1]);
+            } else res = res.remove(args[--i]);
+        }
+        return linear ? res : res.forked();
+    }
+
+    /**
+     * Like `batchMap` but for sets: 'a' adds and 'r' removes an element.
+     */
+    public static Set<Object> batchSet(String ops, Object[] args, Set<Object> set) {
+        var linear = set.isLinear();
+        var res = linear ? set : set.linear();
+        for (int op = ops.length() - 1; op >= 0; op--) {
+            if (ops.charAt(op) == 'a') res = res.add(args[op]);
+            else res = res.remove(args[op]);
+        }
+        return linear ? res : res.forked();
+    }
+
+    /**
+     * Like `batchMap` but for lists: 'f' adds an element to the start
+     * and 'l' to the end of the list.
+     */
+    public static List<Object> batchList(String ops, Object[] args, List<Object> list) {
+        var linear = list.isLinear();
+        var res = linear ? list : list.linear();
+        for (int op = ops.length() - 1; op >= 0; op--) {
+            if (ops.charAt(op) == 'f') res = res.addFirst(args[op]);
+            else res = res.addLast(args[op]);
+        }
+        return linear ? res : res.forked();
+    }
+
     public static <K, V> boolean mapEvery(Function<K, Function<V, Boolean>> pred, Map<K, V> map) {
         for (IEntry<K, V> kv : map) {
             if (!pred.apply(kv.key()).apply(kv.value())) return false;
@@ -805,7 +916,8 @@ public class Core {
         var packs = new ArrayList<String>();
         var lines = reader.lines().collect(Collectors.toList());
         lines.forEach(line -> {
-            if (!line.endsWith(".class")) packs.add(packageName + "/" + line);
+            // other files, like module interfaces, are not packages
+            if (!line.contains(".")) packs.add(packageName + "/" + line);
         });
         var classes = lines.stream()
                 .filter(line -> line.endsWith(".class"))
@@ -15,8 +15,6 @@
  */
 package novah.collections;
 
-import java.util.ArrayList;
-import java.util.Collections;
 import java.util.Objects;
 
 /**
@@ -47,25 +45,8 @@ public class ListValue {
      * Append [other] to the end of this list
      */
     public ListValue append(ListValue other) {
-        var res = new ArrayList<>();
-        res.add(value);
-        var nex = next;
-        while (nex != null) {
-            res.add(nex.value);
-            nex = nex.next;
-        }
-        res.add(other.value);
-        nex = other.next;
-        while (nex != null) {
-            res.add(nex.value);
-            nex = nex.next;
-        }
-        Collections.reverse(res);
-        ListValue list = ListValue.of(res.remove(0));
-        for (var e : res) {
-            list = ListValue.of(e, list);
-        }
-        return list;
+        if (next == null) return new ListValue(value, other);
+        return new ListValue(value, next.append(other));
     }
     
     @Override
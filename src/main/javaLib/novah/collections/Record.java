@@ -18,6 +18,7 @@ package novah.collections;
 import io.lacuna.bifurcan.*;
 import novah.function.Function;
 
+import java.util.Arrays;
 import java.util.Objects;
 import java.util.OptionalLong;
 import java.util.function.*;
@@ -25,27 +26,83 @@ import java.util.function.*;
 /**
  * The type of all novah records.
  * Allows duplicate keys.
- * Just a thin wrapper over bifurcan's Map.
+ * Small records are compact: a shared layout of labels and an array of values.
+ * Big records are a thin wrapper over bifurcan's Map.
  */
 public class Record implements IMap<String, ListValue> {
 
-    private final IMap<String, ListValue> inner;
+    /**
+     * Records with at least this many labels are backed by a map.
+     */
+    static final int MAX_COMPACT_SIZE = 16;
+
+    private static final Object[] NO_VALUES = new Object[0];
+
+    // compact representation, null for map backed records
+    private final RecordLayout layout;
+    private final Object[] vals;
+
+    // the map representation, created lazily for compact records
+    private IMap<String, ListValue> inner;
 
     private Record(IMap<String, ListValue> map) {
+        layout = null;
+        vals = null;
         inner = map;
     }
 
+    protected Record(RecordLayout layout, Object[] vals) {
+        this.layout = layout;
+        this.vals = vals;
+    }
+
     public Record() {
-        inner = Map.empty();
+        this(RecordLayout.EMPTY, NO_VALUES);
     }
 
     public static Record empty() {
         return new Record();
     }
 
+    /**
+     * The layout of this record or null if this record is backed by a map.
+     */
+    RecordLayout layout() {
+        return layout;
+    }
+
+    /**
+     * The values of a compact record in the same order as the labels of the layout.
+     */
+    Object[] vals() {
+        return vals;
+    }
+
+    /**
+     * The map holding the labels of this record.
+     */
+    protected IMap<String, ListValue> inner() {
+        var map = inner;
+        if (map == null) {
+            map = toMap(layout(), vals());
+            inner = map;
+        }
+        return map;
+    }
+
+    private static IMap<String, ListValue> toMap(RecordLayout layout, Object[] vals) {
+        var labels = layout.labels;
+        var map = new Map<String, ListValue>().linear();
+        // go backwards so the most recent value ends up as the head
+        for (int i = labels.length - 1; i >= 0; i--) {
+            map.put(labels[i], ListValue.of(vals[i], map.get(labels[i], null)));
+        }
+        return map.forked();
+    }
+
     @Override
     public String toString() {
-        return Maps.toString(inner, (String k) -> k + ":", ListValue::toString);
+        return Maps.toString(inner(), (String k) -> k + ":", ListValue::toString);
     }
 
     @Override
@@ -61,7 +118,7 @@ public class Record implements IMap<String, ListValue> {
 
     @Override
     public ListValue get(String key, ListValue defaultValue) {
-        return inner.get(key, defaultValue);
+        return inner().get(key, defaultValue);
     }
 
     /**
@@ -72,33 +129,36 @@ public class Record implements IMap<String, ListValue> {
      */
     @SuppressWarnings("OptionalGetWithoutIsPresent")
     public Object unsafeGet(String key) {
-        var index = inner.indexOf(key).getAsLong();
-        return inner.nth(index).value().value;
+        var l = layout();
+        if (l != null) return vals()[l.indexOf(key)];
+        var map = inner();
+        var index = map.indexOf(key).getAsLong();
+        return map.nth(index).value().value;
     }
 
     @Override
     public IList<IEntry<String, ListValue>> entries() {
-        return inner.entries();
+        return inner().entries();
     }
 
     @Override
     public OptionalLong indexOf(String key) {
-        return inner.indexOf(key);
+        return inner().indexOf(key);
     }
 
     @Override
     public ISet<String> keys() {
-        return inner.keys();
+        return inner().keys();
     }
 
     @Override
     public IList<ListValue> values() {
-        return inner.values();
+        return inner().values();
     }
 
     @Override
     public <U> IMap<String, U> mapValues(BiFunction<String, ListValue, U> f) {
-        return (IMap<String, U>) new Record(inner.mapValues((BiFunction<String, ListValue, ListValue>) f));
+        return (IMap<String, U>) new Record(inner().mapValues((BiFunction<String, ListValue, ListValue>) f));
     }
 
 //    @Override
@@ -112,21 +172,21 @@ public class Record implements IMap<String, ListValue> {
 
     @Override
     public Record merge(IMap<String, ListValue> b, BinaryOperator<ListValue> mergeFn) {
-        return new Record(inner.merge(b, mergeFn));
+        return new Record(inner().merge(b, mergeFn));
     }
 
     @Override
     public Record difference(ISet<String> keys) {
-        return new Record(inner.difference(keys));
+        return new Record(inner().difference(keys));
     }
 
     @Override
     public Record intersection(ISet<String> keys) {
-        return new Record(inner.intersection(keys));
+        return new Record(inner().intersection(keys));
     }
 
     public Record union(Record m) {
-        return new Record(inner.union(m.inner));
+        return new Record(inner().union(m.inner()));
     }
 
     /**
@@ -134,31 +194,45 @@ public class Record implements IMap<String, ListValue> {
      * Labels in `r` will come first then labels in `this`.
      */
     public Record merge(Record r) {
-        return merge(r.inner, (l1, l2) -> {
-            if (l1 == null) return l2;
-            if (l2 == null) return l1;
-            return l2.append(l1);
+        var l1 = layout();
+        var l2 = r.layout();
+        if (l1 != null && l2 != null && l1.size() + l2.size() < MAX_COMPACT_SIZE) {
+            var merge = l1.merge(l2);
+            var vs1 = vals();
+            var vs2 = r.vals();
+            var from = merge.from;
+            var vs = new Object[from.length];
+            for (int i = 0; i < from.length; i++) {
+                var idx = from[i];
+                vs[i] = idx >= 0 ? vs2[idx] : vs1[-idx - 1];
+            }
+            return new Record(merge.layout, vs);
+        }
+        return merge(r.inner(), (v1, v2) -> {
+            if (v1 == null) return v2;
+            if (v2 == null) return v1;
+            return v2.append(v1);
         });
     }
 
     @Override
     public IMap<String, ListValue> difference(IMap<String, ?> m) {
-        return new Record(inner.difference(m));
+        return new Record(inner().difference(m));
     }
 
     @Override
     public IMap<String, ListValue> intersection(IMap<String, ?> m) {
-        return new Record(inner.intersection(m));
+        return new Record(inner().intersection(m));
     }
 
     @Override
     public IMap<String, ListValue> put(String key, ListValue value, BinaryOperator<ListValue> merge) {
-        return new Record(inner.put(key, value, merge));
+        return new Record(inner().put(key, value, merge));
     }
 
     @Override
     public IMap<String, ListValue> update(String key, UnaryOperator<ListValue> update) {
-        return new Record(inner.update(key, update));
+        return new Record(inner().update(key, update));
     }
 
     /**
@@ -169,15 +243,22 @@ public class Record implements IMap<String, ListValue> {
      */
     @SuppressWarnings("OptionalGetWithoutIsPresent")
     public <T> Record update(String key, novah.function.Function<T, T> update) {
-        var idx = inner.indexOf(key).getAsLong();
-        var list = inner.nth(idx).value();
+        var l = layout();
+        if (l != null) {
+            var vs = vals().clone();
+            var i = l.indexOf(key);
+            vs[i] = update.apply((T) vs[i]);
+            return new Record(l, vs);
+        }
+        var idx = inner().indexOf(key).getAsLong();
+        var list = inner().nth(idx).value();
         var newVal = ListValue.of(update.apply((T) list.value), list.next);
-        return new Record(inner.put(key.intern(), newVal));
+        return new Record(inner().put(key.intern(), newVal));
     }
 
     @Override
     public IMap<String, ListValue> put(String key, ListValue value) {
-        return new Record(inner.put(key, value));
+        return new Record(inner().put(key, value));
     }
 
     /**
@@ -186,9 +267,15 @@ public class Record implements IMap<String, ListValue> {
      */
     @SuppressWarnings("OptionalGetWithoutIsPresent")
     public Record set(String key, Object val) {
-        var oldVal = inner.nth(inner.indexOf(key).getAsLong()).value();
+        var l = layout();
+        if (l != null) {
+            var vs = vals().clone();
+            vs[l.indexOf(key)] = val;
+            return new Record(l, vs);
+        }
+        var oldVal = inner().nth(inner().indexOf(key).getAsLong()).value();
         var newVal = ListValue.of(val, oldVal.next);
-        return new Record(inner.put(key, newVal));
+        return new Record(inner().put(key, newVal));
     }
     
     /**
@@ -196,19 +283,29 @@ public class Record implements IMap<String, ListValue> {
      * Accept duplicates.
      */
     public Record assoc(String key, Object value) {
-        var idx = inner.indexOf(key);
+        var l = layout();
+        if (l != null && l.size() + 1 < MAX_COMPACT_SIZE) {
+            var vs = vals();
+            var pos = l.insertionPoint(key);
+            var newVs = new Object[vs.length + 1];
+            System.arraycopy(vs, 0, newVs, 0, pos);
+            newVs[pos] = value;
+            System.arraycopy(vs, pos, newVs, pos + 1, vs.length - pos);
+            return new Record(l.assoc(key), newVs);
+        }
+        var idx = inner().indexOf(key);
         if (idx.isPresent()) {
             // duplicated key, add the value as the head of the list
-            var list = inner.nth(idx.getAsLong()).value();
-            return new Record(inner.put(key.intern(), ListValue.of(value, list)));
+            var list = inner().nth(idx.getAsLong()).value();
+            return new Record(inner().put(key.intern(), ListValue.of(value, list)));
         }
         // key is not duplicated
-        return new Record(inner.put(key.intern(), ListValue.of(value)));
+        return new Record(inner().put(key.intern(), ListValue.of(value)));
     }
 
     @Override
     public IMap<String, ListValue> remove(String key) {
-        return new Record(inner.remove(key));
+        return new Record(inner().remove(key));
     }
 
     /**
@@ -221,41 +318,54 @@ public class Record implements IMap<String, ListValue> {
      */
     @SuppressWarnings("OptionalGetWithoutIsPresent")
     public Record dissoc(String key) {
-        var idx = inner.indexOf(key).getAsLong();
-        var list = inner.nth(idx).value();
+        var l = layout();
+        if (l != null) {
+            var vs = vals();
+            var pos = l.indexOf(key);
+            var newVs = new Object[vs.length - 1];
+            System.arraycopy(vs, 0, newVs, 0, pos);
+            System.arraycopy(vs, pos + 1, newVs, pos, vs.length - pos - 1);
+            return new Record(l.dissoc(key), newVs);
+        }
+        var idx = inner().indexOf(key).getAsLong();
+        var list = inner().nth(idx).value();
         if (list.next != null) {
             // key is duplicated, just drop the head of the list
-            return new Record(inner.put(key.intern(), list.next));
+            return new Record(inner().put(key.intern(), list.next));
         }
-        return new Record(inner.remove(key));
+        return new Record(inner().remove(key));
     }
 
     @Override
     public IMap<String, ListValue> forked() {
-        return isLinear() ? new Record(inner.forked()) : this;
+        return isLinear() ? new Record(inner().forked()) : this;
     }
 
     public Record _forked() {
-        return isLinear() ? new Record(inner.forked()) : this;
+        if (layout() != null) return this;
+        return isLinear() ? new Record(inner().forked()) : this;
     }
 
     @Override
     public IMap<String, ListValue> linear() {
-        return isLinear() ? this : new Record(inner.linear());
+        return isLinear() ? this : new Record(inner().linear());
     }
 
     public Record _linear() {
-        return isLinear() ? this : new Record(inner.linear());
+        // compact records are always immutable
+        if (layout() != null) return this;
+        return isLinear() ? this : new Record(inner().linear());
     }
 
     @Override
     public boolean isLinear() {
-        return inner.isLinear();
+        if (layout() != null) return false;
+        return inner().isLinear();
     }
 
     @Override
     public IList<? extends IMap<String, ListValue>> split(int parts) {
-        return inner.split(parts);
+        return inner().split(parts);
     }
 //
 //    @Override
@@ -265,28 +375,33 @@ public class Record implements IMap<String, ListValue> {
 
     @Override
     public long size() {
-        return inner.size();
+        var l = layout();
+        if (l != null) return l.distinct;
+        return inner().size();
     }
 
     @Override
     public IEntry<String, ListValue> nth(long idx) {
-        return inner.nth(idx);
+        return inner().nth(idx);
     }
 
     @Override
     public IEntry<String, ListValue> nth(long idx, IEntry<String, ListValue> defaultValue) {
-        return inner.nth(idx, defaultValue);
+        return inner().nth(idx, defaultValue);
     }
 
     @Override
     public IMap<String, ListValue> clone() {
-        return new Record(inner.clone());
+        return new Record(inner().clone());
     }
 
     @Override
     public boolean equals(Object o) {
         if (o instanceof Record) {
-            return inner.equals(((Record) o).inner, Objects::equals);
+            var other = (Record) o;
+            var l = layout();
+            if (l != null && l == other.layout()) return Arrays.equals(vals(), other.vals());
+            return inner().equals(other.inner(), Objects::equals);
         }
         return false;
     }
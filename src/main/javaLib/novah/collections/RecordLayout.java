@@ -0,0 +1,218 @@
+/**
+ * Copyright 2022 Islon Scherer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package novah.collections;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The labels of a compact record.
+ * Labels are interned and sorted. Duplicated labels are
+ * adjacent with the most recent one first.
+ * Layouts are canonical: all records with the same labels
+ * share the same layout, so layouts can be compared by identity.
+ * Adding or removing labels goes through a transition table.
+ * Layouts and transitions are weakly referenced, so layouts
+ * no longer used by any record can be collected.
+ */
+public final class RecordLayout {
+
+    // the maximum number of cached transitions of each kind per layout
+    private static final int MAX_TRANSITIONS = 64;
+
+    private static final ConcurrentHashMap<List<String>, Interned> layouts = new ConcurrentHashMap<>();
+    private static final ReferenceQueue<RecordLayout> collected = new ReferenceQueue<>();
+
+    public static final RecordLayout EMPTY = of(new String[0]);
+
+    final String[] labels;
+    // the number of distinct labels
+    final int distinct;
+    // the interned labels as a list
+    private final List<String> key;
+
+    private final ConcurrentHashMap<String, WeakReference<RecordLayout>> assocs = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, WeakReference<RecordLayout>> dissocs = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<List<String>, MergeTransition> merges = new ConcurrentHashMap<>();
+
+    private RecordLayout(String[] labels, List<String> key) {
+        this.labels = labels;
+        this.key = key;
+        int dist = 0;
+        for (int i = 0; i < labels.length; i++) {
+            if (i == 0 || !labels[i].equals(labels[i - 1])) dist++;
+        }
+        distinct = dist;
+    }
+
+    /**
+     * Returns the canonical layout for these sorted labels.
+     */
+    static RecordLayout of(String[] labels) {
+        var ref = layouts.get(Arrays.asList(labels));
+        var layout = ref != null ? ref.get() : null;
+        if (layout != null) return layout;
+        expunge();
+        var interned = new String[labels.length];
+        for (int i = 0; i < labels.length; i++) {
+            interned[i] = labels[i].intern();
+        }
+        var key = Arrays.asList(interned);
+        var created = new RecordLayout(interned, key);
+        while (true) {
+            var old = layouts.putIfAbsent(key, new Interned(created, key));
+            if (old == null) return created;
+            layout = old.get();
+            if (layout != null) return layout;
+            layouts.remove(key, old);
+        }
+    }
+
+    // removes the collected layouts from the intern table
+    private static void expunge() {
+        Interned ref;
+        while ((ref = (Interned) collected.poll()) != null) {
+            layouts.remove(ref.key, ref);
+        }
+    }
+
+    private static <K, V> void cache(ConcurrentHashMap<K, V> transitions, K key, V value) {
+        if (transitions.size() >= MAX_TRANSITIONS) transitions.clear();
+        transitions.put(key, value);
+    }
+
+    public int size() {
+        return labels.length;
+    }
+
+    /**
+     * The index of the most recent value of this label or -1.
+     */
+    public int indexOf(String label) {
+        var ls = labels;
+        for (int i = 0; i < ls.length; i++) {
+            if (ls[i] == label) return i;
+        }
+        // label was not interned
+        for (int i = 0; i < ls.length; i++) {
+            if (ls[i].equals(label)) return i;
+        }
+        return -1;
+    }
+
+    /**
+     * The index where a new value for this label should be inserted.
+     */
+    int insertionPoint(String label) {
+        var ls = labels;
+        int i = 0;
+        while (i < ls.length && ls[i].compareTo(label) < 0) i++;
+        return i;
+    }
+
+    /**
+     * The layout with this label added.
+     */
+    RecordLayout assoc(String label) {
+        var ref = assocs.get(label);
+        var layout = ref != null ? ref.get() : null;
+        if (layout != null) return layout;
+        var pos = insertionPoint(label);
+        var ls = new String[labels.length + 1];
+        System.arraycopy(labels, 0, ls, 0, pos);
+        ls[pos] = label;
+        System.arraycopy(labels, pos, ls, pos + 1, labels.length - pos);
+        layout = of(ls);
+        cache(assocs, label, new WeakReference<>(layout));
+        return layout;
+    }
+
+    /**
+     * The layout with the most recent value of this label removed.
+     * The label has to be present.
+     */
+    RecordLayout dissoc(String label) {
+        var ref = dissocs.get(label);
+        var layout = ref != null ? ref.get() : null;
+        if (layout != null) return layout;
+        var pos = indexOf(label);
+        var ls = new String[labels.length - 1];
+        System.arraycopy(labels, 0, ls, 0, pos);
+        System.arraycopy(labels, pos + 1, ls, pos, labels.length - pos - 1);
+        layout = of(ls);
+        cache(dissocs, label, new WeakReference<>(layout));
+        return layout;
+    }
+
+    /**
+     * The layout of merging a record of layout `other` into a record of this layout.
+     * Values of `other` come first in case of duplicated labels.
+     */
+    Merge merge(RecordLayout other) {
+        var cached = merges.get(other.key);
+        if (cached != null) {
+            var layout = cached.get();
+            if (layout != null) return new Merge(layout, cached.from);
+        }
+        var ls = new String[labels.length + other.labels.length];
+        // positive indexes are from `other`, negative ones from this
+        var from = new int[ls.length];
+        int i = 0, j = 0, k = 0;
+        while (i < labels.length || j < other.labels.length) {
+            if (j < other.labels.length && (i == labels.length || other.labels[j].compareTo(labels[i]) <= 0)) {
+                ls[k] = other.labels[j];
+                from[k++] = j++;
+            } else {
+                ls[k] = labels[i];
+                from[k++] = -(i++) - 1;
+            }
+        }
+        var layout = of(ls);
+        cache(merges, other.key, new MergeTransition(layout, from));
+        return new Merge(layout, from);
+    }
+
+    private static final class Interned extends WeakReference<RecordLayout> {
+        final List<String> key;
+
+        Interned(RecordLayout layout, List<String> key) {
+            super(layout, collected);
+            this.key = key;
+        }
+    }
+
+    private static final class MergeTransition extends WeakReference<RecordLayout> {
+        final int[] from;
+
+        MergeTransition(RecordLayout layout, int[] from) {
+            super(layout);
+            this.from = from;
+        }
+    }
+
+    static final class Merge {
+        final RecordLayout layout;
+        final int[] from;
+
+        Merge(RecordLayout layout, int[] from) {
+            this.layout = layout;
+            this.from = from;
+        }
+    }
+}
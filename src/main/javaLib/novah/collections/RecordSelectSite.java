@@ -0,0 +1,71 @@
+/**
+ * Copyright 2022 Islon Scherer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package novah.collections;
+
+import java.lang.invoke.*;
+
+/**
+ * An inline cache for record selects.
+ * Every select of a record with an unknown shape is an invokedynamic call site
+ * bound to an instance of this class, which remembers the index of the label
+ * in the last layout seen.
+ */
+public final class RecordSelectSite {
+
+    private static final MethodHandle SELECT;
+
+    static {
+        try {
+            var type = MethodType.methodType(Object.class, Record.class);
+            SELECT = MethodHandles.lookup().findVirtual(RecordSelectSite.class, "select", type);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private final String label;
+    private Entry cache;
+
+    private RecordSelectSite(String label) {
+        this.label = label;
+    }
+
+    public static CallSite bootstrap(MethodHandles.Lookup lookup, String name, MethodType type, String label) {
+        var site = new RecordSelectSite(label.intern());
+        return new ConstantCallSite(SELECT.bindTo(site).asType(type));
+    }
+
+    private Object select(Record rec) {
+        var layout = rec.layout();
+        if (layout == null) return rec.unsafeGet(label);
+        var entry = cache;
+        if (entry == null || entry.layout != layout) {
+            entry = new Entry(layout, layout.indexOf(label));
+            cache = entry;
+        }
+        return rec.vals()[entry.index];
+    }
+
+    private static final class Entry {
+        final RecordLayout layout;
+        final int index;
+
+        Entry(RecordLayout layout, int index) {
+            this.layout = layout;
+            this.index = index;
+        }
+    }
+}
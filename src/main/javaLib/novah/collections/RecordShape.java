@@ -0,0 +1,70 @@
+/**
+ * Copyright 2022 Islon Scherer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package novah.collections;
+
+/**
+ * A record whose labels are known at compile time.
+ * The compiler generates a subclass of this class for every
+ * closed record type with one field per label.
+ * When used as a regular record it behaves like a compact record.
+ */
+public abstract class RecordShape extends Record {
+
+    // the layout of every generated shape class
+    private static final ClassValue<RecordLayout[]> layouts = new ClassValue<>() {
+        @Override
+        protected RecordLayout[] computeValue(Class<?> type) {
+            return new RecordLayout[1];
+        }
+    };
+
+    private Object[] boxed;
+
+    protected RecordShape() {
+        super(null, null);
+    }
+
+    /**
+     * The labels of this record.
+     */
+    protected abstract String[] shapeLabels();
+
+    /**
+     * The (boxed) values of this record in the same order as the labels.
+     */
+    protected abstract Object[] shapeValues();
+
+    @Override
+    RecordLayout layout() {
+        var holder = layouts.get(getClass());
+        var layout = holder[0];
+        if (layout == null) {
+            layout = RecordLayout.of(shapeLabels());
+            holder[0] = layout;
+        }
+        return layout;
+    }
+
+    @Override
+    Object[] vals() {
+        var vs = boxed;
+        if (vs == null) {
+            vs = shapeValues();
+            boxed = vs;
+        }
+        return vs;
+    }
+}
@@ -0,0 +1,30 @@
+package novah.function;
+
+/**
+ * A function of 2 arguments that can be called with all of them at once.
+ * Partial applications fall back to the curried form.
+ */
+@SuppressWarnings("unchecked")
+public interface Function2<T1, T2, R> extends Function<T1, Function<T2, R>> {
+
+    R apply2(T1 arg1, T2 arg2);
+
+    @Override
+    default Function<T2, R> apply(T1 arg1) {
+        return new Function<T2, R>() {
+            @Override
+            public R apply(T2 arg2) {
+                return apply2(arg1, arg2);
+            }
+        };
+    }
+
+    /**
+     * Calls `f` with all arguments at once if it's a Function2,
+     * otherwise applies the arguments one by one.
+     */
+    static <T1, T2, R> R call(Function<T1, Function<T2, R>> f, T1 arg1, T2 arg2) {
+        if (f instanceof Function2) return ((Function2<T1, T2, R>) f).apply2(arg1, arg2);
+        return f.apply(arg1).apply(arg2);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,35 @@
+package novah.function;
+
+/**
+ * A function of 2 arguments that can be called with all of them at once.
+ * Partial applications fall back to the curried form.
+ */
+@SuppressWarnings("unchecked")
+public interface Function2DoubleDoubleDouble extends Function<Double, Function<Double, Double>> {
+
+    double apply2(double arg1, double arg2);
+
+    @Override
+    default Function<Double, Double> apply(Double arg) {
+        return applyD(arg.doubleValue());
+    }
+
+    @Override
+    default Function<Double, Double> applyD(double arg1) {
+        return new FunctionDoubleDouble() {
+            @Override
+            public double applyDouble(double arg2) {
+                return apply2(arg1, arg2);
+            }
+        };
+    }
+
+    /**
+     * Calls `f` with all arguments at once if it's a Function2DoubleDoubleDouble,
+     * otherwise applies the arguments one by one.
+     */
+    static double call(Function<Double, Function<Double, Double>> f, double arg1, double arg2) {
+        if (f instanceof Function2DoubleDoubleDouble) return ((Function2DoubleDoubleDouble) f).apply2(arg1, arg2);
+        return f.applyD(arg1).applyDouble(arg2);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,35 @@
+package novah.function;
+
+/**
+ * A function of 2 arguments that can be called with all of them at once.
+ * Partial applications fall back to the curried form.
+ */
+@SuppressWarnings("unchecked")
+public interface Function2DoubleDoubleInt extends Function<Double, Function<Double, Integer>> {
+
+    int apply2(double arg1, double arg2);
+
+    @Override
+    default Function<Double, Integer> apply(Double arg) {
+        return applyD(arg.doubleValue());
+    }
+
+    @Override
+    default Function<Double, Integer> applyD(double arg1) {
+        return new FunctionDoubleInt() {
+            @Override
+            public int applyInt(double arg2) {
+                return apply2(arg1, arg2);
+            }
+        };
+    }
+
+    /**
+     * Calls `f` with all arguments at once if it's a Function2DoubleDoubleInt,
+     * otherwise applies the arguments one by one.
+     */
+    static int call(Function<Double, Function<Double, Integer>> f, double arg1, double arg2) {
+        if (f instanceof Function2DoubleDoubleInt) return ((Function2DoubleDoubleInt) f).apply2(arg1, arg2);
+        return f.applyD(arg1).applyInt(arg2);
+    }
+}
\ No newline at end of file
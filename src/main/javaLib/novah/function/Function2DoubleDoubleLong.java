@@ -0,0 +1,35 @@
+package novah.function;
+
+/**
+ * A function of 2 arguments that can be called with all of them at once.
+ * Partial applications fall back to the curried form.
+ */
+@SuppressWarnings("unchecked")
+public interface Function2DoubleDoubleLong extends Function<Double, Function<Double, Long>> {
+
+    long apply2(double arg1, double arg2);
+
+    @Override
+    default Function<Double, Long> apply(Double arg) {
+        return applyD(arg.doubleValue());
+    }
+
+    @Override
+    default Function<Double, Long> applyD(double arg1) {
+        return new FunctionDoubleLong() {
+            @Override
+            public long applyLong(double arg2) {
+                return apply2(arg1, arg2);
+            }
+        };
+    }
+
+    /**
+     * Calls `f` with all arguments at once if it's a Function2DoubleDoubleLong,
+     * otherwise applies the arguments one by one.
+     */
+    static long call(Function<Double, Function<Double, Long>> f, double arg1, double arg2) {
+        if (f instanceof Function2DoubleDoubleLong) return ((Function2DoubleDoubleLong) f).apply2(arg1, arg2);
+        return f.applyD(arg1).applyLong(arg2);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,35 @@
+package novah.function;
+
+/**
+ * A function of 2 arguments that can be called with all of them at once.
+ * Partial applications fall back to the curried form.
+ */
+@SuppressWarnings("unchecked")
+public interface Function2DoubleDoubleObject<R> extends Function<Double, Function<Double, R>> {
+
+    R apply2(double arg1, double arg2);
+
+    @Override
+    default Function<Double, R> apply(Double arg) {
+        return applyD(arg.doubleValue());
+    }
+
+    @Override
+    default Function<Double, R> applyD(double arg1) {
+        return new FunctionDoubleObject<R>() {
+            @Override
+            public R applyD(double arg2) {
+                return apply2(arg1, arg2);
+            }
+        };
+    }
+
+    /**
+     * Calls `f` with all arguments at once if it's a Function2DoubleDoubleObject,
+     * otherwise applies the arguments one by one.
+     */
+    static <R> R call(Function<Double, Function<Double, R>> f, double arg1, double arg2) {
+        if (f instanceof Function2DoubleDoubleObject) return ((Function2DoubleDoubleObject<R>) f).apply2(arg1, arg2);
+        return f.applyD(arg1).applyD(arg2);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,35 @@
+package novah.function;
+
+/**
+ * A function of 2 arguments that can be called with all of them at once.
+ * Partial applications fall back to the curried form.
+ */
+@SuppressWarnings("unchecked")
+public interface Function2DoubleIntDouble extends Function<Double, Function<Integer, Double>> {
+
+    double apply2(double arg1, int arg2);
+
+    @Override
+    default Function<Integer, Double> apply(Double arg) {
+        return applyD(arg.doubleValue());
+    }
+
+    @Override
+    default Function<Integer, Double> applyD(double arg1) {
+        return new FunctionIntDouble() {
+            @Override
+            public double applyDouble(int arg2) {
+                return apply2(arg1, arg2);
+            }
+        };
+    }
+
+    /**
+     * Calls `f` with all arguments at once if it's a Function2DoubleIntDouble,
+     * otherwise applies the arguments one by one.
+     */
+    static double call(Function<Double, Function<Integer, Double>> f, double arg1, int arg2) {
+        if (f instanceof Function2DoubleIntDouble) return ((Function2DoubleIntDouble) f).apply2(arg1, arg2);
+        return f.applyD(arg1).applyDouble(arg2);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,35 @@
+package novah.function;
+
+/**
+ * A function of 2 arguments that can be called with all of them at once.
+ * Partial applications fall back to the curried form.
+ */
+@SuppressWarnings("unchecked")
+public interface Function2DoubleIntInt extends Function<Double, Function<Integer, Integer>> {
+
+    int apply2(double arg1, int arg2);
+
+    @Override
+    default Function<Integer, Integer> apply(Double arg) {
+        return applyD(arg.doubleValue());
+    }
+
+    @Override
+    default Function<Integer, Integer> applyD(double arg1) {
+        return new FunctionIntInt() {
+            @Override
+            public int applyInt(int arg2) {
+                return apply2(arg1, arg2);
+            }
+        };
+    }
+
+    /**
+     * Calls `f` with all arguments at once if it's a Function2DoubleIntInt,
+     * otherwise applies the arguments one by one.
+     */
+    static int call(Function<Double, Function<Integer, Integer>> f, double arg1, int arg2) {
+        if (f instanceof Function2DoubleIntInt) return ((Function2DoubleIntInt) f).apply2(arg1, arg2);
+        return f.applyD(arg1).applyInt(arg2);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,35 @@
+package novah.function;
+
+/**
+ * A function of 2 arguments that can be called with all of them at once.
+ * Partial applications fall back to the curried form.
+ */
+@SuppressWarnings("unchecked")
+public interface Function2DoubleIntLong extends Function<Double, Function<Integer, Long>> {
+
+    long apply2(double arg1, int arg2);
+
+    @Override
+    default Function<Integer, Long> apply(Double arg) {
+        return applyD(arg.doubleValue());
+    }
+
+    @Override
+    default Function<Integer, Long> applyD(double arg1) {
+        return new FunctionIntLong() {
+            @Override
+            public long applyLong(int arg2) {
+                return apply2(arg1, arg2);
+            }
+        };
+    }
+
+    /**
+     * Calls `f` with all arguments at once if it's a Function2DoubleIntLong,
+     * otherwise applies the arguments one by one.
+     */
+    static long call(Function<Double, Function<Integer, Long>> f, double arg1, int arg2) {
+        if (f instanceof Function2DoubleIntLong) return ((Function2DoubleIntLong) f).apply2(arg1, arg2);
+        return f.applyD(arg1).applyLong(arg2);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,35 @@
+package novah.function;
+
+/**
+ * A function of 2 arguments that can be called with all of them at once.
+ * Partial applications fall back to the curried form.
+ */
+@SuppressWarnings("unchecked")
+public interface Function2DoubleIntObject<R> extends Function<Double, Function<Integer, R>> {
+
+    R apply2(double arg1, int arg2);
+
+    @Override
+    default Function<Integer, R> apply(Double arg) {
+        return applyD(arg.doubleValue());
+    }
+
+    @Override
+    default Function<Integer, R> applyD(double arg1) {
+        return new FunctionIntObject<R>() {
+            @Override
+            public R applyI(int arg2) {
+                return apply2(arg1, arg2);
+            }
+        };
+    }
+
+    /**
+     * Calls `f` with all arguments at once if it's a Function2DoubleIntObject,
+     * otherwise applies the arguments one by one.
+     */
+    static <R> R call(Function<Double, Function<Integer, R>> f, double arg1, int arg2) {
+        if (f instanceof Function2DoubleIntObject) return ((Function2DoubleIntObject<R>) f).apply2(arg1, arg2);
+        return f.applyD(arg1).applyI(arg2);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,35 @@
+package novah.function;
+
+/**
+ * A function of 2 arguments that can be called with all of them at once.
+ * Partial applications fall back to the curried form.
+ */
+@SuppressWarnings("unchecked")
+public interface Function2DoubleLongInt extends Function<Double, Function<Long, Integer>> {
+
+    int apply2(double arg1, long arg2);
+
+    @Override
+    default Function<Long, Integer> apply(Double arg) {
+        return applyD(arg.doubleValue());
+    }
+
+    @Override
+    default Function<Long, Integer> applyD(double arg1) {
+        return new FunctionLongInt() {
+            @Override
+            public int applyInt(long arg2) {
+                return apply2(arg1, arg2);
+            }
+        };
+    }
+
+    /**
+     * Calls `f` with all arguments at once if it's a Function2DoubleLongInt,
+     * otherwise applies the arguments one by one.
+     */
+    static int call(Function<Double, Function<Long, Integer>> f, double arg1, long arg2) {
+        if (f instanceof Function2DoubleLongInt) return ((Function2DoubleLongInt) f).apply2(arg1, arg2);
+        return f.applyD(arg1).applyInt(arg2);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,35 @@
+package novah.function;
+
+/**
+ * A function of 2 arguments that can be called with all of them at once.
+ * Partial applications fall back to the curried form.
+ */
+@SuppressWarnings("unchecked")
+public interface Function2DoubleLongLong extends Function<Double, Function<Long, Long>> {
+
+    long apply2(double arg1, long arg2);
+
+    @Override
+    default Function<Long, Long> apply(Double arg) {
+        return applyD(arg.doubleValue());
+    }
+
+    @Override
+    default Function<Long, Long> applyD(double arg1) {
+        return new FunctionLongLong() {
+            @Override
+            public long applyLong(long arg2) {
+                return apply2(arg1, arg2);
+            }
+        };
+    }
+
+    /**
+     * Calls `f` with all arguments at once if it's a Function2DoubleLongLong,
+     * otherwise applies the arguments one by one.
+     */
+    static long call(Function<Double, Function<Long, Long>> f, double arg1, long arg2) {
+        if (f instanceof Function2DoubleLongLong) return ((Function2DoubleLongLong) f).apply2(arg1, arg2);
+        return f.applyD(arg1).applyLong(arg2);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,35 @@
+package novah.function;
+
+/**
+ * A function of 2 arguments that can be called with all of them at once.
+ * Partial applications fall back to the curried form.
+ */
+@SuppressWarnings("unchecked")
+public interface Function2DoubleLongObject<R> extends Function<Double, Function<Long, R>> {
+
+    R apply2(double arg1, long arg2);
+
+    @Override
+    default Function<Long, R> apply(Double arg) {
+        return applyD(arg.doubleValue());
+    }
+
+    @Override
+    default Function<Long, R> applyD(double arg1) {
+        return new FunctionLongObject<R>() {
+            @Override
+            public R applyJ(long arg2) {
+                return apply2(arg1, arg2);
+            }
+        };
+    }
+
+    /**
+     * Calls `f` with all arguments at once if it's a Function2DoubleLongObject,
+     * otherwise applies the arguments one by one.
+     */
+    static <R> R call(Function<Double, Function<Long, R>> f, double arg1, long arg2) {
+        if (f instanceof Function2DoubleLongObject) return ((Function2DoubleLongObject<R>) f).apply2(arg1, arg2);
+        return f.applyD(arg1).applyJ(arg2);
+    }
+}
\ No newline at end of file
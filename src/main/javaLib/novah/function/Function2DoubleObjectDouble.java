@@ -0,0 +1,35 @@
+package novah.function;
+
+/**
+ * A function of 2 arguments that can be called with all of them at once.
+ * Partial applications fall back to the curried form.
+ */
+@SuppressWarnings("unchecked")
+public interface Function2DoubleObjectDouble<T2> extends Function<Double, Function<T2, Double>> {
+
+    double apply2(double arg1, T2 arg2);
+
+    @Override
+    default Function<T2, Double> apply(Double arg) {
+        return applyD(arg.doubleValue());
+    }
+
+    @Override
+    default Function<T2, Double> applyD(double arg1) {
+        return new FunctionObjectDouble<T2>() {
+            @Override
+            public double applyDouble(T2 arg2) {
+                return apply2(arg1, arg2);
+            }
+        };
+    }
+
+    /**
+     * Calls `f` with all arguments at once if it's a Function2DoubleObjectDouble,
+     * otherwise applies the arguments one by one.
+     */
+    static <T2> double call(Function<Double, Function<T2, Double>> f, double arg1, T2 arg2) {
+        if (f instanceof Function2DoubleObjectDouble) return ((Function2DoubleObjectDouble<T2>) f).apply2(arg1, arg2);
+        return f.applyD(arg1).applyDouble(arg2);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,35 @@
+package novah.function;
+
+/**
+ * A function of 2 arguments that can be called with all of them at once.
+ * Partial applications fall back to the curried form.
+ */
+@SuppressWarnings("unchecked")
+public interface Function2DoubleObjectLong<T2> extends Function<Double, Function<T2, Long>> {
+
+    long apply2(double arg1, T2 arg2);
+
+    @Override
+    default Function<T2, Long> apply(Double arg) {
+        return applyD(arg.doubleValue());
+    }
+
+    @Override
+    default Function<T2, Long> applyD(double arg1) {
+        return new FunctionObjectLong<T2>() {
+            @Override
+            public long applyLong(T2 arg2) {
+                return apply2(arg1, arg2);
+            }
+        };
+    }
+
+    /**
+     * Calls `f` with all arguments at once if it's a Function2DoubleObjectLong,
+     * otherwise applies the arguments one by one.
+     */
+    static <T2> long call(Function<Double, Function<T2, Long>> f, double arg1, T2 arg2) {
+        if (f instanceof Function2DoubleObjectLong) return ((Function2DoubleObjectLong<T2>) f).apply2(arg1, arg2);
+        return f.applyD(arg1).applyLong(arg2);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,35 @@
+package novah.function;
+
+/**
+ * A function of 2 arguments that can be called with all of them at once.
+ * Partial applications fall back to the curried form.
+ */
+@SuppressWarnings("unchecked")
+public interface Function2DoubleObjectObject<T2, R> extends Function<Double, Function<T2, R>> {
+
+    R apply2(double arg1, T2 arg2);
+
+    @Override
+    default Function<T2, R> apply(Double arg) {
+        return applyD(arg.doubleValue());
+    }
+
+    @Override
+    default Function<T2, R> applyD(double arg1) {
+        return new Function<T2, R>() {
+            @Override
+            public R apply(T2 arg2) {
+                return apply2(arg1, arg2);
+            }
+        };
+    }
+
+    /**
+     * Calls `f` with all arguments at once if it's a Function2DoubleObjectObject,
+     * otherwise applies the arguments one by one.
+     */
+    static <T2, R> R call(Function<Double, Function<T2, R>> f, double arg1, T2 arg2) {
+        if (f instanceof Function2DoubleObjectObject) return ((Function2DoubleObjectObject<T2, R>) f).apply2(arg1, arg2);
+        return f.applyD(arg1).apply(arg2);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,35 @@
+package novah.function;
+
+/**
+ * A function of 2 arguments that can be called with all of them at once.
+ * Partial applications fall back to the curried form.
+ */
+@SuppressWarnings("unchecked")
+public interface Function2IntDoubleDouble extends Function<Integer, Function<Double, Double>> {
+
+    double apply2(int arg1, double arg2);
+
+    @Override
+    default Function<Double, Double> apply(Integer arg) {
+        return applyI(arg.intValue());
+    }
+
+    @Override
+    default Function<Double, Double> applyI(int arg1) {
+        return new FunctionDoubleDouble() {
+            @Override
+            public double applyDouble(double arg2) {
+                return apply2(arg1, arg2);
+            }
+        };
+    }
+
+    /**
+     * Calls `f` with all arguments at once if it's a Function2IntDoubleDouble,
+     * otherwise applies the arguments one by one.
+     */
+    static double call(Function<Integer, Function<Double, Double>> f, int arg1, double arg2) {
+        if (f instanceof Function2IntDoubleDouble) return ((Function2IntDoubleDouble) f).apply2(arg1, arg2);
+        return f.applyI(arg1).applyDouble(arg2);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,35 @@
+package novah.function;
+
+/**
+ * A function of 2 arguments that can be called with all of them at once.
+ * Partial applications fall back to the curried form.
+ */
+@SuppressWarnings("unchecked")
+public interface Function2IntDoubleInt extends Function<Integer, Function<Double, Integer>> {
+
+    int apply2(int arg1, double arg2);
+
+    @Override
+    default Function<Double, Integer> apply(Integer arg) {
+        return applyI(arg.intValue());
+    }
+
+    @Override
+    default Function<Double, Integer> applyI(int arg1) {
+        return new FunctionDoubleInt() {
+            @Override
+            public int applyInt(double arg2) {
+                return apply2(arg1, arg2);
+            }
+        };
+    }
+
+    /**
+     * Calls `f` with all arguments at once if it's a Function2IntDoubleInt,
+     * otherwise applies the arguments one by one.
+     */
+    static int call(Function<Integer, Function<Double, Integer>> f, int arg1, double arg2) {
+        if (f instanceof Function2IntDoubleInt) return ((Function2IntDoubleInt) f).apply2(arg1, arg2);
+        return f.applyI(arg1).applyInt(arg2);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,35 @@
+package novah.function;
+
+/**
+ * A function of 2 arguments that can be called with all of them at once.
+ * Partial applications fall back to the curried form.
+ */
+@SuppressWarnings("unchecked")
+public interface Function2IntDoubleLong extends Function<Integer, Function<Double, Long>> {
+
+    long apply2(int arg1, double arg2);
+
+    @Override
+    default Function<Double, Long> apply(Integer arg) {
+        return applyI(arg.intValue());
+    }
+
+    @Override
+    default Function<Double, Long> applyI(int arg1) {
+        return new FunctionDoubleLong() {
+            @Override
+            public long applyLong(double arg2) {
+                return apply2(arg1, arg2);
+            }
+        };
+    }
+
+    /**
+     * Calls `f` with all arguments at once if it's a Function2IntDoubleLong,
+     * otherwise applies the arguments one by one.
+     */
+    static long call(Function<Integer, Function<Double, Long>> f, int arg1, double arg2) {
+        if (f instanceof Function2IntDoubleLong) return ((Function2IntDoubleLong) f).apply2(arg1, arg2);
+        return f.applyI(arg1).applyLong(arg2);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,35 @@
+package novah.function;
+
+/**
+ * A function of 2 arguments that can be called with all of them at once.
+ * Partial applications fall back to the curried form.
+ */
+@SuppressWarnings("unchecked")
+public interface Function2IntDoubleObject<R> extends Function<Integer, Function<Double, R>> {
+
+    R apply2(int arg1, double arg2);
+
+    @Override
+    default Function<Double, R> apply(Integer arg) {
+        return applyI(arg.intValue());
+    }
+
+    @Override
+    default Function<Double, R> applyI(int arg1) {
+        return new FunctionDoubleObject<R>() {
+            @Override
+            public R applyD(double arg2) {
+                return apply2(arg1, arg2);
+            }
+        };
+    }
+
+    /**
+     * Calls `f` with all arguments at once if it's a Function2IntDoubleObject,
+     * otherwise applies the arguments one by one.
+     */
+    static <R> R call(Function<Integer, Function<Double, R>> f, int arg1, double arg2) {
+        if (f instanceof Function2IntDoubleObject) return ((Function2IntDoubleObject<R>) f).apply2(arg1, arg2);
+        return f.applyI(arg1).applyD(arg2);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,35 @@
+package novah.function;
+
+/**
+ * A function of 2 arguments that can be called with all of them at once.
+ * Partial applications fall back to the curried form.
+ */
+@SuppressWarnings("unchecked")
+public interface Function2IntIntLong extends Function<Integer, Function<Integer, Long>> {
+
+    long apply2(int arg1, int arg2);
+
+    @Override
+    default Function<Integer, Long> apply(Integer arg) {
+        return applyI(arg.intValue());
+    }
+
+    @Override
+    default Function<Integer, Long> applyI(int arg1) {
+        return new FunctionIntLong() {
+            @Override
+            public long applyLong(int arg2) {
+                return apply2(arg1, arg2);
+            }
+        };
+    }
+
+    /**
+     * Calls `f` with all arguments at once if it's a Function2IntIntLong,
+     * otherwise applies the arguments one by one.
+     */
+    static long call(Function<Integer, Function<Integer, Long>> f, int arg1, int arg2) {
+        if (f instanceof Function2IntIntLong) return ((Function2IntIntLong) f).apply2(arg1, arg2);
+        return f.applyI(arg1).applyLong(arg2);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,35 @@
+package novah.function;
+
+/**
+ * A function of 2 arguments that can be called with all of them at once.
+ * Partial applications fall back to the curried form.
+ */
+@SuppressWarnings("unchecked")
+public interface Function2IntIntObject<R> extends Function<Integer, Function<Integer, R>> {
+
+    R apply2(int arg1, int arg2);
+
+    @Override
+    default Function<Integer, R> apply(Integer arg) {
+        return applyI(arg.intValue());
+    }
+
+    @Override
+    default Function<Integer, R> applyI(int arg1) {
+        return new FunctionIntObject<R>() {
+            @Override
+            public R applyI(int arg2) {
+                return apply2(arg1, arg2);
+            }
+        };
+    }
+
+    /**
+     * Calls `f` with all arguments at once if it's a Function2IntIntObject,
+     * otherwise applies the arguments one by one.
+     */
+    static <R> R call(Function<Integer, Function<Integer, R>> f, int arg1, int arg2) {
+        if (f instanceof Function2IntIntObject) return ((Function2IntIntObject<R>) f).apply2(arg1, arg2);
+        return f.applyI(arg1).applyI(arg2);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,35 @@
+package novah.function;
+
+/**
+ * A function of 2 arguments that can be called with all of them at once.
+ * Partial applications fall back to the curried form.
+ */
+@SuppressWarnings("unchecked")
+public interface Function2IntLongDouble extends Function<Integer, Function<Long, Double>> {
+
+    double apply2(int arg1, long arg2);
+
+    @Override
+    default Function<Long, Double> apply(Integer arg) {
+        return applyI(arg.intValue());
+    }
+
+    @Override
+    default Function<Long, Double> applyI(int arg1) {
+        return new FunctionLongDouble() {
+            @Override
+            public double applyDouble(long arg2) {
+                return apply2(arg1, arg2);
+            }
+        };
+    }
+
+    /**
+     * Calls `f` with all arguments at once if it's a Function2IntLongDouble,
+     * otherwise applies the arguments one by one.
+     */
+    static double call(Function<Integer, Function<Long, Double>> f, int arg1, long arg2) {
+        if (f instanceof Function2IntLongDouble) return ((Function2IntLongDouble) f).apply2(arg1, arg2);
+        return f.applyI(arg1).applyDouble(arg2);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,35 @@
+package novah.function;
+
+/**
+ * A function of 2 arguments that can be called with all of them at once.
+ * Partial applications fall back to the curried form.
+ */
+@SuppressWarnings("unchecked")
+public interface Function2IntLongLong extends Function<Integer, Function<Long, Long>> {
+
+    long apply2(int arg1, long arg2);
+
+    @Override
+    default Function<Long, Long> apply(Integer arg) {
+        return applyI(arg.intValue());
+    }
+
+    @Override
+    default Function<Long, Long> applyI(int arg1) {
+        return new FunctionLongLong() {
+            @Override
+            public long applyLong(long arg2) {
+                return apply2(arg1, arg2);
+            }
+        };
+    }
+
+    /**
+     * Calls `f` with all arguments at once if it's a Function2IntLongLong,
+     * otherwise applies the arguments one by one.
+     */
+    static long call(Function<Integer, Function<Long, Long>> f, int arg1, long arg2) {
+        if (f instanceof Function2IntLongLong) return ((Function2IntLongLong) f).apply2(arg1, arg2);
+        return f.applyI(arg1).applyLong(arg2);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,35 @@
+package novah.function;
+
+/**
+ * A function of 2 arguments that can be called with all of them at once.
+ * Partial applications fall back to the curried form.
+ */
+@SuppressWarnings("unchecked")
+public interface Function2IntLongObject<R> extends Function<Integer, Function<Long, R>> {
+
+    R apply2(int arg1, long arg2);
+
+    @Override
+    default Function<Long, R> apply(Integer arg) {
+        return applyI(arg.intValue());
+    }
+
+    @Override
+    default Function<Long, R> applyI(int arg1) {
+        return new FunctionLongObject<R>() {
+            @Override
+            public R applyJ(long arg2) {
+                return apply2(arg1, arg2);
+            }
+        };
+    }
+
+    /**
+     * Calls `f` with all arguments at once if it's a Function2IntLongObject,
+     * otherwise applies the arguments one by one.
+     */
+    static <R> R call(Function<Integer, Function<Long, R>> f, int arg1, long arg2) {
+        if (f instanceof Function2IntLongObject) return ((Function2IntLongObject<R>) f).apply2(arg1, arg2);
+        return f.applyI(arg1).applyJ(arg2);
+    }
+}
\ No newline at end of file
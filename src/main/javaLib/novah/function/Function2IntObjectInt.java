@@ -0,0 +1,35 @@
+package novah.function;
+
+/**
+ * A function of 2 arguments that can be called with all of them at once.
+ * Partial applications fall back to the curried form.
+ */
+@SuppressWarnings("unchecked")
+public interface Function2IntObjectInt<T2> extends Function<Integer, Function<T2, Integer>> {
+
+    int apply2(int arg1, T2 arg2);
+
+    @Override
+    default Function<T2, Integer> apply(Integer arg) {
+        return applyI(arg.intValue());
+    }
+
+    @Override
+    default Function<T2, Integer> applyI(int arg1) {
+        return new FunctionObjectInt<T2>() {
+            @Override
+            public int applyInt(T2 arg2) {
+                return apply2(arg1, arg2);
+            }
+        };
+    }
+
+    /**
+     * Calls `f` with all arguments at once if it's a Function2IntObjectInt,
+     * otherwise applies the arguments one by one.
+     */
+    static <T2> int call(Function<Integer, Function<T2, Integer>> f, int arg1, T2 arg2) {
+        if (f instanceof Function2IntObjectInt) return ((Function2IntObjectInt<T2>) f).apply2(arg1, arg2);
+        return f.applyI(arg1).applyInt(arg2);
+    }
+}
\ No newline at end of file
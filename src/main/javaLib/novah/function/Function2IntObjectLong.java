@@ -0,0 +1,35 @@
+package novah.function;
+
+/**
+ * A function of 2 arguments that can be called with all of them at once.
+ * Partial applications fall back to the curried form.
+ */
+@SuppressWarnings("unchecked")
+public interface Function2IntObjectLong<T2> extends Function<Integer, Function<T2, Long>> {
+
+    long apply2(int arg1, T2 arg2);
+
+    @Override
+    default Function<T2, Long> apply(Integer arg) {
+        return applyI(arg.intValue());
+    }
+
+    @Override
+    default Function<T2, Long> applyI(int arg1) {
+        return new FunctionObjectLong<T2>() {
+            @Override
+            public long applyLong(T2 arg2) {
+                return apply2(arg1, arg2);
+            }
+        };
+    }
+
+    /**
+     * Calls `f` with all arguments at once if it's a Function2IntObjectLong,
+     * otherwise applies the arguments one by one.
+     */
+    static <T2> long call(Function<Integer, Function<T2, Long>> f, int arg1, T2 arg2) {
+        if (f instanceof Function2IntObjectLong) return ((Function2IntObjectLong<T2>) f).apply2(arg1, arg2);
+        return f.applyI(arg1).applyLong(arg2);
+    }
+}
\ No newline at end of file
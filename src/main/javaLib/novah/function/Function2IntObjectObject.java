@@ -0,0 +1,35 @@
+package novah.function;
+
+/**
+ * A function of 2 arguments that can be called with all of them at once.
+ * Partial applications fall back to the curried form.
+ */
+@SuppressWarnings("unchecked")
+public interface Function2IntObjectObject<T2, R> extends Function<Integer, Function<T2, R>> {
+
+    R apply2(int arg1, T2 arg2);
+
+    @Override
+    default Function<T2, R> apply(Integer arg) {
+        return applyI(arg.intValue());
+    }
+
+    @Override
+    default Function<T2, R> applyI(int arg1) {
+        return new Function<T2, R>() {
+            @Override
+            public R apply(T2 arg2) {
+                return apply2(arg1, arg2);
+            }
+        };
+    }
+
+    /**
+     * Calls `f` with all arguments at once if it's a Function2IntObjectObject,
+     * otherwise applies the arguments one by one.
+     */
+    static <T2, R> R call(Function<Integer, Function<T2, R>> f, int arg1, T2 arg2) {
+        if (f instanceof Function2IntObjectObject) return ((Function2IntObjectObject<T2, R>) f).apply2(arg1, arg2);
+        return f.applyI(arg1).apply(arg2);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,35 @@
+package novah.function;
+
+/**
+ * A function of 2 arguments that can be called with all of them at once.
+ * Partial applications fall back to the curried form.
+ */
+@SuppressWarnings("unchecked")
+public interface Function2LongDoubleDouble extends Function<Long, Function<Double, Double>> {
+
+    double apply2(long arg1, double arg2);
+
+    @Override
+    default Function<Double, Double> apply(Long arg) {
+        return applyJ(arg.longValue());
+    }
+
+    @Override
+    default Function<Double, Double> applyJ(long arg1) {
+        return new FunctionDoubleDouble() {
+            @Override
+            public double applyDouble(double arg2) {
+                return apply2(arg1, arg2);
+            }
+        };
+    }
+
+    /**
+     * Calls `f` with all arguments at once if it's a Function2LongDoubleDouble,
+     * otherwise applies the arguments one by one.
+     */
+    static double call(Function<Long, Function<Double, Double>> f, long arg1, double arg2) {
+        if (f instanceof Function2LongDoubleDouble) return ((Function2LongDoubleDouble) f).apply2(arg1, arg2);
+        return f.applyJ(arg1).applyDouble(arg2);
+    }
+}
\ No newline at end of file
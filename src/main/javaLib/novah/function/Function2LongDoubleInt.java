@@ -0,0 +1,35 @@
+package novah.function;
+
+/**
+ * A function of 2 arguments that can be called with all of them at once.
+ * Partial applications fall back to the curried form.
+ */
+@SuppressWarnings("unchecked")
+public interface Function2LongDoubleInt extends Function<Long, Function<Double, Integer>> {
+
+    int apply2(long arg1, double arg2);
+
+    @Override
+    default Function<Double, Integer> apply(Long arg) {
+        return applyJ(arg.longValue());
+    }
+
+    @Override
+    default Function<Double, Integer> applyJ(long arg1) {
+        return new FunctionDoubleInt() {
+            @Override
+            public int applyInt(double arg2) {
+                return apply2(arg1, arg2);
+            }
+        };
+    }
+
+    /**
+     * Calls `f` with all arguments at once if it's a Function2LongDoubleInt,
+     * otherwise applies the arguments one by one.
+     */
+    static int call(Function<Long, Function<Double, Integer>> f, long arg1, double arg2) {
+        if (f instanceof Function2LongDoubleInt) return ((Function2LongDoubleInt) f).apply2(arg1, arg2);
+        return f.applyJ(arg1).applyInt(arg2);
+    }
+}
\ No newline at end of file
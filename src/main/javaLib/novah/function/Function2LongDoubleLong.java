@@ -0,0 +1,35 @@
+package novah.function;
+
+/**
+ * A function of 2 arguments that can be called with all of them at once.
+ * Partial applications fall back to the curried form.
+ */
+@SuppressWarnings("unchecked")
+public interface Function2LongDoubleLong extends Function<Long, Function<Double, Long>> {
+
+    long apply2(long arg1, double arg2);
+
+    @Override
+    default Function<Double, Long> apply(Long arg) {
+        return applyJ(arg.longValue());
+    }
+
+    @Override
+    default Function<Double, Long> applyJ(long arg1) {
+        return new FunctionDoubleLong() {
+            @Override
+            public long applyLong(double arg2) {
+                return apply2(arg1, arg2);
+            }
+        };
+    }
+
+    /**
+     * Calls `f` with all arguments at once if it's a Function2LongDoubleLong,
+     * otherwise applies the arguments one by one.
+     */
+    static long call(Function<Long, Function<Double, Long>> f, long arg1, double arg2) {
+        if (f instanceof Function2LongDoubleLong) return ((Function2LongDoubleLong) f).apply2(arg1, arg2);
+        return f.applyJ(arg1).applyLong(arg2);
+    }
+}
\ No newline at end of file
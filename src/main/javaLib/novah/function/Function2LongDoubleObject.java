@@ -0,0 +1,35 @@
+package novah.function;
+
+/**
+ * A function of 2 arguments that can be called with all of them at once.
+ * Partial applications fall back to the curried form.
+ */
+@SuppressWarnings("unchecked")
+public interface Function2LongDoubleObject<R> extends Function<Long, Function<Double, R>> {
+
+    R apply2(long arg1, double arg2);
+
+    @Override
+    default Function<Double, R> apply(Long arg) {
+        return applyJ(arg.longValue());
+    }
+
+    @Override
+    default Function<Double, R> applyJ(long arg1) {
+        return new FunctionDoubleObject<R>() {
+            @Override
+            public R applyD(double arg2) {
+                return apply2(arg1, arg2);
+            }
+        };
+    }
+
+    /**
+     * Calls `f` with all arguments at once if it's a Function2LongDoubleObject,
+     * otherwise applies the arguments one by one.
+     */
+    static <R> R call(Function<Long, Function<Double, R>> f, long arg1, double arg2) {
+        if (f instanceof Function2LongDoubleObject) return ((Function2LongDoubleObject<R>) f).apply2(arg1, arg2);
+        return f.applyJ(arg1).applyD(arg2);
+    }
+}
\ No newline at end of file
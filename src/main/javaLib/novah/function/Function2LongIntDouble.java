@@ -0,0 +1,35 @@
+package novah.function;
+
+/**
+ * A function of 2 arguments that can be called with all of them at once.
+ * Partial applications fall back to the curried form.
+ */
+@SuppressWarnings("unchecked")
+public interface Function2LongIntDouble extends Function<Long, Function<Integer, Double>> {
+
+    double apply2(long arg1, int arg2);
+
+    @Override
+    default Function<Integer, Double> apply(Long arg) {
+        return applyJ(arg.longValue());
+    }
+
+    @Override
+    default Function<Integer, Double> applyJ(long arg1) {
+        return new FunctionIntDouble() {
+            @Override
+            public double applyDouble(int arg2) {
+                return apply2(arg1, arg2);
+            }
+        };
+    }
+
+    /**
+     * Calls `f` with all arguments at once if it's a Function2LongIntDouble,
+     * otherwise applies the arguments one by one.
+     */
+    static double call(Function<Long, Function<Integer, Double>> f, long arg1, int arg2) {
+        if (f instanceof Function2LongIntDouble) return ((Function2LongIntDouble) f).apply2(arg1, arg2);
+        return f.applyJ(arg1).applyDouble(arg2);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,35 @@
+package novah.function;
+
+/**
+ * A function of 2 arguments that can be called with all of them at once.
+ * Partial applications fall back to the curried form.
+ */
+@SuppressWarnings("unchecked")
+public interface Function2LongIntInt extends Function<Long, Function<Integer, Integer>> {
+
+    int apply2(long arg1, int arg2);
+
+    @Override
+    default Function<Integer, Integer> apply(Long arg) {
+        return applyJ(arg.longValue());
+    }
+
+    @Override
+    default Function<Integer, Integer> applyJ(long arg1) {
+        return new FunctionIntInt() {
+            @Override
+            public int applyInt(int arg2) {
+                return apply2(arg1, arg2);
+            }
+        };
+    }
+
+    /**
+     * Calls `f` with all arguments at once if it's a Function2LongIntInt,
+     * otherwise applies the arguments one by one.
+     */
+    static int call(Function<Long, Function<Integer, Integer>> f, long arg1, int arg2) {
+        if (f instanceof Function2LongIntInt) return ((Function2LongIntInt) f).apply2(arg1, arg2);
+        return f.applyJ(arg1).applyInt(arg2);
+    }
+}
\ No newline at end of file
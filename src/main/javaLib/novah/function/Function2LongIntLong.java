@@ -0,0 +1,35 @@
+package novah.function;
+
+/**
+ * A function of 2 arguments that can be called with all of them at once.
+ * Partial applications fall back to the curried form.
+ */
+@SuppressWarnings("unchecked")
+public interface Function2LongIntLong extends Function<Long, Function<Integer, Long>> {
+
+    long apply2(long arg1, int arg2);
+
+    @Override
+    default Function<Integer, Long> apply(Long arg) {
+        return applyJ(arg.longValue());
+    }
+
+    @Override
+    default Function<Integer, Long> applyJ(long arg1) {
+        return new FunctionIntLong() {
+            @Override
+            public long applyLong(int arg2) {
+                return apply2(arg1, arg2);
+            }
+        };
+    }
+
+    /**
+     * Calls `f` with all arguments at once if it's a Function2LongIntLong,
+     * otherwise applies the arguments one by one.
+     */
+    static long call(Function<Long, Function<Integer, Long>> f, long arg1, int arg2) {
+        if (f instanceof Function2LongIntLong) return ((Function2LongIntLong) f).apply2(arg1, arg2);
+        return f.applyJ(arg1).applyLong(arg2);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,35 @@
+package novah.function;
+
+/**
+ * A function of 2 arguments that can be called with all of them at once.
+ * Partial applications fall back to the curried form.
+ */
+@SuppressWarnings("unchecked")
+public interface Function2LongIntObject<R> extends Function<Long, Function<Integer, R>> {
+
+    R apply2(long arg1, int arg2);
+
+    @Override
+    default Function<Integer, R> apply(Long arg) {
+        return applyJ(arg.longValue());
+    }
+
+    @Override
+    default Function<Integer, R> applyJ(long arg1) {
+        return new FunctionIntObject<R>() {
+            @Override
+            public R applyI(int arg2) {
+                return apply2(arg1, arg2);
+            }
+        };
+    }
+
+    /**
+     * Calls `f` with all arguments at once if it's a Function2LongIntObject,
+     * otherwise applies the arguments one by one.
+     */
+    static <R> R call(Function<Long, Function<Integer, R>> f, long arg1, int arg2) {
+        if (f instanceof Function2LongIntObject) return ((Function2LongIntObject<R>) f).apply2(arg1, arg2);
+        return f.applyJ(arg1).applyI(arg2);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,35 @@
+package novah.function;
+
+/**
+ * A function of 2 arguments that can be called with all of them at once.
+ * Partial applications fall back to the curried form.
+ */
+@SuppressWarnings("unchecked")
+public interface Function2LongLongDouble extends Function<Long, Function<Long, Double>> {
+
+    double apply2(long arg1, long arg2);
+
+    @Override
+    default Function<Long, Double> apply(Long arg) {
+        return applyJ(arg.longValue());
+    }
+
+    @Override
+    default Function<Long, Double> applyJ(long arg1) {
+        return new FunctionLongDouble() {
+            @Override
+            public double applyDouble(long arg2) {
+                return apply2(arg1, arg2);
+            }
+        };
+    }
+
+    /**
+     * Calls `f` with all arguments at once if it's a Function2LongLongDouble,
+     * otherwise applies the arguments one by one.
+     */
+    static double call(Function<Long, Function<Long, Double>> f, long arg1, long arg2) {
+        if (f instanceof Function2LongLongDouble) return ((Function2LongLongDouble) f).apply2(arg1, arg2);
+        return f.applyJ(arg1).applyDouble(arg2);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,35 @@
+package novah.function;
+
+/**
+ * A function of 2 arguments that can be called with all of them at once.
+ * Partial applications fall back to the curried form.
+ */
+@SuppressWarnings("unchecked")
+public interface Function2LongLongInt extends Function<Long, Function<Long, Integer>> {
+
+    int apply2(long arg1, long arg2);
+
+    @Override
+    default Function<Long, Integer> apply(Long arg) {
+        return applyJ(arg.longValue());
+    }
+
+    @Override
+    default Function<Long, Integer> applyJ(long arg1) {
+        return new FunctionLongInt() {
+            @Override
+            public int applyInt(long arg2) {
+                return apply2(arg1, arg2);
+            }
+        };
+    }
+
+    /**
+     * Calls `f` with all arguments at once if it's a Function2LongLongInt,
+     * otherwise applies the arguments one by one.
+     */
+    static int call(Function<Long, Function<Long, Integer>> f, long arg1, long arg2) {
+        if (f instanceof Function2LongLongInt) return ((Function2LongLongInt) f).apply2(arg1, arg2);
+        return f.applyJ(arg1).applyInt(arg2);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,35 @@
+package novah.function;
+
+/**
+ * A function of 2 arguments that can be called with all of them at once.
+ * Partial applications fall back to the curried form.
+ */
+@SuppressWarnings("unchecked")
+public interface Function2LongLongLong extends Function<Long, Function<Long, Long>> {
+
+    long apply2(long arg1, long arg2);
+
+    @Override
+    default Function<Long, Long> apply(Long arg) {
+        return applyJ(arg.longValue());
+    }
+
+    @Override
+    default Function<Long, Long> applyJ(long arg1) {
+        return new FunctionLongLong() {
+            @Override
+            public long applyLong(long arg2) {
+                return apply2(arg1, arg2);
+            }
+        };
+    }
+
+    /**
+     * Calls `f` with all arguments at once if it's a Function2LongLongLong,
+     * otherwise applies the arguments one by one.
+     */
+    static long call(Function<Long, Function<Long, Long>> f, long arg1, long arg2) {
+        if (f instanceof Function2LongLongLong) return ((Function2LongLongLong) f).apply2(arg1, arg2);
+        return f.applyJ(arg1).applyLong(arg2);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,35 @@
+package novah.function;
+
+/**
+ * A function of 2 arguments that can be called with all of them at once.
+ * Partial applications fall back to the curried form.
+ */
+@SuppressWarnings("unchecked")
+public interface Function2LongLongObject<R> extends Function<Long, Function<Long, R>> {
+
+    R apply2(long arg1, long arg2);
+
+    @Override
+    default Function<Long, R> apply(Long arg) {
+        return applyJ(arg.longValue());
+    }
+
+    @Override
+    default Function<Long, R> applyJ(long arg1) {
+        return new FunctionLongObject<R>() {
+            @Override
+            public R applyJ(long arg2) {
+                return apply2(arg1, arg2);
+            }
+        };
+    }
+
+    /**
+     * Calls `f` with all arguments at once if it's a Function2LongLongObject,
+     * otherwise applies the arguments one by one.
+     */
+    static <R> R call(Function<Long, Function<Long, R>> f, long arg1, long arg2) {
+        if (f instanceof Function2LongLongObject) return ((Function2LongLongObject<R>) f).apply2(arg1, arg2);
+        return f.applyJ(arg1).applyJ(arg2);
+    }
+}
\ No newline at end of file
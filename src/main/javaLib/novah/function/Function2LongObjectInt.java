@@ -0,0 +1,35 @@
+package novah.function;
+
+/**
+ * A function of 2 arguments that can be called with all of them at once.
+ * Partial applications fall back to the curried form.
+ */
+@SuppressWarnings("unchecked")
+public interface Function2LongObjectInt<T2> extends Function<Long, Function<T2, Integer>> {
+
+    int apply2(long arg1, T2 arg2);
+
+    @Override
+    default Function<T2, Integer> apply(Long arg) {
+        return applyJ(arg.longValue());
+    }
+
+    @Override
+    default Function<T2, Integer> applyJ(long arg1) {
+        return new FunctionObjectInt<T2>() {
+            @Override
+            public int applyInt(T2 arg2) {
+                return apply2(arg1, arg2);
+            }
+        };
+    }
+
+    /**
+     * Calls `f` with all arguments at once if it's a Function2LongObjectInt,
+     * otherwise applies the arguments one by one.
+     */
+    static <T2> int call(Function<Long, Function<T2, Integer>> f, long arg1, T2 arg2) {
+        if (f instanceof Function2LongObjectInt) return ((Function2LongObjectInt<T2>) f).apply2(arg1, arg2);
+        return f.applyJ(arg1).applyInt(arg2);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,35 @@
+package novah.function;
+
+/**
+ * A function of 2 arguments that can be called with all of them at once.
+ * Partial applications fall back to the curried form.
+ */
+@SuppressWarnings("unchecked")
+public interface Function2LongObjectLong<T2> extends Function<Long, Function<T2, Long>> {
+
+    long apply2(long arg1, T2 arg2);
+
+    @Override
+    default Function<T2, Long> apply(Long arg) {
+        return applyJ(arg.longValue());
+    }
+
+    @Override
+    default Function<T2, Long> applyJ(long arg1) {
+        return new FunctionObjectLong<T2>() {
+            @Override
+            public long applyLong(T2 arg2) {
+                return apply2(arg1, arg2);
+            }
+        };
+    }
+
+    /**
+     * Calls `f` with all arguments at once if it's a Function2LongObjectLong,
+     * otherwise applies the arguments one by one.
+     */
+    static <T2> long call(Function<Long, Function<T2, Long>> f, long arg1, T2 arg2) {
+        if (f instanceof Function2LongObjectLong) return ((Function2LongObjectLong<T2>) f).apply2(arg1, arg2);
+        return f.applyJ(arg1).applyLong(arg2);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,35 @@
+package novah.function;
+
+/**
+ * A function of 2 arguments that can be called with all of them at once.
+ * Partial applications fall back to the curried form.
+ */
+@SuppressWarnings("unchecked")
+public interface Function2LongObjectObject<T2, R> extends Function<Long, Function<T2, R>> {
+
+    R apply2(long arg1, T2 arg2);
+
+    @Override
+    default Function<T2, R> apply(Long arg) {
+        return applyJ(arg.longValue());
+    }
+
+    @Override
+    default Function<T2, R> applyJ(long arg1) {
+        return new Function<T2, R>() {
+            @Override
+            public R apply(T2 arg2) {
+                return apply2(arg1, arg2);
+            }
+        };
+    }
+
+    /**
+     * Calls `f` with all arguments at once if it's a Function2LongObjectObject,
+     * otherwise applies the arguments one by one.
+     */
+    static <T2, R> R call(Function<Long, Function<T2, R>> f, long arg1, T2 arg2) {
+        if (f instanceof Function2LongObjectObject) return ((Function2LongObjectObject<T2, R>) f).apply2(arg1, arg2);
+        return f.applyJ(arg1).apply(arg2);
+    }
+}
\ No newline at end of file
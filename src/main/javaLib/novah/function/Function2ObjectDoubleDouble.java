@@ -0,0 +1,30 @@
+package novah.function;
+
+/**
+ * A function of 2 arguments that can be called with all of them at once.
+ * Partial applications fall back to the curried form.
+ */
+@SuppressWarnings("unchecked")
+public interface Function2ObjectDoubleDouble<T1> extends Function<T1, Function<Double, Double>> {
+
+    double apply2(T1 arg1, double arg2);
+
+    @Override
+    default Function<Double, Double> apply(T1 arg1) {
+        return new FunctionDoubleDouble() {
+            @Override
+            public double applyDouble(double arg2) {
+                return apply2(arg1, arg2);
+            }
+        };
+    }
+
+    /**
+     * Calls `f` with all arguments at once if it's a Function2ObjectDoubleDouble,
+     * otherwise applies the arguments one by one.
+     */
+    static <T1> double call(Function<T1, Function<Double, Double>> f, T1 arg1, double arg2) {
+        if (f instanceof Function2ObjectDoubleDouble) return ((Function2ObjectDoubleDouble<T1>) f).apply2(arg1, arg2);
+        return f.apply(arg1).applyDouble(arg2);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,30 @@
+package novah.function;
+
+/**
+ * A function of 2 arguments that can be called with all of them at once.
+ * Partial applications fall back to the curried form.
+ */
+@SuppressWarnings("unchecked")
+public interface Function2ObjectDoubleLong<T1> extends Function<T1, Function<Double, Long>> {
+
+    long apply2(T1 arg1, double arg2);
+
+    @Override
+    default Function<Double, Long> apply(T1 arg1) {
+        return new FunctionDoubleLong() {
+            @Override
+            public long applyLong(double arg2) {
+                return apply2(arg1, arg2);
+            }
+        };
+    }
+
+    /**
+     * Calls `f` with all arguments at once if it's a Function2ObjectDoubleLong,
+     * otherwise applies the arguments one by one.
+     */
+    static <T1> long call(Function<T1, Function<Double, Long>> f, T1 arg1, double arg2) {
+        if (f instanceof Function2ObjectDoubleLong) return ((Function2ObjectDoubleLong<T1>) f).apply2(arg1, arg2);
+        return f.apply(arg1).applyLong(arg2);
+    }
+}
\ No newline at end of file
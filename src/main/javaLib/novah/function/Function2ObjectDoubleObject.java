@@ -0,0 +1,30 @@
+package novah.function;
+
+/**
+ * A function of 2 arguments that can be called with all of them at once.
+ * Partial applications fall back to the curried form.
+ */
+@SuppressWarnings("unchecked")
+public interface Function2ObjectDoubleObject<T1, R> extends Function<T1, Function<Double, R>> {
+
+    R apply2(T1 arg1, double arg2);
+
+    @Override
+    default Function<Double, R> apply(T1 arg1) {
+        return new FunctionDoubleObject<R>() {
+            @Override
+            public R applyD(double arg2) {
+                return apply2(arg1, arg2);
+            }
+        };
+    }
+
+    /**
+     * Calls `f` with all arguments at once if it's a Function2ObjectDoubleObject,
+     * otherwise applies the arguments one by one.
+     */
+    static <T1, R> R call(Function<T1, Function<Double, R>> f, T1 arg1, double arg2) {
+        if (f instanceof Function2ObjectDoubleObject) return ((Function2ObjectDoubleObject<T1, R>) f).apply2(arg1, arg2);
+        return f.apply(arg1).applyD(arg2);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,30 @@
+package novah.function;
+
+/**
+ * A function of 2 arguments that can be called with all of them at once.
+ * Partial applications fall back to the curried form.
+ */
+@SuppressWarnings("unchecked")
+public interface Function2ObjectIntLong<T1> extends Function<T1, Function<Integer, Long>> {
+
+    long apply2(T1 arg1, int arg2);
+
+    @Override
+    default Function<Integer, Long> apply(T1 arg1) {
+        return new FunctionIntLong() {
+            @Override
+            public long applyLong(int arg2) {
+                return apply2(arg1, arg2);
+            }
+        };
+    }
+
+    /**
+     * Calls `f` with all arguments at once if it's a Function2ObjectIntLong,
+     * otherwise applies the arguments one by one.
+     */
+    static <T1> long call(Function<T1, Function<Integer, Long>> f, T1 arg1, int arg2) {
+        if (f instanceof Function2ObjectIntLong) return ((Function2ObjectIntLong<T1>) f).apply2(arg1, arg2);
+        return f.apply(arg1).applyLong(arg2);
+    }
+}
\ No newline at end of file
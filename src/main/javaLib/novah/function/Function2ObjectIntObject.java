@@ -0,0 +1,30 @@
+package novah.function;
+
+/**
+ * A function of 2 arguments that can be called with all of them at once.
+ * Partial applications fall back to the curried form.
+ */
+@SuppressWarnings("unchecked")
+public interface Function2ObjectIntObject<T1, R> extends Function<T1, Function<Integer, R>> {
+
+    R apply2(T1 arg1, int arg2);
+
+    @Override
+    default Function<Integer, R> apply(T1 arg1) {
+        return new FunctionIntObject<R>() {
+            @Override
+            public R applyI(int arg2) {
+                return apply2(arg1, arg2);
+            }
+        };
+    }
+
+    /**
+     * Calls `f` with all arguments at once if it's a Function2ObjectIntObject,
+     * otherwise applies the arguments one by one.
+     */
+    static <T1, R> R call(Function<T1, Function<Integer, R>> f, T1 arg1, int arg2) {
+        if (f instanceof Function2ObjectIntObject) return ((Function2ObjectIntObject<T1, R>) f).apply2(arg1, arg2);
+        return f.apply(arg1).applyI(arg2);
+    }
+}
\ No newline at end of file
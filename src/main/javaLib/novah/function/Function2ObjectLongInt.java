@@ -0,0 +1,30 @@
+package novah.function;
+
+/**
+ * A function of 2 arguments that can be called with all of them at once.
+ * Partial applications fall back to the curried form.
+ */
+@SuppressWarnings("unchecked")
+public interface Function2ObjectLongInt<T1> extends Function<T1, Function<Long, Integer>> {
+
+    int apply2(T1 arg1, long arg2);
+
+    @Override
+    default Function<Long, Integer> apply(T1 arg1) {
+        return new FunctionLongInt() {
+            @Override
+            public int applyInt(long arg2) {
+                return apply2(arg1, arg2);
+            }
+        };
+    }
+
+    /**
+     * Calls `f` with all arguments at once if it's a Function2ObjectLongInt,
+     * otherwise applies the arguments one by one.
+     */
+    static <T1> int call(Function<T1, Function<Long, Integer>> f, T1 arg1, long arg2) {
+        if (f instanceof Function2ObjectLongInt) return ((Function2ObjectLongInt<T1>) f).apply2(arg1, arg2);
+        return f.apply(arg1).applyInt(arg2);
+    }
+}
\ No newline at end of file
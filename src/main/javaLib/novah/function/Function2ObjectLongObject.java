@@ -0,0 +1,30 @@
+package novah.function;
+
+/**
+ * A function of 2 arguments that can be called with all of them at once.
+ * Partial applications fall back to the curried form.
+ */
+@SuppressWarnings("unchecked")
+public interface Function2ObjectLongObject<T1, R> extends Function<T1, Function<Long, R>> {
+
+    R apply2(T1 arg1, long arg2);
+
+    @Override
+    default Function<Long, R> apply(T1 arg1) {
+        return new FunctionLongObject<R>() {
+            @Override
+            public R applyJ(long arg2) {
+                return apply2(arg1, arg2);
+            }
+        };
+    }
+
+    /**
+     * Calls `f` with all arguments at once if it's a Function2ObjectLongObject,
+     * otherwise applies the arguments one by one.
+     */
+    static <T1, R> R call(Function<T1, Function<Long, R>> f, T1 arg1, long arg2) {
+        if (f instanceof Function2ObjectLongObject) return ((Function2ObjectLongObject<T1, R>) f).apply2(arg1, arg2);
+        return f.apply(arg1).applyJ(arg2);
+    }
+}
\ No newline at end of file
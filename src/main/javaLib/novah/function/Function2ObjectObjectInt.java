@@ -0,0 +1,30 @@
+package novah.function;
+
+/**
+ * A function of 2 arguments that can be called with all of them at once.
+ * Partial applications fall back to the curried form.
+ */
+@SuppressWarnings("unchecked")
+public interface Function2ObjectObjectInt<T1, T2> extends Function<T1, Function<T2, Integer>> {
+
+    int apply2(T1 arg1, T2 arg2);
+
+    @Override
+    default Function<T2, Integer> apply(T1 arg1) {
+        return new FunctionObjectInt<T2>() {
+            @Override
+            public int applyInt(T2 arg2) {
+                return apply2(arg1, arg2);
+            }
+        };
+    }
+
+    /**
+     * Calls `f` with all arguments at once if it's a Function2ObjectObjectInt,
+     * otherwise applies the arguments one by one.
+     */
+    static <T1, T2> int call(Function<T1, Function<T2, Integer>> f, T1 arg1, T2 arg2) {
+        if (f instanceof Function2ObjectObjectInt) return ((Function2ObjectObjectInt<T1, T2>) f).apply2(arg1, arg2);
+        return f.apply(arg1).applyInt(arg2);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,30 @@
+package novah.function;
+
+/**
+ * A function of 2 arguments that can be called with all of them at once.
+ * Partial applications fall back to the curried form.
+ */
+@SuppressWarnings("unchecked")
+public interface Function2ObjectObjectLong<T1, T2> extends Function<T1, Function<T2, Long>> {
+
+    long apply2(T1 arg1, T2 arg2);
+
+    @Override
+    default Function<T2, Long> apply(T1 arg1) {
+        return new FunctionObjectLong<T2>() {
+            @Override
+            public long applyLong(T2 arg2) {
+                return apply2(arg1, arg2);
+            }
+        };
+    }
+
+    /**
+     * Calls `f` with all arguments at once if it's a Function2ObjectObjectLong,
+     * otherwise applies the arguments one by one.
+     */
+    static <T1, T2> long call(Function<T1, Function<T2, Long>> f, T1 arg1, T2 arg2) {
+        if (f instanceof Function2ObjectObjectLong) return ((Function2ObjectObjectLong<T1, T2>) f).apply2(arg1, arg2);
+        return f.apply(arg1).applyLong(arg2);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,35 @@
+package novah.function;
+
+/**
+ * A function of 3 arguments that can be called with all of them at once.
+ * Partial applications fall back to the curried form.
+ */
+@SuppressWarnings("unchecked")
+public interface Function3DoubleDoubleDoubleInt extends Function<Double, Function<Double, Function<Double, Integer>>> {
+
+    int apply3(double arg1, double arg2, double arg3);
+
+    @Override
+    default Function<Double, Function<Double, Integer>> apply(Double arg) {
+        return applyD(arg.doubleValue());
+    }
+
+    @Override
+    default Function<Double, Function<Double, Integer>> applyD(double arg1) {
+        return new Function2DoubleDoubleInt() {
+            @Override
+            public int apply2(double arg2, double arg3) {
+                return apply3(arg1, arg2, arg3);
+            }
+        };
+    }
+
+    /**
+     * Calls `f` with all arguments at once if it's a Function3DoubleDoubleDoubleInt,
+     * otherwise applies the arguments one by one.
+     */
+    static int call(Function<Double, Function<Double, Function<Double, Integer>>> f, double arg1, double arg2, double arg3) {
+        if (f instanceof Function3DoubleDoubleDoubleInt) return ((Function3DoubleDoubleDoubleInt) f).apply3(arg1, arg2, arg3);
+        return Function2DoubleDoubleInt.call(f.applyD(arg1), arg2, arg3);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,35 @@
+package novah.function;
+
+/**
+ * A function of 3 arguments that can be called with all of them at once.
+ * Partial applications fall back to the curried form.
+ */
+@SuppressWarnings("unchecked")
+public interface Function3DoubleDoubleIntDouble extends Function<Double, Function<Double, Function<Integer, Double>>> {
+
+    double apply3(double arg1, double arg2, int arg3);
+
+    @Override
+    default Function<Double, Function<Integer, Double>> apply(Double arg) {
+        return applyD(arg.doubleValue());
+    }
+
+    @Override
+    default Function<Double, Function<Integer, Double>> applyD(double arg1) {
+        return new Function2DoubleIntDouble() {
+            @Override
+            public double apply2(double arg2, int arg3) {
+                return apply3(arg1, arg2, arg3);
+            }
+        };
+    }
+
+    /**
+     * Calls `f` with all arguments at once if it's a Function3DoubleDoubleIntDouble,
+     * otherwise applies the arguments one by one.
+     */
+    static double call(Function<Double, Function<Double, Function<Integer, Double>>> f, double arg1, double arg2, int arg3) {
+        if (f instanceof Function3DoubleDoubleIntDouble) return ((Function3DoubleDoubleIntDouble) f).apply3(arg1, arg2, arg3);
+        return Function2DoubleIntDouble.call(f.applyD(arg1), arg2, arg3);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,35 @@
+package novah.function;
+
+/**
+ * A function of 3 arguments that can be called with all of them at once.
+ * Partial applications fall back to the curried form.
+ */
+@SuppressWarnings("unchecked")
+public interface Function3DoubleDoubleIntInt extends Function<Double, Function<Double, Function<Integer, Integer>>> {
+
+    int apply3(double arg1, double arg2, int arg3);
+
+    @Override
+    default Function<Double, Function<Integer, Integer>> apply(Double arg) {
+        return applyD(arg.doubleValue());
+    }
+
+    @Override
+    default Function<Double, Function<Integer, Integer>> applyD(double arg1) {
+        return new Function2DoubleIntInt() {
+            @Override
+            public int apply2(double arg2, int arg3) {
+                return apply3(arg1, arg2, arg3);
+            }
+        };
+    }
+
+    /**
+     * Calls `f` with all arguments at once if it's a Function3DoubleDoubleIntInt,
+     * otherwise applies the arguments one by one.
+     */
+    static int call(Function<Double, Function<Double, Function<Integer, Integer>>> f, double arg1, double arg2, int arg3) {
+        if (f instanceof Function3DoubleDoubleIntInt) return ((Function3DoubleDoubleIntInt) f).apply3(arg1, arg2, arg3);
+        return Function2DoubleIntInt.call(f.applyD(arg1), arg2, arg3);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,35 @@
+package novah.function;
+
+/**
+ * A function of 3 arguments that can be called with all of them at once.
+ * Partial applications fall back to the curried form.
+ */
+@SuppressWarnings("unchecked")
+public interface Function3DoubleDoubleLongDouble extends Function<Double, Function<Double, Function<Long, Double>>> {
+
+    double apply3(double arg1, double arg2, long arg3);
+
+    @Override
+    default Function<Double, Function<Long, Double>> apply(Double arg) {
+        return applyD(arg.doubleValue());
+    }
+
+    @Override
+    default Function<Double, Function<Long, Double>> applyD(double arg1) {
+        return new Function2DoubleLongDouble() {
+            @Override
+            public double apply2(double arg2, long arg3) {
+                return apply3(arg1, arg2, arg3);
+            }
+        };
+    }
+
+    /**
+     * Calls `f` with all arguments at once if it's a Function3DoubleDoubleLongDouble,
+     * otherwise applies the arguments one by one.
+     */
+    static double call(Function<Double, Function<Double, Function<Long, Double>>> f, double arg1, double arg2, long arg3) {
+        if (f instanceof Function3DoubleDoubleLongDouble) return ((Function3DoubleDoubleLongDouble) f).apply3(arg1, arg2, arg3);
+        return Function2DoubleLongDouble.call(f.applyD(arg1), arg2, arg3);
+    }
+}
\ No newline at end of file
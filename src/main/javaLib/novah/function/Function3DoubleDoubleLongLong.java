@@ -0,0 +1,35 @@
+package novah.function;
+
+/**
+ * A function of 3 arguments that can be called with all of them at once.
+ * Partial applications fall back to the curried form.
+ */
+@SuppressWarnings("unchecked")
+public interface Function3DoubleDoubleLongLong extends Function<Double, Function<Double, Function<Long, Long>>> {
+
+    long apply3(double arg1, double arg2, long arg3);
+
+    @Override
+    default Function<Double, Function<Long, Long>> apply(Double arg) {
+        return applyD(arg.doubleValue());
+    }
+
+    @Override
+    default Function<Double, Function<Long, Long>> applyD(double arg1) {
+        return new Function2DoubleLongLong() {
+            @Override
+            public long apply2(double arg2, long arg3) {
+                return apply3(arg1, arg2, arg3);
+            }
+        };
+    }
+
+    /**
+     * Calls `f` with all arguments at once if it's a Function3DoubleDoubleLongLong,
+     * otherwise applies the arguments one by one.
+     */
+    static long call(Function<Double, Function<Double, Function<Long, Long>>> f, double arg1, double arg2, long arg3) {
+        if (f instanceof Function3DoubleDoubleLongLong) return ((Function3DoubleDoubleLongLong) f).apply3(arg1, arg2, arg3);
+        return Function2DoubleLongLong.call(f.applyD(arg1), arg2, arg3);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,35 @@
+package novah.function;
+
+/**
+ * A function of 3 arguments that can be called with all of them at once.
+ * Partial applications fall back to the curried form.
+ */
+@SuppressWarnings("unchecked")
+public interface Function3DoubleDoubleLongObject<R> extends Function<Double, Function<Double, Function<Long, R>>> {
+
+    R apply3(double arg1, double arg2, long arg3);
+
+    @Override
+    default Function<Double, Function<Long, R>> apply(Double arg) {
+        return applyD(arg.doubleValue());
+    }
+
+    @Override
+    default Function<Double, Function<Long, R>> applyD(double arg1) {
+        return new Function2DoubleLongObject<R>() {
+            @Override
+            public R apply2(double arg2, long arg3) {
+                return apply3(arg1, arg2, arg3);
+            }
+        };
+    }
+
+    /**
+     * Calls `f` with all arguments at once if it's a Function3DoubleDoubleLongObject,
+     * otherwise applies the arguments one by one.
+     */
+    static <R> R call(Function<Double, Function<Double, Function<Long, R>>> f, double arg1, double arg2, long arg3) {
+        if (f instanceof Function3DoubleDoubleLongObject) return ((Function3DoubleDoubleLongObject<R>) f).apply3(arg1, arg2, arg3);
+        return Function2DoubleLongObject.call(f.applyD(arg1), arg2, arg3);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,35 @@
+package novah.function;
+
+/**
+ * A function of 3 arguments that can be called with all of them at once.
+ * Partial applications fall back to the curried form.
+ */
+@SuppressWarnings("unchecked")
+public interface Function3DoubleDoubleObjectObject<T3, R> extends Function<Double, Function<Double, Function<T3, R>>> {
+
+    R apply3(double arg1, double arg2, T3 arg3);
+
+    @Override
+    default Function<Double, Function<T3, R>> apply(Double arg) {
+        return applyD(arg.doubleValue());
+    }
+
+    @Override
+    default Function<Double, Function<T3, R>> applyD(double arg1) {
+        return new Function2DoubleObjectObject<T3, R>() {
+            @Override
+            public R apply2(double arg2, T3 arg3) {
+                return apply3(arg1, arg2, arg3);
+            }
+        };
+    }
+
+    /**
+     * Calls `f` with all arguments at once if it's a Function3DoubleDoubleObjectObject,
+     * otherwise applies the arguments one by one.
+     */
+    static <T3, R> R call(Function<Double, Function<Double, Function<T3, R>>> f, double arg1, double arg2, T3 arg3) {
+        if (f instanceof Function3DoubleDoubleObjectObject) return ((Function3DoubleDoubleObjectObject<T3, R>) f).apply3(arg1, arg2, arg3);
+        return Function2DoubleObjectObject.call(f.applyD(arg1), arg2, arg3);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,35 @@
+package novah.function;
+
+/**
+ * A function of 3 arguments that can be called with all of them at once.
+ * Partial applications fall back to the curried form.
+ */
+@SuppressWarnings("unchecked")
+public interface Function3DoubleIntDoubleDouble extends Function<Double, Function<Integer, Function<Double, Double>>> {
+
+    double apply3(double arg1, int arg2, double arg3);
+
+    @Override
+    default Function<Integer, Function<Double, Double>> apply(Double arg) {
+        return applyD(arg.doubleValue());
+    }
+
+    @Override
+    default Function<Integer, Function<Double, Double>> applyD(double arg1) {
+        return new Function2IntDoubleDouble() {
+            @Override
+            public double apply2(int arg2, double arg3) {
+                return apply3(arg1, arg2, arg3);
+            }
+        };
+    }
+
+    /**
+     * Calls `f` with all arguments at once if it's a Function3DoubleIntDoubleDouble,
+     * otherwise applies the arguments one by one.
+     */
+    static double call(Function<Double, Function<Integer, Function<Double, Double>>> f, double arg1, int arg2, double arg3) {
+        if (f instanceof Function3DoubleIntDoubleDouble) return ((Function3DoubleIntDoubleDouble) f).apply3(arg1, arg2, arg3);
+        return Function2IntDoubleDouble.call(f.applyD(arg1), arg2, arg3);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,35 @@
+package novah.function;
+
+/**
+ * A function of 3 arguments that can be called with all of them at once.
+ * Partial applications fall back to the curried form.
+ */
+@SuppressWarnings("unchecked")
+public interface Function3DoubleIntDoubleObject<R> extends Function<Double, Function<Integer, Function<Double, R>>> {
+
+    R apply3(double arg1, int arg2, double arg3);
+
+    @Override
+    default Function<Integer, Function<Double, R>> apply(Double arg) {
+        return applyD(arg.doubleValue());
+    }
+
+    @Override
+    default Function<Integer, Function<Double, R>> applyD(double arg1) {
+        return new Function2IntDoubleObject<R>() {
+            @Override
+            public R apply2(int arg2, double arg3) {
+                return apply3(arg1, arg2, arg3);
+            }
+        };
+    }
+
+    /**
+     * Calls `f` with all arguments at once if it's a Function3DoubleIntDoubleObject,
+     * otherwise applies the arguments one by one.
+     */
+    static <R> R call(Function<Double, Function<Integer, Function<Double, R>>> f, double arg1, int arg2, double arg3) {
+        if (f instanceof Function3DoubleIntDoubleObject) return ((Function3DoubleIntDoubleObject<R>) f).apply3(arg1, arg2, arg3);
+        return Function2IntDoubleObject.call(f.applyD(arg1), arg2, arg3);
+    }
+}
\ No newline at end of file
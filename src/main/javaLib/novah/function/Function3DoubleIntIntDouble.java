@@ -0,0 +1,35 @@
+package novah.function;
+
+/**
+ * A function of 3 arguments that can be called with all of them at once.
+ * Partial applications fall back to the curried form.
+ */
+@SuppressWarnings("unchecked")
+public interface Function3DoubleIntIntDouble extends Function<Double, Function<Integer, Function<Integer, Double>>> {
+
+    double apply3(double arg1, int arg2, int arg3);
+
+    @Override
+    default Function<Integer, Function<Integer, Double>> apply(Double arg) {
+        return applyD(arg.doubleValue());
+    }
+
+    @Override
+    default Function<Integer, Function<Integer, Double>> applyD(double arg1) {
+        return new Function2IntIntDouble() {
+            @Override
+            public double apply2(int arg2, int arg3) {
+                return apply3(arg1, arg2, arg3);
+            }
+        };
+    }
+
+    /**
+     * Calls `f` with all arguments at once if it's a Function3DoubleIntIntDouble,
+     * otherwise applies the arguments one by one.
+     */
+    static double call(Function<Double, Function<Integer, Function<Integer, Double>>> f, double arg1, int arg2, int arg3) {
+        if (f instanceof Function3DoubleIntIntDouble) return ((Function3DoubleIntIntDouble) f).apply3(arg1, arg2, arg3);
+        return Function2IntIntDouble.call(f.applyD(arg1), arg2, arg3);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,35 @@
+package novah.function;
+
+/**
+ * A function of 3 arguments that can be called with all of them at once.
+ * Partial applications fall back to the curried form.
+ */
+@SuppressWarnings("unchecked")
+public interface Function3DoubleIntIntLong extends Function<Double, Function<Integer, Function<Integer, Long>>> {
+
+    long apply3(double arg1, int arg2, int arg3);
+
+    @Override
+    default Function<Integer, Function<Integer, Long>> apply(Double arg) {
+        return applyD(arg.doubleValue());
+    }
+
+    @Override
+    default Function<Integer, Function<Integer, Long>> applyD(double arg1) {
+        return new Function2IntIntLong() {
+            @Override
+            public long apply2(int arg2, int arg3) {
+                return apply3(arg1, arg2, arg3);
+            }
+        };
+    }
+
+    /**
+     * Calls `f` with all arguments at once if it's a Function3DoubleIntIntLong,
+     * otherwise applies the arguments one by one.
+     */
+    static long call(Function<Double, Function<Integer, Function<Integer, Long>>> f, double arg1, int arg2, int arg3) {
+        if (f instanceof Function3DoubleIntIntLong) return ((Function3DoubleIntIntLong) f).apply3(arg1, arg2, arg3);
+        return Function2IntIntLong.call(f.applyD(arg1), arg2, arg3);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,35 @@
+package novah.function;
+
+/**
+ * A function of 3 arguments that can be called with all of them at once.
+ * Partial applications fall back to the curried form.
+ */
+@SuppressWarnings("unchecked")
+public interface Function3DoubleIntIntObject<R> extends Function<Double, Function<Integer, Function<Integer, R>>> {
+
+    R apply3(double arg1, int arg2, int arg3);
+
+    @Override
+    default Function<Integer, Function<Integer, R>> apply(Double arg) {
+        return applyD(arg.doubleValue());
+    }
+
+    @Override
+    default Function<Integer, Function<Integer, R>> applyD(double arg1) {
+        return new Function2IntIntObject<R>() {
+            @Override
+            public R apply2(int arg2, int arg3) {
+                return apply3(arg1, arg2, arg3);
+            }
+        };
+    }
+
+    /**
+     * Calls `f` with all arguments at once if it's a Function3DoubleIntIntObject,
+     * otherwise applies the arguments one by one.
+     */
+    static <R> R call(Function<Double, Function<Integer, Function<Integer, R>>> f, double arg1, int arg2, int arg3) {
+        if (f instanceof Function3DoubleIntIntObject) return ((Function3DoubleIntIntObject<R>) f).apply3(arg1, arg2, arg3);
+        return Function2IntIntObject.call(f.applyD(arg1), arg2, arg3);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,35 @@
+package novah.function;
+
+/**
+ * A function of 3 arguments that can be called with all of them at once.
+ * Partial applications fall back to the curried form.
+ */
+@SuppressWarnings("unchecked")
+public interface Function3DoubleIntLongInt extends Function<Double, Function<Integer, Function<Long, Integer>>> {
+
+    int apply3(double arg1, int arg2, long arg3);
+
+    @Override
+    default Function<Integer, Function<Long, Integer>> apply(Double arg) {
+        return applyD(arg.doubleValue());
+    }
+
+    @Override
+    default Function<Integer, Function<Long, Integer>> applyD(double arg1) {
+        return new Function2IntLongInt() {
+            @Override
+            public int apply2(int arg2, long arg3) {
+                return apply3(arg1, arg2, arg3);
+            }
+        };
+    }
+
+    /**
+     * Calls `f` with all arguments at once if it's a Function3DoubleIntLongInt,
+     * otherwise applies the arguments one by one.
+     */
+    static int call(Function<Double, Function<Integer, Function<Long, Integer>>> f, double arg1, int arg2, long arg3) {
+        if (f instanceof Function3DoubleIntLongInt) return ((Function3DoubleIntLongInt) f).apply3(arg1, arg2, arg3);
+        return Function2IntLongInt.call(f.applyD(arg1), arg2, arg3);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,35 @@
+package novah.function;
+
+/**
+ * A function of 3 arguments that can be called with all of them at once.
+ * Partial applications fall back to the curried form.
+ */
+@SuppressWarnings("unchecked")
+public interface Function3DoubleIntLongLong extends Function<Double, Function<Integer, Function<Long, Long>>> {
+
+    long apply3(double arg1, int arg2, long arg3);
+
+    @Override
+    default Function<Integer, Function<Long, Long>> apply(Double arg) {
+        return applyD(arg.doubleValue());
+    }
+
+    @Override
+    default Function<Integer, Function<Long, Long>> applyD(double arg1) {
+        return new Function2IntLongLong() {
+            @Override
+            public long apply2(int arg2, long arg3) {
+                return apply3(arg1, arg2, arg3);
+            }
+        };
+    }
+
+    /**
+     * Calls `f` with all arguments at once if it's a Function3DoubleIntLongLong,
+     * otherwise applies the arguments one by one.
+     */
+    static long call(Function<Double, Function<Integer, Function<Long, Long>>> f, double arg1, int arg2, long arg3) {
+        if (f instanceof Function3DoubleIntLongLong) return ((Function3DoubleIntLongLong) f).apply3(arg1, arg2, arg3);
+        return Function2IntLongLong.call(f.applyD(arg1), arg2, arg3);
+    }
+}
\ No newline at end of file
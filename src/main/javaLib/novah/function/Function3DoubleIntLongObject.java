@@ -0,0 +1,35 @@
+package novah.function;
+
+/**
+ * A function of 3 arguments that can be called with all of them at once.
+ * Partial applications fall back to the curried form.
+ */
+@SuppressWarnings("unchecked")
+public interface Function3DoubleIntLongObject<R> extends Function<Double, Function<Integer, Function<Long, R>>> {
+
+    R apply3(double arg1, int arg2, long arg3);
+
+    @Override
+    default Function<Integer, Function<Long, R>> apply(Double arg) {
+        return applyD(arg.doubleValue());
+    }
+
+    @Override
+    default Function<Integer, Function<Long, R>> applyD(double arg1) {
+        return new Function2IntLongObject<R>() {
+            @Override
+            public R apply2(int arg2, long arg3) {
+                return apply3(arg1, arg2, arg3);
+            }
+        };
+    }
+
+    /**
+     * Calls `f` with all arguments at once if it's a Function3DoubleIntLongObject,
+     * otherwise applies the arguments one by one.
+     */
+    static <R> R call(Function<Double, Function<Integer, Function<Long, R>>> f, double arg1, int arg2, long arg3) {
+        if (f instanceof Function3DoubleIntLongObject) return ((Function3DoubleIntLongObject<R>) f).apply3(arg1, arg2, arg3);
+        return Function2IntLongObject.call(f.applyD(arg1), arg2, arg3);
+    }
+}
\ No newline at end of file
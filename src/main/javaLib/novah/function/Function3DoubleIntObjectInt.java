@@ -0,0 +1,35 @@
+package novah.function;
+
+/**
+ * A function of 3 arguments that can be called with all of them at once.
+ * Partial applications fall back to the curried form.
+ */
+@SuppressWarnings("unchecked")
+public interface Function3DoubleIntObjectInt<T3> extends Function<Double, Function<Integer, Function<T3, Integer>>> {
+
+    int apply3(double arg1, int arg2, T3 arg3);
+
+    @Override
+    default Function<Integer, Function<T3, Integer>> apply(Double arg) {
+        return applyD(arg.doubleValue());
+    }
+
+    @Override
+    default Function<Integer, Function<T3, Integer>> applyD(double arg1) {
+        return new Function2IntObjectInt<T3>() {
+            @Override
+            public int apply2(int arg2, T3 arg3) {
+                return apply3(arg1, arg2, arg3);
+            }
+        };
+    }
+
+    /**
+     * Calls `f` with all arguments at once if it's a Function3DoubleIntObjectInt,
+     * otherwise applies the arguments one by one.
+     */
+    static <T3> int call(Function<Double, Function<Integer, Function<T3, Integer>>> f, double arg1, int arg2, T3 arg3) {
+        if (f instanceof Function3DoubleIntObjectInt) return ((Function3DoubleIntObjectInt<T3>) f).apply3(arg1, arg2, arg3);
+        return Function2IntObjectInt.call(f.applyD(arg1), arg2, arg3);
+    }
+}
\ No newline at end of file
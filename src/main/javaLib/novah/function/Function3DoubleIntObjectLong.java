@@ -0,0 +1,35 @@
+package novah.function;
+
+/**
+ * A function of 3 arguments that can be called with all of them at once.
+ * Partial applications fall back to the curried form.
+ */
+@SuppressWarnings("unchecked")
+public interface Function3DoubleIntObjectLong<T3> extends Function<Double, Function<Integer, Function<T3, Long>>> {
+
+    long apply3(double arg1, int arg2, T3 arg3);
+
+    @Override
+    default Function<Integer, Function<T3, Long>> apply(Double arg) {
+        return applyD(arg.doubleValue());
+    }
+
+    @Override
+    default Function<Integer, Function<T3, Long>> applyD(double arg1) {
+        return new Function2IntObjectLong<T3>() {
+            @Override
+            public long apply2(int arg2, T3 arg3) {
+                return apply3(arg1, arg2, arg3);
+            }
+        };
+    }
+
+    /**
+     * Calls `f` with all arguments at once if it's a Function3DoubleIntObjectLong,
+     * otherwise applies the arguments one by one.
+     */
+    static <T3> long call(Function<Double, Function<Integer, Function<T3, Long>>> f, double arg1, int arg2, T3 arg3) {
+        if (f instanceof Function3DoubleIntObjectLong) return ((Function3DoubleIntObjectLong<T3>) f).apply3(arg1, arg2, arg3);
+        return Function2IntObjectLong.call(f.applyD(arg1), arg2, arg3);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,35 @@
+package novah.function;
+
+/**
+ * A function of 3 arguments that can be called with all of them at once.
+ * Partial applications fall back to the curried form.
+ */
+@SuppressWarnings("unchecked")
+public interface Function3DoubleIntObjectObject<T3, R> extends Function<Double, Function<Integer, Function<T3, R>>> {
+
+    R apply3(double arg1, int arg2, T3 arg3);
+
+    @Override
+    default Function<Integer, Function<T3, R>> apply(Double arg) {
+        return applyD(arg.doubleValue());
+    }
+
+    @Override
+    default Function<Integer, Function<T3, R>> applyD(double arg1) {
+        return new Function2IntObjectObject<T3, R>() {
+            @Override
+            public R apply2(int arg2, T3 arg3) {
+                return apply3(arg1, arg2, arg3);
+            }
+        };
+    }
+
+    /**
+     * Calls `f` with all arguments at once if it's a Function3DoubleIntObjectObject,
+     * otherwise applies the arguments one by one.
+     */
+    static <T3, R> R call(Function<Double, Function<Integer, Function<T3, R>>> f, double arg1, int arg2, T3 arg3) {
+        if (f instanceof Function3DoubleIntObjectObject) return ((Function3DoubleIntObjectObject<T3, R>) f).apply3(arg1, arg2, arg3);
+        return Function2IntObjectObject.call(f.applyD(arg1), arg2, arg3);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,35 @@
+package novah.function;
+
+/**
+ * A function of 3 arguments that can be called with all of them at once.
+ * Partial applications fall back to the curried form.
+ */
+@SuppressWarnings("unchecked")
+public interface Function3DoubleLongDoubleInt extends Function<Double, Function<Long, Function<Double, Integer>>> {
+
+    int apply3(double arg1, long arg2, double arg3);
+
+    @Override
+    default Function<Long, Function<Double, Integer>> apply(Double arg) {
+        return applyD(arg.doubleValue());
+    }
+
+    @Override
+    default Function<Long, Function<Double, Integer>> applyD(double arg1) {
+        return new Function2LongDoubleInt() {
+            @Override
+            public int apply2(long arg2, double arg3) {
+                return apply3(arg1, arg2, arg3);
+            }
+        };
+    }
+
+    /**
+     * Calls `f` with all arguments at once if it's a Function3DoubleLongDoubleInt,
+     * otherwise applies the arguments one by one.
+     */
+    static int call(Function<Double, Function<Long, Function<Double, Integer>>> f, double arg1, long arg2, double arg3) {
+        if (f instanceof Function3DoubleLongDoubleInt) return ((Function3DoubleLongDoubleInt) f).apply3(arg1, arg2, arg3);
+        return Function2LongDoubleInt.call(f.applyD(arg1), arg2, arg3);
+    }
+}
\ No newline at end of file
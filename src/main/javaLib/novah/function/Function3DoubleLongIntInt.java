@@ -0,0 +1,35 @@
+package novah.function;
+
+/**
+ * A function of 3 arguments that can be called with all of them at once.
+ * Partial applications fall back to the curried form.
+ */
+@SuppressWarnings("unchecked")
+public interface Function3DoubleLongIntInt extends Function<Double, Function<Long, Function<Integer, Integer>>> {
+
+    int apply3(double arg1, long arg2, int arg3);
+
+    @Override
+    default Function<Long, Function<Integer, Integer>> apply(Double arg) {
+        return applyD(arg.doubleValue());
+    }
+
+    @Override
+    default Function<Long, Function<Integer, Integer>> applyD(double arg1) {
+        return new Function2LongIntInt() {
+            @Override
+            public int apply2(long arg2, int arg3) {
+                return apply3(arg1, arg2, arg3);
+            }
+        };
+    }
+
+    /**
+     * Calls `f` with all arguments at once if it's a Function3DoubleLongIntInt,
+     * otherwise applies the arguments one by one.
+     */
+    static int call(Function<Double, Function<Long, Function<Integer, Integer>>> f, double arg1, long arg2, int arg3) {
+        if (f instanceof Function3DoubleLongIntInt) return ((Function3DoubleLongIntInt) f).apply3(arg1, arg2, arg3);
+        return Function2LongIntInt.call(f.applyD(arg1), arg2, arg3);
+    }
+}
\ No newline at end of file
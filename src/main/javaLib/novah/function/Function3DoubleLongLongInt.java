@@ -0,0 +1,35 @@
+package novah.function;
+
+/**
+ * A function of 3 arguments that can be called with all of them at once.
+ * Partial applications fall back to the curried form.
+ */
+@SuppressWarnings("unchecked")
+public interface Function3DoubleLongLongInt extends Function<Double, Function<Long, Function<Long, Integer>>> {
+
+    int apply3(double arg1, long arg2, long arg3);
+
+    @Override
+    default Function<Long, Function<Long, Integer>> apply(Double arg) {
+        return applyD(arg.doubleValue());
+    }
+
+    @Override
+    default Function<Long, Function<Long, Integer>> applyD(double arg1) {
+        return new Function2LongLongInt() {
+            @Override
+            public int apply2(long arg2, long arg3) {
+                return apply3(arg1, arg2, arg3);
+            }
+        };
+    }
+
+    /**
+     * Calls `f` with all arguments at once if it's a Function3DoubleLongLongInt,
+     * otherwise applies the arguments one by one.
+     */
+    static int call(Function<Double, Function<Long, Function<Long, Integer>>> f, double arg1, long arg2, long arg3) {
+        if (f instanceof Function3DoubleLongLongInt) return ((Function3DoubleLongLongInt) f).apply3(arg1, arg2, arg3);
+        return Function2LongLongInt.call(f.applyD(arg1), arg2, arg3);
+    }
+}
\ No newline at end of file
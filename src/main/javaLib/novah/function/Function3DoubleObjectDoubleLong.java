@@ -0,0 +1,35 @@
+package novah.function;
+
+/**
+ * A function of 3 arguments that can be called with all of them at once.
+ * Partial applications fall back to the curried form.
+ */
+@SuppressWarnings("unchecked")
+public interface Function3DoubleObjectDoubleLong<T2> extends Function<Double, Function<T2, Function<Double, Long>>> {
+
+    long apply3(double arg1, T2 arg2, double arg3);
+
+    @Override
+    default Function<T2, Function<Double, Long>> apply(Double arg) {
+        return applyD(arg.doubleValue());
+    }
+
+    @Override
+    default Function<T2, Function<Double, Long>> applyD(double arg1) {
+        return new Function2ObjectDoubleLong<T2>() {
+            @Override
+            public long apply2(T2 arg2, double arg3) {
+                return apply3(arg1, arg2, arg3);
+            }
+        };
+    }
+
+    /**
+     * Calls `f` with all arguments at once if it's a Function3DoubleObjectDoubleLong,
+     * otherwise applies the arguments one by one.
+     */
+    static <T2> long call(Function<Double, Function<T2, Function<Double, Long>>> f, double arg1, T2 arg2, double arg3) {
+        if (f instanceof Function3DoubleObjectDoubleLong) return ((Function3DoubleObjectDoubleLong<T2>) f).apply3(arg1, arg2, arg3);
+        return Function2ObjectDoubleLong.call(f.applyD(arg1), arg2, arg3);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,35 @@
+package novah.function;
+
+/**
+ * A function of 3 arguments that can be called with all of them at once.
+ * Partial applications fall back to the curried form.
+ */
+@SuppressWarnings("unchecked")
+public interface Function3DoubleObjectObjectInt<T2, T3> extends Function<Double, Function<T2, Function<T3, Integer>>> {
+
+    int apply3(double arg1, T2 arg2, T3 arg3);
+
+    @Override
+    default Function<T2, Function<T3, Integer>> apply(Double arg) {
+        return applyD(arg.doubleValue());
+    }
+
+    @Override
+    default Function<T2, Function<T3, Integer>> applyD(double arg1) {
+        return new Function2ObjectObjectInt<T2, T3>() {
+            @Override
+            public int apply2(T2 arg2, T3 arg3) {
+                return apply3(arg1, arg2, arg3);
+            }
+        };
+    }
+
+    /**
+     * Calls `f` with all arguments at once if it's a Function3DoubleObjectObjectInt,
+     * otherwise applies the arguments one by one.
+     */
+    static <T2, T3> int call(Function<Double, Function<T2, Function<T3, Integer>>> f, double arg1, T2 arg2, T3 arg3) {
+        if (f instanceof Function3DoubleObjectObjectInt) return ((Function3DoubleObjectObjectInt<T2, T3>) f).apply3(arg1, arg2, arg3);
+        return Function2ObjectObjectInt.call(f.applyD(arg1), arg2, arg3);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,35 @@
+package novah.function;
+
+/**
+ * A function of 3 arguments that can be called with all of them at once.
+ * Partial applications fall back to the curried form.
+ */
+@SuppressWarnings("unchecked")
+public interface Function3IntDoubleDoubleDouble extends Function<Integer, Function<Double, Function<Double, Double>>> {
+
+    double apply3(int arg1, double arg2, double arg3);
+
+    @Override
+    default Function<Double, Function<Double, Double>> apply(Integer arg) {
+        return applyI(arg.intValue());
+    }
+
+    @Override
+    default Function<Double, Function<Double, Double>> applyI(int arg1) {
+        return new Function2DoubleDoubleDouble() {
+            @Override
+            public double apply2(double arg2, double arg3) {
+                return apply3(arg1, arg2, arg3);
+            }
+        };
+    }
+
+    /**
+     * Calls `f` with all arguments at once if it's a Function3IntDoubleDoubleDouble,
+     * otherwise applies the arguments one by one.
+     */
+    static double call(Function<Integer, Function<Double, Function<Double, Double>>> f, int arg1, double arg2, double arg3) {
+        if (f instanceof Function3IntDoubleDoubleDouble) return ((Function3IntDoubleDoubleDouble) f).apply3(arg1, arg2, arg3);
+        return Function2DoubleDoubleDouble.call(f.applyI(arg1), arg2, arg3);
+    }
+}
\ No newline at end of file
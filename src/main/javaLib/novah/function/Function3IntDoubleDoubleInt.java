@@ -0,0 +1,35 @@
+package novah.function;
+
+/**
+ * A function of 3 arguments that can be called with all of them at once.
+ * Partial applications fall back to the curried form.
+ */
+@SuppressWarnings("unchecked")
+public interface Function3IntDoubleDoubleInt extends Function<Integer, Function<Double, Function<Double, Integer>>> {
+
+    int apply3(int arg1, double arg2, double arg3);
+
+    @Override
+    default Function<Double, Function<Double, Integer>> apply(Integer arg) {
+        return applyI(arg.intValue());
+    }
+
+    @Override
+    default Function<Double, Function<Double, Integer>> applyI(int arg1) {
+        return new Function2DoubleDoubleInt() {
+            @Override
+            public int apply2(double arg2, double arg3) {
+                return apply3(arg1, arg2, arg3);
+            }
+        };
+    }
+
+    /**
+     * Calls `f` with all arguments at once if it's a Function3IntDoubleDoubleInt,
+     * otherwise applies the arguments one by one.
+     */
+    static int call(Function<Integer, Function<Double, Function<Double, Integer>>> f, int arg1, double arg2, double arg3) {
+        if (f instanceof Function3IntDoubleDoubleInt) return ((Function3IntDoubleDoubleInt) f).apply3(arg1, arg2, arg3);
+        return Function2DoubleDoubleInt.call(f.applyI(arg1), arg2, arg3);
+    }
+}
\ No newline at end of file
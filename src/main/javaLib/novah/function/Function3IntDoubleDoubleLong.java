@@ -0,0 +1,35 @@
+package novah.function;
+
+/**
+ * A function of 3 arguments that can be called with all of them at once.
+ * Partial applications fall back to the curried form.
+ */
+@SuppressWarnings("unchecked")
+public interface Function3IntDoubleDoubleLong extends Function<Integer, Function<Double, Function<Double, Long>>> {
+
+    long apply3(int arg1, double arg2, double arg3);
+
+    @Override
+    default Function<Double, Function<Double, Long>> apply(Integer arg) {
+        return applyI(arg.intValue());
+    }
+
+    @Override
+    default Function<Double, Function<Double, Long>> applyI(int arg1) {
+        return new Function2DoubleDoubleLong() {
+            @Override
+            public long apply2(double arg2, double arg3) {
+                return apply3(arg1, arg2, arg3);
+            }
+        };
+    }
+
+    /**
+     * Calls `f` with all arguments at once if it's a Function3IntDoubleDoubleLong,
+     * otherwise applies the arguments one by one.
+     */
+    static long call(Function<Integer, Function<Double, Function<Double, Long>>> f, int arg1, double arg2, double arg3) {
+        if (f instanceof Function3IntDoubleDoubleLong) return ((Function3IntDoubleDoubleLong) f).apply3(arg1, arg2, arg3);
+        return Function2DoubleDoubleLong.call(f.applyI(arg1), arg2, arg3);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,35 @@
+package novah.function;
+
+/**
+ * A function of 3 arguments that can be called with all of them at once.
+ * Partial applications fall back to the curried form.
+ */
+@SuppressWarnings("unchecked")
+public interface Function3IntDoubleIntDouble extends Function<Integer, Function<Double, Function<Integer, Double>>> {
+
+    double apply3(int arg1, double arg2, int arg3);
+
+    @Override
+    default Function<Double, Function<Integer, Double>> apply(Integer arg) {
+        return applyI(arg.intValue());
+    }
+
+    @Override
+    default Function<Double, Function<Integer, Double>> applyI(int arg1) {
+        return new Function2DoubleIntDouble() {
+            @Override
+            public double apply2(double arg2, int arg3) {
+                return apply3(arg1, arg2, arg3);
+            }
+        };
+    }
+
+    /**
+     * Calls `f` with all arguments at once if it's a Function3IntDoubleIntDouble,
+     * otherwise applies the arguments one by one.
+     */
+    static double call(Function<Integer, Function<Double, Function<Integer, Double>>> f, int arg1, double arg2, int arg3) {
+        if (f instanceof Function3IntDoubleIntDouble) return ((Function3IntDoubleIntDouble) f).apply3(arg1, arg2, arg3);
+        return Function2DoubleIntDouble.call(f.applyI(arg1), arg2, arg3);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,35 @@
+package novah.function;
+
+/**
+ * A function of 3 arguments that can be called with all of them at once.
+ * Partial applications fall back to the curried form.
+ */
+@SuppressWarnings("unchecked")
+public interface Function3IntDoubleIntLong extends Function<Integer, Function<Double, Function<Integer, Long>>> {
+
+    long apply3(int arg1, double arg2, int arg3);
+
+    @Override
+    default Function<Double, Function<Integer, Long>> apply(Integer arg) {
+        return applyI(arg.intValue());
+    }
+
+    @Override
+    default Function<Double, Function<Integer, Long>> applyI(int arg1) {
+        return new Function2DoubleIntLong() {
+            @Override
+            public long apply2(double arg2, int arg3) {
+                return apply3(arg1, arg2, arg3);
+            }
+        };
+    }
+
+    /**
+     * Calls `f` with all arguments at once if it's a Function3IntDoubleIntLong,
+     * otherwise applies the arguments one by one.
+     */
+    static long call(Function<Integer, Function<Double, Function<Integer, Long>>> f, int arg1, double arg2, int arg3) {
+        if (f instanceof Function3IntDoubleIntLong) return ((Function3IntDoubleIntLong) f).apply3(arg1, arg2, arg3);
+        return Function2DoubleIntLong.call(f.applyI(arg1), arg2, arg3);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,35 @@
+package novah.function;
+
+/**
+ * A function of 3 arguments that can be called with all of them at once.
+ * Partial applications fall back to the curried form.
+ */
+@SuppressWarnings("unchecked")
+public interface Function3IntDoubleLongLong extends Function<Integer, Function<Double, Function<Long, Long>>> {
+
+    long apply3(int arg1, double arg2, long arg3);
+
+    @Override
+    default Function<Double, Function<Long, Long>> apply(Integer arg) {
+        return applyI(arg.intValue());
+    }
+
+    @Override
+    default Function<Double, Function<Long, Long>> applyI(int arg1) {
+        return new Function2DoubleLongLong() {
+            @Override
+            public long apply2(double arg2, long arg3) {
+                return apply3(arg1, arg2, arg3);
+            }
+        };
+    }
+
+    /**
+     * Calls `f` with all arguments at once if it's a Function3IntDoubleLongLong,
+     * otherwise applies the arguments one by one.
+     */
+    static long call(Function<Integer, Function<Double, Function<Long, Long>>> f, int arg1, double arg2, long arg3) {
+        if (f instanceof Function3IntDoubleLongLong) return ((Function3IntDoubleLongLong) f).apply3(arg1, arg2, arg3);
+        return Function2DoubleLongLong.call(f.applyI(arg1), arg2, arg3);
+    }
+}
\ No newline at end of file
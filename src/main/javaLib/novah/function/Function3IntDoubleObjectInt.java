@@ -0,0 +1,35 @@
+package novah.function;
+
+/**
+ * A function of 3 arguments that can be called with all of them at once.
+ * Partial applications fall back to the curried form.
+ */
+@SuppressWarnings("unchecked")
+public interface Function3IntDoubleObjectInt<T3> extends Function<Integer, Function<Double, Function<T3, Integer>>> {
+
+    int apply3(int arg1, double arg2, T3 arg3);
+
+    @Override
+    default Function<Double, Function<T3, Integer>> apply(Integer arg) {
+        return applyI(arg.intValue());
+    }
+
+    @Override
+    default Function<Double, Function<T3, Integer>> applyI(int arg1) {
+        return new Function2DoubleObjectInt<T3>() {
+            @Override
+            public int apply2(double arg2, T3 arg3) {
+                return apply3(arg1, arg2, arg3);
+            }
+        };
+    }
+
+    /**
+     * Calls `f` with all arguments at once if it's a Function3IntDoubleObjectInt,
+     * otherwise applies the arguments one by one.
+     */
+    static <T3> int call(Function<Integer, Function<Double, Function<T3, Integer>>> f, int arg1, double arg2, T3 arg3) {
+        if (f instanceof Function3IntDoubleObjectInt) return ((Function3IntDoubleObjectInt<T3>) f).apply3(arg1, arg2, arg3);
+        return Function2DoubleObjectInt.call(f.applyI(arg1), arg2, arg3);
+    }
+}
\ No newline at end of file
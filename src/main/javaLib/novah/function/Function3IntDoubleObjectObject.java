@@ -0,0 +1,35 @@
+package novah.function;
+
+/**
+ * A function of 3 arguments that can be called with all of them at once.
+ * Partial applications fall back to the curried form.
+ */
+@SuppressWarnings("unchecked")
+public interface Function3IntDoubleObjectObject<T3, R> extends Function<Integer, Function<Double, Function<T3, R>>> {
+
+    R apply3(int arg1, double arg2, T3 arg3);
+
+    @Override
+    default Function<Double, Function<T3, R>> apply(Integer arg) {
+        return applyI(arg.intValue());
+    }
+
+    @Override
+    default Function<Double, Function<T3, R>> applyI(int arg1) {
+        return new Function2DoubleObjectObject<T3, R>() {
+            @Override
+            public R apply2(double arg2, T3 arg3) {
+                return apply3(arg1, arg2, arg3);
+            }
+        };
+    }
+
+    /**
+     * Calls `f` with all arguments at once if it's a Function3IntDoubleObjectObject,
+     * otherwise applies the arguments one by one.
+     */
+    static <T3, R> R call(Function<Integer, Function<Double, Function<T3, R>>> f, int arg1, double arg2, T3 arg3) {
+        if (f instanceof Function3IntDoubleObjectObject) return ((Function3IntDoubleObjectObject<T3, R>) f).apply3(arg1, arg2, arg3);
+        return Function2DoubleObjectObject.call(f.applyI(arg1), arg2, arg3);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,35 @@
+package novah.function;
+
+/**
+ * A function of 3 arguments that can be called with all of them at once.
+ * Partial applications fall back to the curried form.
+ */
+@SuppressWarnings("unchecked")
+public interface Function3IntIntDoubleObject<R> extends Function<Integer, Function<Integer, Function<Double, R>>> {
+
+    R apply3(int arg1, int arg2, double arg3);
+
+    @Override
+    default Function<Integer, Function<Double, R>> apply(Integer arg) {
+        return applyI(arg.intValue());
+    }
+
+    @Override
+    default Function<Integer, Function<Double, R>> applyI(int arg1) {
+        return new Function2IntDoubleObject<R>() {
+            @Override
+            public R apply2(int arg2, double arg3) {
+                return apply3(arg1, arg2, arg3);
+            }
+        };
+    }
+
+    /**
+     * Calls `f` with all arguments at once if it's a Function3IntIntDoubleObject,
+     * otherwise applies the arguments one by one.
+     */
+    static <R> R call(Function<Integer, Function<Integer, Function<Double, R>>> f, int arg1, int arg2, double arg3) {
+        if (f instanceof Function3IntIntDoubleObject) return ((Function3IntIntDoubleObject<R>) f).apply3(arg1, arg2, arg3);
+        return Function2IntDoubleObject.call(f.applyI(arg1), arg2, arg3);
+    }
+}
\ No newline at end of file
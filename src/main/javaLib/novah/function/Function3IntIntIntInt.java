@@ -0,0 +1,35 @@
+package novah.function;
+
+/**
+ * A function of 3 arguments that can be called with all of them at once.
+ * Partial applications fall back to the curried form.
+ */
+@SuppressWarnings("unchecked")
+public interface Function3IntIntIntInt extends Function<Integer, Function<Integer, Function<Integer, Integer>>> {
+
+    int apply3(int arg1, int arg2, int arg3);
+
+    @Override
+    default Function<Integer, Function<Integer, Integer>> apply(Integer arg) {
+        return applyI(arg.intValue());
+    }
+
+    @Override
+    default Function<Integer, Function<Integer, Integer>> applyI(int arg1) {
+        return new Function2IntIntInt() {
+            @Override
+            public int apply2(int arg2, int arg3) {
+                return apply3(arg1, arg2, arg3);
+            }
+        };
+    }
+
+    /**
+     * Calls `f` with all arguments at once if it's a Function3IntIntIntInt,
+     * otherwise applies the arguments one by one.
+     */
+    static int call(Function<Integer, Function<Integer, Function<Integer, Integer>>> f, int arg1, int arg2, int arg3) {
+        if (f instanceof Function3IntIntIntInt) return ((Function3IntIntIntInt) f).apply3(arg1, arg2, arg3);
+        return Function2IntIntInt.call(f.applyI(arg1), arg2, arg3);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,35 @@
+package novah.function;
+
+/**
+ * A function of 3 arguments that can be called with all of them at once.
+ * Partial applications fall back to the curried form.
+ */
+@SuppressWarnings("unchecked")
+public interface Function3IntIntIntLong extends Function<Integer, Function<Integer, Function<Integer, Long>>> {
+
+    long apply3(int arg1, int arg2, int arg3);
+
+    @Override
+    default Function<Integer, Function<Integer, Long>> apply(Integer arg) {
+        return applyI(arg.intValue());
+    }
+
+    @Override
+    default Function<Integer, Function<Integer, Long>> applyI(int arg1) {
+        return new Function2IntIntLong() {
+            @Override
+            public long apply2(int arg2, int arg3) {
+                return apply3(arg1, arg2, arg3);
+            }
+        };
+    }
+
+    /**
+     * Calls `f` with all arguments at once if it's a Function3IntIntIntLong,
+     * otherwise applies the arguments one by one.
+     */
+    static long call(Function<Integer, Function<Integer, Function<Integer, Long>>> f, int arg1, int arg2, int arg3) {
+        if (f instanceof Function3IntIntIntLong) return ((Function3IntIntIntLong) f).apply3(arg1, arg2, arg3);
+        return Function2IntIntLong.call(f.applyI(arg1), arg2, arg3);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,35 @@
+package novah.function;
+
+/**
+ * A function of 3 arguments that can be called with all of them at once.
+ * Partial applications fall back to the curried form.
+ */
+@SuppressWarnings("unchecked")
+public interface Function3IntIntLongDouble extends Function<Integer, Function<Integer, Function<Long, Double>>> {
+
+    double apply3(int arg1, int arg2, long arg3);
+
+    @Override
+    default Function<Integer, Function<Long, Double>> apply(Integer arg) {
+        return applyI(arg.intValue());
+    }
+
+    @Override
+    default Function<Integer, Function<Long, Double>> applyI(int arg1) {
+        return new Function2IntLongDouble() {
+            @Override
+            public double apply2(int arg2, long arg3) {
+                return apply3(arg1, arg2, arg3);
+            }
+        };
+    }
+
+    /**
+     * Calls `f` with all arguments at once if it's a Function3IntIntLongDouble,
+     * otherwise applies the arguments one by one.
+     */
+    static double call(Function<Integer, Function<Integer, Function<Long, Double>>> f, int arg1, int arg2, long arg3) {
+        if (f instanceof Function3IntIntLongDouble) return ((Function3IntIntLongDouble) f).apply3(arg1, arg2, arg3);
+        return Function2IntLongDouble.call(f.applyI(arg1), arg2, arg3);
+    }
+}
\ No newline at end of file
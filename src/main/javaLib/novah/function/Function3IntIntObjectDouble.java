@@ -0,0 +1,35 @@
+package novah.function;
+
+/**
+ * A function of 3 arguments that can be called with all of them at once.
+ * Partial applications fall back to the curried form.
+ */
+@SuppressWarnings("unchecked")
+public interface Function3IntIntObjectDouble<T3> extends Function<Integer, Function<Integer, Function<T3, Double>>> {
+
+    double apply3(int arg1, int arg2, T3 arg3);
+
+    @Override
+    default Function<Integer, Function<T3, Double>> apply(Integer arg) {
+        return applyI(arg.intValue());
+    }
+
+    @Override
+    default Function<Integer, Function<T3, Double>> applyI(int arg1) {
+        return new Function2IntObjectDouble<T3>() {
+            @Override
+            public double apply2(int arg2, T3 arg3) {
+                return apply3(arg1, arg2, arg3);
+            }
+        };
+    }
+
+    /**
+     * Calls `f` with all arguments at once if it's a Function3IntIntObjectDouble,
+     * otherwise applies the arguments one by one.
+     */
+    static <T3> double call(Function<Integer, Function<Integer, Function<T3, Double>>> f, int arg1, int arg2, T3 arg3) {
+        if (f instanceof Function3IntIntObjectDouble) return ((Function3IntIntObjectDouble<T3>) f).apply3(arg1, arg2, arg3);
+        return Function2IntObjectDouble.call(f.applyI(arg1), arg2, arg3);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,35 @@
+package novah.function;
+
+/**
+ * A function of 3 arguments that can be called with all of them at once.
+ * Partial applications fall back to the curried form.
+ */
+@SuppressWarnings("unchecked")
+public interface Function3IntIntObjectLong<T3> extends Function<Integer, Function<Integer, Function<T3, Long>>> {
+
+    long apply3(int arg1, int arg2, T3 arg3);
+
+    @Override
+    default Function<Integer, Function<T3, Long>> apply(Integer arg) {
+        return applyI(arg.intValue());
+    }
+
+    @Override
+    default Function<Integer, Function<T3, Long>> applyI(int arg1) {
+        return new Function2IntObjectLong<T3>() {
+            @Override
+            public long apply2(int arg2, T3 arg3) {
+                return apply3(arg1, arg2, arg3);
+            }
+        };
+    }
+
+    /**
+     * Calls `f` with all arguments at once if it's a Function3IntIntObjectLong,
+     * otherwise applies the arguments one by one.
+     */
+    static <T3> long call(Function<Integer, Function<Integer, Function<T3, Long>>> f, int arg1, int arg2, T3 arg3) {
+        if (f instanceof Function3IntIntObjectLong) return ((Function3IntIntObjectLong<T3>) f).apply3(arg1, arg2, arg3);
+        return Function2IntObjectLong.call(f.applyI(arg1), arg2, arg3);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,35 @@
+package novah.function;
+
+/**
+ * A function of 3 arguments that can be called with all of them at once.
+ * Partial applications fall back to the curried form.
+ */
+@SuppressWarnings("unchecked")
+public interface Function3IntLongDoubleObject<R> extends Function<Integer, Function<Long, Function<Double, R>>> {
+
+    R apply3(int arg1, long arg2, double arg3);
+
+    @Override
+    default Function<Long, Function<Double, R>> apply(Integer arg) {
+        return applyI(arg.intValue());
+    }
+
+    @Override
+    default Function<Long, Function<Double, R>> applyI(int arg1) {
+        return new Function2LongDoubleObject<R>() {
+            @Override
+            public R apply2(long arg2, double arg3) {
+                return apply3(arg1, arg2, arg3);
+            }
+        };
+    }
+
+    /**
+     * Calls `f` with all arguments at once if it's a Function3IntLongDoubleObject,
+     * otherwise applies the arguments one by one.
+     */
+    static <R> R call(Function<Integer, Function<Long, Function<Double, R>>> f, int arg1, long arg2, double arg3) {
+        if (f instanceof Function3IntLongDoubleObject) return ((Function3IntLongDoubleObject<R>) f).apply3(arg1, arg2, arg3);
+        return Function2LongDoubleObject.call(f.applyI(arg1), arg2, arg3);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,35 @@
+package novah.function;
+
+/**
+ * A function of 3 arguments that can be called with all of them at once.
+ * Partial applications fall back to the curried form.
+ */
+@SuppressWarnings("unchecked")
+public interface Function3IntLongIntDouble extends Function<Integer, Function<Long, Function<Integer, Double>>> {
+
+    double apply3(int arg1, long arg2, int arg3);
+
+    @Override
+    default Function<Long, Function<Integer, Double>> apply(Integer arg) {
+        return applyI(arg.intValue());
+    }
+
+    @Override
+    default Function<Long, Function<Integer, Double>> applyI(int arg1) {
+        return new Function2LongIntDouble() {
+            @Override
+            public double apply2(long arg2, int arg3) {
+                return apply3(arg1, arg2, arg3);
+            }
+        };
+    }
+
+    /**
+     * Calls `f` with all arguments at once if it's a Function3IntLongIntDouble,
+     * otherwise applies the arguments one by one.
+     */
+    static double call(Function<Integer, Function<Long, Function<Integer, Double>>> f, int arg1, long arg2, int arg3) {
+        if (f instanceof Function3IntLongIntDouble) return ((Function3IntLongIntDouble) f).apply3(arg1, arg2, arg3);
+        return Function2LongIntDouble.call(f.applyI(arg1), arg2, arg3);
+    }
+}
\ No newline at end of file
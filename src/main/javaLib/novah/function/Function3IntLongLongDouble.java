@@ -0,0 +1,35 @@
+package novah.function;
+
+/**
+ * A function of 3 arguments that can be called with all of them at once.
+ * Partial applications fall back to the curried form.
+ */
+@SuppressWarnings("unchecked")
+public interface Function3IntLongLongDouble extends Function<Integer, Function<Long, Function<Long, Double>>> {
+
+    double apply3(int arg1, long arg2, long arg3);
+
+    @Override
+    default Function<Long, Function<Long, Double>> apply(Integer arg) {
+        return applyI(arg.intValue());
+    }
+
+    @Override
+    default Function<Long, Function<Long, Double>> applyI(int arg1) {
+        return new Function2LongLongDouble() {
+            @Override
+            public double apply2(long arg2, long arg3) {
+                return apply3(arg1, arg2, arg3);
+            }
+        };
+    }
+
+    /**
+     * Calls `f` with all arguments at once if it's a Function3IntLongLongDouble,
+     * otherwise applies the arguments one by one.
+     */
+    static double call(Function<Integer, Function<Long, Function<Long, Double>>> f, int arg1, long arg2, long arg3) {
+        if (f instanceof Function3IntLongLongDouble) return ((Function3IntLongLongDouble) f).apply3(arg1, arg2, arg3);
+        return Function2LongLongDouble.call(f.applyI(arg1), arg2, arg3);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,35 @@
+package novah.function;
+
+/**
+ * A function of 3 arguments that can be called with all of them at once.
+ * Partial applications fall back to the curried form.
+ */
+@SuppressWarnings("unchecked")
+public interface Function3IntLongLongInt extends Function<Integer, Function<Long, Function<Long, Integer>>> {
+
+    int apply3(int arg1, long arg2, long arg3);
+
+    @Override
+    default Function<Long, Function<Long, Integer>> apply(Integer arg) {
+        return applyI(arg.intValue());
+    }
+
+    @Override
+    default Function<Long, Function<Long, Integer>> applyI(int arg1) {
+        return new Function2LongLongInt() {
+            @Override
+            public int apply2(long arg2, long arg3) {
+                return apply3(arg1, arg2, arg3);
+            }
+        };
+    }
+
+    /**
+     * Calls `f` with all arguments at once if it's a Function3IntLongLongInt,
+     * otherwise applies the arguments one by one.
+     */
+    static int call(Function<Integer, Function<Long, Function<Long, Integer>>> f, int arg1, long arg2, long arg3) {
+        if (f instanceof Function3IntLongLongInt) return ((Function3IntLongLongInt) f).apply3(arg1, arg2, arg3);
+        return Function2LongLongInt.call(f.applyI(arg1), arg2, arg3);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,35 @@
+package novah.function;
+
+/**
+ * A function of 3 arguments that can be called with all of them at once.
+ * Partial applications fall back to the curried form.
+ */
+@SuppressWarnings("unchecked")
+public interface Function3IntLongObjectLong<T3> extends Function<Integer, Function<Long, Function<T3, Long>>> {
+
+    long apply3(int arg1, long arg2, T3 arg3);
+
+    @Override
+    default Function<Long, Function<T3, Long>> apply(Integer arg) {
+        return applyI(arg.intValue());
+    }
+
+    @Override
+    default Function<Long, Function<T3, Long>> applyI(int arg1) {
+        return new Function2LongObjectLong<T3>() {
+            @Override
+            public long apply2(long arg2, T3 arg3) {
+                return apply3(arg1, arg2, arg3);
+            }
+        };
+    }
+
+    /**
+     * Calls `f` with all arguments at once if it's a Function3IntLongObjectLong,
+     * otherwise applies the arguments one by one.
+     */
+    static <T3> long call(Function<Integer, Function<Long, Function<T3, Long>>> f, int arg1, long arg2, T3 arg3) {
+        if (f instanceof Function3IntLongObjectLong) return ((Function3IntLongObjectLong<T3>) f).apply3(arg1, arg2, arg3);
+        return Function2LongObjectLong.call(f.applyI(arg1), arg2, arg3);
+    }
+}
\ No newline at end of file
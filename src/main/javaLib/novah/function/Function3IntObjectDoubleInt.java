@@ -0,0 +1,35 @@
+package novah.function;
+
+/**
+ * A function of 3 arguments that can be called with all of them at once.
+ * Partial applications fall back to the curried form.
+ */
+@SuppressWarnings("unchecked")
+public interface Function3IntObjectDoubleInt<T2> extends Function<Integer, Function<T2, Function<Double, Integer>>> {
+
+    int apply3(int arg1, T2 arg2, double arg3);
+
+    @Override
+    default Function<T2, Function<Double, Integer>> apply(Integer arg) {
+        return applyI(arg.intValue());
+    }
+
+    @Override
+    default Function<T2, Function<Double, Integer>> applyI(int arg1) {
+        return new Function2ObjectDoubleInt<T2>() {
+            @Override
+            public int apply2(T2 arg2, double arg3) {
+                return apply3(arg1, arg2, arg3);
+            }
+        };
+    }
+
+    /**
+     * Calls `f` with all arguments at once if it's a Function3IntObjectDoubleInt,
+     * otherwise applies the arguments one by one.
+     */
+    static <T2> int call(Function<Integer, Function<T2, Function<Double, Integer>>> f, int arg1, T2 arg2, double arg3) {
+        if (f instanceof Function3IntObjectDoubleInt) return ((Function3IntObjectDoubleInt<T2>) f).apply3(arg1, arg2, arg3);
+        return Function2ObjectDoubleInt.call(f.applyI(arg1), arg2, arg3);
+    }
+}
\ No newline at end of file
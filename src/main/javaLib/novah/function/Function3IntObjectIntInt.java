@@ -0,0 +1,35 @@
+package novah.function;
+
+/**
+ * A function of 3 arguments that can be called with all of them at once.
+ * Partial applications fall back to the curried form.
+ */
+@SuppressWarnings("unchecked")
+public interface Function3IntObjectIntInt<T2> extends Function<Integer, Function<T2, Function<Integer, Integer>>> {
+
+    int apply3(int arg1, T2 arg2, int arg3);
+
+    @Override
+    default Function<T2, Function<Integer, Integer>> apply(Integer arg) {
+        return applyI(arg.intValue());
+    }
+
+    @Override
+    default Function<T2, Function<Integer, Integer>> applyI(int arg1) {
+        return new Function2ObjectIntInt<T2>() {
+            @Override
+            public int apply2(T2 arg2, int arg3) {
+                return apply3(arg1, arg2, arg3);
+            }
+        };
+    }
+
+    /**
+     * Calls `f` with all arguments at once if it's a Function3IntObjectIntInt,
+     * otherwise applies the arguments one by one.
+     */
+    static <T2> int call(Function<Integer, Function<T2, Function<Integer, Integer>>> f, int arg1, T2 arg2, int arg3) {
+        if (f instanceof Function3IntObjectIntInt) return ((Function3IntObjectIntInt<T2>) f).apply3(arg1, arg2, arg3);
+        return Function2ObjectIntInt.call(f.applyI(arg1), arg2, arg3);
+    }
+}
\ No newline at end of file
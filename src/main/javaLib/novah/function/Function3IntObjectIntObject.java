@@ -0,0 +1,35 @@
+package novah.function;
+
+/**
+ * A function of 3 arguments that can be called with all of them at once.
+ * Partial applications fall back to the curried form.
+ */
+@SuppressWarnings("unchecked")
+public interface Function3IntObjectIntObject<T2, R> extends Function<Integer, Function<T2, Function<Integer, R>>> {
+
+    R apply3(int arg1, T2 arg2, int arg3);
+
+    @Override
+    default Function<T2, Function<Integer, R>> apply(Integer arg) {
+        return applyI(arg.intValue());
+    }
+
+    @Override
+    default Function<T2, Function<Integer, R>> applyI(int arg1) {
+        return new Function2ObjectIntObject<T2, R>() {
+            @Override
+            public R apply2(T2 arg2, int arg3) {
+                return apply3(arg1, arg2, arg3);
+            }
+        };
+    }
+
+    /**
+     * Calls `f` with all arguments at once if it's a Function3IntObjectIntObject,
+     * otherwise applies the arguments one by one.
+     */
+    static <T2, R> R call(Function<Integer, Function<T2, Function<Integer, R>>> f, int arg1, T2 arg2, int arg3) {
+        if (f instanceof Function3IntObjectIntObject) return ((Function3IntObjectIntObject<T2, R>) f).apply3(arg1, arg2, arg3);
+        return Function2ObjectIntObject.call(f.applyI(arg1), arg2, arg3);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,35 @@
+package novah.function;
+
+/**
+ * A function of 3 arguments that can be called with all of them at once.
+ * Partial applications fall back to the curried form.
+ */
+@SuppressWarnings("unchecked")
+public interface Function3IntObjectLongLong<T2> extends Function<Integer, Function<T2, Function<Long, Long>>> {
+
+    long apply3(int arg1, T2 arg2, long arg3);
+
+    @Override
+    default Function<T2, Function<Long, Long>> apply(Integer arg) {
+        return applyI(arg.intValue());
+    }
+
+    @Override
+    default Function<T2, Function<Long, Long>> applyI(int arg1) {
+        return new Function2ObjectLongLong<T2>() {
+            @Override
+            public long apply2(T2 arg2, long arg3) {
+                return apply3(arg1, arg2, arg3);
+            }
+        };
+    }
+
+    /**
+     * Calls `f` with all arguments at once if it's a Function3IntObjectLongLong,
+     * otherwise applies the arguments one by one.
+     */
+    static <T2> long call(Function<Integer, Function<T2, Function<Long, Long>>> f, int arg1, T2 arg2, long arg3) {
+        if (f instanceof Function3IntObjectLongLong) return ((Function3IntObjectLongLong<T2>) f).apply3(arg1, arg2, arg3);
+        return Function2ObjectLongLong.call(f.applyI(arg1), arg2, arg3);
+    }
+}
\ No newline at end of file
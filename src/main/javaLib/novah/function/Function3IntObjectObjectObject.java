@@ -0,0 +1,35 @@
+package novah.function;
+
+/**
+ * A function of 3 arguments that can be called with all of them at once.
+ * Partial applications fall back to the curried form.
+ */
+@SuppressWarnings("unchecked")
+public interface Function3IntObjectObjectObject<T2, T3, R> extends Function<Integer, Function<T2, Function<T3, R>>> {
+
+    R apply3(int arg1, T2 arg2, T3 arg3);
+
+    @Override
+    default Function<T2, Function<T3, R>> apply(Integer arg) {
+        return applyI(arg.intValue());
+    }
+
+    @Override
+    default Function<T2, Function<T3, R>> applyI(int arg1) {
+        return new Function2<T2, T3, R>() {
+            @Override
+            public R apply2(T2 arg2, T3 arg3) {
+                return apply3(arg1, arg2, arg3);
+            }
+        };
+    }
+
+    /**
+     * Calls `f` with all arguments at once if it's a Function3IntObjectObjectObject,
+     * otherwise applies the arguments one by one.
+     */
+    static <T2, T3, R> R call(Function<Integer, Function<T2, Function<T3, R>>> f, int arg1, T2 arg2, T3 arg3) {
+        if (f instanceof Function3IntObjectObjectObject) return ((Function3IntObjectObjectObject<T2, T3, R>) f).apply3(arg1, arg2, arg3);
+        return Function2.call(f.applyI(arg1), arg2, arg3);
+    }
+}
\ No newline at end of file
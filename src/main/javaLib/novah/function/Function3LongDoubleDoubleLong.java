@@ -0,0 +1,35 @@
+package novah.function;
+
+/**
+ * A function of 3 arguments that can be called with all of them at once.
+ * Partial applications fall back to the curried form.
+ */
+@SuppressWarnings("unchecked")
+public interface Function3LongDoubleDoubleLong extends Function<Long, Function<Double, Function<Double, Long>>> {
+
+    long apply3(long arg1, double arg2, double arg3);
+
+    @Override
+    default Function<Double, Function<Double, Long>> apply(Long arg) {
+        return applyJ(arg.longValue());
+    }
+
+    @Override
+    default Function<Double, Function<Double, Long>> applyJ(long arg1) {
+        return new Function2DoubleDoubleLong() {
+            @Override
+            public long apply2(double arg2, double arg3) {
+                return apply3(arg1, arg2, arg3);
+            }
+        };
+    }
+
+    /**
+     * Calls `f` with all arguments at once if it's a Function3LongDoubleDoubleLong,
+     * otherwise applies the arguments one by one.
+     */
+    static long call(Function<Long, Function<Double, Function<Double, Long>>> f, long arg1, double arg2, double arg3) {
+        if (f instanceof Function3LongDoubleDoubleLong) return ((Function3LongDoubleDoubleLong) f).apply3(arg1, arg2, arg3);
+        return Function2DoubleDoubleLong.call(f.applyJ(arg1), arg2, arg3);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,35 @@
+package novah.function;
+
+/**
+ * A function of 3 arguments that can be called with all of them at once.
+ * Partial applications fall back to the curried form.
+ */
+@SuppressWarnings("unchecked")
+public interface Function3LongDoubleIntInt extends Function<Long, Function<Double, Function<Integer, Integer>>> {
+
+    int apply3(long arg1, double arg2, int arg3);
+
+    @Override
+    default Function<Double, Function<Integer, Integer>> apply(Long arg) {
+        return applyJ(arg.longValue());
+    }
+
+    @Override
+    default Function<Double, Function<Integer, Integer>> applyJ(long arg1) {
+        return new Function2DoubleIntInt() {
+            @Override
+            public int apply2(double arg2, int arg3) {
+                return apply3(arg1, arg2, arg3);
+            }
+        };
+    }
+
+    /**
+     * Calls `f` with all arguments at once if it's a Function3LongDoubleIntInt,
+     * otherwise applies the arguments one by one.
+     */
+    static int call(Function<Long, Function<Double, Function<Integer, Integer>>> f, long arg1, double arg2, int arg3) {
+        if (f instanceof Function3LongDoubleIntInt) return ((Function3LongDoubleIntInt) f).apply3(arg1, arg2, arg3);
+        return Function2DoubleIntInt.call(f.applyJ(arg1), arg2, arg3);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,35 @@
+package novah.function;
+
+/**
+ * A function of 3 arguments that can be called with all of them at once.
+ * Partial applications fall back to the curried form.
+ */
+@SuppressWarnings("unchecked")
+public interface Function3LongDoubleIntLong extends Function<Long, Function<Double, Function<Integer, Long>>> {
+
+    long apply3(long arg1, double arg2, int arg3);
+
+    @Override
+    default Function<Double, Function<Integer, Long>> apply(Long arg) {
+        return applyJ(arg.longValue());
+    }
+
+    @Override
+    default Function<Double, Function<Integer, Long>> applyJ(long arg1) {
+        return new Function2DoubleIntLong() {
+            @Override
+            public long apply2(double arg2, int arg3) {
+                return apply3(arg1, arg2, arg3);
+            }
+        };
+    }
+
+    /**
+     * Calls `f` with all arguments at once if it's a Function3LongDoubleIntLong,
+     * otherwise applies the arguments one by one.
+     */
+    static long call(Function<Long, Function<Double, Function<Integer, Long>>> f, long arg1, double arg2, int arg3) {
+        if (f instanceof Function3LongDoubleIntLong) return ((Function3LongDoubleIntLong) f).apply3(arg1, arg2, arg3);
+        return Function2DoubleIntLong.call(f.applyJ(arg1), arg2, arg3);
+    }
+}
\ No newline at end of file
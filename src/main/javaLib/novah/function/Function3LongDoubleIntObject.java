@@ -0,0 +1,35 @@
+package novah.function;
+
+/**
+ * A function of 3 arguments that can be called with all of them at once.
+ * Partial applications fall back to the curried form.
+ */
+@SuppressWarnings("unchecked")
+public interface Function3LongDoubleIntObject<R> extends Function<Long, Function<Double, Function<Integer, R>>> {
+
+    R apply3(long arg1, double arg2, int arg3);
+
+    @Override
+    default Function<Double, Function<Integer, R>> apply(Long arg) {
+        return applyJ(arg.longValue());
+    }
+
+    @Override
+    default Function<Double, Function<Integer, R>> applyJ(long arg1) {
+        return new Function2DoubleIntObject<R>() {
+            @Override
+            public R apply2(double arg2, int arg3) {
+                return apply3(arg1, arg2, arg3);
+            }
+        };
+    }
+
+    /**
+     * Calls `f` with all arguments at once if it's a Function3LongDoubleIntObject,
+     * otherwise applies the arguments one by one.
+     */
+    static <R> R call(Function<Long, Function<Double, Function<Integer, R>>> f, long arg1, double arg2, int arg3) {
+        if (f instanceof Function3LongDoubleIntObject) return ((Function3LongDoubleIntObject<R>) f).apply3(arg1, arg2, arg3);
+        return Function2DoubleIntObject.call(f.applyJ(arg1), arg2, arg3);
+    }
+}
\ No newline at end of file
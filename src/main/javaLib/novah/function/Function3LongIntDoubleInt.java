@@ -0,0 +1,35 @@
+package novah.function;
+
+/**
+ * A function of 3 arguments that can be called with all of them at once.
+ * Partial applications fall back to the curried form.
+ */
+@SuppressWarnings("unchecked")
+public interface Function3LongIntDoubleInt extends Function<Long, Function<Integer, Function<Double, Integer>>> {
+
+    int apply3(long arg1, int arg2, double arg3);
+
+    @Override
+    default Function<Integer, Function<Double, Integer>> apply(Long arg) {
+        return applyJ(arg.longValue());
+    }
+
+    @Override
+    default Function<Integer, Function<Double, Integer>> applyJ(long arg1) {
+        return new Function2IntDoubleInt() {
+            @Override
+            public int apply2(int arg2, double arg3) {
+                return apply3(arg1, arg2, arg3);
+            }
+        };
+    }
+
+    /**
+     * Calls `f` with all arguments at once if it's a Function3LongIntDoubleInt,
+     * otherwise applies the arguments one by one.
+     */
+    static int call(Function<Long, Function<Integer, Function<Double, Integer>>> f, long arg1, int arg2, double arg3) {
+        if (f instanceof Function3LongIntDoubleInt) return ((Function3LongIntDoubleInt) f).apply3(arg1, arg2, arg3);
+        return Function2IntDoubleInt.call(f.applyJ(arg1), arg2, arg3);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,35 @@
+package novah.function;
+
+/**
+ * A function of 3 arguments that can be called with all of them at once.
+ * Partial applications fall back to the curried form.
+ */
+@SuppressWarnings("unchecked")
+public interface Function3LongIntLongLong extends Function<Long, Function<Integer, Function<Long, Long>>> {
+
+    long apply3(long arg1, int arg2, long arg3);
+
+    @Override
+    default Function<Integer, Function<Long, Long>> apply(Long arg) {
+        return applyJ(arg.longValue());
+    }
+
+    @Override
+    default Function<Integer, Function<Long, Long>> applyJ(long arg1) {
+        return new Function2IntLongLong() {
+            @Override
+            public long apply2(int arg2, long arg3) {
+                return apply3(arg1, arg2, arg3);
+            }
+        };
+    }
+
+    /**
+     * Calls `f` with all arguments at once if it's a Function3LongIntLongLong,
+     * otherwise applies the arguments one by one.
+     */
+    static long call(Function<Long, Function<Integer, Function<Long, Long>>> f, long arg1, int arg2, long arg3) {
+        if (f instanceof Function3LongIntLongLong) return ((Function3LongIntLongLong) f).apply3(arg1, arg2, arg3);
+        return Function2IntLongLong.call(f.applyJ(arg1), arg2, arg3);
+    }
+}
\ No newline at end of file
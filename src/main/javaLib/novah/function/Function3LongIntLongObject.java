@@ -0,0 +1,35 @@
+package novah.function;
+
+/**
+ * A function of 3 arguments that can be called with all of them at once.
+ * Partial applications fall back to the curried form.
+ */
+@SuppressWarnings("unchecked")
+public interface Function3LongIntLongObject<R> extends Function<Long, Function<Integer, Function<Long, R>>> {
+
+    R apply3(long arg1, int arg2, long arg3);
+
+    @Override
+    default Function<Integer, Function<Long, R>> apply(Long arg) {
+        return applyJ(arg.longValue());
+    }
+
+    @Override
+    default Function<Integer, Function<Long, R>> applyJ(long arg1) {
+        return new Function2IntLongObject<R>() {
+            @Override
+            public R apply2(int arg2, long arg3) {
+                return apply3(arg1, arg2, arg3);
+            }
+        };
+    }
+
+    /**
+     * Calls `f` with all arguments at once if it's a Function3LongIntLongObject,
+     * otherwise applies the arguments one by one.
+     */
+    static <R> R call(Function<Long, Function<Integer, Function<Long, R>>> f, long arg1, int arg2, long arg3) {
+        if (f instanceof Function3LongIntLongObject) return ((Function3LongIntLongObject<R>) f).apply3(arg1, arg2, arg3);
+        return Function2IntLongObject.call(f.applyJ(arg1), arg2, arg3);
+    }
+}
\ No newline at end of file
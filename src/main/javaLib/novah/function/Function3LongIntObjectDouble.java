@@ -0,0 +1,35 @@
+package novah.function;
+
+/**
+ * A function of 3 arguments that can be called with all of them at once.
+ * Partial applications fall back to the curried form.
+ */
+@SuppressWarnings("unchecked")
+public interface Function3LongIntObjectDouble<T3> extends Function<Long, Function<Integer, Function<T3, Double>>> {
+
+    double apply3(long arg1, int arg2, T3 arg3);
+
+    @Override
+    default Function<Integer, Function<T3, Double>> apply(Long arg) {
+        return applyJ(arg.longValue());
+    }
+
+    @Override
+    default Function<Integer, Function<T3, Double>> applyJ(long arg1) {
+        return new Function2IntObjectDouble<T3>() {
+            @Override
+            public double apply2(int arg2, T3 arg3) {
+                return apply3(arg1, arg2, arg3);
+            }
+        };
+    }
+
+    /**
+     * Calls `f` with all arguments at once if it's a Function3LongIntObjectDouble,
+     * otherwise applies the arguments one by one.
+     */
+    static <T3> double call(Function<Long, Function<Integer, Function<T3, Double>>> f, long arg1, int arg2, T3 arg3) {
+        if (f instanceof Function3LongIntObjectDouble) return ((Function3LongIntObjectDouble<T3>) f).apply3(arg1, arg2, arg3);
+        return Function2IntObjectDouble.call(f.applyJ(arg1), arg2, arg3);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,35 @@
+package novah.function;
+
+/**
+ * A function of 3 arguments that can be called with all of them at once.
+ * Partial applications fall back to the curried form.
+ */
+@SuppressWarnings("unchecked")
+public interface Function3LongIntObjectInt<T3> extends Function<Long, Function<Integer, Function<T3, Integer>>> {
+
+    int apply3(long arg1, int arg2, T3 arg3);
+
+    @Override
+    default Function<Integer, Function<T3, Integer>> apply(Long arg) {
+        return applyJ(arg.longValue());
+    }
+
+    @Override
+    default Function<Integer, Function<T3, Integer>> applyJ(long arg1) {
+        return new Function2IntObjectInt<T3>() {
+            @Override
+            public int apply2(int arg2, T3 arg3) {
+                return apply3(arg1, arg2, arg3);
+            }
+        };
+    }
+
+    /**
+     * Calls `f` with all arguments at once if it's a Function3LongIntObjectInt,
+     * otherwise applies the arguments one by one.
+     */
+    static <T3> int call(Function<Long, Function<Integer, Function<T3, Integer>>> f, long arg1, int arg2, T3 arg3) {
+        if (f instanceof Function3LongIntObjectInt) return ((Function3LongIntObjectInt<T3>) f).apply3(arg1, arg2, arg3);
+        return Function2IntObjectInt.call(f.applyJ(arg1), arg2, arg3);
+    }
+}
\ No newline at end of file
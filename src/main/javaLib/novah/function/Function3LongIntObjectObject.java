@@ -0,0 +1,35 @@
+package novah.function;
+
+/**
+ * A function of 3 arguments that can be called with all of them at once.
+ * Partial applications fall back to the curried form.
+ */
+@SuppressWarnings("unchecked")
+public interface Function3LongIntObjectObject<T3, R> extends Function<Long, Function<Integer, Function<T3, R>>> {
+
+    R apply3(long arg1, int arg2, T3 arg3);
+
+    @Override
+    default Function<Integer, Function<T3, R>> apply(Long arg) {
+        return applyJ(arg.longValue());
+    }
+
+    @Override
+    default Function<Integer, Function<T3, R>> applyJ(long arg1) {
+        return new Function2IntObjectObject<T3, R>() {
+            @Override
+            public R apply2(int arg2, T3 arg3) {
+                return apply3(arg1, arg2, arg3);
+            }
+        };
+    }
+
+    /**
+     * Calls `f` with all arguments at once if it's a Function3LongIntObjectObject,
+     * otherwise applies the arguments one by one.
+     */
+    static <T3, R> R call(Function<Long, Function<Integer, Function<T3, R>>> f, long arg1, int arg2, T3 arg3) {
+        if (f instanceof Function3LongIntObjectObject) return ((Function3LongIntObjectObject<T3, R>) f).apply3(arg1, arg2, arg3);
+        return Function2IntObjectObject.call(f.applyJ(arg1), arg2, arg3);
+    }
+}
\ No newline at end of file
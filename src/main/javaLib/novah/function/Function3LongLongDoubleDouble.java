@@ -0,0 +1,35 @@
+package novah.function;
+
+/**
+ * A function of 3 arguments that can be called with all of them at once.
+ * Partial applications fall back to the curried form.
+ */
+@SuppressWarnings("unchecked")
+public interface Function3LongLongDoubleDouble extends Function<Long, Function<Long, Function<Double, Double>>> {
+
+    double apply3(long arg1, long arg2, double arg3);
+
+    @Override
+    default Function<Long, Function<Double, Double>> apply(Long arg) {
+        return applyJ(arg.longValue());
+    }
+
+    @Override
+    default Function<Long, Function<Double, Double>> applyJ(long arg1) {
+        return new Function2LongDoubleDouble() {
+            @Override
+            public double apply2(long arg2, double arg3) {
+                return apply3(arg1, arg2, arg3);
+            }
+        };
+    }
+
+    /**
+     * Calls `f` with all arguments at once if it's a Function3LongLongDoubleDouble,
+     * otherwise applies the arguments one by one.
+     */
+    static double call(Function<Long, Function<Long, Function<Double, Double>>> f, long arg1, long arg2, double arg3) {
+        if (f instanceof Function3LongLongDoubleDouble) return ((Function3LongLongDoubleDouble) f).apply3(arg1, arg2, arg3);
+        return Function2LongDoubleDouble.call(f.applyJ(arg1), arg2, arg3);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,35 @@
+package novah.function;
+
+/**
+ * A function of 3 arguments that can be called with all of them at once.
+ * Partial applications fall back to the curried form.
+ */
+@SuppressWarnings("unchecked")
+public interface Function3LongLongIntLong extends Function<Long, Function<Long, Function<Integer, Long>>> {
+
+    long apply3(long arg1, long arg2, int arg3);
+
+    @Override
+    default Function<Long, Function<Integer, Long>> apply(Long arg) {
+        return applyJ(arg.longValue());
+    }
+
+    @Override
+    default Function<Long, Function<Integer, Long>> applyJ(long arg1) {
+        return new Function2LongIntLong() {
+            @Override
+            public long apply2(long arg2, int arg3) {
+                return apply3(arg1, arg2, arg3);
+            }
+        };
+    }
+
+    /**
+     * Calls `f` with all arguments at once if it's a Function3LongLongIntLong,
+     * otherwise applies the arguments one by one.
+     */
+    static long call(Function<Long, Function<Long, Function<Integer, Long>>> f, long arg1, long arg2, int arg3) {
+        if (f instanceof Function3LongLongIntLong) return ((Function3LongLongIntLong) f).apply3(arg1, arg2, arg3);
+        return Function2LongIntLong.call(f.applyJ(arg1), arg2, arg3);
+    }
+}
\ No newline at end of file
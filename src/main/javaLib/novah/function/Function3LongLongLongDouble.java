@@ -0,0 +1,35 @@
+package novah.function;
+
+/**
+ * A function of 3 arguments that can be called with all of them at once.
+ * Partial applications fall back to the curried form.
+ */
+@SuppressWarnings("unchecked")
+public interface Function3LongLongLongDouble extends Function<Long, Function<Long, Function<Long, Double>>> {
+
+    double apply3(long arg1, long arg2, long arg3);
+
+    @Override
+    default Function<Long, Function<Long, Double>> apply(Long arg) {
+        return applyJ(arg.longValue());
+    }
+
+    @Override
+    default Function<Long, Function<Long, Double>> applyJ(long arg1) {
+        return new Function2LongLongDouble() {
+            @Override
+            public double apply2(long arg2, long arg3) {
+                return apply3(arg1, arg2, arg3);
+            }
+        };
+    }
+
+    /**
+     * Calls `f` with all arguments at once if it's a Function3LongLongLongDouble,
+     * otherwise applies the arguments one by one.
+     */
+    static double call(Function<Long, Function<Long, Function<Long, Double>>> f, long arg1, long arg2, long arg3) {
+        if (f instanceof Function3LongLongLongDouble) return ((Function3LongLongLongDouble) f).apply3(arg1, arg2, arg3);
+        return Function2LongLongDouble.call(f.applyJ(arg1), arg2, arg3);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,35 @@
+package novah.function;
+
+/**
+ * A function of 3 arguments that can be called with all of them at once.
+ * Partial applications fall back to the curried form.
+ */
+@SuppressWarnings("unchecked")
+public interface Function3LongObjectIntInt<T2> extends Function<Long, Function<T2, Function<Integer, Integer>>> {
+
+    int apply3(long arg1, T2 arg2, int arg3);
+
+    @Override
+    default Function<T2, Function<Integer, Integer>> apply(Long arg) {
+        return applyJ(arg.longValue());
+    }
+
+    @Override
+    default Function<T2, Function<Integer, Integer>> applyJ(long arg1) {
+        return new Function2ObjectIntInt<T2>() {
+            @Override
+            public int apply2(T2 arg2, int arg3) {
+                return apply3(arg1, arg2, arg3);
+            }
+        };
+    }
+
+    /**
+     * Calls `f` with all arguments at once if it's a Function3LongObjectIntInt,
+     * otherwise applies the arguments one by one.
+     */
+    static <T2> int call(Function<Long, Function<T2, Function<Integer, Integer>>> f, long arg1, T2 arg2, int arg3) {
+        if (f instanceof Function3LongObjectIntInt) return ((Function3LongObjectIntInt<T2>) f).apply3(arg1, arg2, arg3);
+        return Function2ObjectIntInt.call(f.applyJ(arg1), arg2, arg3);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,35 @@
+package novah.function;
+
+/**
+ * A function of 3 arguments that can be called with all of them at once.
+ * Partial applications fall back to the curried form.
+ */
+@SuppressWarnings("unchecked")
+public interface Function3LongObjectObjectDouble<T2, T3> extends Function<Long, Function<T2, Function<T3, Double>>> {
+
+    double apply3(long arg1, T2 arg2, T3 arg3);
+
+    @Override
+    default Function<T2, Function<T3, Double>> apply(Long arg) {
+        return applyJ(arg.longValue());
+    }
+
+    @Override
+    default Function<T2, Function<T3, Double>> applyJ(long arg1) {
+        return new Function2ObjectObjectDouble<T2, T3>() {
+            @Override
+            public double apply2(T2 arg2, T3 arg3) {
+                return apply3(arg1, arg2, arg3);
+            }
+        };
+    }
+
+    /**
+     * Calls `f` with all arguments at once if it's a Function3LongObjectObjectDouble,
+     * otherwise applies the arguments one by one.
+     */
+    static <T2, T3> double call(Function<Long, Function<T2, Function<T3, Double>>> f, long arg1, T2 arg2, T3 arg3) {
+        if (f instanceof Function3LongObjectObjectDouble) return ((Function3LongObjectObjectDouble<T2, T3>) f).apply3(arg1, arg2, arg3);
+        return Function2ObjectObjectDouble.call(f.applyJ(arg1), arg2, arg3);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,35 @@
+package novah.function;
+
+/**
+ * A function of 3 arguments that can be called with all of them at once.
+ * Partial applications fall back to the curried form.
+ */
+@SuppressWarnings("unchecked")
+public interface Function3LongObjectObjectObject<T2, T3, R> extends Function<Long, Function<T2, Function<T3, R>>> {
+
+    R apply3(long arg1, T2 arg2, T3 arg3);
+
+    @Override
+    default Function<T2, Function<T3, R>> apply(Long arg) {
+        return applyJ(arg.longValue());
+    }
+
+    @Override
+    default Function<T2, Function<T3, R>> applyJ(long arg1) {
+        return new Function2<T2, T3, R>() {
+            @Override
+            public R apply2(T2 arg2, T3 arg3) {
+                return apply3(arg1, arg2, arg3);
+            }
+        };
+    }
+
+    /**
+     * Calls `f` with all arguments at once if it's a Function3LongObjectObjectObject,
+     * otherwise applies the arguments one by one.
+     */
+    static <T2, T3, R> R call(Function<Long, Function<T2, Function<T3, R>>> f, long arg1, T2 arg2, T3 arg3) {
+        if (f instanceof Function3LongObjectObjectObject) return ((Function3LongObjectObjectObject<T2, T3, R>) f).apply3(arg1, arg2, arg3);
+        return Function2.call(f.applyJ(arg1), arg2, arg3);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,30 @@
+package novah.function;
+
+/**
+ * A function of 3 arguments that can be called with all of them at once.
+ * Partial applications fall back to the curried form.
+ */
+@SuppressWarnings("unchecked")
+public interface Function3ObjectDoubleDoubleDouble<T1> extends Function<T1, Function<Double, Function<Double, Double>>> {
+
+    double apply3(T1 arg1, double arg2, double arg3);
+
+    @Override
+    default Function<Double, Function<Double, Double>> apply(T1 arg1) {
+        return new Function2DoubleDoubleDouble() {
+            @Override
+            public double apply2(double arg2, double arg3) {
+                return apply3(arg1, arg2, arg3);
+            }
+        };
+    }
+
+    /**
+     * Calls `f` with all arguments at once if it's a Function3ObjectDoubleDoubleDouble,
+     * otherwise applies the arguments one by one.
+     */
+    static <T1> double call(Function<T1, Function<Double, Function<Double, Double>>> f, T1 arg1, double arg2, double arg3) {
+        if (f instanceof Function3ObjectDoubleDoubleDouble) return ((Function3ObjectDoubleDoubleDouble<T1>) f).apply3(arg1, arg2, arg3);
+        return Function2DoubleDoubleDouble.call(f.apply(arg1), arg2, arg3);
+    }
+}
\ No newline at end of file
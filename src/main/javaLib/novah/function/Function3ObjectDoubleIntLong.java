@@ -0,0 +1,30 @@
+package novah.function;
+
+/**
+ * A function of 3 arguments that can be called with all of them at once.
+ * Partial applications fall back to the curried form.
+ */
+@SuppressWarnings("unchecked")
+public interface Function3ObjectDoubleIntLong<T1> extends Function<T1, Function<Double, Function<Integer, Long>>> {
+
+    long apply3(T1 arg1, double arg2, int arg3);
+
+    @Override
+    default Function<Double, Function<Integer, Long>> apply(T1 arg1) {
+        return new Function2DoubleIntLong() {
+            @Override
+            public long apply2(double arg2, int arg3) {
+                return apply3(arg1, arg2, arg3);
+            }
+        };
+    }
+
+    /**
+     * Calls `f` with all arguments at once if it's a Function3ObjectDoubleIntLong,
+     * otherwise applies the arguments one by one.
+     */
+    static <T1> long call(Function<T1, Function<Double, Function<Integer, Long>>> f, T1 arg1, double arg2, int arg3) {
+        if (f instanceof Function3ObjectDoubleIntLong) return ((Function3ObjectDoubleIntLong<T1>) f).apply3(arg1, arg2, arg3);
+        return Function2DoubleIntLong.call(f.apply(arg1), arg2, arg3);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,30 @@
+package novah.function;
+
+/**
+ * A function of 3 arguments that can be called with all of them at once.
+ * Partial applications fall back to the curried form.
+ */
+@SuppressWarnings("unchecked")
+public interface Function3ObjectDoubleIntObject<T1, R> extends Function<T1, Function<Double, Function<Integer, R>>> {
+
+    R apply3(T1 arg1, double arg2, int arg3);
+
+    @Override
+    default Function<Double, Function<Integer, R>> apply(T1 arg1) {
+        return new Function2DoubleIntObject<R>() {
+            @Override
+            public R apply2(double arg2, int arg3) {
+                return apply3(arg1, arg2, arg3);
+            }
+        };
+    }
+
+    /**
+     * Calls `f` with all arguments at once if it's a Function3ObjectDoubleIntObject,
+     * otherwise applies the arguments one by one.
+     */
+    static <T1, R> R call(Function<T1, Function<Double, Function<Integer, R>>> f, T1 arg1, double arg2, int arg3) {
+        if (f instanceof Function3ObjectDoubleIntObject) return ((Function3ObjectDoubleIntObject<T1, R>) f).apply3(arg1, arg2, arg3);
+        return Function2DoubleIntObject.call(f.apply(arg1), arg2, arg3);
+    }
+}
\ No newline at end of file
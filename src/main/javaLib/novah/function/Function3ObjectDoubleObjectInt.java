@@ -0,0 +1,30 @@
+package novah.function;
+
+/**
+ * A function of 3 arguments that can be called with all of them at once.
+ * Partial applications fall back to the curried form.
+ */
+@SuppressWarnings("unchecked")
+public interface Function3ObjectDoubleObjectInt<T1, T3> extends Function<T1, Function<Double, Function<T3, Integer>>> {
+
+    int apply3(T1 arg1, double arg2, T3 arg3);
+
+    @Override
+    default Function<Double, Function<T3, Integer>> apply(T1 arg1) {
+        return new Function2DoubleObjectInt<T3>() {
+            @Override
+            public int apply2(double arg2, T3 arg3) {
+                return apply3(arg1, arg2, arg3);
+            }
+        };
+    }
+
+    /**
+     * Calls `f` with all arguments at once if it's a Function3ObjectDoubleObjectInt,
+     * otherwise applies the arguments one by one.
+     */
+    static <T1, T3> int call(Function<T1, Function<Double, Function<T3, Integer>>> f, T1 arg1, double arg2, T3 arg3) {
+        if (f instanceof Function3ObjectDoubleObjectInt) return ((Function3ObjectDoubleObjectInt<T1, T3>) f).apply3(arg1, arg2, arg3);
+        return Function2DoubleObjectInt.call(f.apply(arg1), arg2, arg3);
+    }
+}
\ No newline at end of file
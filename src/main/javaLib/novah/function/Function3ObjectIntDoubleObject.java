@@ -0,0 +1,30 @@
+package novah.function;
+
+/**
+ * A function of 3 arguments that can be called with all of them at once.
+ * Partial applications fall back to the curried form.
+ */
+@SuppressWarnings("unchecked")
+public interface Function3ObjectIntDoubleObject<T1, R> extends Function<T1, Function<Integer, Function<Double, R>>> {
+
+    R apply3(T1 arg1, int arg2, double arg3);
+
+    @Override
+    default Function<Integer, Function<Double, R>> apply(T1 arg1) {
+        return new Function2IntDoubleObject<R>() {
+            @Override
+            public R apply2(int arg2, double arg3) {
+                return apply3(arg1, arg2, arg3);
+            }
+        };
+    }
+
+    /**
+     * Calls `f` with all arguments at once if it's a Function3ObjectIntDoubleObject,
+     * otherwise applies the arguments one by one.
+     */
+    static <T1, R> R call(Function<T1, Function<Integer, Function<Double, R>>> f, T1 arg1, int arg2, double arg3) {
+        if (f instanceof Function3ObjectIntDoubleObject) return ((Function3ObjectIntDoubleObject<T1, R>) f).apply3(arg1, arg2, arg3);
+        return Function2IntDoubleObject.call(f.apply(arg1), arg2, arg3);
+    }
+}
\ No newline at end of file
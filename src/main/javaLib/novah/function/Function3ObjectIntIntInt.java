@@ -0,0 +1,30 @@
+package novah.function;
+
+/**
+ * A function of 3 arguments that can be called with all of them at once.
+ * Partial applications fall back to the curried form.
+ */
+@SuppressWarnings("unchecked")
+public interface Function3ObjectIntIntInt<T1> extends Function<T1, Function<Integer, Function<Integer, Integer>>> {
+
+    int apply3(T1 arg1, int arg2, int arg3);
+
+    @Override
+    default Function<Integer, Function<Integer, Integer>> apply(T1 arg1) {
+        return new Function2IntIntInt() {
+            @Override
+            public int apply2(int arg2, int arg3) {
+                return apply3(arg1, arg2, arg3);
+            }
+        };
+    }
+
+    /**
+     * Calls `f` with all arguments at once if it's a Function3ObjectIntIntInt,
+     * otherwise applies the arguments one by one.
+     */
+    static <T1> int call(Function<T1, Function<Integer, Function<Integer, Integer>>> f, T1 arg1, int arg2, int arg3) {
+        if (f instanceof Function3ObjectIntIntInt) return ((Function3ObjectIntIntInt<T1>) f).apply3(arg1, arg2, arg3);
+        return Function2IntIntInt.call(f.apply(arg1), arg2, arg3);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,30 @@
+package novah.function;
+
+/**
+ * A function of 3 arguments that can be called with all of them at once.
+ * Partial applications fall back to the curried form.
+ */
+@SuppressWarnings("unchecked")
+public interface Function3ObjectIntLongLong<T1> extends Function<T1, Function<Integer, Function<Long, Long>>> {
+
+    long apply3(T1 arg1, int arg2, long arg3);
+
+    @Override
+    default Function<Integer, Function<Long, Long>> apply(T1 arg1) {
+        return new Function2IntLongLong() {
+            @Override
+            public long apply2(int arg2, long arg3) {
+                return apply3(arg1, arg2, arg3);
+            }
+        };
+    }
+
+    /**
+     * Calls `f` with all arguments at once if it's a Function3ObjectIntLongLong,
+     * otherwise applies the arguments one by one.
+     */
+    static <T1> long call(Function<T1, Function<Integer, Function<Long, Long>>> f, T1 arg1, int arg2, long arg3) {
+        if (f instanceof Function3ObjectIntLongLong) return ((Function3ObjectIntLongLong<T1>) f).apply3(arg1, arg2, arg3);
+        return Function2IntLongLong.call(f.apply(arg1), arg2, arg3);
+    }
+}
\ No newline at end of file
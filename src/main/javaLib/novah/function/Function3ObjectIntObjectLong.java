@@ -0,0 +1,30 @@
+package novah.function;
+
+/**
+ * A function of 3 arguments that can be called with all of them at once.
+ * Partial applications fall back to the curried form.
+ */
+@SuppressWarnings("unchecked")
+public interface Function3ObjectIntObjectLong<T1, T3> extends Function<T1, Function<Integer, Function<T3, Long>>> {
+
+    long apply3(T1 arg1, int arg2, T3 arg3);
+
+    @Override
+    default Function<Integer, Function<T3, Long>> apply(T1 arg1) {
+        return new Function2IntObjectLong<T3>() {
+            @Override
+            public long apply2(int arg2, T3 arg3) {
+                return apply3(arg1, arg2, arg3);
+            }
+        };
+    }
+
+    /**
+     * Calls `f` with all arguments at once if it's a Function3ObjectIntObjectLong,
+     * otherwise applies the arguments one by one.
+     */
+    static <T1, T3> long call(Function<T1, Function<Integer, Function<T3, Long>>> f, T1 arg1, int arg2, T3 arg3) {
+        if (f instanceof Function3ObjectIntObjectLong) return ((Function3ObjectIntObjectLong<T1, T3>) f).apply3(arg1, arg2, arg3);
+        return Function2IntObjectLong.call(f.apply(arg1), arg2, arg3);
+    }
+}
\ No newline at end of file
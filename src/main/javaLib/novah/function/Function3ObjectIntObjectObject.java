@@ -0,0 +1,30 @@
+package novah.function;
+
+/**
+ * A function of 3 arguments that can be called with all of them at once.
+ * Partial applications fall back to the curried form.
+ */
+@SuppressWarnings("unchecked")
+public interface Function3ObjectIntObjectObject<T1, T3, R> extends Function<T1, Function<Integer, Function<T3, R>>> {
+
+    R apply3(T1 arg1, int arg2, T3 arg3);
+
+    @Override
+    default Function<Integer, Function<T3, R>> apply(T1 arg1) {
+        return new Function2IntObjectObject<T3, R>() {
+            @Override
+            public R apply2(int arg2, T3 arg3) {
+                return apply3(arg1, arg2, arg3);
+            }
+        };
+    }
+
+    /**
+     * Calls `f` with all arguments at once if it's a Function3ObjectIntObjectObject,
+     * otherwise applies the arguments one by one.
+     */
+    static <T1, T3, R> R call(Function<T1, Function<Integer, Function<T3, R>>> f, T1 arg1, int arg2, T3 arg3) {
+        if (f instanceof Function3ObjectIntObjectObject) return ((Function3ObjectIntObjectObject<T1, T3, R>) f).apply3(arg1, arg2, arg3);
+        return Function2IntObjectObject.call(f.apply(arg1), arg2, arg3);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,30 @@
+package novah.function;
+
+/**
+ * A function of 3 arguments that can be called with all of them at once.
+ * Partial applications fall back to the curried form.
+ */
+@SuppressWarnings("unchecked")
+public interface Function3ObjectLongIntLong<T1> extends Function<T1, Function<Long, Function<Integer, Long>>> {
+
+    long apply3(T1 arg1, long arg2, int arg3);
+
+    @Override
+    default Function<Long, Function<Integer, Long>> apply(T1 arg1) {
+        return new Function2LongIntLong() {
+            @Override
+            public long apply2(long arg2, int arg3) {
+                return apply3(arg1, arg2, arg3);
+            }
+        };
+    }
+
+    /**
+     * Calls `f` with all arguments at once if it's a Function3ObjectLongIntLong,
+     * otherwise applies the arguments one by one.
+     */
+    static <T1> long call(Function<T1, Function<Long, Function<Integer, Long>>> f, T1 arg1, long arg2, int arg3) {
+        if (f instanceof Function3ObjectLongIntLong) return ((Function3ObjectLongIntLong<T1>) f).apply3(arg1, arg2, arg3);
+        return Function2LongIntLong.call(f.apply(arg1), arg2, arg3);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,30 @@
+package novah.function;
+
+/**
+ * A function of 3 arguments that can be called with all of them at once.
+ * Partial applications fall back to the curried form.
+ */
+@SuppressWarnings("unchecked")
+public interface Function3ObjectLongIntObject<T1, R> extends Function<T1, Function<Long, Function<Integer, R>>> {
+
+    R apply3(T1 arg1, long arg2, int arg3);
+
+    @Override
+    default Function<Long, Function<Integer, R>> apply(T1 arg1) {
+        return new Function2LongIntObject<R>() {
+            @Override
+            public R apply2(long arg2, int arg3) {
+                return apply3(arg1, arg2, arg3);
+            }
+        };
+    }
+
+    /**
+     * Calls `f` with all arguments at once if it's a Function3ObjectLongIntObject,
+     * otherwise applies the arguments one by one.
+     */
+    static <T1, R> R call(Function<T1, Function<Long, Function<Integer, R>>> f, T1 arg1, long arg2, int arg3) {
+        if (f instanceof Function3ObjectLongIntObject) return ((Function3ObjectLongIntObject<T1, R>) f).apply3(arg1, arg2, arg3);
+        return Function2LongIntObject.call(f.apply(arg1), arg2, arg3);
+    }
+}
\ No newline at end of file
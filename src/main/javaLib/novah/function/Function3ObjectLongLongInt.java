@@ -0,0 +1,30 @@
+package novah.function;
+
+/**
+ * A function of 3 arguments that can be called with all of them at once.
+ * Partial applications fall back to the curried form.
+ */
+@SuppressWarnings("unchecked")
+public interface Function3ObjectLongLongInt<T1> extends Function<T1, Function<Long, Function<Long, Integer>>> {
+
+    int apply3(T1 arg1, long arg2, long arg3);
+
+    @Override
+    default Function<Long, Function<Long, Integer>> apply(T1 arg1) {
+        return new Function2LongLongInt() {
+            @Override
+            public int apply2(long arg2, long arg3) {
+                return apply3(arg1, arg2, arg3);
+            }
+        };
+    }
+
+    /**
+     * Calls `f` with all arguments at once if it's a Function3ObjectLongLongInt,
+     * otherwise applies the arguments one by one.
+     */
+    static <T1> int call(Function<T1, Function<Long, Function<Long, Integer>>> f, T1 arg1, long arg2, long arg3) {
+        if (f instanceof Function3ObjectLongLongInt) return ((Function3ObjectLongLongInt<T1>) f).apply3(arg1, arg2, arg3);
+        return Function2LongLongInt.call(f.apply(arg1), arg2, arg3);
+    }
+}
\ No newline at end of file
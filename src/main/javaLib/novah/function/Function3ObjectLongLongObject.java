@@ -0,0 +1,30 @@
+package novah.function;
+
+/**
+ * A function of 3 arguments that can be called with all of them at once.
+ * Partial applications fall back to the curried form.
+ */
+@SuppressWarnings("unchecked")
+public interface Function3ObjectLongLongObject<T1, R> extends Function<T1, Function<Long, Function<Long, R>>> {
+
+    R apply3(T1 arg1, long arg2, long arg3);
+
+    @Override
+    default Function<Long, Function<Long, R>> apply(T1 arg1) {
+        return new Function2LongLongObject<R>() {
+            @Override
+            public R apply2(long arg2, long arg3) {
+                return apply3(arg1, arg2, arg3);
+            }
+        };
+    }
+
+    /**
+     * Calls `f` with all arguments at once if it's a Function3ObjectLongLongObject,
+     * otherwise applies the arguments one by one.
+     */
+    static <T1, R> R call(Function<T1, Function<Long, Function<Long, R>>> f, T1 arg1, long arg2, long arg3) {
+        if (f instanceof Function3ObjectLongLongObject) return ((Function3ObjectLongLongObject<T1, R>) f).apply3(arg1, arg2, arg3);
+        return Function2LongLongObject.call(f.apply(arg1), arg2, arg3);
+    }
+}
\ No newline at end of file
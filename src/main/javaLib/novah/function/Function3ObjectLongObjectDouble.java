@@ -0,0 +1,30 @@
+package novah.function;
+
+/**
+ * A function of 3 arguments that can be called with all of them at once.
+ * Partial applications fall back to the curried form.
+ */
+@SuppressWarnings("unchecked")
+public interface Function3ObjectLongObjectDouble<T1, T3> extends Function<T1, Function<Long, Function<T3, Double>>> {
+
+    double apply3(T1 arg1, long arg2, T3 arg3);
+
+    @Override
+    default Function<Long, Function<T3, Double>> apply(T1 arg1) {
+        return new Function2LongObjectDouble<T3>() {
+            @Override
+            public double apply2(long arg2, T3 arg3) {
+                return apply3(arg1, arg2, arg3);
+            }
+        };
+    }
+
+    /**
+     * Calls `f` with all arguments at once if it's a Function3ObjectLongObjectDouble,
+     * otherwise applies the arguments one by one.
+     */
+    static <T1, T3> double call(Function<T1, Function<Long, Function<T3, Double>>> f, T1 arg1, long arg2, T3 arg3) {
+        if (f instanceof Function3ObjectLongObjectDouble) return ((Function3ObjectLongObjectDouble<T1, T3>) f).apply3(arg1, arg2, arg3);
+        return Function2LongObjectDouble.call(f.apply(arg1), arg2, arg3);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,30 @@
+package novah.function;
+
+/**
+ * A function of 3 arguments that can be called with all of them at once.
+ * Partial applications fall back to the curried form.
+ */
+@SuppressWarnings("unchecked")
+public interface Function3ObjectLongObjectLong<T1, T3> extends Function<T1, Function<Long, Function<T3, Long>>> {
+
+    long apply3(T1 arg1, long arg2, T3 arg3);
+
+    @Override
+    default Function<Long, Function<T3, Long>> apply(T1 arg1) {
+        return new Function2LongObjectLong<T3>() {
+            @Override
+            public long apply2(long arg2, T3 arg3) {
+                return apply3(arg1, arg2, arg3);
+            }
+        };
+    }
+
+    /**
+     * Calls `f` with all arguments at once if it's a Function3ObjectLongObjectLong,
+     * otherwise applies the arguments one by one.
+     */
+    static <T1, T3> long call(Function<T1, Function<Long, Function<T3, Long>>> f, T1 arg1, long arg2, T3 arg3) {
+        if (f instanceof Function3ObjectLongObjectLong) return ((Function3ObjectLongObjectLong<T1, T3>) f).apply3(arg1, arg2, arg3);
+        return Function2LongObjectLong.call(f.apply(arg1), arg2, arg3);
+    }
+}
\ No newline at end of file
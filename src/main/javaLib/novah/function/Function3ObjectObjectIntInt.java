@@ -0,0 +1,30 @@
+package novah.function;
+
+/**
+ * A function of 3 arguments that can be called with all of them at once.
+ * Partial applications fall back to the curried form.
+ */
+@SuppressWarnings("unchecked")
+public interface Function3ObjectObjectIntInt<T1, T2> extends Function<T1, Function<T2, Function<Integer, Integer>>> {
+
+    int apply3(T1 arg1, T2 arg2, int arg3);
+
+    @Override
+    default Function<T2, Function<Integer, Integer>> apply(T1 arg1) {
+        return new Function2ObjectIntInt<T2>() {
+            @Override
+            public int apply2(T2 arg2, int arg3) {
+                return apply3(arg1, arg2, arg3);
+            }
+        };
+    }
+
+    /**
+     * Calls `f` with all arguments at once if it's a Function3ObjectObjectIntInt,
+     * otherwise applies the arguments one by one.
+     */
+    static <T1, T2> int call(Function<T1, Function<T2, Function<Integer, Integer>>> f, T1 arg1, T2 arg2, int arg3) {
+        if (f instanceof Function3ObjectObjectIntInt) return ((Function3ObjectObjectIntInt<T1, T2>) f).apply3(arg1, arg2, arg3);
+        return Function2ObjectIntInt.call(f.apply(arg1), arg2, arg3);
+    }
+}
\ No newline at end of file
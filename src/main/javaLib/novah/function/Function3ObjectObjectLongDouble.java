@@ -0,0 +1,30 @@
+package novah.function;
+
+/**
+ * A function of 3 arguments that can be called with all of them at once.
+ * Partial applications fall back to the curried form.
+ */
+@SuppressWarnings("unchecked")
+public interface Function3ObjectObjectLongDouble<T1, T2> extends Function<T1, Function<T2, Function<Long, Double>>> {
+
+    double apply3(T1 arg1, T2 arg2, long arg3);
+
+    @Override
+    default Function<T2, Function<Long, Double>> apply(T1 arg1) {
+        return new Function2ObjectLongDouble<T2>() {
+            @Override
+            public double apply2(T2 arg2, long arg3) {
+                return apply3(arg1, arg2, arg3);
+            }
+        };
+    }
+
+    /**
+     * Calls `f` with all arguments at once if it's a Function3ObjectObjectLongDouble,
+     * otherwise applies the arguments one by one.
+     */
+    static <T1, T2> double call(Function<T1, Function<T2, Function<Long, Double>>> f, T1 arg1, T2 arg2, long arg3) {
+        if (f instanceof Function3ObjectObjectLongDouble) return ((Function3ObjectObjectLongDouble<T1, T2>) f).apply3(arg1, arg2, arg3);
+        return Function2ObjectLongDouble.call(f.apply(arg1), arg2, arg3);
+    }
+}
\ No newline at end of file
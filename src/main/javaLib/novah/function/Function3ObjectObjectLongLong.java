@@ -0,0 +1,30 @@
+package novah.function;
+
+/**
+ * A function of 3 arguments that can be called with all of them at once.
+ * Partial applications fall back to the curried form.
+ */
+@SuppressWarnings("unchecked")
+public interface Function3ObjectObjectLongLong<T1, T2> extends Function<T1, Function<T2, Function<Long, Long>>> {
+
+    long apply3(T1 arg1, T2 arg2, long arg3);
+
+    @Override
+    default Function<T2, Function<Long, Long>> apply(T1 arg1) {
+        return new Function2ObjectLongLong<T2>() {
+            @Override
+            public long apply2(T2 arg2, long arg3) {
+                return apply3(arg1, arg2, arg3);
+            }
+        };
+    }
+
+    /**
+     * Calls `f` with all arguments at once if it's a Function3ObjectObjectLongLong,
+     * otherwise applies the arguments one by one.
+     */
+    static <T1, T2> long call(Function<T1, Function<T2, Function<Long, Long>>> f, T1 arg1, T2 arg2, long arg3) {
+        if (f instanceof Function3ObjectObjectLongLong) return ((Function3ObjectObjectLongLong<T1, T2>) f).apply3(arg1, arg2, arg3);
+        return Function2ObjectLongLong.call(f.apply(arg1), arg2, arg3);
+    }
+}
\ No newline at end of file
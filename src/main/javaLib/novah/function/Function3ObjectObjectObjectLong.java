@@ -0,0 +1,30 @@
+package novah.function;
+
+/**
+ * A function of 3 arguments that can be called with all of them at once.
+ * Partial applications fall back to the curried form.
+ */
+@SuppressWarnings("unchecked")
+public interface Function3ObjectObjectObjectLong<T1, T2, T3> extends Function<T1, Function<T2, Function<T3, Long>>> {
+
+    long apply3(T1 arg1, T2 arg2, T3 arg3);
+
+    @Override
+    default Function<T2, Function<T3, Long>> apply(T1 arg1) {
+        return new Function2ObjectObjectLong<T2, T3>() {
+            @Override
+            public long apply2(T2 arg2, T3 arg3) {
+                return apply3(arg1, arg2, arg3);
+            }
+        };
+    }
+
+    /**
+     * Calls `f` with all arguments at once if it's a Function3ObjectObjectObjectLong,
+     * otherwise applies the arguments one by one.
+     */
+    static <T1, T2, T3> long call(Function<T1, Function<T2, Function<T3, Long>>> f, T1 arg1, T2 arg2, T3 arg3) {
+        if (f instanceof Function3ObjectObjectObjectLong) return ((Function3ObjectObjectObjectLong<T1, T2, T3>) f).apply3(arg1, arg2, arg3);
+        return Function2ObjectObjectLong.call(f.apply(arg1), arg2, arg3);
+    }
+}
\ No newline at end of file
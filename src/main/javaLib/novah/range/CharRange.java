@@ -1,5 +1,8 @@
 package novah.range;
 
+import novah.Unit;
+import novah.function.Function;
+
 import java.util.Iterator;
 import java.util.Objects;
 
@@ -63,22 +66,35 @@ public class CharRange implements Range<Character> {
     @Override
     public Iterator<Character> iterator() {
         return new Iterator<>() {
+            final boolean up = step > 0;
             int current = start;
 
             @Override
             public boolean hasNext() {
-                return step > 0 ? current <= end : current >= end;
+                return up ? current <= end : current >= end;
             }
 
             @Override
             public Character next() {
-                char tmp = (char) current;
-                current = current + step;
-                return tmp;
+                int tmp = current;
+                current += step;
+                return (char) tmp;
             }
         };
     }
 
+    /**
+     * Runs this function for every number in this range without boxing them
+     */
+    @Override
+    public void foreach(Function<Character, Unit> fun) {
+        if (step > 0) {
+            for (int i = start; i <= end; i += step) fun.applyC((char) i);
+        } else {
+            for (int i = start; i >= end; i += step) fun.applyC((char) i);
+        }
+    }
+
     @Override
     public String toString() {
         if (Math.abs(step) == 1) {
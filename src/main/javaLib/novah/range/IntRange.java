@@ -1,7 +1,10 @@
 package novah.range;
 
-import java.util.Iterator;
+import novah.Unit;
+import novah.function.Function;
+
 import java.util.Objects;
+import java.util.PrimitiveIterator;
 
 public class IntRange implements Range<Integer> {
     public final int start;
@@ -61,24 +64,37 @@ public class IntRange implements Range<Integer> {
      * Creates an iterator that will go through all numbers in this range
      */
     @Override
-    public Iterator<Integer> iterator() {
-        return new Iterator<>() {
+    public PrimitiveIterator.OfInt iterator() {
+        return new PrimitiveIterator.OfInt() {
+            final boolean up = step > 0;
             int current = start;
 
             @Override
             public boolean hasNext() {
-                return step > 0 ? current <= end : current >= end;
+                return up ? current <= end : current >= end;
             }
 
             @Override
-            public Integer next() {
+            public int nextInt() {
                 int tmp = current;
-                current = current + step;
+                current += step;
                 return tmp;
             }
         };
     }
 
+    /**
+     * Runs this function for every number in this range without boxing them
+     */
+    @Override
+    public void foreach(Function<Integer, Unit> fun) {
+        if (step > 0) {
+            for (int i = start; i <= end; i += step) fun.applyI(i);
+        } else {
+            for (int i = start; i >= end; i += step) fun.applyI(i);
+        }
+    }
+
     @Override
     public String toString() {
         if (Math.abs(step) == 1) {
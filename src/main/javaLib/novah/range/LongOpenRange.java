@@ -1,7 +1,10 @@
 package novah.range;
 
-import java.util.Iterator;
+import novah.Unit;
+import novah.function.Function;
+
 import java.util.Objects;
+import java.util.PrimitiveIterator;
 
 public class LongOpenRange implements Range<Long> {
     public final long start;
@@ -63,24 +66,37 @@ public class LongOpenRange implements Range<Long> {
      * Creates a iterator that will go through all numbers in this range
      */
     @Override
-    public Iterator<Long> iterator() {
-        return new Iterator<>() {
+    public PrimitiveIterator.OfLong iterator() {
+        return new PrimitiveIterator.OfLong() {
+            final boolean up = step > 0;
             long current = start;
 
             @Override
             public boolean hasNext() {
-                return step > 0 ? current < end : current > end;
+                return up ? current < end : current > end;
             }
 
             @Override
-            public Long next() {
+            public long nextLong() {
                 long tmp = current;
-                current = current + step;
+                current += step;
                 return tmp;
             }
         };
     }
 
+    /**
+     * Runs this function for every number in this range without boxing them
+     */
+    @Override
+    public void foreach(Function<Long, Unit> fun) {
+        if (step > 0) {
+            for (long i = start; i < end; i += step) fun.applyJ(i);
+        } else {
+            for (long i = start; i > end; i += step) fun.applyJ(i);
+        }
+    }
+
     @Override
     public String toString() {
         if (Math.abs(step) == 1) {
@@ -22,6 +22,9 @@ import java.nio.file.Files
 import java.nio.file.Path
 import java.nio.file.StandardCopyOption
 import java.util.*
+import java.util.concurrent.Callable
+import java.util.concurrent.ExecutionException
+import java.util.concurrent.ForkJoinPool
 import java.util.zip.ZipInputStream
 import kotlin.io.path.exists
 
@@ -92,6 +95,28 @@ object Util {
         return joinTo(StringBuilder(), separator, pre, pos, limit, truncated, transform).toString()
     }
 
+    /**
+     * Like `map` but runs `fn` on up to `threads` threads.
+     * The results are in the same order as the list.
+     * If `fn` throws, the exception of the first failing element is rethrown.
+     */
+    fun <T, R> List<T>.parallelMap(threads: Int, fn: (T) -> R): List<R> {
+        if (threads <= 1 || size <= 1) return map(fn)
+        val pool = ForkJoinPool(minOf(threads, size))
+        try {
+            val tasks = map { pool.submit(Callable { fn(it) }) }
+            return tasks.map { task ->
+                try {
+                    task.get()
+                } catch (e: ExecutionException) {
+                    throw e.cause ?: e
+                }
+            }
+        } finally {
+            pool.shutdownNow()
+        }
+    }
+
     fun validByte(i: Int): Boolean = i >= Byte.MIN_VALUE && i <= Byte.MAX_VALUE
     fun validShort(i: Int): Boolean = i >= Short.MIN_VALUE && i <= Short.MAX_VALUE
 
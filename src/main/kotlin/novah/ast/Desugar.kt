@@ -33,6 +33,7 @@ import novah.frontend.typechecker.*
 import novah.frontend.typechecker.Type
 import novah.frontend.validatePublicAliases
 import novah.main.CompilationError
+import java.util.regex.PatternSyntaxException
 import novah.ast.source.Binder as SBinder
 import novah.ast.source.Case as SCase
 import novah.ast.source.DataConstructor as SDataConstructor
@@ -189,6 +190,7 @@ class Desugar(private val smod: SModule, private val typeChecker: Typechecker) {
         is SExpr.CharE -> Expr.CharE(v, span)
         is SExpr.Bool -> Expr.Bool(v, span)
         is SExpr.PatternLiteral -> {
+            checkRegex(regex, span)
             val clazz = Spanned(span, "java.util.regex.Pattern")
             val method = Spanned(span, "compile")
             Expr.ForeignStaticMethod(clazz, method, listOf(Expr.StringE(regex, span)), option = false, span)
@@ -532,7 +534,10 @@ class Desugar(private val smod: SModule, private val typeChecker: Typechecker) {
             val ctor = Expr.Constructor("Tuple", span, "novah.core")
             Pattern.Ctor(ctor, listOf(p1.desugar(locals, tvars), p2.desugar(locals, tvars)), span)
         }
-        is SPattern.RegexPattern -> Pattern.Regex(regex.regex, span)
+        is SPattern.RegexPattern -> {
+            checkRegex(regex.regex, span)
+            Pattern.Regex(regex.regex, span)
+        }
         is SPattern.ImplicitPattern -> parserError(E.IMPLICIT_PATTERN, span)
         is SPattern.TypeAnnotation -> parserError(E.ANNOTATION_PATTERN, span)
     }
@@ -1182,6 +1187,18 @@ class Desugar(private val smod: SModule, private val typeChecker: Typechecker) {
 
     private fun parserError(msg: String, span: Span): Nothing = throw ParserError(msg, span)
 
+    /**
+     * Regex literals are only compiled when first used,
+     * so they have to be checked at compile time.
+     */
+    private fun checkRegex(regex: String, span: Span) {
+        try {
+            java.util.regex.Pattern.compile(regex)
+        } catch (e: PatternSyntaxException) {
+            makeAddError(E.invalidRegex(e.description, e.index), span)
+        }
+    }
+
     private fun makeError(msg: String, span: Span): CompilerProblem =
         CompilerProblem(msg, span, smod.sourceName, moduleName)
 
@@ -312,6 +312,7 @@ data class Metadata(val data: Expr.RecordExtend) {
     companion object {
         const val NO_WARN = "noWarn"
         const val DERIVE = "derive"
+        const val SPECIALIZE = "specialize"
     }
 }
 
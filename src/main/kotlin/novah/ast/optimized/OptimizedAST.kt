@@ -25,6 +25,7 @@ import org.objectweb.asm.Label
 import org.objectweb.asm.Type
 import java.lang.reflect.Field
 import java.lang.reflect.Method
+import java.security.MessageDigest
 import java.lang.reflect.Constructor as JConstructor
 
 /**
@@ -42,8 +43,19 @@ sealed class Decl(open val span: Span) {
         override val span: Span
     ) : Decl(span)
 
-    data class ValDecl(val name: String, val exp: Expr, val visibility: Visibility, override val span: Span) :
-        Decl(span)
+    /**
+     * @param arity the number of arguments of the uncurried static method
+     * generated for this declaration or 0 if none should be generated
+     * @param isInstance if this declaration is a type class instance
+     */
+    data class ValDecl(
+        val name: String,
+        val exp: Expr,
+        val visibility: Visibility,
+        override val span: Span,
+        val arity: Int = 0,
+        val isInstance: Boolean = false
+    ) : Decl(span)
 }
 
 data class DataConstructor(val name: String, val args: List<Clazz>, val visibility: Visibility)
@@ -71,6 +83,7 @@ sealed class Expr(open val type: Clazz, open val span: Span) {
         val body: Expr,
         var internalName: String = "",
         var locals: List<LocalVar> = listOf(),
+        var arity: Int = 1,
         override val type: Clazz,
         override val span: Span
     ) : Expr(type, span)
@@ -79,6 +92,20 @@ sealed class Expr(open val type: Clazz, open val span: Span) {
     data class CtorApp(val ctor: Constructor, val args: List<Expr>, override val type: Clazz, override val span: Span) :
         Expr(type, span)
 
+    /**
+     * A saturated call to the uncurried static method of a top-level function.
+     * `pars` and `ret` are the types of the method, which may differ from the types at the call site.
+     */
+    data class StaticCall(
+        val className: String,
+        val name: String,
+        val args: List<Expr>,
+        val pars: List<Clazz>,
+        val ret: Clazz,
+        override val type: Clazz,
+        override val span: Span
+    ) : Expr(type, span)
+
     data class If(
         val conds: List<Pair<Expr, Expr>>,
         val elseCase: Expr,
@@ -86,6 +113,29 @@ sealed class Expr(open val type: Clazz, open val span: Span) {
         override val span: Span
     ) : Expr(type, span)
 
+    /**
+     * Jumps to the case whose key is equal to the int `exp`
+     * or to `default` if none is.
+     */
+    data class Switch(
+        val exp: Expr,
+        val cases: List<Pair<Int, Expr>>,
+        val default: Expr,
+        override val type: Clazz,
+        override val span: Span
+    ) : Expr(type, span)
+
+    /**
+     * Same as [Switch] but for strings.
+     */
+    data class StringSwitch(
+        val exp: Expr,
+        val cases: List<Pair<String, Expr>>,
+        val default: Expr,
+        override val type: Clazz,
+        override val span: Span
+    ) : Expr(type, span)
+
     data class Let(
         val binder: String,
         val bindExpr: Expr,
@@ -111,6 +161,13 @@ sealed class Expr(open val type: Clazz, open val span: Span) {
     ) : Expr(type, span)
 
     data class InstanceOf(val exp: Expr, override val type: Clazz, override val span: Span) : Expr(type, span)
+
+    /**
+     * The tag of the constructor `exp` of type `adtClass`.
+     */
+    data class ConstructorTag(val exp: Expr, val adtClass: String, override val type: Clazz, override val span: Span) :
+        Expr(type, span)
+
     data class NativeFieldGet(val field: Field, val thisPar: Expr, override val type: Clazz, override val span: Span) :
         Expr(type, span)
 
@@ -165,8 +222,27 @@ sealed class Expr(open val type: Clazz, open val span: Span) {
         override val span: Span
     ) : Expr(type, span)
 
-    data class RecordSelect(val expr: Expr, val label: String, override val type: Clazz, override val span: Span) :
-        Expr(type, span)
+    /**
+     * @param shape the shape of `expr` if it's statically known
+     */
+    data class RecordSelect(
+        val expr: Expr,
+        val label: String,
+        override val type: Clazz,
+        override val span: Span,
+        val shape: RecordShape? = null
+    ) : Expr(type, span)
+
+    /**
+     * Creates a record of a known shape.
+     * The values are in the same order as the shape's labels.
+     */
+    data class ShapeNew(
+        val shape: RecordShape,
+        val values: List<Expr>,
+        override val type: Clazz,
+        override val span: Span
+    ) : Expr(type, span)
 
     data class RecordRestrict(val expr: Expr, val label: String, override val type: Clazz, override val span: Span) :
         Expr(type, span)
@@ -186,6 +262,13 @@ sealed class Expr(open val type: Clazz, open val span: Span) {
     data class ListLiteral(val exps: List<Expr>, override val type: Clazz, override val span: Span) : Expr(type, span)
     data class SetLiteral(val exps: List<Expr>, override val type: Clazz, override val span: Span) : Expr(type, span)
     data class ArrayLiteral(val exps: List<Expr>, override val type: Clazz, override val span: Span) : Expr(type, span)
+
+    /**
+     * Concatenates the string representation of all parts in a single step.
+     */
+    data class StringConcat(val parts: List<Expr>, override val type: Clazz, override val span: Span) :
+        Expr(type, span)
+
     data class TryCatch(
         val tryExpr: Expr,
         val catches: List<Catch>,
@@ -200,6 +283,11 @@ sealed class Expr(open val type: Clazz, open val span: Span) {
     data class Null(override val type: Clazz, override val span: Span) : Expr(type, span)
     data class ArrayLength(val expr: Expr, override val type: Clazz, override val span: Span) : Expr(type, span)
     data class ClassConstant(val clazz: String, override val type: Clazz, override val span: Span) : Expr(type, span)
+
+    /**
+     * A regex compiled only once per class.
+     */
+    data class RegexConstant(val regex: String, override val type: Clazz, override val span: Span) : Expr(type, span)
     data class Return(val exp: Expr) : Expr(exp.type, exp.span)
     data class Unbox(val exp: Expr, override val type: Clazz) : Expr(type, exp.span)
 
@@ -220,11 +308,17 @@ fun Expr.everywhere(f: (Expr) -> Expr): Expr {
         is Expr.Lambda -> f(e.copy(body = go(e.body)))
         is Expr.App -> f(e.copy(fn = go(e.fn), arg = go(e.arg)))
         is Expr.CtorApp -> f(e.copy(ctor = go(e.ctor) as Expr.Constructor, args = e.args.map(::go)))
+        is Expr.StaticCall -> f(e.copy(args = e.args.map(::go)))
         is Expr.If -> f(e.copy(conds = e.conds.map { (c, t) -> go(c) to go(t) }, elseCase = go(e.elseCase)))
+        is Expr.Switch ->
+            f(e.copy(exp = go(e.exp), cases = e.cases.map { (k, c) -> k to go(c) }, default = go(e.default)))
+        is Expr.StringSwitch ->
+            f(e.copy(exp = go(e.exp), cases = e.cases.map { (k, c) -> k to go(c) }, default = go(e.default)))
         is Expr.Let -> f(e.copy(bindExpr = go(e.bindExpr), body = go(e.body)))
         is Expr.Do -> f(e.copy(exps = e.exps.map(::go)))
         is Expr.OperatorApp -> f(e.copy(operands = e.operands.map(::go)))
         is Expr.InstanceOf -> f(e.copy(exp = go(e.exp)))
+        is Expr.ConstructorTag -> f(e.copy(exp = go(e.exp)))
         is Expr.NativeFieldGet -> f(e.copy(thisPar = go(e.thisPar)))
         is Expr.NativeFieldSet -> f(e.copy(thisPar = go(e.thisPar), par = go(e.par)))
         is Expr.NativeStaticFieldSet -> f(e.copy(par = go(e.par)))
@@ -235,10 +329,12 @@ fun Expr.everywhere(f: (Expr) -> Expr): Expr {
         is Expr.Cast -> f(e.copy(expr = go(e.expr)))
         is Expr.RecordExtend -> f(e.copy(labels = e.labels.mapList(::go), expr = go(e.expr)))
         is Expr.RecordSelect -> f(e.copy(expr = go(e.expr)))
+        is Expr.ShapeNew -> f(e.copy(values = e.values.map(::go)))
         is Expr.RecordRestrict -> f(e.copy(expr = go(e.expr)))
         is Expr.RecordUpdate -> f(e.copy(expr = go(e.expr), value = go(e.value)))
         is Expr.RecordMerge -> f(e.copy(exp1 = go(e.exp1), exp2 = go(e.exp2)))
         is Expr.ListLiteral -> f(e.copy(exps = e.exps.map(::go)))
+        is Expr.StringConcat -> f(e.copy(parts = e.parts.map(::go)))
         is Expr.SetLiteral -> f(e.copy(exps = e.exps.map(::go)))
         is Expr.ArrayLiteral -> f(e.copy(exps = e.exps.map(::go)))
         is Expr.TryCatch -> {
@@ -254,7 +350,8 @@ fun Expr.everywhere(f: (Expr) -> Expr): Expr {
         is Expr.ConstructorAccess -> f(e.copy(ctor = go(e.ctor)))
         is Expr.ByteE, is Expr.Int16, is Expr.Int32, is Expr.Int64, is Expr.Float32, is Expr.Float64, is Expr.LocalVar,
         is Expr.StringE, is Expr.CharE, is Expr.Bool, is Expr.Constructor, is Expr.Null, is Expr.Var,
-        is Expr.RecordEmpty, is Expr.Unit, is Expr.NativeStaticFieldGet, is Expr.ClassConstant -> f(e)
+        is Expr.RecordEmpty, is Expr.Unit, is Expr.NativeStaticFieldGet, is Expr.ClassConstant,
+        is Expr.RegexConstant -> f(e)
     }
     return go(this)
 }
@@ -276,6 +373,10 @@ fun Expr.everywherUnit(f: (Expr) -> Unit) {
                 go(e.ctor)
                 e.args.forEach(::go)
             }
+            is Expr.StaticCall -> {
+                f(e)
+                e.args.forEach(::go)
+            }
             is Expr.If -> {
                 f(e)
                 e.conds.forEach {
@@ -284,6 +385,18 @@ fun Expr.everywherUnit(f: (Expr) -> Unit) {
                 }
                 go(e.elseCase)
             }
+            is Expr.Switch -> {
+                f(e)
+                go(e.exp)
+                e.cases.forEach { go(it.second) }
+                go(e.default)
+            }
+            is Expr.StringSwitch -> {
+                f(e)
+                go(e.exp)
+                e.cases.forEach { go(it.second) }
+                go(e.default)
+            }
             is Expr.Let -> {
                 f(e)
                 go(e.bindExpr)
@@ -301,6 +414,10 @@ fun Expr.everywherUnit(f: (Expr) -> Unit) {
                 f(e)
                 go(e.exp)
             }
+            is Expr.ConstructorTag -> {
+                f(e)
+                go(e.exp)
+            }
             is Expr.NativeFieldGet -> {
                 f(e)
                 go(e.thisPar)
@@ -344,6 +461,10 @@ fun Expr.everywherUnit(f: (Expr) -> Unit) {
                 f(e)
                 go(e.expr)
             }
+            is Expr.ShapeNew -> {
+                f(e)
+                e.values.forEach(::go)
+            }
             is Expr.RecordRestrict -> {
                 f(e)
                 go(e.expr)
@@ -362,6 +483,10 @@ fun Expr.everywherUnit(f: (Expr) -> Unit) {
                 f(e)
                 e.exps.forEach(::go)
             }
+            is Expr.StringConcat -> {
+                f(e)
+                e.parts.forEach(::go)
+            }
             is Expr.SetLiteral -> {
                 f(e)
                 e.exps.forEach(::go)
@@ -397,15 +522,33 @@ fun Expr.everywherUnit(f: (Expr) -> Unit) {
                 f(e)
                 go(e.exp)
             }
+            is Expr.ConstructorAccess -> {
+                f(e)
+                go(e.ctor)
+            }
             is Expr.Bool, is Expr.ByteE, is Expr.Int16, is Expr.Int32, is Expr.Int64, is Expr.Float32 -> f(e)
             is Expr.Float64, is Expr.CharE, is Expr.StringE, is Expr.Var, is Expr.LocalVar -> f(e)
-            is Expr.ClassConstant, is Expr.Constructor, is Expr.ConstructorAccess, is Expr.Null -> f(e)
+            is Expr.ClassConstant, is Expr.RegexConstant, is Expr.Constructor, is Expr.Null -> f(e)
             is Expr.NativeStaticFieldGet, is Expr.RecordEmpty, is Expr.Unit -> f(e)
         }
     }
     go(this)
 }
 
+/**
+ * Returns the lambdas directly nested in this expression, outermost first.
+ * Ex.: \x -> \y -> x returns the lambdas of `x` and `y`.
+ */
+fun Expr.nestedLambdas(): List<Expr.Lambda> {
+    val lambdas = mutableListOf<Expr.Lambda>()
+    var exp = this
+    while (exp is Expr.Lambda) {
+        lambdas += exp
+        exp = exp.body
+    }
+    return lambdas
+}
+
 fun nestLets(binds: List<Pair<String, Expr>>, body: Expr, type: Clazz): Expr = when {
     binds.isEmpty() -> body
     else -> {
@@ -433,4 +576,32 @@ data class Clazz(val type: Type, val pars: List<Clazz> = emptyList(), val labels
     }
 }
 
+/**
+ * A closed record type without duplicated labels.
+ * Records of a known shape are compiled to a class with one field per label.
+ * Non-primitive fields are stored as Object so shapes can be shared between modules.
+ */
+data class RecordShape(val labels: List<String>, val types: List<Type>) {
+    val className: String = "novah/shape/Shape$" + boundedName(
+        labels.joinToString("$") + "$$" + types.joinToString("") { it.descriptor.take(1) }
+    )
+
+    fun fieldType(label: String): Type = types[labels.indexOf(label)]
+
+    companion object {
+        // class names are also file names, which are limited to 255 bytes
+        private const val MAX_NAME = 64
+        private const val PREFIX = 40
+
+        /**
+         * Long names are cut and made unique by a hash of the full name.
+         */
+        private fun boundedName(name: String): String {
+            if (name.length <= MAX_NAME) return name
+            val digest = MessageDigest.getInstance("SHA-256").digest(name.toByteArray(Charsets.UTF_8))
+            return name.take(PREFIX) + "$" + digest.take(8).joinToString("") { "%02x".format(it) }
+        }
+    }
+}
+
 fun Expr.Var.fullname() = "$className.$name"
\ No newline at end of file
@@ -25,6 +25,7 @@ import novah.backend.GenUtil.LAMBDA_CTOR
 import novah.backend.GenUtil.NOVAH_GENCLASS_VERSION
 import novah.backend.GenUtil.OBJECT_CLASS
 import novah.backend.GenUtil.STATIC_INIT
+import novah.backend.GenUtil.TAG_METHOD
 import novah.backend.GenUtil.bootstrapHandle
 import novah.backend.GenUtil.lambdaHandle
 import novah.backend.GenUtil.visibility
@@ -80,6 +81,9 @@ class ADTGen(
         )
         cw.visitSource(ast.sourceName, null)
 
+        // the tag of the constructor, used to switch on it
+        cw.visitMethod(ACC_PUBLIC + ACC_ABSTRACT, TAG_METHOD, "()I", null, emptyArray()).visitEnd()
+
         cw.visitEnd()
         onGenClass(moduleName, adt.name, cw.toByteArray())
     }
@@ -178,6 +182,7 @@ class ADTGen(
             genFunctionalConstructor(cw, className, args)
         }
 
+        if (!singleSameCtor) genTag(cw, adt.dataCtors.indexOf(ctor))
         genToString(cw, className, args)
         genEquals(cw, className, args)
         genHashCode(cw, className, args)
@@ -198,6 +203,19 @@ class ADTGen(
             init.visitEnd()
         }
 
+        private fun genTag(cw: ClassWriter, tag: Int) {
+            val m = cw.visitMethod(ACC_PUBLIC + ACC_FINAL, TAG_METHOD, "()I", null, emptyArray())
+            m.visitCode()
+            when {
+                tag <= 5 -> m.visitInsn(ICONST_0 + tag)
+                tag <= Byte.MAX_VALUE -> m.visitIntInsn(BIPUSH, tag)
+                else -> m.visitIntInsn(SIPUSH, tag)
+            }
+            m.visitInsn(IRETURN)
+            m.visitMaxs(0, 0)
+            m.visitEnd()
+        }
+
         private fun genDefaultStaticInitializer(cw: ClassWriter, className: String) {
             val init = cw.visitMethod(ACC_STATIC, STATIC_INIT, "()V", null, emptyArray())
             init.visitCode()
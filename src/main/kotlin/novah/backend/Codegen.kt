@@ -24,12 +24,17 @@ import novah.backend.GenUtil.LAMBDA_CTOR
 import novah.backend.GenUtil.NOVAH_GENCLASS_VERSION
 import novah.backend.GenUtil.OBJECT_CLASS
 import novah.backend.GenUtil.STATIC_INIT
+import novah.backend.GenUtil.TAG_METHOD
 import novah.backend.GenUtil.lambdaHandle
+import novah.backend.GenUtil.lazyValueHandle
+import novah.backend.GenUtil.recordSelectHandle
+import novah.backend.GenUtil.stringConcatHandle
 import novah.backend.GenUtil.visibility
 import novah.backend.TypeUtil.FUNCTION_CLASS
 import novah.backend.TypeUtil.FUNCTION_DESC
 import novah.backend.TypeUtil.LIST_CLASS
 import novah.backend.TypeUtil.LIST_DESC
+import novah.backend.TypeUtil.MAX_LAMBDA_ARITY
 import novah.backend.TypeUtil.OBJECT_DESC
 import novah.backend.TypeUtil.RECORD_CLASS
 import novah.backend.TypeUtil.RECORD_DESC
@@ -41,23 +46,41 @@ import novah.backend.TypeUtil.box
 import novah.backend.TypeUtil.descriptor
 import novah.backend.TypeUtil.isPrimitive
 import novah.backend.TypeUtil.isWrapper
+import novah.backend.TypeUtil.multiArityErasure
 import novah.backend.TypeUtil.unbox
 import novah.backend.TypeUtil.wrapper
 import novah.data.forEachList
 import novah.frontend.Span
+import novah.frontend.typechecker.TConst
+import novah.frontend.typechecker.primUnit
+import novah.optimize.Names
 import org.objectweb.asm.*
 import org.objectweb.asm.ClassWriter.COMPUTE_FRAMES
 import org.objectweb.asm.Opcodes.*
 import org.objectweb.asm.Type.*
+import java.util.concurrent.ConcurrentHashMap
+import novah.ast.canonical.Decl as CDecl
+import novah.ast.canonical.Expr as CExpr
+import novah.ast.canonical.Module as TypedModule
 
 /**
  * Takes a typed AST and generates JVM bytecode.
+ * @param lazyValues the full names of all values that can be initialized lazily (see [collectLazyValues]),
+ * which other modules read through their static getter
+ * @param lazyInit if the values of this module are initialized lazily
  * @param onGenClass callback called for every class generated
  */
-class Codegen(private val ast: Module, private val onGenClass: (String, String, ByteArray) -> Unit) {
+class Codegen(
+    private val ast: Module,
+    private val lazyValues: Set<String> = emptySet(),
+    private val lazyInit: Boolean = false,
+    private val onGenClass: (String, String, ByteArray) -> Unit
+) {
 
     private val className = "${ast.name}/\$Module"
 
+    private val shapes = mutableSetOf<RecordShape>()
+
     fun run() {
         try {
             innerRun()
@@ -85,23 +108,19 @@ class Codegen(private val ast: Module, private val onGenClass: (String, String,
         val values = mutableListOf<Decl.ValDecl>()
         for (decl in ast.decls) {
             when (decl) {
-                is Decl.TypeDecl -> {
-                    for (ctor in decl.dataCtors) {
-                        ctorCache["${ast.name}/${ctor.name}"] = ctor
-                    }
-                    datas += decl
-                }
+                is Decl.TypeDecl -> datas += decl
                 is Decl.ValDecl -> {
                     values += decl
                     if (main == null && isMain(decl)) main = decl
                 }
             }
         }
-        NovahClassWriter.addADTs(ast.name, datas)
+        registerTypes(ast)
 
         for (data in datas) ADTGen(data, ast, onGenClass).run()
 
-        for (decl in values) genFieldVal(cw, decl)
+        val (lazies, eagers) = values.partition { lazyInit && isLazy(className, it.name) }
+        for (decl in eagers) genFieldVal(cw, decl)
 
         // empty ctor
         ADTGen.genEmptyConstructor(cw, ACC_PRIVATE)
@@ -109,18 +128,38 @@ class Codegen(private val ast: Module, private val onGenClass: (String, String,
         // lambda methods
         for (v in values) {
             val lambdas = setupLambdas(v)
-            for (l in lambdas) genLambdaMethod(l, cw)
+            // lambdas absorbed by a multi-arity lambda or implemented
+            // by the uncurried method don't need a method of their own
+            for (l in lambdas) {
+                if (l.arity > 0 && l.internalName != v.name) genLambdaMethod(l, cw)
+            }
+        }
+
+        // uncurried methods
+        for (v in values) {
+            if (v.arity > 0) genUncurriedMethod(v, cw)
+        }
+
+        for (v in lazies) genLazyValue(v, cw)
+        for (v in eagers) {
+            if (isLazy(className, v.name)) genGetter(v, cw)
         }
 
         if (main != null) genMain(main, cw, GenContext())
 
         // static ctor
-        genStaticCtor(cw, values)
+        genStaticCtor(cw, eagers)
 
         cw.visitEnd()
         onGenClass(ast.name, "\$Module", cw.toByteArray())
     }
 
+    /**
+     * The record shapes used by this module.
+     * Shapes are shared by all modules, so they are generated once for the whole compilation.
+     */
+    fun shapes(): Set<RecordShape> = shapes
+
     private fun genFieldVal(cw: ClassWriter, decl: Decl.ValDecl) {
         // Primitives and strings can be inlined directly
         val value = when (val e = decl.exp) {
@@ -157,6 +196,64 @@ class Codegen(private val ast: Module, private val onGenClass: (String, String,
         init.visitEnd()
     }
 
+    /**
+     * A lazy value has no field. It's computed by a private init method
+     * the first time its dynamic constant is loaded and is read by other
+     * modules through a static getter.
+     */
+    private fun genLazyValue(decl: Decl.ValDecl, cw: ClassWriter) {
+        val type = decl.exp.type.type
+        val ctx = GenContext()
+        val init = cw.visitMethod(
+            ACC_PRIVATE + ACC_STATIC + ACC_SYNTHETIC,
+            lazyInitName(decl.name),
+            "()${type.descriptor}",
+            null,
+            emptyArray()
+        )
+        init.visitCode()
+        val l = Label()
+        init.visitLabel(l)
+        lineNumber = decl.span.startLine
+        init.visitLineNumber(lineNumber, l)
+        genExpr(decl.exp, init, ctx)
+        init.visitInsn(type.getOpcode(IRETURN))
+        init.visitLabel(Label())
+        ctx.visitLocalVariables(init)
+        init.visitMaxs(0, 0)
+        init.visitEnd()
+
+        genGetter(decl, cw)
+    }
+
+    /**
+     * Values that can be lazy have a static getter in both modes, so modules
+     * compiled separately don't depend on how this one initializes its values.
+     */
+    private fun genGetter(decl: Decl.ValDecl, cw: ClassWriter) {
+        val type = decl.exp.type.type
+        val getter = cw.visitMethod(ACC_STATIC + visibility(decl), decl.name, "()${type.descriptor}", null, emptyArray())
+        getter.visitCode()
+        genGetValue(className, decl.name, type, getter)
+        getter.visitInsn(type.getOpcode(IRETURN))
+        getter.visitMaxs(0, 0)
+        getter.visitEnd()
+    }
+
+    /**
+     * Loads the value `name` of module class `owner`.
+     */
+    private fun genGetValue(owner: String, name: String, type: Type, mv: MethodVisitor) {
+        when {
+            !isLazy(owner, name) -> mv.visitFieldInsn(GETSTATIC, owner, name, type.descriptor)
+            owner != className -> mv.visitMethodInsn(INVOKESTATIC, owner, name, "()${type.descriptor}", false)
+            lazyInit -> mv.visitLdcInsn(lazyConstant(owner, name, type))
+            else -> mv.visitFieldInsn(GETSTATIC, owner, name, type.descriptor)
+        }
+    }
+
+    private fun isLazy(owner: String, name: String): Boolean = "$owner.$name" in lazyValues
+
     private var lineNumber = -1
 
     private fun genValDecl(decl: Decl.ValDecl, mv: MethodVisitor, ctx: GenContext) {
@@ -202,34 +299,12 @@ class Codegen(private val ast: Module, private val onGenClass: (String, String,
                 // The stack will be empty here, so no pop needed.
                 // This works because the Do case takes care of generating a default value
             }
-            is Expr.Var -> {
-                mv.visitFieldInsn(GETSTATIC, e.className, e.name, e.type.type.descriptor)
-            }
+            is Expr.Var -> genGetValue(e.className, e.name, e.type.type, mv)
             is Expr.Constructor -> {
                 if (e.arity == 0) mv.visitFieldInsn(GETSTATIC, e.fullName, INSTANCE, descriptor(e.fullName))
                 else mv.visitFieldInsn(GETSTATIC, e.fullName, LAMBDA_CTOR, FUNCTION_DESC)
             }
-            is Expr.App -> {
-                val fn = e.fn
-                genExpr(fn, mv, ctx)
-                genExpr(e.arg, mv, ctx)
-
-                val arg = fn.type.pars[0].type
-                val ret = fn.type.pars[1].type
-                val method = TypeUtil.lambdaMethodName(arg, ret)
-                val desc = TypeUtil.lambdaMethodDesc(arg, ret)
-                mv.visitMethodInsn(
-                    INVOKEINTERFACE,
-                    FUNCTION_CLASS,
-                    method,
-                    desc,
-                    true
-                )
-
-                if (!ret.isPrimitive() && ret.internalName != OBJECT_CLASS) {
-                    mv.visitTypeInsn(CHECKCAST, ret.internalName)
-                }
-            }
+            is Expr.App -> genApp(e, mv, ctx)
             is Expr.CtorApp -> {
                 val name = e.ctor.fullName
                 mv.visitTypeInsn(NEW, name)
@@ -246,6 +321,15 @@ class Codegen(private val ast: Module, private val onGenClass: (String, String,
                 }
                 mv.visitMethodInsn(INVOKESPECIAL, name, INIT, "($type)V", false)
             }
+            is Expr.StaticCall -> {
+                e.args.zip(e.pars).forEach { (arg, par) ->
+                    genExpr(arg, mv, ctx)
+                    adaptType(arg.type.type, par.type, mv)
+                }
+                val desc = getMethodDescriptor(e.ret.type, *e.pars.map { it.type }.toTypedArray())
+                mv.visitMethodInsn(INVOKESTATIC, e.className, e.name, desc, false)
+                adaptType(e.ret.type, e.type.type, mv)
+            }
             is Expr.ConstructorAccess -> {
                 genExpr(e.ctor, mv, ctx)
                 mv.visitFieldInsn(GETFIELD, e.fullName, "v${e.field}", e.type.type.descriptor)
@@ -278,6 +362,8 @@ class Codegen(private val ast: Module, private val onGenClass: (String, String,
                 genExpr(e.elseCase, mv, ctx, unused)
                 mv.visitLabel(endLabel)
             }
+            is Expr.Switch -> genSwitch(e, mv, ctx, unused)
+            is Expr.StringSwitch -> genStringSwitch(e, mv, ctx, unused)
             is Expr.Let -> {
                 val binderTy = e.bindExpr.type.type
                 val num = ctx.nextLocal(binderTy)
@@ -318,8 +404,12 @@ class Codegen(private val ast: Module, private val onGenClass: (String, String,
                     if (!type.isPrimitive() && type.internalName != OBJECT_CLASS)
                         mv.visitTypeInsn(CHECKCAST, type.internalName)
                 }
-                val args = localTypes + e.type.pars[0].type
-                val lambdaMethodDesc = getMethodDescriptor(e.type.pars[1].type, *args.toTypedArray())
+                // a chain of lambdas `\x -> \y -> ...` is created as a single multi-arity function
+                val chain = e.nestedLambdas().take(e.arity)
+                val lambdaArgs = chain.map { it.type.pars[0].type }
+                val ret = chain.last().type.pars[1].type
+                val args = localTypes + lambdaArgs
+                val lambdaMethodDesc = getMethodDescriptor(ret, *args.toTypedArray())
                 val handle = Handle(
                     H_INVOKESTATIC,
                     className,
@@ -328,14 +418,12 @@ class Codegen(private val ast: Module, private val onGenClass: (String, String,
                     false
                 )
 
-                val arg = e.type.pars[0].type
-                val ret = e.type.pars[1].type
-                val ldesc = getMethodType(ret, arg)
+                val ldesc = TypeUtil.lambdaInstantiatedType(lambdaArgs, ret)
 
-                val actualLambdaType = TypeUtil.lambdaType(arg, ret)
+                val actualLambdaType = TypeUtil.lambdaType(lambdaArgs, ret)
                 val applyDesc = getMethodDescriptor(actualLambdaType, *localTypes.toTypedArray())
-                val method = TypeUtil.lambdaMethodName(arg, ret)
-                val lambdaType = getMethodType(TypeUtil.lambdaMethodDesc(arg, ret))
+                val method = TypeUtil.lambdaMethodName(lambdaArgs, ret)
+                val lambdaType = getMethodType(TypeUtil.lambdaMethodDesc(lambdaArgs, ret))
                 mv.visitInvokeDynamicInsn(
                     method,
                     applyDesc,
@@ -346,7 +434,12 @@ class Codegen(private val ast: Module, private val onGenClass: (String, String,
                 )
             }
             is Expr.InstanceOf -> genInstanceOf(e, mv, ctx)
+            is Expr.ConstructorTag -> {
+                genExpr(e.exp, mv, ctx)
+                mv.visitMethodInsn(INVOKEINTERFACE, e.adtClass, TAG_METHOD, "()I", true)
+            }
             is Expr.ClassConstant -> mv.visitLdcInsn(e.type.pars[0].type.wrapper())
+            is Expr.RegexConstant -> mv.visitLdcInsn(regexConstant(e.regex))
             is Expr.NativeStaticFieldGet -> {
                 val f = e.field
                 mv.visitFieldInsn(GETSTATIC, getInternalName(f.declaringClass), f.name, getDescriptor(f.type))
@@ -500,17 +593,42 @@ class Codegen(private val ast: Module, private val onGenClass: (String, String,
             }
             is Expr.RecordSelect -> {
                 genExpr(e.expr, mv, ctx)
+                val shapeEnd = Label()
+                if (e.shape != null) {
+                    // fast path: the record is an instance of its shape
+                    val cls = useShape(e.shape)
+                    val fieldType = e.shape.fieldType(e.label)
+                    val notShape = Label()
+                    mv.visitInsn(DUP)
+                    mv.visitTypeInsn(INSTANCEOF, cls)
+                    mv.visitJumpInsn(IFEQ, notShape)
+                    mv.visitTypeInsn(CHECKCAST, cls)
+                    mv.visitFieldInsn(GETFIELD, cls, e.label, fieldType.descriptor)
+                    adaptType(fieldType, e.type.type, mv)
+                    mv.visitJumpInsn(GOTO, shapeEnd)
+                    mv.visitLabel(notShape)
+                }
                 if (e.expr.type.type.internalName != RECORD_CLASS)
                     mv.visitTypeInsn(CHECKCAST, RECORD_CLASS)
-                mv.visitLdcInsn(e.label)
-                val desc = "($STRING_DESC)$OBJECT_DESC"
-                mv.visitMethodInsn(INVOKEVIRTUAL, RECORD_CLASS, "unsafeGet", desc, false)
+                mv.visitInvokeDynamicInsn("select", "($RECORD_DESC)$OBJECT_DESC", recordSelectHandle, e.label)
                 val type = e.type.type
                 if (type.isPrimitive()) {
                     mv.visitTypeInsn(CHECKCAST, type.wrapper().internalName)
                     unbox(type, mv)
                 } else if (type.internalName != OBJECT_CLASS)
                     mv.visitTypeInsn(CHECKCAST, type.internalName)
+                mv.visitLabel(shapeEnd)
+            }
+            is Expr.ShapeNew -> {
+                val cls = useShape(e.shape)
+                mv.visitTypeInsn(NEW, cls)
+                mv.visitInsn(DUP)
+                e.values.forEachIndexed { i, value ->
+                    genExpr(value, mv, ctx)
+                    adaptType(value.type.type, e.shape.types[i], mv)
+                }
+                val desc = e.shape.types.joinToString("", prefix = "(", postfix = ")V") { it.descriptor }
+                mv.visitMethodInsn(INVOKESPECIAL, cls, INIT, desc, false)
             }
             is Expr.RecordRestrict -> {
                 genExpr(e.expr, mv, ctx)
@@ -585,6 +703,23 @@ class Codegen(private val ast: Module, private val onGenClass: (String, String,
                     mv.visitMethodInsn(INVOKESTATIC, LIST_CLASS, "of", "([$OBJECT_DESC)$LIST_DESC", false)
                 }
             }
+            is Expr.StringConcat -> {
+                // constant parts go in the recipe, the others are arguments marked by \u0001
+                val recipe = StringBuilder()
+                val desc = StringBuilder("(")
+                for (part in e.parts) {
+                    if (part is Expr.StringE && part.v.none { it == '\u0001' || it == '\u0002' }) {
+                        recipe.append(part.v)
+                    } else {
+                        recipe.append('\u0001')
+                        genExpr(part, mv, ctx)
+                        val type = part.type.type
+                        desc.append(if (type.isPrimitive() || type.descriptor == STRING_DESC) type.descriptor else OBJECT_DESC)
+                    }
+                }
+                desc.append(")").append(STRING_DESC)
+                mv.visitInvokeDynamicInsn("makeConcatWithConstants", "$desc", stringConcatHandle, "$recipe")
+            }
             is Expr.SetLiteral -> {
                 if (e.exps.isEmpty()) {
                     mv.visitMethodInsn(INVOKESTATIC, SET_CLASS, "empty", "()$SET_DESC", false)
@@ -706,6 +841,94 @@ class Codegen(private val ast: Module, private val onGenClass: (String, String,
         }
     }
 
+    /**
+     * Generates a chain of applications.
+     * Up to 3 arguments are passed at once to the multi-arity function interfaces,
+     * which fall back to the curried application if the function doesn't implement them.
+     * As all arguments are evaluated before the function is applied, an argument is only
+     * added to a multi-arity call if it has no effects, otherwise the effects of applying
+     * the function to the previous arguments would happen after it.
+     */
+    private fun genApp(e: Expr.App, mv: MethodVisitor, ctx: GenContext) {
+        val apps = mutableListOf<Expr.App>()
+        var fn: Expr = e
+        while (fn is Expr.App) {
+            apps += fn
+            fn = fn.fn
+        }
+        apps.reverse()
+        genExpr(fn, mv, ctx)
+
+        var i = 0
+        while (i < apps.size) {
+            val fnType = apps.getOrNull(i - 1)?.type ?: fn.type
+            val pars = mutableListOf<Type>()
+            var ty = fnType
+            while (pars.size < MAX_LAMBDA_ARITY && i + pars.size < apps.size && ty.isFunction() && ty.pars.size == 2
+                && (pars.isEmpty() || isEffectFree(apps[i + pars.size].arg))
+            ) {
+                pars += ty.pars[0].type
+                ty = ty.pars[1]
+            }
+
+            if (pars.size < 2) {
+                val arg = fnType.pars[0].type
+                val ret = fnType.pars[1].type
+                genExpr(apps[i].arg, mv, ctx)
+                val method = TypeUtil.lambdaMethodName(arg, ret)
+                val desc = TypeUtil.lambdaMethodDesc(arg, ret)
+                mv.visitMethodInsn(INVOKEINTERFACE, FUNCTION_CLASS, method, desc, true)
+
+                if (!ret.isPrimitive() && ret.internalName != OBJECT_CLASS) {
+                    mv.visitTypeInsn(CHECKCAST, ret.internalName)
+                }
+                i++
+            } else {
+                val ret = ty.type
+                pars.forEachIndexed { j, par ->
+                    val arg = apps[i + j].arg
+                    genExpr(arg, mv, ctx)
+                    adaptType(arg.type.type, par.multiArityErasure(), mv)
+                }
+                val owner = TypeUtil.multiArityClass(pars, ret)
+                mv.visitMethodInsn(INVOKESTATIC, owner, "call", TypeUtil.multiArityCallDesc(pars, ret), true)
+                adaptType(ret.multiArityErasure(), ret, mv)
+                i += pars.size
+            }
+        }
+    }
+
+    private fun isEffectFree(e: Expr): Boolean = when (e) {
+        // reading a value that can be lazy may run its initializer
+        is Expr.Var -> !isLazy(e.className, e.name)
+        is Expr.StringE, is Expr.LocalVar, is Expr.Constructor, is Expr.Lambda, is Expr.Unit,
+        is Expr.Null, is Expr.ClassConstant, is Expr.RegexConstant, is Expr.RecordEmpty -> true
+        // boxing and up casts can't fail
+        is Expr.Cast -> {
+            val from = e.expr.type.type
+            val to = e.type.type
+            isEffectFree(e.expr) && (from.isPrimitive() || from == to || to.internalName == OBJECT_CLASS)
+        }
+        else -> e.isPrimitive()
+    }
+
+    /**
+     * Converts the value on top of the stack from type `from` to type `to`
+     * boxing, unboxing or casting as needed.
+     */
+    private fun adaptType(from: Type, to: Type, mv: MethodVisitor) {
+        when {
+            from.isPrimitive() && !to.isPrimitive() -> box(from, mv)
+            !from.isPrimitive() && to.isPrimitive() -> {
+                if (from != to.wrapper()) mv.visitTypeInsn(CHECKCAST, to.wrapper().internalName)
+                unbox(to, mv)
+            }
+            !from.isPrimitive() && from != to && to.internalName != OBJECT_CLASS -> {
+                mv.visitTypeInsn(CHECKCAST, to.internalName)
+            }
+        }
+    }
+
     private fun genUnit(mv: MethodVisitor) {
         mv.visitFieldInsn(GETSTATIC, "novah/Unit", INSTANCE, "Lnovah/Unit;")
     }
@@ -801,6 +1024,90 @@ class Codegen(private val ast: Module, private val onGenClass: (String, String,
         mv.visitTypeInsn(INSTANCEOF, e.type.type.internalName)
     }
 
+    private fun useShape(shape: RecordShape): String {
+        if (shapes.add(shape)) NovahClassWriter.addShape(shape.className)
+        return shape.className
+    }
+
+    private fun genSwitch(e: Expr.Switch, mv: MethodVisitor, ctx: GenContext, unused: Boolean) {
+        genExpr(e.exp, mv, ctx)
+        val defaultLabel = Label()
+        val labels = e.cases.map { Label() }
+        genIntSwitch(e.cases.map { it.first }, labels, defaultLabel, mv)
+        genSwitchCases(e.cases.map { it.second }, labels, e.default, defaultLabel, mv, ctx, unused)
+    }
+
+    /**
+     * Switches on the hash code of the string and then
+     * checks for equality, like javac does.
+     */
+    private fun genStringSwitch(e: Expr.StringSwitch, mv: MethodVisitor, ctx: GenContext, unused: Boolean) {
+        val num = ctx.nextLocal()
+        genExpr(e.exp, mv, ctx)
+        mv.visitVarInsn(ASTORE, num)
+        val defaultLabel = Label()
+        val labels = e.cases.map { Label() }
+        mv.visitVarInsn(ALOAD, num)
+        mv.visitJumpInsn(IFNULL, defaultLabel)
+        mv.visitVarInsn(ALOAD, num)
+        mv.visitMethodInsn(INVOKEVIRTUAL, "java/lang/String", "hashCode", "()I", false)
+
+        val buckets = e.cases.indices.groupBy { e.cases[it].first.hashCode() }
+        val bucketLabels = buckets.keys.map { Label() }
+        genIntSwitch(buckets.keys.toList(), bucketLabels, defaultLabel, mv)
+        buckets.values.forEachIndexed { i, indices ->
+            mv.visitLabel(bucketLabels[i])
+            for (index in indices) {
+                mv.visitVarInsn(ALOAD, num)
+                mv.visitLdcInsn(e.cases[index].first)
+                mv.visitMethodInsn(INVOKEVIRTUAL, "java/lang/String", "equals", "(Ljava/lang/Object;)Z", false)
+                mv.visitJumpInsn(IFNE, labels[index])
+            }
+            mv.visitJumpInsn(GOTO, defaultLabel)
+        }
+        genSwitchCases(e.cases.map { it.second }, labels, e.default, defaultLabel, mv, ctx, unused)
+    }
+
+    /**
+     * Generates a tableswitch or a lookupswitch, whichever is cheaper.
+     * Uses the same cost function as javac.
+     */
+    private fun genIntSwitch(keys: List<Int>, labels: List<Label>, defaultLabel: Label, mv: MethodVisitor) {
+        val order = keys.indices.sortedBy { keys[it] }
+        val lo = keys[order.first()]
+        val hi = keys[order.last()]
+        val tableSpace = 4 + (hi.toLong() - lo + 1)
+        val lookupSpace = 3 + 2L * keys.size
+        if (tableSpace + 3 * 3 <= lookupSpace + 3L * keys.size) {
+            val table = Array(hi - lo + 1) { defaultLabel }
+            keys.forEachIndexed { i, key -> table[key - lo] = labels[i] }
+            mv.visitTableSwitchInsn(lo, hi, defaultLabel, *table)
+        } else {
+            val sortedKeys = order.map { keys[it] }.toIntArray()
+            mv.visitLookupSwitchInsn(defaultLabel, sortedKeys, order.map { labels[it] }.toTypedArray())
+        }
+    }
+
+    private fun genSwitchCases(
+        cases: List<Expr>,
+        labels: List<Label>,
+        default: Expr,
+        defaultLabel: Label,
+        mv: MethodVisitor,
+        ctx: GenContext,
+        unused: Boolean
+    ) {
+        val endLabel = Label()
+        cases.forEachIndexed { i, case ->
+            mv.visitLabel(labels[i])
+            genExpr(case, mv, ctx, unused)
+            mv.visitJumpInsn(GOTO, endLabel)
+        }
+        mv.visitLabel(defaultLabel)
+        genExpr(default, mv, ctx, unused)
+        mv.visitLabel(endLabel)
+    }
+
     private fun genOperatorAnd(e: Expr.OperatorApp, mv: MethodVisitor, ctx: GenContext) {
         val fail = Label()
         val success = Label()
@@ -1082,26 +1389,41 @@ class Codegen(private val ast: Module, private val onGenClass: (String, String,
         fun mkName() = "lambda$${value.name}$${i++}"
 
         val lambdas = mutableListOf<LambdaContext>()
+        // the lambdas whose body is being visited
+        val open = mutableListOf<LambdaContext>()
+        // the parameters of the uncurried method: a multi-arity lambda can't go past the last one,
+        // as inlining may have made the chain of lambdas of the function longer than its arity
+        val params = if (value.arity > 0) value.exp.nestedLambdas().take(value.arity) else emptyList()
 
         fun go(exp: Expr): Unit = when (exp) {
             is Expr.Lambda -> {
                 val binder = exp.binder
-                for (l in lambdas) l.ignores += binder
+                for (l in open) l.ignores += binder
 
                 exp.internalName = mkName()
+                if (exp.arity > 0) {
+                    val param = params.indexOfFirst { it === exp }
+                    val max = if (param == -1) MAX_LAMBDA_ARITY else minOf(MAX_LAMBDA_ARITY, params.size - param)
+                    val chain = exp.nestedLambdas().take(max)
+                    exp.arity = chain.size
+                    for (inner in chain.drop(1)) inner.arity = 0
+                }
                 val ignores = listOf(binder)
-                lambdas += LambdaContext(exp, ignores, emptyList())
+                val ctx = LambdaContext(exp, ignores, emptyList())
+                lambdas += ctx
+                open += ctx
                 go(exp.body)
+                open -= ctx
             }
             is Expr.LocalVar -> {
                 val name = exp.name
-                for (l in lambdas) {
-                    if (name !in l.ignores) l.locals += exp
+                for (l in open) {
+                    if (name !in l.ignores && l.locals.none { it.name == name }) l.locals += exp
                 }
             }
             is Expr.Let -> {
                 go(exp.bindExpr)
-                for (l in lambdas) {
+                for (l in open) {
                     l.ignores += exp.binder
                 }
                 go(exp.body)
@@ -1113,6 +1435,9 @@ class Codegen(private val ast: Module, private val onGenClass: (String, String,
             is Expr.CtorApp -> {
                 for (e in exp.args) go(e)
             }
+            is Expr.StaticCall -> {
+                for (e in exp.args) go(e)
+            }
             is Expr.If -> {
                 for ((cond, then) in exp.conds) {
                     go(cond)
@@ -1127,6 +1452,17 @@ class Codegen(private val ast: Module, private val onGenClass: (String, String,
                 for (e in exp.operands) go(e)
             }
             is Expr.InstanceOf -> go(exp.exp)
+            is Expr.ConstructorTag -> go(exp.exp)
+            is Expr.Switch -> {
+                go(exp.exp)
+                for ((_, case) in exp.cases) go(case)
+                go(exp.default)
+            }
+            is Expr.StringSwitch -> {
+                go(exp.exp)
+                for ((_, case) in exp.cases) go(case)
+                go(exp.default)
+            }
             is Expr.NativeFieldGet -> go(exp.thisPar)
             is Expr.NativeStaticFieldSet -> go(exp.par)
             is Expr.NativeFieldSet -> {
@@ -1150,6 +1486,9 @@ class Codegen(private val ast: Module, private val onGenClass: (String, String,
                 go(exp.expr)
             }
             is Expr.RecordSelect -> go(exp.expr)
+            is Expr.ShapeNew -> {
+                for (e in exp.values) go(e)
+            }
             is Expr.RecordRestrict -> go(exp.expr)
             is Expr.RecordUpdate -> {
                 go(exp.expr)
@@ -1160,6 +1499,7 @@ class Codegen(private val ast: Module, private val onGenClass: (String, String,
                 go(exp.exp2)
             }
             is Expr.ListLiteral -> for (e in exp.exps) go(e)
+            is Expr.StringConcat -> for (e in exp.parts) go(e)
             is Expr.SetLiteral -> for (e in exp.exps) go(e)
             is Expr.ArrayLiteral -> for (e in exp.exps) go(e)
             is Expr.TryCatch -> {
@@ -1167,7 +1507,7 @@ class Codegen(private val ast: Module, private val onGenClass: (String, String,
                 if (exp.finallyExp != null) go(exp.finallyExp)
                 for (c in exp.catches) {
                     if (c.binder != null) {
-                        for (l in lambdas) {
+                        for (l in open) {
                             l.ignores += c.binder
                         }
                     }
@@ -1185,11 +1525,15 @@ class Codegen(private val ast: Module, private val onGenClass: (String, String,
             is Expr.SetLocalVar -> go(exp.exp)
             is Expr.ByteE, is Expr.Int16, is Expr.Int32, is Expr.Int64, is Expr.Float32, is Expr.Float64,
             is Expr.StringE, is Expr.CharE, is Expr.Bool, is Expr.Constructor, is Expr.Null, is Expr.Var,
-            is Expr.RecordEmpty, is Expr.Unit, is Expr.NativeStaticFieldGet, is Expr.ClassConstant -> {
+            is Expr.RecordEmpty, is Expr.Unit, is Expr.NativeStaticFieldGet, is Expr.ClassConstant,
+            is Expr.RegexConstant -> {
             }
         }
 
         go(value.exp)
+        // the uncurried method can be used directly as the implementation of the function
+        val exp = value.exp
+        if (value.arity > 0 && exp is Expr.Lambda && exp.arity == value.arity) exp.internalName = value.name
 
         return lambdas.map { l ->
             l.lambda.locals = l.locals
@@ -1198,19 +1542,49 @@ class Codegen(private val ast: Module, private val onGenClass: (String, String,
     }
 
     private fun genLambdaMethod(l: Expr.Lambda, cw: ClassWriter) {
-        val ftype = l.type.pars
+        val chain = l.nestedLambdas().take(l.arity)
         val args = mutableListOf<Expr.LocalVar>()
         args.addAll(l.locals)
-        args += Expr.LocalVar(l.binder, ftype[0], l.span)
+        chain.forEach { args += Expr.LocalVar(it.binder, it.type.pars[0], it.span) }
+        val last = chain.last()
 
-        val argTypes = l.locals.map { it.type } + ftype[0]
-        val lam = cw.visitMethod(
+        genStaticMethod(
+            cw,
             ACC_PRIVATE + ACC_STATIC + ACC_SYNTHETIC,
             l.internalName,
-            getMethodDescriptor(
-                ftype[1].type,
-                *argTypes.map { it.type }.toTypedArray()
-            ),
+            args,
+            last.body,
+            last.type.pars[1],
+            l.span
+        )
+    }
+
+    /**
+     * Generates a static method with the same name as this top-level function
+     * taking all its arguments at once, so saturated calls don't need to allocate closures.
+     */
+    private fun genUncurriedMethod(decl: Decl.ValDecl, cw: ClassWriter) {
+        val lambdas = decl.exp.nestedLambdas().take(decl.arity)
+        if (lambdas.size != decl.arity) internalError("got wrong arity for function ${decl.name}: ${decl.arity}")
+        val args = lambdas.map { Expr.LocalVar(it.binder, it.type.pars[0], it.span) }
+        val last = lambdas.last()
+
+        genStaticMethod(cw, ACC_STATIC + visibility(decl), decl.name, args, last.body, last.type.pars[1], decl.span)
+    }
+
+    private fun genStaticMethod(
+        cw: ClassWriter,
+        access: Int,
+        name: String,
+        args: List<Expr.LocalVar>,
+        body: Expr,
+        ret: Clazz,
+        span: Span
+    ) {
+        val lam = cw.visitMethod(
+            access,
+            name,
+            getMethodDescriptor(ret.type, *args.map { it.type.type }.toTypedArray()),
             null,
             emptyArray()
         )
@@ -1218,7 +1592,7 @@ class Codegen(private val ast: Module, private val onGenClass: (String, String,
 
         val lnum = Label()
         lam.visitLabel(lnum)
-        lam.visitLineNumber(l.span.startLine, lnum)
+        lam.visitLineNumber(span.startLine, lnum)
 
         val startL = Label()
         val ctx = GenContext()
@@ -1228,12 +1602,12 @@ class Codegen(private val ast: Module, private val onGenClass: (String, String,
             ctx.setLocalVar(local)
         }
         lam.visitLabel(startL)
-        genExpr(l.body, lam, ctx)
-        val bodyTy = l.body.type.type
+        genExpr(body, lam, ctx)
+        val bodyTy = body.type.type
         if (!bodyTy.isPrimitive() && bodyTy.internalName != OBJECT_CLASS) {
             lam.visitTypeInsn(CHECKCAST, bodyTy.internalName)
         }
-        lam.visitInsn(ftype[1].type.getOpcode(IRETURN))
+        lam.visitInsn(ret.type.getOpcode(IRETURN))
 
         val endL = Label()
         lam.visitLabel(endL)
@@ -1252,7 +1626,7 @@ class Codegen(private val ast: Module, private val onGenClass: (String, String,
         ctx.putParameter("args", arrayOfStringClazz, startL)
         main.visitLabel(startL)
 
-        main.visitFieldInsn(GETSTATIC, className, "main", d.exp.type.type.descriptor)
+        genGetValue(className, "main", d.exp.type.type, main)
         main.visitVarInsn(ALOAD, 0)
 
         main.visitMethodInsn(
@@ -1286,10 +1660,73 @@ class Codegen(private val ast: Module, private val onGenClass: (String, String,
     companion object {
         private const val MAP_LINEAR_THRESHOLD = 5
 
-        private val ctorCache = mutableMapOf<String, DataConstructor>()
+        private val ctorCache = ConcurrentHashMap<String, DataConstructor>()
 
         private val arrayOfStringClazz = Clazz(getType(Array<String>::class.java))
 
         private fun intExp(n: Int): Expr.Int32 = Expr.Int32(n, Clazz(INT_TYPE), Span.empty())
+
+        private fun lazyInitName(name: String) = "\$init\$$name"
+
+        private const val PATTERN_DESC = "Ljava/util/regex/Pattern;"
+
+        /**
+         * A dynamic constant that compiles this regex the first time it's loaded.
+         */
+        private fun regexConstant(regex: String) = ConstantDynamic(
+            "regex",
+            PATTERN_DESC,
+            lazyValueHandle,
+            Handle(H_INVOKESTATIC, "java/util/regex/Pattern", "compile", "(Ljava/lang/String;)$PATTERN_DESC", false),
+            regex
+        )
+
+        private fun lazyConstant(owner: String, name: String, type: Type) = ConstantDynamic(
+            name,
+            type.descriptor,
+            lazyValueHandle,
+            Handle(H_INVOKESTATIC, owner, lazyInitName(name), "()${type.descriptor}", false)
+        )
+
+        /**
+         * Registers the constructors and types of this module,
+         * which are needed to generate code for the modules that import it.
+         * Has to be called for all modules before generating code in parallel.
+         */
+        fun registerTypes(ast: Module) {
+            val datas = ast.decls.filterIsInstance<Decl.TypeDecl>()
+            for (decl in datas) {
+                for (ctor in decl.dataCtors) {
+                    ctorCache["${ast.name}/${ctor.name}"] = ctor
+                }
+            }
+            NovahClassWriter.addADTs(ast.name, datas)
+        }
+
+        /**
+         * Returns the full names (`module/$Module.name`) of all values of this
+         * typechecked module that can be initialized lazily.
+         * It only depends on the source of the module, so every compilation agrees on it.
+         * Functions, constants and Unit values (like tests, which register
+         * themselves when the module is loaded) are still initialized eagerly.
+         */
+        fun collectLazyValues(ast: TypedModule): Set<String> {
+            val className = "${ast.name.value.replace('.', '/')}/\$Module"
+            val lazies = mutableSetOf<String>()
+            for (decl in ast.decls) {
+                if (decl !is CDecl.ValDecl) continue
+                var exp = decl.exp
+                while (exp is CExpr.Ann) exp = exp.exp
+                when (exp) {
+                    is CExpr.Lambda, is CExpr.Int32, is CExpr.Int64, is CExpr.Float32, is CExpr.Float64,
+                    is CExpr.StringE, is CExpr.CharE, is CExpr.Bool, is CExpr.Unit -> continue
+                    else -> {}
+                }
+                val type = decl.exp.type?.realType()
+                if (type is TConst && type.name == primUnit) continue
+                lazies += "$className.${Names.convert(decl.name.value)}"
+            }
+            return lazies
+        }
     }
 }
\ No newline at end of file
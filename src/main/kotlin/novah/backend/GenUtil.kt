@@ -32,6 +32,7 @@ object GenUtil {
     const val STATIC_INIT = "<clinit>"
     const val INSTANCE = "INSTANCE"
     const val LAMBDA_CTOR = "CREATE"
+    const val TAG_METHOD = "\$tag"
 
     const val NOVAH_GENCLASS_VERSION = Opcodes.V17
 
@@ -61,6 +62,33 @@ object GenUtil {
         "(Ljava/lang/invoke/MethodHandles\$Lookup;Ljava/lang/String;Ljava/lang/invoke/TypeDescriptor;Ljava/lang/Class;Ljava/lang/String;[Ljava/lang/invoke/MethodHandle;)Ljava/lang/Object;",
         false
     )
+
+    // Handle used for the inline cache of record selects
+    val recordSelectHandle = Handle(
+        Opcodes.H_INVOKESTATIC,
+        "novah/collections/RecordSelectSite",
+        "bootstrap",
+        "(Ljava/lang/invoke/MethodHandles\$Lookup;Ljava/lang/String;Ljava/lang/invoke/MethodType;Ljava/lang/String;)Ljava/lang/invoke/CallSite;",
+        false
+    )
+
+    // Handle used to concatenate strings
+    val stringConcatHandle = Handle(
+        Opcodes.H_INVOKESTATIC,
+        "java/lang/invoke/StringConcatFactory",
+        "makeConcatWithConstants",
+        "(Ljava/lang/invoke/MethodHandles\$Lookup;Ljava/lang/String;Ljava/lang/invoke/MethodType;Ljava/lang/String;[Ljava/lang/Object;)Ljava/lang/invoke/CallSite;",
+        false
+    )
+
+    // Handle used for dynamic constants computed by a static method, like lazy values and regexes
+    val lazyValueHandle = Handle(
+        Opcodes.H_INVOKESTATIC,
+        "java/lang/invoke/ConstantBootstraps",
+        "invoke",
+        "(Ljava/lang/invoke/MethodHandles\$Lookup;Ljava/lang/String;Ljava/lang/Class;Ljava/lang/invoke/MethodHandle;[Ljava/lang/Object;)Ljava/lang/Object;",
+        false
+    )
 }
 
 class GenContext {
@@ -17,7 +17,9 @@ package novah.backend
 
 import novah.ast.optimized.Decl
 import novah.backend.GenUtil.OBJECT_CLASS
+import novah.backend.TypeUtil.RECORD_CLASS
 import org.objectweb.asm.ClassWriter
+import java.util.concurrent.ConcurrentHashMap
 
 class NovahClassWriter(flags: Int) : ClassWriter(flags) {
     override fun getCommonSuperClass(type1: String, type2: String): String {
@@ -38,7 +40,7 @@ class NovahClassWriter(flags: Int) : ClassWriter(flags) {
 
     companion object {
         // caches all ctor -> type relations for later
-        private val superClassCache = mutableMapOf<String, String>()
+        private val superClassCache = ConcurrentHashMap<String, String>()
 
         fun addADTs(moduleName: String, adts: List<Decl.TypeDecl>) {
             for (adt in adts) {
@@ -49,5 +51,12 @@ class NovahClassWriter(flags: Int) : ClassWriter(flags) {
                 }
             }
         }
+
+        /**
+         * Record shapes are only used as records.
+         */
+        fun addShape(className: String) {
+            superClassCache[className] = RECORD_CLASS
+        }
     }
 }
\ No newline at end of file
@@ -0,0 +1,119 @@
+/**
+ * Copyright 2022 Islon Scherer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package novah.backend
+
+import novah.ast.optimized.RecordShape
+import novah.backend.GenUtil.INIT
+import novah.backend.GenUtil.NOVAH_GENCLASS_VERSION
+import novah.backend.TypeUtil.OBJECT_DESC
+import novah.backend.TypeUtil.RECORD_SHAPE_CLASS
+import novah.backend.TypeUtil.box
+import novah.backend.TypeUtil.isDouble
+import novah.backend.TypeUtil.isLong
+import novah.backend.TypeUtil.isPrimitive
+import org.objectweb.asm.ClassWriter
+import org.objectweb.asm.MethodVisitor
+import org.objectweb.asm.Opcodes.*
+
+/**
+ * Generate bytecode for a record shape.
+ * A shape is a subclass of novah.collections.RecordShape
+ * with one public final field per label.
+ */
+class RecordShapeGen(
+    private val shape: RecordShape,
+    private val onGenClass: (String, String, ByteArray) -> Unit
+) {
+
+    private val className = shape.className
+
+    fun run() {
+        val cw = ClassWriter(ClassWriter.COMPUTE_FRAMES)
+        cw.visit(
+            NOVAH_GENCLASS_VERSION,
+            ACC_PUBLIC + ACC_FINAL + ACC_SUPER,
+            className,
+            null,
+            RECORD_SHAPE_CLASS,
+            arrayOf<String>()
+        )
+
+        shape.labels.forEachIndexed { i, label ->
+            cw.visitField(ACC_PUBLIC + ACC_FINAL, label, shape.types[i].descriptor, null, null)
+        }
+
+        genConstructor(cw)
+        genLabels(cw)
+        genValues(cw)
+
+        cw.visitEnd()
+        val dir = className.substringBeforeLast('/')
+        onGenClass(dir, className.substringAfterLast('/'), cw.toByteArray())
+    }
+
+    private fun genConstructor(cw: ClassWriter) {
+        val desc = shape.types.joinToString("", prefix = "(", postfix = ")V") { it.descriptor }
+        val ct = cw.visitMethod(ACC_PUBLIC, INIT, desc, null, emptyArray())
+        ct.visitCode()
+        ct.visitVarInsn(ALOAD, 0)
+        ct.visitMethodInsn(INVOKESPECIAL, RECORD_SHAPE_CLASS, INIT, "()V", false)
+        var index = 1
+        shape.labels.forEachIndexed { i, label ->
+            val type = shape.types[i]
+            ct.visitVarInsn(ALOAD, 0)
+            ct.visitVarInsn(type.getOpcode(ILOAD), index)
+            ct.visitFieldInsn(PUTFIELD, className, label, type.descriptor)
+            if (type.isDouble() || type.isLong()) index += 2 else index++
+        }
+        ct.visitInsn(RETURN)
+        ct.visitMaxs(0, 0)
+        ct.visitEnd()
+    }
+
+    private fun genLabels(cw: ClassWriter) {
+        val m = cw.visitMethod(ACC_PROTECTED, "shapeLabels", "()[Ljava/lang/String;", null, emptyArray())
+        m.visitCode()
+        genArray(m, "java/lang/String") { i -> m.visitLdcInsn(shape.labels[i]) }
+        m.visitInsn(ARETURN)
+        m.visitMaxs(0, 0)
+        m.visitEnd()
+    }
+
+    private fun genValues(cw: ClassWriter) {
+        val m = cw.visitMethod(ACC_PROTECTED, "shapeValues", "()[$OBJECT_DESC", null, emptyArray())
+        m.visitCode()
+        genArray(m, "java/lang/Object") { i ->
+            val type = shape.types[i]
+            m.visitVarInsn(ALOAD, 0)
+            m.visitFieldInsn(GETFIELD, className, shape.labels[i], type.descriptor)
+            if (type.isPrimitive()) box(type, m)
+        }
+        m.visitInsn(ARETURN)
+        m.visitMaxs(0, 0)
+        m.visitEnd()
+    }
+
+    private fun genArray(m: MethodVisitor, elemClass: String, genElem: (Int) -> Unit) {
+        m.visitLdcInsn(shape.labels.size)
+        m.visitTypeInsn(ANEWARRAY, elemClass)
+        for (i in shape.labels.indices) {
+            m.visitInsn(DUP)
+            m.visitLdcInsn(i)
+            genElem(i)
+            m.visitInsn(AASTORE)
+        }
+    }
+}
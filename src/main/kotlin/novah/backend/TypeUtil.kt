@@ -27,6 +27,7 @@ import java.util.*
 object TypeUtil {
 
     const val RECORD_CLASS = "novah/collections/Record"
+    const val RECORD_SHAPE_CLASS = "novah/collections/RecordShape"
     const val LIST_CLASS = "io/lacuna/bifurcan/List"
     const val SET_CLASS = "io/lacuna/bifurcan/Set"
     const val FUNCTION_CLASS = "novah/function/Function"
@@ -40,6 +41,11 @@ object TypeUtil {
     const val LIST_DESC = "Lio/lacuna/bifurcan/List;"
     const val SET_DESC = "Lio/lacuna/bifurcan/Set;"
 
+    /**
+     * The maximum number of arguments of the multi-arity function interfaces.
+     */
+    const val MAX_LAMBDA_ARITY = 3
+
     val objectType: Type = getType(java.lang.Object::class.java)
 
     fun buildClassSignature(tyVars: List<String>, superClass: String = OBJECT_CLASS): String? {
@@ -108,6 +114,63 @@ object TypeUtil {
         return "($argT)$retT"
     }
 
+    /**
+     * Returns the method name for a function of multiple arguments.
+     * Functions of 2 or 3 arguments use the specialized `Function2` and `Function3` interfaces.
+     */
+    fun lambdaMethodName(args: List<Type>, ret: Type): String {
+        if (args.size == 1) return lambdaMethodName(args[0], ret)
+        return "apply${args.size}"
+    }
+
+    fun lambdaMethodDesc(args: List<Type>, ret: Type): String {
+        if (args.size == 1) return lambdaMethodDesc(args[0], ret)
+        return args.joinToString("", prefix = "(", postfix = ")") { multiArityDesc(it) } + multiArityDesc(ret)
+    }
+
+    /**
+     * The type the implementation of a lambda is instantiated with.
+     */
+    fun lambdaInstantiatedType(args: List<Type>, ret: Type): Type {
+        if (args.size == 1) return getMethodType(ret, args[0])
+        return getMethodType(ret.multiArityInstance(), *args.map { it.multiArityInstance() }.toTypedArray())
+    }
+
+    fun lambdaType(args: List<Type>, ret: Type): Type {
+        if (args.size == 1) return lambdaType(args[0], ret)
+        return getObjectType(multiArityClass(args, ret))
+    }
+
+    /**
+     * Returns the class of the multi-arity function interface for these arguments.
+     * Only `Int`, `Long` and `Double` are specialized, everything else is passed as an object.
+     */
+    fun multiArityClass(args: List<Type>, ret: Type): String {
+        val types = args + ret
+        val suffix = if (types.none { it.isMultiAritySpecialized() }) ""
+        else types.joinToString("") { multiArityKinds[it.sort] ?: "Object" }
+        return "novah/function/Function${args.size}$suffix"
+    }
+
+    /**
+     * Descriptor of the static `call` method of the multi-arity function interfaces.
+     */
+    fun multiArityCallDesc(args: List<Type>, ret: Type): String {
+        return args.joinToString("", prefix = "($FUNCTION_DESC", postfix = ")") { multiArityDesc(it) } +
+                multiArityDesc(ret)
+    }
+
+    /**
+     * Returns the type that represents this type in a multi-arity function interface.
+     */
+    fun Type.multiArityErasure(): Type = if (isMultiAritySpecialized()) this else objectType
+
+    private fun Type.isMultiAritySpecialized(): Boolean = sort in multiArityKinds
+
+    private fun Type.multiArityInstance(): Type = if (isMultiAritySpecialized()) this else wrapper()
+
+    private fun multiArityDesc(ty: Type): String = ty.multiArityErasure().descriptor
+
     fun Type.isPrimitive(): Boolean = sort in 1..8
 
     fun Type.isDouble(): Boolean = sort == 8
@@ -155,6 +218,8 @@ object TypeUtil {
 
     private val functionType = getType(Function::class.java)
 
+    private val multiArityKinds = mapOf(5 to "Int", 7 to "Long", 8 to "Double")
+
     private val objectReturningLambdas = mapOf(
         1 to getType(FunctionBooleanObject::class.java),
         2 to getType(FunctionCharObject::class.java),
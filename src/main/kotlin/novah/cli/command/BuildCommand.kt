@@ -16,8 +16,10 @@
 package novah.cli.command
 
 import com.github.ajalt.clikt.core.CliktCommand
+import com.github.ajalt.clikt.parameters.options.default
 import com.github.ajalt.clikt.parameters.options.flag
 import com.github.ajalt.clikt.parameters.options.option
+import com.github.ajalt.clikt.parameters.types.int
 import novah.cli.Deps
 import novah.cli.DepsProcessor
 import novah.data.Err
@@ -49,6 +51,16 @@ class BuildCommand : CliktCommand(name = "build", help = "compile the project de
         help = "run the compiler in dev mode: no optimizations will be applied and some errors will be warnings."
     ).flag(default = false)
 
+    private val lazyInit by option(
+        "-l", "--lazy-init",
+        help = "initialize top level values the first time they are used instead of when the module is loaded."
+    ).flag(default = false)
+
+    private val threads by option(
+        "-j", "--threads",
+        help = "how many threads to use to optimize and generate code (default: the number of processors)"
+    ).int().default(Runtime.getRuntime().availableProcessors())
+
     override fun run() {
         val depsRes = DepsProcessor.readNovahFile()
         if (depsRes is Err) {
@@ -58,7 +70,7 @@ class BuildCommand : CliktCommand(name = "build", help = "compile the project de
         val deps = depsRes.unwrap()
         val al = alias ?: DepsProcessor.defaultAlias
 
-        build(al, deps, verbose, devMode, check, ::echo, ::echo)
+        build(al, deps, verbose, devMode, check, ::echo, ::echo, lazyInit, threads)
     }
 
     companion object {
@@ -70,7 +82,9 @@ class BuildCommand : CliktCommand(name = "build", help = "compile the project de
             devMode: Boolean,
             check: Boolean,
             echo: (String) -> Unit,
-            echoErr: (String, Boolean) -> Unit
+            echoErr: (String, Boolean) -> Unit,
+            lazyInit: Boolean = false,
+            threads: Int = Runtime.getRuntime().availableProcessors()
         ) {
             val classpath = getClasspath(alias, "classpath", echoErr) ?: return
             val sourcepath = getClasspath(alias, "sourcepath", echoErr) ?: return
@@ -88,7 +102,7 @@ class BuildCommand : CliktCommand(name = "build", help = "compile the project de
                 }
             }
 
-            val compiler = Compiler.new(emptySequence(), classpath, sourcepath, Options(verbose, devMode))
+            val compiler = Compiler.new(emptySequence(), classpath, sourcepath, Options(verbose, devMode, lazyInit = lazyInit, threads = threads))
             try {
                 val warns = compiler.run(File(out), check)
                 Compiler.printWarnings(warns, echo)
@@ -22,6 +22,7 @@ import com.github.ajalt.clikt.parameters.options.default
 import com.github.ajalt.clikt.parameters.options.flag
 import com.github.ajalt.clikt.parameters.options.option
 import com.github.ajalt.clikt.parameters.types.file
+import com.github.ajalt.clikt.parameters.types.int
 import com.github.ajalt.clikt.parameters.types.path
 import novah.main.CompilationError
 import novah.main.Compiler
@@ -54,6 +55,16 @@ class CompileCommand : CliktCommand(name = "compile", help = "compile source fil
         help = "run the compiler in dev mode: no optimizations will be applied and some errors will be warnings."
     ).flag(default = false)
 
+    private val lazyInit by option(
+        "-l", "--lazy-init",
+        help = "initialize top level values the first time they are used instead of when the module is loaded."
+    ).flag(default = false)
+
+    private val threads by option(
+        "-j", "--threads",
+        help = "how many threads to use to optimize and generate code (default: the number of processors)"
+    ).int().default(Runtime.getRuntime().availableProcessors())
+
     private val srcs by argument(help = "source files").path(mustExist = true, canBeDir = false).multiple()
 
     override fun run() {
@@ -70,7 +81,7 @@ class CompileCommand : CliktCommand(name = "compile", help = "compile source fil
         }
         if (verbose) echo("compiling files to $out")
 
-        val compiler = Compiler.new(srcs.asSequence(), classpath, sourcepath, Options(verbose, devMode))
+        val compiler = Compiler.new(srcs.asSequence(), classpath, sourcepath, Options(verbose, devMode, lazyInit = lazyInit, threads = threads))
         try {
             val warns = compiler.run(out)
             Compiler.printWarnings(warns, ::echo)
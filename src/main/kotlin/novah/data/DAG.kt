@@ -16,6 +16,9 @@
 package novah.data
 
 import java.util.*
+import java.util.concurrent.ExecutionException
+import java.util.concurrent.ExecutorCompletionService
+import java.util.concurrent.ForkJoinPool
 import kotlin.collections.HashSet
 
 /**
@@ -97,6 +100,59 @@ class DAG<T, D> {
         return stack
     }
 
+    /**
+     * Runs `action` on every node of this graph, on up to `threads` threads.
+     * A node only runs after all the nodes linked to it finished,
+     * so independent nodes run in parallel.
+     * If `action` throws, no other node is started and the exception
+     * of the first failing node is rethrown after the running nodes finish.
+     */
+    fun wavefront(threads: Int, action: (DagNode<T, D>) -> Unit) {
+        val sorted = topoSort()
+        if (threads <= 1 || nodes.size <= 1) {
+            sorted.forEach(action)
+            return
+        }
+        // how many nodes each node is still waiting for
+        val waiting = HashMap<T, Int>()
+        for (node in nodes) {
+            for (neighbor in node.getNeighbors().distinct()) {
+                waiting[neighbor.value] = (waiting[neighbor.value] ?: 0) + 1
+            }
+        }
+
+        val pool = ForkJoinPool(minOf(threads, nodes.size))
+        val finished = ExecutorCompletionService<DagNode<T, D>>(pool)
+        var running = 0
+        fun start(node: DagNode<T, D>) {
+            finished.submit { action(node); node }
+            running++
+        }
+
+        var error: Throwable? = null
+        try {
+            sorted.filter { (waiting[it.value] ?: 0) == 0 }.forEach(::start)
+            while (running > 0) {
+                val task = finished.take()
+                running--
+                try {
+                    val node = task.get()
+                    if (error != null) continue
+                    for (neighbor in node.getNeighbors().distinct()) {
+                        val left = waiting[neighbor.value]!! - 1
+                        waiting[neighbor.value] = left
+                        if (left == 0) start(neighbor)
+                    }
+                } catch (e: ExecutionException) {
+                    if (error == null) error = e.cause ?: e
+                }
+            }
+        } finally {
+            pool.shutdownNow()
+        }
+        error?.let { throw it }
+    }
+
     private fun reportCycle(node: DagNode<T, D>, parentage: Map<T, DagNode<T, D>?>): Set<DagNode<T, D>> {
         val cycle = HashSet<DagNode<T, D>>()
         cycle += node
@@ -19,14 +19,19 @@ import novah.Util
 import novah.frontend.typechecker.*
 import novah.frontend.typechecker.Type
 import java.lang.reflect.*
+import java.util.concurrent.ConcurrentHashMap
 
 typealias Cache = Map<java.lang.reflect.Type, Type>
 
 object Reflection {
 
-    val typeCache = mutableMapOf<java.lang.reflect.Type, Type>()
+    // modules are typechecked in parallel so every thread has its own cache
+    private val localTypeCache = ThreadLocal.withInitial { mutableMapOf<java.lang.reflect.Type, Type>() }
 
-    val typeMappings = mutableMapOf<String, List<java.lang.reflect.Type>>()
+    val typeCache: MutableMap<java.lang.reflect.Type, Type>
+        get() = localTypeCache.get()
+
+    val typeMappings = ConcurrentHashMap<String, List<java.lang.reflect.Type>>()
 
     fun novahToJava(type: String) = when (type) {
         "String" -> "java.lang.String"
@@ -471,6 +471,15 @@ object Errors {
 
     fun invalidIdent(name: String) = "Invalid identifier: $name"
 
+    fun invalidRegex(reason: String, index: Int) =
+        if (index >= 0) "Invalid regular expression: $reason at index $index." else "Invalid regular expression: $reason."
+
+    fun erasedTypeTest(type: String) = """
+        Cannot test for type $type at runtime.
+        
+        Types with a single constructor with a single field are erased to their field.
+    """.trimIndent()
+
     fun cannotTCO(name: String) = """
         Could not optimize tail-recursive function $name
         
@@ -21,7 +21,12 @@ import novah.Util.match
 import novah.Util.prepend
 import novah.ast.canonical.*
 
-data class Ctor(val name: String, val arity: Int, val span: Int)
+/**
+ * A constructor of some type.
+ * `span` is the number of constructors of the type and
+ * `tag` is the index of this constructor in the type declaration.
+ */
+data class Ctor(val name: String, val arity: Int, val span: Int, val tag: Int = 0)
 
 sealed class Pat {
     data class PVar(val name: String) : Pat()
@@ -198,10 +203,10 @@ class PatternMatchingCompiler<R>(private val ctorCache: MutableMap<String, Ctor>
     fun addConsToCache(mod: Module) {
         for (dd in mod.decls.filterIsInstance<Decl.TypeDecl>()) {
             val span = dd.dataCtors.size
-            for (c in dd.dataCtors) {
+            for ((tag, c) in dd.dataCtors.withIndex()) {
                 val name = "${mod.name.value}.${c.name.value}"
                 if (ctorCache.containsKey(name)) break
-                ctorCache[name] = Ctor(c.name.value, c.args.size, span)
+                ctorCache[name] = Ctor(c.name.value, c.args.size, span, tag)
             }
         }
     }
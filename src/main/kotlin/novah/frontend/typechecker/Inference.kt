@@ -76,6 +76,7 @@ class Inference(private val tc: Typechecker, private val classLoader: NovahClass
             val vis = if (publicCtor) FullVisibility.PUBLIC_PLUS else FullVisibility.fromVisibility(d.visibility)
             types[d.name.value] = TypeDeclRef(ty, vis, d.dataCtors.map { it.name.value }, d.comment)
         }
+        cacheNewtypes(ast.name.value, datas)
         datas.forEach { d ->
             d.dataCtors.forEach { dc ->
                 tc.checkWellFormed(env.lookup(dc.name.value)!!, dc.span)
@@ -869,6 +870,41 @@ class Inference(private val tc: Typechecker, private val classLoader: NovahClass
         if (exp.body is Expr.Lambda && ty.ret is TArrow) validateImplicitArgs(exp.body, ty.ret)
     }
 
+    /**
+     * Caches the types with a single constructor with a single field
+     * as they are erased to this field at runtime.
+     * Java sees the field itself: in `toString` and in the signatures of functions.
+     * Erased types cannot be tested with `:?`.
+     * Recursive types are not erased.
+     */
+    private fun cacheNewtypes(moduleName: String, datas: List<Decl.TypeDecl>) {
+        val fields = mutableMapOf<String, Pair<String, Type>>()
+        for (d in datas) {
+            val ctor = d.dataCtors.singleOrNull() ?: continue
+            if (ctor.args.size != 1) continue
+            val ctorName = "$moduleName.${ctor.name.value}"
+            val ctorType = Environment.findConstructor(ctorName) as? TArrow ?: continue
+            fields["$moduleName.${d.name.value}"] = ctorName to ctorType.args[0]
+        }
+
+        fun refersTo(type: Type, name: String, seen: MutableSet<String>): Boolean {
+            var refers = false
+            type.everywhereUnit { t ->
+                if (t is TConst && !refers) {
+                    val field = fields[t.name]
+                    if (t.name == name) refers = true
+                    else if (field != null && seen.add(t.name)) refers = refersTo(field.second, name, seen)
+                }
+            }
+            return refers
+        }
+
+        for ((name, field) in fields) {
+            val (ctorName, fieldType) = field
+            if (!refersTo(fieldType, name, mutableSetOf())) tc.newtypes.add(name, ctorName, fieldType)
+        }
+    }
+
     private fun getDataType(d: Decl.TypeDecl, moduleName: String): Pair<Type, Map<String, TVar>> {
         val kind = if (d.tyVars.isEmpty()) Kind.Star else Kind.Constructor(d.tyVars.size)
         val raw = TConst("$moduleName.${d.name.value}", kind).span(d.span)
@@ -24,10 +24,14 @@ import novah.frontend.error.Errors
 import novah.frontend.error.Severity
 import novah.main.CompilationError
 import novah.main.ModuleEnv
+import novah.main.Newtypes
 import novah.main.NovahClassLoader
 import java.util.*
 
-class Typechecker(classLoader: NovahClassLoader) {
+/**
+ * @param newtypes where the erased types of the typechecked modules are added
+ */
+class Typechecker(classLoader: NovahClassLoader, val newtypes: Newtypes = Newtypes()) {
     private var currentId = 0
 
     val env = Env.new()
@@ -54,8 +54,10 @@ class GotoDefinitionFeature(private val server: NovahServer) {
     private fun findDefinition(ast: Module, line: Int, col: Int, mods: Map<String, FullModuleEnv>): Location? {
         var location: Location? = null
         fun goto(name: String, moduleName: String): Location? {
-            val mod = mods[moduleName]?.ast ?: return null
+            val menv = mods[moduleName] ?: return null
+            val mod = menv.ast
             return mod.decls.find { it is Decl.ValDecl && it.name.value == name }?.let { newLocation(mod, it.span) }
+                ?: menv.declSpans[name]?.let { newLocation(mod, it) }
         }
 
         fun gotoType(name: String, moduleName: String): Location? {
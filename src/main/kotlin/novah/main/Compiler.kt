@@ -29,7 +29,8 @@ class Compiler(private val sources: Sequence<Source>, classpath: String?, source
     fun compile(): Map<String, FullModuleEnv> = env.parseSources(sources)
 
     fun run(output: File, dryRun: Boolean = false): Set<CompilerProblem> {
-        env.parseSources(sources)
+        // reuse the modules of the last compilation that didn't change
+        env.parseSources(sources, if (dryRun) null else output)
         env.generateCode(output, dryRun)
         return env.errors()
     }
@@ -67,14 +68,20 @@ class Compiler(private val sources: Sequence<Source>, classpath: String?, source
     }
 }
 
-class Options(val verbose: Boolean = false, val devMode: Boolean = false, val stdlib: Boolean = true)
+class Options(
+    val verbose: Boolean = false,
+    val devMode: Boolean = false,
+    val stdlib: Boolean = true,
+    val lazyInit: Boolean = false,
+    val threads: Int = Runtime.getRuntime().availableProcessors()
+)
 
 sealed class Source(val path: Path) {
     class SPath(path: Path) : Source(path)
     class SString(path: Path, val str: String) : Source(path)
     class SReader(path: Path, val reader: Reader) : Source(path)
 
-    fun withIterator(action: (Iterator<Char>) -> Unit): Unit = when (this) {
+    fun <T> withIterator(action: (Iterator<Char>) -> T): T = when (this) {
         is SPath -> Files.newBufferedReader(path, Charsets.UTF_8).use {
             action(BufferedCharIterator(it))
         }
@@ -18,14 +18,17 @@ package novah.main
 import com.github.ajalt.clikt.output.TermUi.echo
 import novah.Util
 import novah.Util.internalError
+import novah.Util.parallelMap
 import novah.ast.Desugar
 import novah.ast.source.Decl
 import novah.ast.source.FullVisibility
 import novah.ast.source.Module
 import novah.ast.source.Visibility
 import novah.backend.Codegen
+import novah.backend.RecordShapeGen
 import novah.data.DAG
 import novah.data.DagNode
+import novah.data.Result
 import novah.data.mapBoth
 import novah.data.unwrapOrElse
 import novah.frontend.*
@@ -33,35 +36,64 @@ import novah.frontend.error.CompilerProblem
 import novah.frontend.error.Errors
 import novah.frontend.error.Severity
 import novah.frontend.matching.Ctor
+import novah.frontend.matching.PatternMatchingCompiler
+import novah.frontend.typechecker.PRIM
 import novah.frontend.typechecker.Type
 import novah.frontend.typechecker.Typechecker
+import novah.optimize.Globals
 import novah.optimize.Optimization
 import novah.optimize.Optimizer
-import org.reflections.Reflections
-import org.reflections.scanners.Scanners
-import org.reflections.util.ClasspathHelper
-import org.reflections.util.ConfigurationBuilder
+import novah.optimize.ReusedCandidate
+import novah.optimize.Specializer
 import java.io.File
 import java.io.InputStream
+import java.net.JarURLConnection
 import java.nio.file.Path
-import java.util.regex.Pattern
+import java.security.MessageDigest
+import java.util.concurrent.ConcurrentHashMap
 import novah.ast.canonical.Module as TypedModule
 
 /**
  * The environment where a full compilation
  * process takes place.
+ *
+ * @param useSnapshot if the stdlib can be loaded from the snapshot shipped with the compiler,
+ * instead of typechecked from its sources
  */
-class Environment(classpath: String?, sourcepath: String?, private val opts: Options) {
+class Environment(
+    classpath: String?,
+    sourcepath: String?,
+    private val opts: Options,
+    private val useSnapshot: Boolean = true
+) {
     private val modules = mutableMapOf<String, FullModuleEnv>()
     private val sourceMap = mutableMapOf<Path, String>()
 
     private val errors = mutableSetOf<CompilerProblem>()
 
-    private val ctorCache = mutableMapOf(
-        "prim.Some" to Ctor("Some", 1, 2),
-        "prim.None" to Ctor("None", 0, 2)
+    private val newtypes = Newtypes()
+
+    private val ctorCache = ConcurrentHashMap(
+        mapOf(
+            "prim.Some" to Ctor("Some", 1, 2),
+            "prim.None" to Ctor("None", 0, 2)
+        )
     )
 
+    // the output of the previous compilation, to reuse the modules that didn't change
+    private var output: File? = null
+    private val sourceHashes = ConcurrentHashMap<String, String>()
+    private val interfaces = ConcurrentHashMap<String, ModuleInterface>()
+
+    // modules loaded from their interface, which don't need to be generated again:
+    // unchanged modules of the previous compilation and modules of compiled libraries
+    private val reused = ConcurrentHashMap.newKeySet<String>()
+
+    private val interfaceOptions = ModuleInterface.options(opts)
+
+    // if the stdlib was loaded from the snapshot shipped with the compiler
+    private var fromSnapshot = false
+
     private val classLoader: NovahClassLoader
     private val sourceLoader: SourceCodeLoader
 
@@ -72,53 +104,94 @@ class Environment(classpath: String?, sourcepath: String?, private val opts: Opt
 
     /**
      * Lex, parse and typecheck all modules and store them.
+     * @param output the output directory of a previous compilation. Modules that didn't change
+     * since are loaded from their interface instead of typechecked and generated again.
      */
-    fun parseSources(sources: Sequence<Source>): Map<String, FullModuleEnv> {
+    fun parseSources(sources: Sequence<Source>, output: File? = null): Map<String, FullModuleEnv> {
+        this.output = output
         // stdlib
         if (opts.stdlib) {
-            if (stdlibCompiled.isNotEmpty()) modules.putAll(stdlibCompiled)
-            else {
+            // the cached stdlib is only reused if its interfaces are not needed or were cached too
+            val cachedInterfaces = stdlibInterfaces[interfaceOptions]
+            if (useSnapshot && loadStdlibSnapshot()) {
+                fromSnapshot = true
+            } else if (stdlibCompiled.isNotEmpty() && (output == null || cachedInterfaces != null)) {
+                modules.putAll(stdlibCompiled)
+                newtypes.addAll(stdlibNewtypes)
+                if (output != null) interfaces.putAll(cachedInterfaces!!)
+            } else {
                 innerParseSources(stdlib, isStdlib = true)
-                stdlibCompiled.putAll(modules)
+                // modules loaded from an interface have no code
+                if (reused.isEmpty()) {
+                    stdlibCompiled.putAll(modules)
+                    stdlibNewtypes.addAll(newtypes)
+                    if (output != null) stdlibInterfaces[interfaceOptions] = HashMap(interfaces)
+                }
             }
         }
+        loadLibraries()
         val allSources = sources.plus(sourceLoader.loadSources())
         return innerParseSources(allSources, isStdlib = false)
     }
 
+    /**
+     * Loads the stdlib from the snapshot shipped with the compiler
+     * if it has one compiled with the same options.
+     */
+    private fun loadStdlibSnapshot(): Boolean {
+        val ifaces = StdlibSnapshot.interfaces(opts) ?: return false
+        loadInterfaces(ifaces, isStdlib = true)
+        return true
+    }
+
+    /**
+     * Loads the modules of compiled libraries in the source path from their interfaces.
+     * Their classes are already in the classpath.
+     */
+    private fun loadLibraries() {
+        loadInterfaces(sourceLoader.loadInterfaces().filter { it.name !in stdlibModuleNames }, isStdlib = false)
+    }
+
+    private fun loadInterfaces(ifaces: List<ModuleInterface>, isStdlib: Boolean) {
+        val menvs = ifaces.parallelMap(opts.threads) { it.load(null, isStdlib, newtypes) }
+        for ((iface, menv) in ifaces.zip(menvs)) {
+            if (opts.verbose) echo("Loading ${iface.name} from its interface")
+            if (isStdlib) stdlibModuleNames += iface.name
+            interfaces[iface.name] = iface
+            reused += iface.name
+            modules[iface.name] = menv
+        }
+    }
+
     private fun innerParseSources(sources: Sequence<Source>, isStdlib: Boolean): Map<String, FullModuleEnv> {
         val modMap = mutableMapOf<String, DagNode<String, Module>>()
         val modGraph = DAG<String, Module>()
 
+        // TODO: check for duplicate modules
+        // don't parse the same path
         val alreadySeenPaths = mutableSetOf<String>()
-        for (source in sources) {
+        val toParse = sources.filter { alreadySeenPaths.add(it.path.toString()) }.toList()
+
+        // files are parsed in parallel but the results are merged in order
+        val parsed = toParse.parallelMap(opts.threads) { parse(it, isStdlib) }
+        for ((source, res) in toParse.zip(parsed)) {
             val path = source.path
-            // TODO: check for duplicate modules
-            // don't parse the same path
-            if (path.toString() in alreadySeenPaths) continue
-            alreadySeenPaths += path.toString()
-
-            if (opts.verbose) echo("Parsing $path")
-
-            source.withIterator { iter ->
-                val lexer = Lexer(iter)
-                val parser = Parser(lexer, isStdlib, path.toFile().invariantSeparatorsPath, opts.stdlib)
-                parser.parseFullModule().mapBoth(
-                    { mod ->
-                        val module = mod.name.value
-                        if (isStdlib) stdlibModuleNames += module
-                        else sourceMap[path] = module
-
-                        val node = DagNode(module, mod)
-                        if (modMap.containsKey(module)) {
-                            errors += duplicateError(mod, path)
-                        }
-                        errors += parser.errors()
-                        modMap[module] = node
-                    },
-                    { err -> errors += err }
-                )
-            }
+            res.result.mapBoth(
+                { mod ->
+                    val module = mod.name.value
+                    if (isStdlib) stdlibModuleNames += module
+                    else sourceMap[path] = module
+                    if (res.hash != null) sourceHashes[module] = res.hash
+
+                    val node = DagNode(module, mod)
+                    if (modMap.containsKey(module)) {
+                        errors += duplicateError(mod, path)
+                    }
+                    errors += res.errors
+                    modMap[module] = node
+                },
+                { err -> errors += err }
+            )
         }
         if (shouldThrow(errors)) throwErrors()
 
@@ -138,45 +211,140 @@ class Environment(classpath: String?, sourcepath: String?, private val opts: Opt
         }
         modGraph.findCycle()?.let { reportCycle(it) }
 
-        val orderedMods = modGraph.topoSort()
-        for (modNode in orderedMods) {
-            val mod = modNode.data
-            val typeChecker = Typechecker(classLoader)
-            val importErrs = resolveImports(mod, modules, typeChecker.env)
-            val foreignErrs = resolveForeignImports(mod, classLoader, typeChecker)
-            errors += importErrs
-            errors += foreignErrs
-            if (shouldThrow(errors)) throwErrors()
-
-            if (opts.verbose) echo("Typechecking ${mod.name.value}")
-
-            val desugar = Desugar(mod, typeChecker)
-            val canonical = desugar.desugar().unwrapOrElse { throwAllErrors(it + desugar.errors()) }
-            errors += desugar.errors()
-            if (shouldThrow(errors)) throwErrors()
-
-            val menv = typeChecker.infer(canonical).unwrapOrElse { throwAllErrors(it + typeChecker.infer.errors()) }
-            errors += typeChecker.infer.errors()
-            if (shouldThrow(errors)) throwErrors()
-
-            val taliases = mod.decls.filterIsInstance<Decl.TypealiasDecl>()
-            modules[mod.name.value] =
-                FullModuleEnv(menv, canonical, taliases, typeChecker.typeVars(), mod.comment, isStdlib)
+        // modules are typechecked as soon as all their imports are
+        val checked = ConcurrentHashMap(modules)
+        try {
+            modGraph.wavefront(opts.threads) { modNode ->
+                val mod = modNode.data
+                checked[mod.name.value] = loadOrTypecheck(mod, checked, isStdlib)
+            }
+        } catch (e: CompilationError) {
+            // report the errors of all modules that failed in parallel
+            throwErrors(synchronized(errors) { errors.toSet() })
+        }
+        for (modNode in modGraph.topoSort()) {
+            val name = modNode.value
+            modules[name] = checked[name]!!
         }
         return modules
     }
 
+    /**
+     * Lex and parse a source file.
+     * May run in parallel with other files.
+     */
+    private fun parse(source: Source, isStdlib: Boolean): Parsed {
+        if (opts.verbose) echo("Parsing ${source.path}")
+
+        // the source is only hashed to compare it with the previous compilation
+        val digest = if (output != null) MessageDigest.getInstance("SHA-256") else null
+        return source.withIterator { iter ->
+            val lexer = Lexer(if (digest != null) ModuleInterface.hashing(iter, digest) else iter)
+            val parser = Parser(lexer, isStdlib, source.path.toFile().invariantSeparatorsPath, opts.stdlib)
+            Parsed(parser.parseFullModule(), parser.errors(), digest?.let { ModuleInterface.hex(it.digest()) })
+        }
+    }
+
+    /**
+     * Loads this module from its interface if neither its source nor the
+     * interfaces of its imports changed since the previous compilation, otherwise typechecks it.
+     * May run in parallel with other modules.
+     */
+    private fun loadOrTypecheck(mod: Module, checked: Map<String, FullModuleEnv>, isStdlib: Boolean): FullModuleEnv {
+        val out = output
+        val name = mod.name.value
+        val hash = sourceHashes[name]
+        val deps = if (out != null && hash != null) importHashes(mod) else null
+        if (out == null || hash == null || deps == null) return typecheck(mod, checked, isStdlib)
+
+        val previous = ModuleInterface.read(out, name, interfaceOptions)
+        val classFile = ModuleInterface.file(out, name).resolveSibling("\$Module.class")
+        if (previous != null && previous.sourceHash == hash && previous.deps == deps && classFile.exists()) {
+            if (opts.verbose) echo("Loading $name from its interface")
+            interfaces[name] = previous
+            reused += name
+            return previous.load(mod, isStdlib, newtypes)
+        }
+
+        val menv = typecheck(mod, checked, isStdlib)
+        // without optimizations the code of other modules only depends on the types of this one
+        val hashSource = !opts.devMode
+        interfaces[name] = ModuleInterface.create(menv, interfaceOptions, hash, deps, hashSource, newtypes)
+        return menv
+    }
+
+    /**
+     * The hashes of the interfaces of all modules imported by this one
+     * or null if some of them has no interface.
+     */
+    private fun importHashes(mod: Module): Map<String, String>? {
+        val deps = mutableMapOf<String, String>()
+        for (imp in mod.imports) {
+            val name = imp.module.value
+            if (name == PRIM) continue
+            deps[name] = interfaces[name]?.hash ?: return null
+        }
+        return deps
+    }
+
+    /**
+     * Desugar and typecheck a module whose imports are all in `checked`.
+     * May run in parallel with other modules.
+     */
+    private fun typecheck(mod: Module, checked: Map<String, FullModuleEnv>, isStdlib: Boolean): FullModuleEnv {
+        val typeChecker = Typechecker(classLoader, newtypes)
+        val importErrs = resolveImports(mod, checked, typeChecker.env)
+        val foreignErrs = resolveForeignImports(mod, classLoader, typeChecker)
+        report(importErrs + foreignErrs)
+
+        if (opts.verbose) echo("Typechecking ${mod.name.value}")
+
+        val desugar = Desugar(mod, typeChecker)
+        val canonical = desugar.desugar().unwrapOrElse { fail(it + desugar.errors()) }
+        report(desugar.errors())
+
+        val menv = typeChecker.infer(canonical).unwrapOrElse { fail(it + typeChecker.infer.errors()) }
+        report(typeChecker.infer.errors())
+
+        val taliases = mod.decls.filterIsInstance<Decl.TypealiasDecl>()
+        return FullModuleEnv(menv, canonical, taliases, typeChecker.typeVars(), mod.comment, isStdlib)
+    }
+
+    /**
+     * Adds these errors to the environment and throws if there are too many.
+     */
+    private fun report(errs: Collection<CompilerProblem>) {
+        synchronized(errors) {
+            errors += errs
+            if (shouldThrow(errors)) throwErrors(errors.toSet())
+        }
+    }
+
+    private fun fail(errs: Collection<CompilerProblem>): Nothing {
+        synchronized(errors) {
+            errors += errs
+            throwErrors(errors.toSet())
+        }
+    }
+
     /**
      * Optimize and generate jvm bytecode for all modules.
+     * Modules are optimized and generated in parallel using `opts.threads` threads.
      */
     fun generateCode(output: File, dryRun: Boolean = false) {
 
-        val optASTs = modules.values.map { menv ->
-            val optimizer = Optimizer(menv.ast, ctorCache)
-            val opt = optimizer.convert()
-            errors += optimizer.errors()
-            opt
+        // polymorphic functions are only specialized in normal mode
+        val specializer =
+            if (opts.devMode) null else Specializer(modules.values.map { it.ast }, reusedSpecializations())
+        // modules use the constructors of the modules they import
+        val patternCompiler = PatternMatchingCompiler<Nothing>(ctorCache)
+        modules.values.forEach { patternCompiler.addConsToCache(it.ast) }
+        val converted = modules.values.toList().parallelMap(opts.threads) { menv ->
+            val optimizer = Optimizer(menv.ast, ctorCache, newtypes, specializer)
+            optimizer.convert() to optimizer.errors()
         }
+        converted.forEach { (_, errs) -> errors += errs }
+        val optASTs = converted.map { it.first }
 
         if (opts.devMode) {
             if (errors.any { it.isErrorOrFatal() }) throwErrors(errors)
@@ -189,25 +357,79 @@ class Environment(classpath: String?, sourcepath: String?, private val opts: Opt
         }
 
         if (!dryRun) {
-            optASTs.forEach { opt ->
-                // no optimizations are run in dev mode
-                val optAST = if (opts.devMode) opt else Optimization.run(opt)
-                val codegen = Codegen(optAST) { dirName, fileName, bytes ->
-                    val dir = output.resolve(dirName)
-                    dir.mkdirs()
-                    val file = dir.resolve("$fileName.class")
-                    file.writeBytes(bytes)
-                }
+            // no optimizations are run in dev mode
+            val mods = if (opts.devMode) optASTs else optASTs.map(Optimization::liftInstanceFields)
+            // modules loaded from their interface are known by what they saved of their own
+            val known = if (opts.devMode) Globals.EMPTY
+            else reused.mapNotNull { interfaces[it]!!.globals(classLoader) }.fold(Globals.EMPTY, Globals::plus)
+            val globals = if (opts.devMode) Globals.EMPTY else Optimization.collectGlobals(mods, known)
+            // values that can be lazy are read through their getter in both modes,
+            // so libraries and the modules compiled now can use different modes
+            val lazyValues = modules.flatMap { (name, menv) ->
+                if (name in reused) interfaces[name]!!.lazyValues else Codegen.collectLazyValues(menv.ast)
+            }.toSet()
+            mods.forEach { Codegen.registerTypes(it) }
+
+            // modules loaded from their interface were already generated
+            val toGenerate = modules.keys.zip(mods).filter { (name, _) -> name !in reused }
+            // an interface is only valid once its module is generated again
+            toGenerate.forEach { (name, _) -> ModuleInterface.file(output, name).delete() }
+            val writeClass = { dirName: String, fileName: String, bytes: ByteArray ->
+                val dir = output.resolve(dirName)
+                dir.mkdirs()
+                val file = dir.resolve("$fileName.class")
+                file.writeBytes(bytes)
+            }
+            val shapes = toGenerate.parallelMap(opts.threads) { (_, opt) ->
+                val optAST = if (opts.devMode) opt else Optimization.run(opt, globals)
+                val codegen = Codegen(optAST, lazyValues, opts.lazyInit, writeClass)
                 codegen.run()
+                codegen.shapes()
+            }
+            // record shapes are shared by all modules so each one is generated once,
+            // unless a module loaded from its interface already generated it
+            val generated = reused.flatMap { interfaces[it]!!.shapes }.toSet()
+            shapes.flatten().distinct().filter { it.className !in generated }.forEach {
+                RecordShapeGen(it, writeClass).run()
+            }
+            for ((i, mod) in toGenerate.withIndex()) {
+                val iface = interfaces[mod.first] ?: continue
+                val internal = mod.second.name
+                val specs = specializer?.keysOf(mod.first) ?: emptyMap()
+                val modGlobals = if (opts.devMode) null else globals.ofModule(internal)
+                iface.withGenerated(shapes[i].map { it.className }.toSet(), specs, modGlobals).write(output)
             }
+            if (fromSnapshot) StdlibSnapshot.copyTo(output, opts)
             copyNativeLibs(output)
         }
     }
 
+    /**
+     * The functions to specialize of the modules loaded from their interface
+     * with the specialized copies they were generated with.
+     */
+    private fun reusedSpecializations(): Map<String, ReusedCandidate> {
+        val cands = mutableMapOf<String, ReusedCandidate>()
+        for (name in reused) {
+            val decls = modules[name]?.env?.decls ?: continue
+            for ((decl, keys) in interfaces[name]!!.specializations) {
+                val ref = decls[decl] ?: continue
+                cands["$name.$decl"] = ReusedCandidate(ref.type, keys)
+            }
+        }
+        return cands
+    }
+
     fun modules() = modules
 
     fun sourceMap() = sourceMap
 
+    fun reusedModules(): Set<String> = reused
+
+    fun newtypes(): Newtypes = newtypes
+
+    fun isStdlibFromSnapshot(): Boolean = fromSnapshot
+
     fun classLoader() = classLoader
 
     fun errors(): Set<CompilerProblem> = errors
@@ -246,9 +468,14 @@ class Environment(classpath: String?, sourcepath: String?, private val opts: Opt
         )
     }
 
-    private fun throwAllErrors(errs: Set<CompilerProblem>): Nothing = throw CompilationError(errors + errs)
     private fun throwErrors(errs: Set<CompilerProblem> = errors): Nothing = throw CompilationError(errs)
 
+    /**
+     * A parsed source file: the module or the error that stopped the parser,
+     * the other errors found and the hash of the source, if needed.
+     */
+    private class Parsed(val result: Result<Module, CompilerProblem>, val errors: List<CompilerProblem>, val hash: String?)
+
     companion object {
         private const val ERROR_THRESHOLD = 10
 
@@ -256,7 +483,7 @@ class Environment(classpath: String?, sourcepath: String?, private val opts: Opt
 
         fun stdlibModuleNames(): Set<String> = stdlibModuleNames
 
-        private val constructorTypes = mutableMapOf<String, Type>()
+        private val constructorTypes = ConcurrentHashMap<String, Type>()
 
         fun cacheConstructorType(name: String, type: Type) {
             constructorTypes[name] = type
@@ -268,16 +495,25 @@ class Environment(classpath: String?, sourcepath: String?, private val opts: Opt
             errors.any { it.isFatal() } || errors.count { it.isErrorOrFatal() } > ERROR_THRESHOLD
 
         private val stdlibCompiled = mutableMapOf<String, FullModuleEnv>()
+        private val stdlibNewtypes = Newtypes()
+        private val stdlibInterfaces = ConcurrentHashMap<String, Map<String, ModuleInterface>>()
 
+        /**
+         * Returns the source of all stdlib modules, which live in
+         * the `novah` folder of the compiler's jar or resources.
+         */
         fun stdlibStream(): List<Pair<String, InputStream>> {
-            val ref = Reflections(
-                ConfigurationBuilder().setUrls(ClasspathHelper.forPackage("novah"))
-                    .setScanners(Scanners.Resources)
-            )
-            val res = ref.getResources(Pattern.compile(".*\\.novah"))
-            return res.map { path ->
-                path to (Environment::class.java.classLoader.getResourceAsStream(path)
-                    ?: internalError("Could not find stdlib module $path"))
+            val loader = Environment::class.java.classLoader
+            val core = loader.getResource("novah/core.novah") ?: internalError("Could not find the stdlib")
+            val paths = if (core.protocol == "jar") {
+                val jar = (core.openConnection() as JarURLConnection).jarFile
+                jar.entries().asSequence().map { it.name }
+                    .filter { it.startsWith("novah/") && it.endsWith(".novah") && it.indexOf('/', 6) == -1 }.toList()
+            } else {
+                File(core.toURI()).parentFile.listFiles { f -> f.extension == "novah" }!!.map { "novah/${it.name}" }
+            }
+            return paths.sorted().map { path ->
+                path to (loader.getResourceAsStream(path) ?: internalError("Could not find stdlib module $path"))
             }
         }
     }
@@ -292,7 +528,9 @@ data class FullModuleEnv(
     val aliases: List<Decl.TypealiasDecl>,
     val typeVarsMap: Map<Int, String>,
     val comment: Comment?,
-    val isStdlib: Boolean
+    val isStdlib: Boolean,
+    // the position of the values of modules loaded from their interface
+    val declSpans: Map<String, Span> = emptyMap()
 )
 
 data class DeclRef(val type: Type, val visibility: Visibility, val isInstance: Boolean, val comment: Comment?)
@@ -309,6 +547,35 @@ data class ModuleEnv(
     val types: Map<String, TypeDeclRef>
 )
 
+/**
+ * A type erased to the only field of its only constructor.
+ */
+data class Newtype(val ctor: String, val field: Type)
+
+/**
+ * The types of an environment with a single constructor with a single field,
+ * which are erased to this field at runtime.
+ * Each environment has its own, as the same module may change between compilations.
+ */
+class Newtypes {
+    private val types = ConcurrentHashMap<String, Newtype>()
+    private val ctors = ConcurrentHashMap.newKeySet<String>()
+
+    fun add(typeName: String, ctorName: String, field: Type) {
+        types[typeName] = Newtype(ctorName, field)
+        ctors += ctorName
+    }
+
+    fun addAll(other: Newtypes) {
+        types.putAll(other.types)
+        ctors.addAll(other.ctors)
+    }
+
+    fun find(typeName: String): Newtype? = types[typeName]
+
+    fun isCtor(ctorName: String): Boolean = ctorName in ctors
+}
+
 /**
  * The standard library.
  * Read from the jar itself.
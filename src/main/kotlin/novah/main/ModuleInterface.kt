@@ -0,0 +1,610 @@
+/**
+ * Copyright 2022 Islon Scherer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package novah.main
+
+import novah.Util.internalError
+import novah.ast.source.Decl
+import novah.backend.Codegen
+import novah.ast.source.FullVisibility
+import novah.ast.source.Module
+import novah.ast.source.Visibility
+import novah.data.LabelMap
+import novah.data.PList
+import novah.data.assocat
+import novah.data.forEachKeyList
+import novah.frontend.Comment
+import novah.frontend.Span
+import novah.frontend.Spanned
+import novah.frontend.typechecker.*
+import novah.optimize.Globals
+import novah.optimize.GlobalsSerializer
+import java.io.*
+import java.security.DigestOutputStream
+import java.security.MessageDigest
+import novah.ast.canonical.DataConstructor as CDataConstructor
+import novah.ast.canonical.Decl as CDecl
+import novah.ast.canonical.Module as TypedModule
+import novah.ast.source.Type as SType
+
+/**
+ * The interface of a compiled module: everything other modules
+ * need to be typechecked and compiled against it.
+ * It's saved next to the classes of the module, so modules
+ * that didn't change don't need to be compiled again
+ * and libraries can be shipped without their sources.
+ *
+ * @param options the compiler version and options the module was compiled with
+ * @param sourceHash the hash of the source code of the module
+ * @param deps the hash of the interface of every imported module this module was compiled against
+ * @param hash changes when the modules that import this one have to be compiled again
+ * @param lazyValues the values of this module that can be initialized lazily,
+ * which other modules read through their static getter
+ * @param shapes the class names of the record shapes used by this module
+ * @param specializations the keys of the specialized copies of the functions of this module, by name
+ * @param globals what the optimizer of other modules knows about the declarations of this one,
+ * empty in dev mode
+ */
+class ModuleInterface(
+    val name: String,
+    val options: String,
+    val sourceHash: String,
+    val deps: Map<String, String>,
+    val hash: String,
+    val lazyValues: Set<String>,
+    val shapes: Set<String>,
+    val specializations: Map<String, Set<String>>,
+    private val globals: ByteArray,
+    private val payload: ByteArray
+) {
+
+    /**
+     * Returns the environment of this module and caches its constructors.
+     * The typed AST only has the type declarations as the module is not generated again.
+     * @param mod the parsed source of the module or null for modules of compiled libraries
+     * @param newtypes where the erased types of this module are added
+     */
+    fun load(mod: Module?, isStdlib: Boolean, newtypes: Newtypes): FullModuleEnv {
+        val input = Reader(DataInputStream(ByteArrayInputStream(payload)))
+        val sourceName = input.string()
+        val nameSpan = input.span()
+        val comment = input.comment()
+        val decls = input.map { input.string() to DeclRef(input.type(), vis(input.int()), input.bool(), input.comment()) }
+        val types = input.map {
+            input.string() to TypeDeclRef(input.type(), fullVis(input.int()), input.list(input::string), input.comment())
+        }
+        val aliases = input.list(input::alias)
+        val typeVars = input.map { input.int() to input.string() }
+        val typeDecls = input.list(input::typeDecl)
+        val erased = input.list(input::string)
+        val declSpans = input.map { input.string() to input.span() }
+
+        for ((_, type) in types) {
+            for (ctor in type.ctors) {
+                val ctorType = decls[ctor]?.type ?: internalError("Constructor $ctor not found in interface of $name")
+                Environment.cacheConstructorType("$name.$ctor", ctorType)
+            }
+        }
+        for (type in erased) {
+            val ctor = types[type]!!.ctors.single()
+            val field = (decls[ctor]!!.type as TArrow).args[0]
+            newtypes.add("$name.$type", "$name.$ctor", field)
+        }
+
+        val ast = if (mod != null) {
+            TypedModule(mod.name, mod.sourceName, typeDecls, emptyMap(), mod.imports, mod.foreigns, null, mod.comment)
+        } else {
+            val modName = Spanned(nameSpan, name)
+            TypedModule(modName, sourceName, typeDecls, emptyMap(), emptyList(), emptyList(), null, comment)
+        }
+        return FullModuleEnv(ModuleEnv(decls, types), ast, aliases, typeVars, comment, isStdlib, declSpans)
+    }
+
+    /**
+     * Interfaces of other compiler options can still be used by
+     * modules of libraries, as they are not generated again.
+     */
+    fun isFromThisVersion(): Boolean = options.substringBefore(' ') == Main.VERSION
+
+    /**
+     * Returns what the optimizer knows about the declarations of this module
+     * or null if it's not known or the classes it uses can't be loaded.
+     */
+    fun globals(classLoader: ClassLoader): Globals? =
+        if (globals.isEmpty()) null else GlobalsSerializer.read(globals, classLoader)
+
+    /**
+     * Adds what is only known once the module is generated.
+     */
+    fun withGenerated(shapes: Set<String>, specializations: Map<String, Set<String>>, globals: Globals?) =
+        ModuleInterface(
+            name,
+            options,
+            sourceHash,
+            deps,
+            hash,
+            lazyValues,
+            shapes,
+            specializations,
+            globals?.let(GlobalsSerializer::write) ?: ByteArray(0),
+            payload
+        )
+
+    fun write(output: File) {
+        val file = file(output, name)
+        file.parentFile.mkdirs()
+        DataOutputStream(BufferedOutputStream(file.outputStream())).use { out ->
+            val w = Writer(out, positions = true)
+            out.writeInt(MAGIC)
+            out.writeInt(FORMAT)
+            w.string(options)
+            w.string(name)
+            w.string(sourceHash)
+            w.string(hash)
+            w.list(deps.entries) { (k, v) ->
+                w.string(k)
+                w.string(v)
+            }
+            w.list(lazyValues, w::string)
+            w.list(shapes, w::string)
+            w.list(specializations.entries) { (k, v) ->
+                w.string(k)
+                w.list(v, w::string)
+            }
+            out.writeInt(globals.size)
+            out.write(globals)
+            out.writeInt(payload.size)
+            out.write(payload)
+        }
+    }
+
+    companion object {
+        const val FILE_NAME = "\$Module.novahi"
+
+        private const val MAGIC = 0x4E564849
+        private const val FORMAT = 6
+
+        fun file(output: File, module: String): File =
+            output.resolve(module.replace('.', File.separatorChar)).resolve(FILE_NAME)
+
+        fun options(opts: Options) = "${Main.VERSION} dev=${opts.devMode} lazy=${opts.lazyInit}"
+
+        /**
+         * Creates the interface of a module which was just typechecked.
+         * @param hashSource if the source of the module should be part of the hash,
+         * when the code of other modules depends on more than the types of this one
+         */
+        fun create(
+            menv: FullModuleEnv,
+            options: String,
+            sourceHash: String,
+            deps: Map<String, String>,
+            hashSource: Boolean,
+            newtypes: Newtypes
+        ): ModuleInterface {
+            val name = menv.ast.name.value
+            val typeDecls = menv.ast.decls.filterIsInstance<CDecl.TypeDecl>()
+            val newtypes = typeDecls.map { it.name.value }.filter { newtypes.find("$name.$it") != null }
+            // how other modules read the values of this one
+            val lazyValues = Codegen.collectLazyValues(menv.ast)
+
+            val bytes = ByteArrayOutputStream()
+            DataOutputStream(bytes).use { Writer(it, positions = true).module(menv, typeDecls, newtypes) }
+
+            // positions, comments and type variable ids don't change the modules that import this one
+            val digest = MessageDigest.getInstance("SHA-256")
+            DataOutputStream(DigestOutputStream(OutputStream.nullOutputStream(), digest)).use { out ->
+                val w = Writer(out, positions = false)
+                w.module(menv, typeDecls, newtypes)
+                w.list(lazyValues.sorted(), w::string)
+                w.list(deps.entries.sortedBy { it.key }) { (k, v) ->
+                    w.string(k)
+                    w.string(v)
+                }
+                if (hashSource) w.string(sourceHash)
+            }
+            val hash = hex(digest.digest())
+            return ModuleInterface(
+                name,
+                options,
+                sourceHash,
+                deps,
+                hash,
+                lazyValues,
+                emptySet(),
+                emptyMap(),
+                ByteArray(0),
+                bytes.toByteArray()
+            )
+        }
+
+        /**
+         * Reads the interface of this module from `output`.
+         * Returns null if there's none or it was compiled with other options.
+         */
+        fun read(output: File, module: String, options: String): ModuleInterface? {
+            val file = file(output, module)
+            if (!file.exists()) return null
+            return read(file.inputStream())?.takeIf { it.options == options }
+        }
+
+        /**
+         * Reads an interface from this stream and closes it.
+         * Returns null if it's not a valid interface.
+         */
+        fun read(stream: InputStream): ModuleInterface? {
+            return try {
+                DataInputStream(BufferedInputStream(stream)).use { input ->
+                    val r = Reader(input)
+                    if (input.readInt() != MAGIC || input.readInt() != FORMAT) return null
+                    val options = r.string()
+                    val name = r.string()
+                    val sourceHash = r.string()
+                    val hash = r.string()
+                    val deps = r.map { r.string() to r.string() }
+                    val lazies = r.list(r::string).toSet()
+                    val shapes = r.list(r::string).toSet()
+                    val specs = r.map { r.string() to r.list(r::string).toSet() }
+                    val globals = ByteArray(input.readInt())
+                    input.readFully(globals)
+                    val payload = ByteArray(input.readInt())
+                    input.readFully(payload)
+                    ModuleInterface(name, options, sourceHash, deps, hash, lazies, shapes, specs, globals, payload)
+                }
+            } catch (_: Exception) {
+                null
+            }
+        }
+
+        /**
+         * Hashes the source code of a module while it's read.
+         */
+        fun hashing(iter: Iterator<Char>, digest: MessageDigest): Iterator<Char> = object : Iterator<Char> {
+            override fun hasNext(): Boolean = iter.hasNext()
+
+            override fun next(): Char {
+                val c = iter.next()
+                digest.update((c.code shr 8).toByte())
+                digest.update(c.code.toByte())
+                return c
+            }
+        }
+
+        fun hex(bytes: ByteArray): String = bytes.joinToString("") { "%02x".format(it) }
+
+        private fun vis(i: Int) = Visibility.values()[i]
+        private fun fullVis(i: Int) = FullVisibility.values()[i]
+    }
+
+    private class Writer(private val out: DataOutputStream, private val positions: Boolean) {
+
+        // type variables are numbered by order of appearance for the hash
+        private val ids = mutableMapOf<Id, Id>()
+
+        fun module(menv: FullModuleEnv, typeDecls: List<CDecl.TypeDecl>, newtypes: List<String>) {
+            if (positions) string(menv.ast.sourceName)
+            span(menv.ast.name.span)
+            comment(menv.comment)
+            list(menv.env.decls.entries) { (name, ref) ->
+                ids.clear()
+                string(name)
+                type(ref.type)
+                int(ref.visibility.ordinal)
+                bool(ref.isInstance)
+                comment(ref.comment)
+            }
+            list(menv.env.types.entries) { (name, ref) ->
+                ids.clear()
+                string(name)
+                type(ref.type)
+                int(ref.visibility.ordinal)
+                list(ref.ctors, ::string)
+                comment(ref.comment)
+            }
+            list(menv.aliases, ::alias)
+            list(if (positions) menv.typeVarsMap.entries else emptySet()) { (k, v) ->
+                int(k)
+                string(v)
+            }
+            list(typeDecls, ::typeDecl)
+            list(newtypes, ::string)
+            // where the values are, as the typed AST has no values once loaded from the interface
+            list(if (positions) menv.ast.decls.filterIsInstance<CDecl.ValDecl>() else emptyList()) { d ->
+                string(d.name.value)
+                span(d.span)
+            }
+        }
+
+        fun string(s: String) {
+            val bytes = s.toByteArray(Charsets.UTF_8)
+            out.writeInt(bytes.size)
+            out.write(bytes)
+        }
+
+        fun int(i: Int) = out.writeInt(i)
+
+        fun bool(b: Boolean) = out.writeBoolean(b)
+
+        fun <T> list(xs: Collection<T>, fn: (T) -> Unit) {
+            int(xs.size)
+            xs.forEach(fn)
+        }
+
+        private fun span(s: Span) {
+            if (!positions) return
+            int(s.startLine)
+            int(s.startColumn)
+            int(s.endLine)
+            int(s.endColumn)
+        }
+
+        private fun comment(c: Comment?) {
+            if (!positions) return
+            bool(c != null)
+            if (c != null) {
+                string(c.comment)
+                span(c.span)
+                bool(c.isMulti)
+            }
+        }
+
+        private fun id(id: Id): Id = if (positions) id else ids.getOrPut(id) { ids.size }
+
+        private fun type(t: Type) {
+            when (val ty = t.realType()) {
+                is TConst -> {
+                    int(0)
+                    string(ty.name)
+                    int(ty.kind.arity)
+                }
+                is TApp -> {
+                    int(1)
+                    type(ty.type)
+                    list(ty.types, ::type)
+                }
+                is TArrow -> {
+                    int(2)
+                    list(ty.args, ::type)
+                    type(ty.ret)
+                }
+                is TImplicit -> {
+                    int(3)
+                    type(ty.type)
+                }
+                is TRecord -> {
+                    int(4)
+                    type(ty.row)
+                }
+                is TRowExtend -> {
+                    int(5)
+                    val labels = mutableListOf<Pair<String, Type>>()
+                    ty.labels.forEachKeyList { k, v -> labels += k to v }
+                    list(labels) { (k, v) ->
+                        string(k)
+                        type(v)
+                    }
+                    type(ty.row)
+                }
+                is TRowEmpty -> int(6)
+                is TVar -> when (val tv = ty.tvar) {
+                    is TypeVar.Unbound -> {
+                        int(7)
+                        int(id(tv.id))
+                        int(tv.level)
+                    }
+                    is TypeVar.Generic -> {
+                        int(8)
+                        int(id(tv.id))
+                    }
+                    is TypeVar.Link -> internalError("Got linked type variable after realType: $ty")
+                }
+            }
+        }
+
+        private fun sourceType(t: SType) {
+            when (t) {
+                is SType.TConst -> {
+                    int(0)
+                    string(t.name)
+                    bool(t.alias != null)
+                    if (t.alias != null) string(t.alias)
+                }
+                is SType.TApp -> {
+                    int(1)
+                    sourceType(t.type)
+                    list(t.types, ::sourceType)
+                }
+                is SType.TFun -> {
+                    int(2)
+                    sourceType(t.arg)
+                    sourceType(t.ret)
+                }
+                is SType.TParens -> {
+                    int(3)
+                    sourceType(t.type)
+                }
+                is SType.TRecord -> {
+                    int(4)
+                    sourceType(t.row)
+                }
+                is SType.TRowEmpty -> int(5)
+                is SType.TRowExtend -> {
+                    int(6)
+                    list(t.labels) { (k, v) ->
+                        string(k)
+                        sourceType(v)
+                    }
+                    sourceType(t.row)
+                }
+                is SType.TImplicit -> {
+                    int(7)
+                    sourceType(t.type)
+                }
+            }
+            span(t.span)
+        }
+
+        private fun alias(ta: Decl.TypealiasDecl) {
+            string(ta.name)
+            list(ta.tyVars, ::string)
+            int(ta.visibility.ordinal)
+            sourceType(ta.expanded ?: ta.type)
+            span(ta.span)
+            comment(ta.comment)
+        }
+
+        private fun typeDecl(d: CDecl.TypeDecl) {
+            ids.clear()
+            string(d.name.value)
+            span(d.name.span)
+            list(d.tyVars, ::string)
+            list(d.dataCtors) { c ->
+                string(c.name.value)
+                span(c.name.span)
+                list(c.args, ::type)
+                int(c.visibility.ordinal)
+                span(c.span)
+            }
+            span(d.span)
+            int(d.visibility.ordinal)
+            comment(d.comment)
+        }
+    }
+
+    private class Reader(private val input: DataInputStream) {
+
+        fun string(): String {
+            val bytes = ByteArray(input.readInt())
+            input.readFully(bytes)
+            return String(bytes, Charsets.UTF_8)
+        }
+
+        fun int(): Int = input.readInt()
+
+        fun bool(): Boolean = input.readBoolean()
+
+        fun <T> list(fn: () -> T): List<T> = List(int()) { fn() }
+
+        fun <K, V> map(fn: () -> Pair<K, V>): Map<K, V> {
+            val size = int()
+            val map = LinkedHashMap<K, V>(size)
+            repeat(size) {
+                val (k, v) = fn()
+                map[k] = v
+            }
+            return map
+        }
+
+        fun span(): Span = Span(int(), int(), int(), int())
+
+        fun comment(): Comment? = if (bool()) Comment(string(), span(), bool()) else null
+
+        fun type(): Type = when (val tag = int()) {
+            0 -> {
+                val name = string()
+                val arity = int()
+                TConst(name, if (arity == 0) Kind.Star else Kind.Constructor(arity))
+            }
+            1 -> TApp(type(), list(::type))
+            2 -> TArrow(list(::type), type())
+            3 -> TImplicit(type())
+            4 -> TRecord(type())
+            5 -> {
+                val labels = LinkedHashMap<String, MutableList<Type>>()
+                repeat(int()) {
+                    val k = string()
+                    labels.getOrPut(k) { mutableListOf() } += type()
+                }
+                val map = labels.entries.fold(LabelMap<Type>()) { acc, (k, vs) -> acc.assocat(k, PList.from(vs)) }
+                TRowExtend(map, type())
+            }
+            6 -> TRowEmpty()
+            7 -> TVar(TypeVar.Unbound(int(), int()))
+            8 -> TVar(TypeVar.Generic(int()))
+            else -> internalError("Unknown type tag in module interface: $tag")
+        }
+
+        private fun sourceType(): SType {
+            val ty: (Span) -> SType = when (val tag = int()) {
+                0 -> {
+                    val name = string()
+                    val alias = if (bool()) string() else null
+                    ({ SType.TConst(name, alias, it) })
+                }
+                1 -> {
+                    val type = sourceType()
+                    val types = list(::sourceType)
+                    ({ SType.TApp(type, types, it) })
+                }
+                2 -> {
+                    val arg = sourceType()
+                    val ret = sourceType()
+                    ({ SType.TFun(arg, ret, it) })
+                }
+                3 -> {
+                    val type = sourceType()
+                    ({ SType.TParens(type, it) })
+                }
+                4 -> {
+                    val row = sourceType()
+                    ({ SType.TRecord(row, it) })
+                }
+                5 -> ({ SType.TRowEmpty(it) })
+                6 -> {
+                    val labels = list { string() to sourceType() }
+                    val row = sourceType()
+                    ({ SType.TRowExtend(labels, row, it) })
+                }
+                7 -> {
+                    val type = sourceType()
+                    ({ SType.TImplicit(type, it) })
+                }
+                else -> internalError("Unknown type tag in module interface: $tag")
+            }
+            return ty(span())
+        }
+
+        fun alias(): Decl.TypealiasDecl {
+            val name = string()
+            val tyVars = list(::string)
+            val visibility = vis(int())
+            val type = sourceType()
+            val ta = Decl.TypealiasDecl(name, tyVars, type, visibility)
+            ta.expanded = type
+            ta.span = span()
+            ta.comment = comment()
+            return ta
+        }
+
+        private fun spanned(): Spanned<String> {
+            val value = string()
+            return Spanned(span(), value)
+        }
+
+        fun typeDecl(): CDecl.TypeDecl {
+            val name = spanned()
+            val tyVars = list(::string)
+            val ctors = list {
+                val ctorName = spanned()
+                val args = list(::type)
+                val visibility = vis(int())
+                CDataConstructor(ctorName, args, visibility, span())
+            }
+            val span = span()
+            val visibility = vis(int())
+            return CDecl.TypeDecl(name, tyVars, ctors, span, visibility, comment())
+        }
+    }
+}
@@ -54,6 +54,7 @@ class NovahClassLoader(classpath: String?) : ClassLoader() {
         if (name == "novah.Float64Ref") return Float64Ref::class.java
         if (name == "novah.collections.Record") return Record::class.java
         if (name == "novah.collections.ListValue") return ListValue::class.java
+        if (name.startsWith("novah.collections.")) return Class.forName(name)
         if (name == "novah.Metadata") return Metadata::class.java
         if (name.startsWith("io.lacuna.bifurcan")) return Class.forName(name)
         if (name.startsWith("novah.range.")) return Class.forName(name)
@@ -24,15 +24,28 @@ import java.util.jar.JarFile
 /**
  * Class responsible for finding novah source files
  * in the class path (jars, and directories).
+ * Jars of compiled libraries are loaded from their module interfaces instead.
  */
 class SourceCodeLoader(private val sourcepath: String?) {
 
+    private val jarInterfaces = mutableMapOf<String, List<ModuleInterface>>()
+
     fun loadSources(): Sequence<Source> {
         if (sourcepath == null) return emptySequence()
 
         return sourcepath.split(File.pathSeparator).asSequence().flatMap(::processEntry)
     }
 
+    /**
+     * Returns the module interfaces of all jars in the source path
+     * that contain an interface for every module compiled with this compiler version.
+     */
+    fun loadInterfaces(): List<ModuleInterface> {
+        if (sourcepath == null) return emptyList()
+
+        return sourcepath.split(File.pathSeparator).filter { it.endsWith(".jar") }.flatMap(::interfacesOf)
+    }
+
     private fun processEntry(path: String): Sequence<Source> {
         return if (path.endsWith(".jar")) {
             loadSourcesFromJar(path)
@@ -42,6 +55,7 @@ class SourceCodeLoader(private val sourcepath: String?) {
     }
 
     private fun loadSourcesFromJar(jar: String): Sequence<Source> {
+        if (interfacesOf(jar).isNotEmpty()) return emptySequence()
         val file = JarFile(jar)
         return file.entries().asSequence().filter { it.name.endsWith(".novah") }.map {
             val input = file.getInputStream(it)
@@ -49,6 +63,15 @@ class SourceCodeLoader(private val sourcepath: String?) {
         }
     }
 
+    private fun interfacesOf(jar: String): List<ModuleInterface> = jarInterfaces.getOrPut(jar) {
+        JarFile(jar).use { file ->
+            val ifaces = file.entries().asSequence().filter { it.name.endsWith(ModuleInterface.FILE_NAME) }
+                .map { ModuleInterface.read(file.getInputStream(it)) }.toList()
+            // fallback to the sources if some interface is unreadable or from another version
+            if (ifaces.all { it != null && it.isFromThisVersion() }) ifaces.filterNotNull() else emptyList()
+        }
+    }
+
     private fun loadSourcesFromDir(path: String): Sequence<Source> {
         val dir = File(path)
         if (!dir.isDirectory) return emptySequence()
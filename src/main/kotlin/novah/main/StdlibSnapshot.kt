@@ -0,0 +1,125 @@
+/**
+ * Copyright 2022 Islon Scherer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package novah.main
+
+import java.io.ByteArrayInputStream
+import java.io.File
+import java.nio.file.Files
+import java.util.concurrent.ConcurrentHashMap
+import java.util.zip.ZipEntry
+import java.util.zip.ZipInputStream
+import java.util.zip.ZipOutputStream
+
+/**
+ * The stdlib compiled in every mode when the compiler is built:
+ * the classes and interfaces of all stdlib modules and the record shapes they use.
+ * Compilations load the stdlib from the interfaces of their mode and copy
+ * its classes instead of typechecking and generating it again.
+ * In normal mode the interfaces have what the optimizer needs
+ * to inline and call the stdlib from other modules.
+ */
+object StdlibSnapshot {
+
+    private const val RESOURCE = "stdlib.zip"
+    private const val SHAPES = "novah/shape"
+
+    // the options the stdlib is compiled with
+    private val modes = listOf(false, true).flatMap { dev ->
+        listOf(false, true).map { lazy -> Options(devMode = dev, lazyInit = lazy) }
+    }
+
+    // all files of the snapshot by mode and path, in the order the modules were compiled
+    private val files: Map<String, Map<String, ByteArray>>? by lazy(::read)
+
+    private val interfaces = ConcurrentHashMap<String, List<ModuleInterface>>()
+
+    /**
+     * Returns the interfaces of all stdlib modules compiled with these options
+     * or null if the compiler was built without a snapshot or with one of another version.
+     */
+    fun interfaces(opts: Options): List<ModuleInterface>? {
+        val mode = dir(opts)
+        interfaces[mode]?.let { return it }
+        val fs = files?.get(mode) ?: return null
+        val ifaces = fs.filterKeys { it.endsWith(ModuleInterface.FILE_NAME) }.values.map { bytes ->
+            ModuleInterface.read(ByteArrayInputStream(bytes)) ?: return null
+        }
+        val options = ModuleInterface.options(opts)
+        if (ifaces.isEmpty() || ifaces.any { it.options != options }) return null
+        interfaces[mode] = ifaces
+        return ifaces
+    }
+
+    /**
+     * Copies the snapshot of these options to the output, unless it's already there.
+     */
+    fun copyTo(output: File, opts: Options) {
+        val fs = files?.get(dir(opts)) ?: return
+        val ifaces = interfaces(opts) ?: return
+        if (ifaces.all { ModuleInterface.read(output, it.name, it.options)?.hash == it.hash }) return
+        for ((path, bytes) in fs) {
+            val file = output.resolve(path)
+            file.parentFile.mkdirs()
+            file.writeBytes(bytes)
+        }
+    }
+
+    private fun dir(opts: Options) = (if (opts.devMode) "dev" else "normal") + (if (opts.lazyInit) "-lazy" else "")
+
+    private fun read(): Map<String, Map<String, ByteArray>>? {
+        val input = StdlibSnapshot::class.java.classLoader.getResourceAsStream(RESOURCE) ?: return null
+        val fs = LinkedHashMap<String, LinkedHashMap<String, ByteArray>>()
+        ZipInputStream(input).use { zip ->
+            var entry = zip.nextEntry
+            while (entry != null) {
+                if (!entry.isDirectory) {
+                    val mode = entry.name.substringBefore('/')
+                    fs.getOrPut(mode) { LinkedHashMap() }[entry.name.substringAfter('/')] = zip.readBytes()
+                }
+                entry = zip.nextEntry
+            }
+        }
+        return fs
+    }
+
+    /**
+     * Compiles the stdlib in every mode and saves the snapshot to the file in `args[0]`.
+     * Run when the compiler is built.
+     */
+    @JvmStatic
+    fun main(args: Array<String>) {
+        ZipOutputStream(File(args[0]).outputStream()).use { zip ->
+            for (opts in modes) {
+                val output = Files.createTempDirectory("novah-stdlib").toFile()
+                val env = Environment(null, null, opts, useSnapshot = false)
+                env.parseSources(emptySequence(), output)
+                env.generateCode(output)
+
+                val stdlib = env.modules().keys.filter { it in Environment.stdlibModuleNames() }
+                val dirs = stdlib.map { it.replace('.', '/') } + SHAPES
+                for (dir in dirs) {
+                    val dirFiles = output.resolve(dir).listFiles() ?: continue
+                    for (file in dirFiles.filter { it.isFile }.sortedBy { it.name }) {
+                        zip.putNextEntry(ZipEntry("${dir(opts)}/$dir/${file.name}"))
+                        zip.write(file.readBytes())
+                        zip.closeEntry()
+                    }
+                }
+                output.deleteRecursively()
+            }
+        }
+    }
+}
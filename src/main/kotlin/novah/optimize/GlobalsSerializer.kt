@@ -0,0 +1,541 @@
+/**
+ * Copyright 2022 Islon Scherer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package novah.optimize
+
+import novah.ast.optimized.*
+import novah.data.LabelMap
+import novah.data.forEachKeyList
+import novah.data.labelMapWith
+import novah.frontend.Span
+import org.objectweb.asm.Type
+import java.io.ByteArrayInputStream
+import java.io.ByteArrayOutputStream
+import java.io.DataInputStream
+import java.io.DataOutputStream
+import java.lang.reflect.Field
+import java.lang.reflect.Method
+import java.lang.reflect.Constructor as JConstructor
+
+/**
+ * Saves what the optimizer knows about the declarations of a module,
+ * so modules that are not generated again can still be inlined and called
+ * through their static methods by the modules compiled after them.
+ * Java members are saved by name and looked up again when read.
+ */
+object GlobalsSerializer {
+
+    fun write(globals: Globals): ByteArray {
+        val bytes = ByteArrayOutputStream()
+        DataOutputStream(bytes).use { Writer(it).globals(globals) }
+        return bytes.toByteArray()
+    }
+
+    /**
+     * Returns null if some Java member used by these declarations can't be found anymore.
+     */
+    fun read(bytes: ByteArray, classLoader: ClassLoader): Globals? {
+        return try {
+            DataInputStream(ByteArrayInputStream(bytes)).use { Reader(it, classLoader).globals() }
+        } catch (_: ReflectiveOperationException) {
+            null
+        } catch (_: LinkageError) {
+            null
+        }
+    }
+
+    private class Writer(private val out: DataOutputStream) {
+
+        fun globals(g: Globals) {
+            list(g.entries.entries) { (name, e) ->
+                string(name)
+                string(e.className)
+                string(e.name)
+                list(e.pars, ::clazz)
+                clazz(e.ret)
+            }
+            list(g.instances.entries) { (name, e) ->
+                string(name)
+                expr(e)
+            }
+            list(g.methods.entries) { (name, path) ->
+                string(name)
+                list(path) { p ->
+                    when (p) {
+                        is Projection.Field -> {
+                            int(0)
+                            string(p.ctor)
+                            int(p.field)
+                        }
+                        is Projection.Label -> {
+                            int(1)
+                            string(p.label)
+                        }
+                    }
+                }
+            }
+            list(g.privates, ::string)
+            list(g.inlines.entries) { (name, c) ->
+                string(name)
+                string(c.className)
+                expr(c.fn)
+                int(c.size)
+                bool(c.usesPrivates)
+            }
+        }
+
+        fun string(s: String) {
+            val bytes = s.toByteArray(Charsets.UTF_8)
+            out.writeInt(bytes.size)
+            out.write(bytes)
+        }
+
+        fun int(i: Int) = out.writeInt(i)
+
+        fun bool(b: Boolean) = out.writeBoolean(b)
+
+        fun <T> list(xs: Collection<T>, fn: (T) -> Unit) {
+            int(xs.size)
+            xs.forEach(fn)
+        }
+
+        private fun span(s: Span) {
+            int(s.startLine)
+            int(s.startColumn)
+            int(s.endLine)
+            int(s.endColumn)
+        }
+
+        private fun clazz(c: Clazz) {
+            string(c.type.descriptor)
+            list(c.pars, ::clazz)
+            bool(c.labels != null)
+            c.labels?.let { labels(it, ::clazz) }
+        }
+
+        private fun <T> labels(labels: LabelMap<T>, fn: (T) -> Unit) {
+            val kvs = mutableListOf<Pair<String, T>>()
+            labels.forEachKeyList { k, v -> kvs += k to v }
+            list(kvs) { (k, v) ->
+                string(k)
+                fn(v)
+            }
+        }
+
+        private fun shape(s: RecordShape) {
+            list(s.labels, ::string)
+            list(s.types) { string(it.descriptor) }
+        }
+
+        private fun field(f: Field) {
+            string(f.declaringClass.name)
+            string(f.name)
+        }
+
+        private fun method(m: Method) {
+            string(m.declaringClass.name)
+            string(m.name)
+            string(Type.getMethodDescriptor(m))
+        }
+
+        private fun ctor(c: JConstructor<*>) {
+            string(c.declaringClass.name)
+            string(Type.getConstructorDescriptor(c))
+        }
+
+        private fun tag(e: Expr): Int = when (e) {
+            is Expr.ByteE -> 0
+            is Expr.Int16 -> 1
+            is Expr.Int32 -> 2
+            is Expr.Int64 -> 3
+            is Expr.Float32 -> 4
+            is Expr.Float64 -> 5
+            is Expr.StringE -> 6
+            is Expr.CharE -> 7
+            is Expr.Bool -> 8
+            is Expr.Var -> 9
+            is Expr.Constructor -> 10
+            is Expr.LocalVar -> 11
+            is Expr.SetLocalVar -> 12
+            is Expr.Lambda -> 13
+            is Expr.App -> 14
+            is Expr.CtorApp -> 15
+            is Expr.StaticCall -> 16
+            is Expr.If -> 17
+            is Expr.Switch -> 18
+            is Expr.StringSwitch -> 19
+            is Expr.Let -> 20
+            is Expr.Do -> 21
+            is Expr.ConstructorAccess -> 22
+            is Expr.OperatorApp -> 23
+            is Expr.InstanceOf -> 24
+            is Expr.ConstructorTag -> 25
+            is Expr.NativeFieldGet -> 26
+            is Expr.NativeStaticFieldGet -> 27
+            is Expr.NativeFieldSet -> 28
+            is Expr.NativeStaticFieldSet -> 29
+            is Expr.NativeMethod -> 30
+            is Expr.NativeStaticMethod -> 31
+            is Expr.NativeCtor -> 32
+            is Expr.Unit -> 33
+            is Expr.RecordEmpty -> 34
+            is Expr.Null -> 35
+            is Expr.Throw -> 36
+            is Expr.Cast -> 37
+            is Expr.RecordExtend -> 38
+            is Expr.RecordSelect -> 39
+            is Expr.ShapeNew -> 40
+            is Expr.RecordRestrict -> 41
+            is Expr.RecordUpdate -> 42
+            is Expr.RecordMerge -> 43
+            is Expr.ListLiteral -> 44
+            is Expr.SetLiteral -> 45
+            is Expr.ArrayLiteral -> 46
+            is Expr.StringConcat -> 47
+            is Expr.TryCatch -> 48
+            is Expr.While -> 49
+            is Expr.ArrayLength -> 50
+            is Expr.ClassConstant -> 51
+            is Expr.RegexConstant -> 52
+            is Expr.Return -> 53
+            is Expr.Unbox -> 54
+        }
+
+        private fun exprs(es: List<Expr>) = list(es, ::expr)
+
+        private fun expr(e: Expr) {
+            int(tag(e))
+            when (e) {
+                is Expr.ByteE -> out.writeByte(e.v.toInt())
+                is Expr.Int16 -> out.writeShort(e.v.toInt())
+                is Expr.Int32 -> int(e.v)
+                is Expr.Int64 -> out.writeLong(e.v)
+                is Expr.Float32 -> out.writeFloat(e.v)
+                is Expr.Float64 -> out.writeDouble(e.v)
+                is Expr.StringE -> string(e.v)
+                is Expr.CharE -> out.writeChar(e.v.code)
+                is Expr.Bool -> bool(e.v)
+                is Expr.Var -> {
+                    string(e.name)
+                    string(e.className)
+                }
+                is Expr.Constructor -> {
+                    string(e.fullName)
+                    int(e.arity)
+                }
+                is Expr.LocalVar -> string(e.name)
+                is Expr.SetLocalVar -> {
+                    string(e.name)
+                    expr(e.exp)
+                }
+                is Expr.Lambda -> {
+                    string(e.binder)
+                    expr(e.body)
+                    string(e.internalName)
+                    exprs(e.locals)
+                    int(e.arity)
+                }
+                is Expr.App -> {
+                    expr(e.fn)
+                    expr(e.arg)
+                }
+                is Expr.CtorApp -> {
+                    expr(e.ctor)
+                    exprs(e.args)
+                }
+                is Expr.StaticCall -> {
+                    string(e.className)
+                    string(e.name)
+                    exprs(e.args)
+                    list(e.pars, ::clazz)
+                    clazz(e.ret)
+                }
+                is Expr.If -> {
+                    list(e.conds) { (c, t) ->
+                        expr(c)
+                        expr(t)
+                    }
+                    expr(e.elseCase)
+                }
+                is Expr.Switch -> {
+                    expr(e.exp)
+                    list(e.cases) { (k, c) ->
+                        int(k)
+                        expr(c)
+                    }
+                    expr(e.default)
+                }
+                is Expr.StringSwitch -> {
+                    expr(e.exp)
+                    list(e.cases) { (k, c) ->
+                        string(k)
+                        expr(c)
+                    }
+                    expr(e.default)
+                }
+                is Expr.Let -> {
+                    string(e.binder)
+                    expr(e.bindExpr)
+                    expr(e.body)
+                }
+                is Expr.Do -> exprs(e.exps)
+                is Expr.ConstructorAccess -> {
+                    string(e.fullName)
+                    int(e.field)
+                    expr(e.ctor)
+                }
+                is Expr.OperatorApp -> {
+                    string(e.name)
+                    exprs(e.operands)
+                }
+                is Expr.InstanceOf -> expr(e.exp)
+                is Expr.ConstructorTag -> {
+                    expr(e.exp)
+                    string(e.adtClass)
+                }
+                is Expr.NativeFieldGet -> {
+                    field(e.field)
+                    expr(e.thisPar)
+                }
+                is Expr.NativeStaticFieldGet -> field(e.field)
+                is Expr.NativeFieldSet -> {
+                    field(e.field)
+                    expr(e.thisPar)
+                    expr(e.par)
+                }
+                is Expr.NativeStaticFieldSet -> {
+                    field(e.field)
+                    expr(e.par)
+                }
+                is Expr.NativeMethod -> {
+                    method(e.method)
+                    expr(e.thisPar)
+                    exprs(e.pars)
+                }
+                is Expr.NativeStaticMethod -> {
+                    method(e.method)
+                    exprs(e.pars)
+                }
+                is Expr.NativeCtor -> {
+                    ctor(e.ctor)
+                    exprs(e.pars)
+                }
+                is Expr.Unit, is Expr.RecordEmpty, is Expr.Null -> {}
+                is Expr.Throw -> expr(e.expr)
+                is Expr.Cast -> expr(e.expr)
+                is Expr.RecordExtend -> {
+                    labels(e.labels, ::expr)
+                    expr(e.expr)
+                }
+                is Expr.RecordSelect -> {
+                    expr(e.expr)
+                    string(e.label)
+                    bool(e.shape != null)
+                    e.shape?.let(::shape)
+                }
+                is Expr.ShapeNew -> {
+                    shape(e.shape)
+                    exprs(e.values)
+                }
+                is Expr.RecordRestrict -> {
+                    expr(e.expr)
+                    string(e.label)
+                }
+                is Expr.RecordUpdate -> {
+                    expr(e.expr)
+                    string(e.label)
+                    expr(e.value)
+                    bool(e.isSet)
+                }
+                is Expr.RecordMerge -> {
+                    expr(e.exp1)
+                    expr(e.exp2)
+                }
+                is Expr.ListLiteral -> exprs(e.exps)
+                is Expr.SetLiteral -> exprs(e.exps)
+                is Expr.ArrayLiteral -> exprs(e.exps)
+                is Expr.StringConcat -> exprs(e.parts)
+                is Expr.TryCatch -> {
+                    expr(e.tryExpr)
+                    list(e.catches) { c ->
+                        clazz(c.exception)
+                        bool(c.binder != null)
+                        c.binder?.let(::string)
+                        expr(c.expr)
+                        span(c.span)
+                    }
+                    bool(e.finallyExp != null)
+                    e.finallyExp?.let(::expr)
+                }
+                is Expr.While -> {
+                    expr(e.cond)
+                    exprs(e.exps)
+                }
+                is Expr.ArrayLength -> expr(e.expr)
+                is Expr.ClassConstant -> string(e.clazz)
+                is Expr.RegexConstant -> string(e.regex)
+                is Expr.Return -> expr(e.exp)
+                is Expr.Unbox -> expr(e.exp)
+            }
+            clazz(e.type)
+            span(e.span)
+        }
+    }
+
+    private class Reader(private val input: DataInputStream, private val classLoader: ClassLoader) {
+
+        fun globals(): Globals {
+            val entries = map {
+                string() to StaticEntry(string(), string(), list(::clazz), clazz())
+            }
+            val instances = map { string() to expr() }
+            val methods = map {
+                string() to list {
+                    when (int()) {
+                        0 -> Projection.Field(string(), int())
+                        else -> Projection.Label(string())
+                    }
+                }
+            }
+            val privates = list(::string).toSet()
+            val inlines = map {
+                string() to InlineCandidate(string(), expr() as Expr.Lambda, int(), bool())
+            }
+            return Globals(entries, instances, methods, privates, inlines)
+        }
+
+        fun string(): String {
+            val bytes = ByteArray(input.readInt())
+            input.readFully(bytes)
+            return String(bytes, Charsets.UTF_8)
+        }
+
+        fun int(): Int = input.readInt()
+
+        fun bool(): Boolean = input.readBoolean()
+
+        fun <T> list(fn: () -> T): List<T> = List(int()) { fn() }
+
+        fun <K, V> map(fn: () -> Pair<K, V>): Map<K, V> = list(fn).toMap()
+
+        private fun span(): Span = Span(int(), int(), int(), int())
+
+        private fun clazz(): Clazz {
+            val type = Type.getType(string())
+            val pars = list(::clazz)
+            val labels = if (bool()) labels(::clazz) else null
+            return Clazz(type, pars, labels)
+        }
+
+        private fun <T> labels(fn: () -> T): LabelMap<T> = labelMapWith(list { string() to fn() })
+
+        private fun shape(): RecordShape = RecordShape(list(::string), list { Type.getType(string()) })
+
+        private fun findClass(name: String): Class<*> = Class.forName(name, false, classLoader)
+
+        private fun field(): Field = findClass(string()).getDeclaredField(string())
+
+        private fun method(): Method {
+            val clazz = findClass(string())
+            val name = string()
+            val desc = string()
+            return clazz.declaredMethods.find { it.name == name && Type.getMethodDescriptor(it) == desc }
+                ?: throw NoSuchMethodException("${clazz.name}.$name$desc")
+        }
+
+        private fun ctor(): JConstructor<*> {
+            val clazz = findClass(string())
+            val desc = string()
+            return clazz.declaredConstructors.find { Type.getConstructorDescriptor(it) == desc }
+                ?: throw NoSuchMethodException("${clazz.name}.<init>$desc")
+        }
+
+        private fun exprs(): List<Expr> = list(::expr)
+
+        // the fields of an expression are written in the order of its constructor, followed by its type and span
+        @Suppress("UNCHECKED_CAST")
+        private fun expr(): Expr = when (val tag = int()) {
+            0 -> Expr.ByteE(input.readByte(), clazz(), span())
+            1 -> Expr.Int16(input.readShort(), clazz(), span())
+            2 -> Expr.Int32(int(), clazz(), span())
+            3 -> Expr.Int64(input.readLong(), clazz(), span())
+            4 -> Expr.Float32(input.readFloat(), clazz(), span())
+            5 -> Expr.Float64(input.readDouble(), clazz(), span())
+            6 -> Expr.StringE(string(), clazz(), span())
+            7 -> Expr.CharE(input.readChar(), clazz(), span())
+            8 -> Expr.Bool(bool(), clazz(), span())
+            9 -> Expr.Var(string(), string(), clazz(), span())
+            10 -> Expr.Constructor(string(), int(), clazz(), span())
+            11 -> Expr.LocalVar(string(), clazz(), span())
+            12 -> Expr.SetLocalVar(string(), expr(), clazz()).also { span() }
+            13 -> Expr.Lambda(string(), expr(), string(), exprs() as List<Expr.LocalVar>, int(), clazz(), span())
+            14 -> Expr.App(expr(), expr(), clazz(), span())
+            15 -> Expr.CtorApp(expr() as Expr.Constructor, exprs(), clazz(), span())
+            16 -> Expr.StaticCall(string(), string(), exprs(), list(::clazz), clazz(), clazz(), span())
+            17 -> Expr.If(list { expr() to expr() }, expr(), clazz(), span())
+            18 -> Expr.Switch(expr(), list { int() to expr() }, expr(), clazz(), span())
+            19 -> Expr.StringSwitch(expr(), list { string() to expr() }, expr(), clazz(), span())
+            20 -> Expr.Let(string(), expr(), expr(), clazz(), span())
+            21 -> Expr.Do(exprs(), clazz(), span())
+            22 -> Expr.ConstructorAccess(string(), int(), expr(), clazz(), span())
+            23 -> Expr.OperatorApp(string(), exprs(), clazz(), span())
+            24 -> Expr.InstanceOf(expr(), clazz(), span())
+            25 -> Expr.ConstructorTag(expr(), string(), clazz(), span())
+            26 -> Expr.NativeFieldGet(field(), expr(), clazz(), span())
+            27 -> Expr.NativeStaticFieldGet(field(), clazz(), span())
+            28 -> Expr.NativeFieldSet(field(), expr(), expr(), clazz(), span())
+            29 -> Expr.NativeStaticFieldSet(field(), expr(), clazz(), span())
+            30 -> Expr.NativeMethod(method(), expr(), exprs(), clazz(), span())
+            31 -> Expr.NativeStaticMethod(method(), exprs(), clazz(), span())
+            32 -> Expr.NativeCtor(ctor(), exprs(), clazz(), span())
+            33 -> Expr.Unit(clazz(), span())
+            34 -> Expr.RecordEmpty(clazz(), span())
+            35 -> Expr.Null(clazz(), span())
+            36 -> {
+                val exp = expr()
+                clazz()
+                Expr.Throw(exp, span())
+            }
+            37 -> Expr.Cast(expr(), clazz(), span())
+            38 -> Expr.RecordExtend(labels(::expr), expr(), clazz(), span())
+            39 -> {
+                val exp = expr()
+                val label = string()
+                val shape = if (bool()) shape() else null
+                Expr.RecordSelect(exp, label, clazz(), span(), shape)
+            }
+            40 -> Expr.ShapeNew(shape(), exprs(), clazz(), span())
+            41 -> Expr.RecordRestrict(expr(), string(), clazz(), span())
+            42 -> Expr.RecordUpdate(expr(), string(), expr(), bool(), clazz(), span())
+            43 -> Expr.RecordMerge(expr(), expr(), clazz(), span())
+            44 -> Expr.ListLiteral(exprs(), clazz(), span())
+            45 -> Expr.SetLiteral(exprs(), clazz(), span())
+            46 -> Expr.ArrayLiteral(exprs(), clazz(), span())
+            47 -> Expr.StringConcat(exprs(), clazz(), span())
+            48 -> {
+                val tryExpr = expr()
+                val catches = list { Catch(clazz(), if (bool()) string() else null, expr(), span()) }
+                Expr.TryCatch(tryExpr, catches, if (bool()) expr() else null, clazz(), span())
+            }
+            49 -> Expr.While(expr(), exprs(), clazz(), span())
+            50 -> Expr.ArrayLength(expr(), clazz(), span())
+            51 -> Expr.ClassConstant(string(), clazz(), span())
+            52 -> Expr.RegexConstant(string(), clazz(), span())
+            53 -> Expr.Return(expr()).also { clazz(); span() }
+            54 -> Expr.Unbox(expr(), clazz()).also { span() }
+            else -> throw IllegalStateException("Unknown expression tag $tag")
+        }
+    }
+}
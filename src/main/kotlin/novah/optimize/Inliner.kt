@@ -0,0 +1,331 @@
+/**
+ * Copyright 2022 Islon Scherer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package novah.optimize
+
+import novah.ast.optimized.*
+import novah.backend.TypeUtil.isPrimitive
+import novah.data.forEachList
+import novah.optimize.Optimizer.Companion.OBJECT_TYPE
+import org.objectweb.asm.Type
+
+/**
+ * A small top-level function that can be inlined at its call sites.
+ *
+ * @param className the class of the module that defines the function
+ * @param usesPrivates if the function references non-public declarations,
+ * in which case it can only be inlined inside its own module
+ */
+class InlineCandidate(val className: String, val fn: Expr.Lambda, val size: Int, val usesPrivates: Boolean)
+
+/**
+ * Inlines calls to small top-level functions and simplifies the result:
+ * applied lambdas are beta-reduced to lets, lets of constants and variables
+ * are propagated and unused lets are removed.
+ * Ex.: flip f 1 2 -> f 2 1
+ *
+ * Every declaration has a budget of how much it can grow
+ * and inlined functions are only inlined up to a certain depth.
+ */
+class Inliner(private val globals: Globals, private val className: String) {
+
+    private var budget = MAX_INLINE_GROWTH
+
+    private var nextVar = 0
+
+    /**
+     * If any function was inlined in this module.
+     */
+    var inlined = false
+        private set
+
+    fun run(exp: Expr): Expr {
+        budget = MAX_INLINE_GROWTH
+        return reduceAll(exp, 0)
+    }
+
+    private fun reduceAll(exp: Expr, depth: Int): Expr = exp.everywhere { e ->
+        when (e) {
+            is Expr.App -> reduceApp(e, depth)
+            is Expr.Let -> reduceLet(e, depth)
+            is Expr.If -> reduceIf(e)
+            else -> e
+        }
+    }
+
+    private fun reduceApp(e: Expr.App, depth: Int): Expr {
+        val fn = e.fn
+        val inner = stripCasts(fn)
+        return when {
+            fn is Expr.Var -> {
+                val cand = candidate(fn, depth) ?: return e
+                budget -= cand.size
+                inlined = true
+                val body = reduceAll(rename(cand.fn), depth + 1)
+                reduceApp(e.copy(fn = body), depth)
+            }
+            inner is Expr.Lambda && canMoveBody(inner) -> {
+                val let = Expr.Let(inner.binder, coerce(e.arg, inner.type.pars[0]), inner.body, inner.body.type, e.span)
+                coerce(reduceLet(let, depth), e.type)
+            }
+            // ((let x = 1 in \y -> ...) 2) -> let x = 1 in ((\y -> ...) 2)
+            inner is Expr.Let && inner.binder !in localNames(e.arg) -> {
+                val body = reduceApp(Expr.App(coerce(inner.body, fn.type), e.arg, e.type, e.span), depth)
+                reduceLet(inner.copy(body = body, type = e.type), depth)
+            }
+            else -> e
+        }
+    }
+
+    private fun reduceLet(let: Expr.Let, depth: Int): Expr {
+        val body = let.body
+        val bind = let.bindExpr
+        val uses = countUses(body, let.binder)
+        if (uses == 0 && let.binder !in setNames(body) && isPure(bind)) return coerce(body, let.type)
+        if (!canSubstitute(let, uses)) return let
+
+        val res = body.everywhere { e ->
+            if (e is Expr.LocalVar && e.name == let.binder) coerce(bind, e.type) else e
+        }
+        // substituting a lambda or partial application may create new redexes
+        return coerce(if (isTrivial(bind)) res else reduceAll(res, depth), let.type)
+    }
+
+    /**
+     * Removes the cases of this if whose condition is a constant.
+     */
+    private fun reduceIf(e: Expr.If): Expr {
+        val conds = mutableListOf<Pair<Expr, Expr>>()
+        for ((cond, then) in e.conds) {
+            if (cond !is Expr.Bool) conds += cond to then
+            else if (cond.v) {
+                return if (conds.isEmpty()) coerce(then, e.type) else e.copy(conds = conds, elseCase = then)
+            }
+        }
+        return when {
+            conds.isEmpty() -> coerce(e.elseCase, e.type)
+            conds.size == e.conds.size -> e
+            else -> e.copy(conds = conds)
+        }
+    }
+
+    /**
+     * A let can be substituted in its body if its value is a constant or a variable
+     * or if it's pure and used only once.
+     * Only cheap values can be moved inside a lambda or loop, as they would be evaluated every time.
+     * The substitution cannot capture variables or move a value past an assignment.
+     */
+    private fun canSubstitute(let: Expr.Let, uses: Int): Boolean {
+        val bind = let.bindExpr
+        if (!isTrivial(bind) && (uses != 1 || !isPure(bind))) return false
+        if (!isCheap(bind) && usedRepeatedly(let.body, let.binder)) return false
+        val binders = binderNames(let.body)
+        val sets = setNames(let.body)
+        if (let.binder in binders || let.binder in sets) return false
+        return localNames(bind).none { it in binders || it in sets }
+    }
+
+    /**
+     * An expression that costs nothing to evaluate again.
+     * Top-level values are not cheap as reading one may initialize it,
+     * even function typed ones like `inc = add 1`: only real functions have a static entry.
+     */
+    private fun isCheap(e: Expr): Boolean = when (val exp = stripCasts(e)) {
+        is Expr.Lambda -> true
+        is Expr.Var -> "${exp.className}.${exp.name}" in globals.entries
+        else -> isTrivial(e)
+    }
+
+    private fun candidate(fn: Expr.Var, depth: Int): InlineCandidate? {
+        if (depth >= MAX_INLINE_DEPTH) return null
+        val cand = globals.inlines[fn.fullname()] ?: return null
+        if (cand.size > budget || (cand.usesPrivates && cand.className != className)) return null
+        return cand
+    }
+
+    /**
+     * Gives fresh names to all variables bound in this function
+     * so it can be inlined without capturing any variable of the call site.
+     */
+    private fun rename(fn: Expr.Lambda): Expr {
+        val names = mutableMapOf<String, String>()
+        fun fresh(name: String) = names.getOrPut(name) { "$name\$i${nextVar++}" }
+
+        return fn.everywhere { e ->
+            when (e) {
+                is Expr.Lambda -> e.copy(binder = fresh(e.binder))
+                is Expr.Let -> e.copy(binder = fresh(e.binder))
+                is Expr.LocalVar -> e.copy(name = fresh(e.name))
+                else -> e
+            }
+        }
+    }
+
+    /**
+     * An expression that can be removed or evaluated later without changing the program.
+     */
+    private fun isPure(e: Expr): Boolean {
+        if (e is Expr.Lambda) return true
+        if (e !is Expr.App) return isTrivial(e)
+        // partial applications of top-level functions
+        var args = 0
+        var fn: Expr = e
+        while (fn is Expr.App) {
+            if (!isPure(fn.arg)) return false
+            args++
+            fn = fn.fn
+        }
+        return when (fn) {
+            is Expr.Var -> (globals.entries[fn.fullname()]?.pars?.size ?: 0) > args
+            is Expr.Constructor -> fn.arity > args
+            else -> false
+        }
+    }
+
+    companion object {
+        /**
+         * The maximum size of a function to be inlined.
+         */
+        const val MAX_INLINE_SIZE = 20
+
+        /**
+         * How much a declaration can grow by inlining.
+         */
+        const val MAX_INLINE_GROWTH = 200
+
+        /**
+         * How many levels of calls inside inlined functions are also inlined.
+         */
+        const val MAX_INLINE_DEPTH = 4
+
+        /**
+         * Returns this function as an inline candidate if it's small enough,
+         * not recursive, doesn't return early and has no try expression.
+         * @param name the full name of the function
+         */
+        fun candidate(name: String, className: String, exp: Expr, privates: Set<String>): InlineCandidate? {
+            if (exp !is Expr.Lambda) return null
+            var size = 0
+            var ok = true
+            exp.everywherUnit { e ->
+                size++
+                when (e) {
+                    is Expr.Return, is Expr.SetLocalVar, is Expr.TryCatch -> ok = false
+                    is Expr.Var -> if (e.fullname() == name) ok = false
+                    else -> {}
+                }
+            }
+            if (!ok || size > MAX_INLINE_SIZE) return null
+            return InlineCandidate(className, exp, size, usesPrivates(exp, privates))
+        }
+
+        private fun usesPrivates(exp: Expr, privates: Set<String>): Boolean {
+            var uses = false
+            fun check(c: Clazz) {
+                val type = if (c.type.sort == Type.ARRAY) c.type.elementType else c.type
+                if (type.sort == Type.OBJECT && type.internalName in privates) uses = true
+                c.pars.forEach(::check)
+                c.labels?.forEachList(::check)
+            }
+            exp.everywherUnit { e ->
+                check(e.type)
+                when (e) {
+                    is Expr.Var -> if (e.fullname() in privates) uses = true
+                    is Expr.Constructor -> if (e.fullName in privates) uses = true
+                    is Expr.ConstructorTag -> if (e.adtClass in privates) uses = true
+                    else -> {}
+                }
+            }
+            return uses
+        }
+
+        private fun isTrivial(e: Expr): Boolean = when (e) {
+            is Expr.StringE, is Expr.Var, is Expr.LocalVar, is Expr.Constructor, is Expr.Unit, is Expr.Null,
+            is Expr.ClassConstant, is Expr.RegexConstant, is Expr.RecordEmpty -> true
+            // boxing and up casts can't fail
+            is Expr.Cast -> {
+                val from = e.expr.type.type
+                isTrivial(e.expr) && (from.isPrimitive() || from == e.type.type || e.type.type == OBJECT_TYPE)
+            }
+            else -> e.isPrimitive()
+        }
+
+        private fun usedRepeatedly(exp: Expr, name: String): Boolean {
+            var used = false
+            exp.everywherUnit { e ->
+                if ((e is Expr.Lambda || e is Expr.While) && countUses(e, name) > 0) used = true
+            }
+            return used
+        }
+
+        private fun stripCasts(e: Expr): Expr = if (e is Expr.Cast) stripCasts(e.expr) else e
+
+        /**
+         * Makes this expression have type `to`, as expressions moved
+         * out of an inlined function may have a more general type.
+         */
+        private fun coerce(exp: Expr, to: Clazz): Expr = when {
+            exp.type == to || exp is Expr.Throw -> exp
+            // undo a previous coercion
+            exp is Expr.Cast && exp.expr.type.type == to.type -> coerce(exp.expr, to)
+            exp.type.type != to.type -> Expr.Cast(exp, to, exp.span)
+            exp is Expr.Var -> exp.copy(type = to)
+            exp is Expr.LocalVar -> exp.copy(type = to)
+            exp is Expr.Cast -> exp.copy(type = to)
+            else -> Expr.Cast(exp, to, exp.span)
+        }
+
+        /**
+         * Returns false if the body of this lambda has to stay in its own method:
+         * it returns early from the method or has a try expression, which needs an empty stack.
+         */
+        private fun canMoveBody(lambda: Expr.Lambda): Boolean {
+            var can = true
+            lambda.body.everywherUnit { if (it is Expr.Return || it is Expr.TryCatch) can = false }
+            return can
+        }
+
+        private fun countUses(exp: Expr, name: String): Int {
+            var uses = 0
+            exp.everywherUnit { if (it is Expr.LocalVar && it.name == name) uses++ }
+            return uses
+        }
+
+        fun localNames(exp: Expr): Set<String> {
+            val names = mutableSetOf<String>()
+            exp.everywherUnit { if (it is Expr.LocalVar) names += it.name }
+            return names
+        }
+
+        fun setNames(exp: Expr): Set<String> {
+            val names = mutableSetOf<String>()
+            exp.everywherUnit { if (it is Expr.SetLocalVar) names += it.name }
+            return names
+        }
+
+        fun binderNames(exp: Expr): Set<String> {
+            val names = mutableSetOf<String>()
+            exp.everywherUnit { e ->
+                when (e) {
+                    is Expr.Lambda -> names += e.binder
+                    is Expr.Let -> names += e.binder
+                    is Expr.TryCatch -> e.catches.forEach { c -> if (c.binder != null) names += c.binder }
+                    else -> {}
+                }
+            }
+            return names
+        }
+    }
+}
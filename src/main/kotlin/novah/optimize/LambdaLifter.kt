@@ -0,0 +1,172 @@
+/**
+ * Copyright 2022 Islon Scherer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package novah.optimize
+
+import novah.RecFunction
+import novah.ast.optimized.*
+import novah.ast.source.Visibility
+import novah.optimize.Inliner.Companion.binderNames
+import novah.optimize.Inliner.Companion.localNames
+import novah.optimize.Inliner.Companion.setNames
+import novah.optimize.Optimizer.Companion.FUNCTION_TYPE
+
+/**
+ * Lifts local functions that are only ever called with all their arguments
+ * to private top-level functions which take the variables they capture as extra parameters.
+ * Calls to them become direct static calls, so no closure is created.
+ * Ex.: foo x = let f y = x + y in f 1 + f 2 ->
+ *      foo$f$0 x y = x + y
+ *      foo x = foo$f$0(x, 1) + foo$f$0(x, 2)
+ *
+ * Recursive local functions don't need a `RecFunction` anymore after lifting.
+ */
+class LambdaLifter(private val className: String) {
+
+    private val lifted = mutableListOf<Decl.ValDecl>()
+
+    private var declName = ""
+    private var assigned = emptySet<String>()
+
+    fun run(ast: Module): Module {
+        val decls = ArrayList<Decl>(ast.decls.size)
+        for (d in ast.decls) {
+            decls += if (d is Decl.ValDecl) liftDecl(d) else d
+            decls += lifted
+            lifted.clear()
+        }
+        return ast.copy(decls = decls)
+    }
+
+    private fun liftDecl(d: Decl.ValDecl): Decl.ValDecl {
+        declName = d.name
+        assigned = setNames(d.exp)
+        return d.copy(exp = d.exp.everywhere { e -> if (e is Expr.Let) liftLet(e) else e })
+    }
+
+    private fun liftLet(let: Expr.Let): Expr {
+        val rec = recursiveLet(let)
+        if (rec != null) {
+            val (fn, innerLet) = rec
+            return lift(innerLet.binder, fn, innerLet.body, let.type) ?: let
+        }
+        val fn = let.bindExpr as? Expr.Lambda ?: return let
+        return lift(let.binder, fn, let.body, let.type) ?: let
+    }
+
+    /**
+     * Lifts function `fn` bound to `name` if it doesn't escape in `body` or in itself.
+     * Returns the new body or null if the function can't be lifted.
+     */
+    private fun lift(name: String, fn: Expr.Lambda, body: Expr, type: Clazz): Expr? {
+        val lambdas = fn.nestedLambdas()
+        val arity = lambdas.size
+        if (!onlyCalled(name, arity, body) || !onlyCalled(name, arity, fn)) return null
+
+        val bound = binderNames(fn) + name
+        val captured = mutableListOf<Expr.LocalVar>()
+        fn.everywherUnit { e ->
+            if (e is Expr.LocalVar && e.name !in bound && captured.none { it.name == e.name }) captured += e
+        }
+        // captured variables have to hold the same value at the call sites
+        val capNames = captured.map { it.name }.toSet()
+        if (capNames.any { it in assigned } || binderNames(body).any { it in capNames }) return null
+        if (captured.size + arity > MAX_LIFTED_PARS) return null
+
+        val liftedName = "$declName\$$name\$${lifted.size}"
+        val pars = captured.map { it.type } + lambdas.map { it.type.pars[0] }
+        val ret = lambdas.last().type.pars[1]
+        fun replaceCalls(exp: Expr): Expr = exp.everywhere { e ->
+            if (e !is Expr.App) e
+            else {
+                val args = callArgs(e, name, arity)
+                if (args == null) e
+                else Expr.StaticCall(className, liftedName, captured + args, pars, ret, e.type, e.span)
+            }
+        }
+
+        val liftedExp = captured.foldRight(replaceCalls(fn)) { cap, acc ->
+            Expr.Lambda(cap.name, acc, type = Clazz(FUNCTION_TYPE, listOf(cap.type, acc.type)), span = fn.span)
+        }
+        lifted += Decl.ValDecl(liftedName, liftedExp, Visibility.PRIVATE, fn.span, pars.size)
+        val newBody = replaceCalls(body)
+        return if (newBody.type == type) newBody else Expr.Cast(newBody, type, newBody.span)
+    }
+
+    /**
+     * Returns the function and the let which binds it
+     * if this let is a recursive function created by `Optimizer.makeRecursiveLet`.
+     * References to the function inside itself are turned back into local variables.
+     */
+    private fun recursiveLet(let: Expr.Let): Pair<Expr.Lambda, Expr.Let>? {
+        val ctor = let.bindExpr
+        if (ctor !is Expr.NativeCtor || ctor.ctor.declaringClass != RecFunction::class.java) return null
+        val body = let.body as? Expr.Do ?: return null
+        if (body.exps.size != 2) return null
+        val set = body.exps[0] as? Expr.NativeFieldSet ?: return null
+        val innerLet = body.exps[1] as? Expr.Let ?: return null
+        val fn = set.par as? Expr.Lambda ?: return null
+
+        var refs = 0
+        val newFn = fn.everywhere { e ->
+            if (e is Expr.NativeFieldGet && isLocal(e.thisPar, let.binder)) {
+                refs++
+                Expr.LocalVar(innerLet.binder, e.type, e.span)
+            } else e
+        }
+        // the function has to be used only through the field
+        if (refs != countUses(fn, let.binder) || countUses(innerLet.body, let.binder) > 0) return null
+        return newFn as Expr.Lambda to innerLet
+    }
+
+    /**
+     * Returns the arguments if this is a call of `name` with exactly `arity` arguments.
+     */
+    private fun callArgs(app: Expr.App, name: String, arity: Int): List<Expr>? {
+        val args = mutableListOf<Expr>()
+        var exp: Expr = app
+        while (exp is Expr.App) {
+            args += exp.arg
+            exp = exp.fn
+        }
+        if (!isLocal(exp, name) || args.size != arity) return null
+        return args.reversed()
+    }
+
+    /**
+     * Returns true if every use of `name` in `exp` is a call with all arguments.
+     */
+    private fun onlyCalled(name: String, arity: Int, exp: Expr): Boolean {
+        if (name !in localNames(exp)) return true
+        var calls = 0
+        exp.everywherUnit { e -> if (e is Expr.App && callArgs(e, name, arity) != null) calls++ }
+        return calls == countUses(exp, name)
+    }
+
+    companion object {
+        /**
+         * Local functions that would need more parameters than this are not lifted.
+         */
+        const val MAX_LIFTED_PARS = 16
+
+        private fun isLocal(e: Expr, name: String) = e is Expr.LocalVar && e.name == name
+
+        private fun countUses(exp: Expr, name: String): Int {
+            var uses = 0
+            exp.everywherUnit { if (isLocal(it, name)) uses++ }
+            return uses
+        }
+    }
+}
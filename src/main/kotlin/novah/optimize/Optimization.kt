@@ -17,19 +17,214 @@ package novah.optimize
 
 import novah.Core
 import novah.ast.optimized.*
+import novah.ast.source.Visibility
 import novah.backend.TypeUtil.isPrimitive
+import novah.data.allList
+import novah.data.merge
 import novah.optimize.Optimizer.Companion.ARRAY_TYPE
+import novah.optimize.Optimizer.Companion.FUNCTION_TYPE
 import novah.optimize.Optimizer.Companion.OBJECT_TYPE
+import novah.optimize.Optimizer.Companion.UNIT_TYPE
 import novah.range.*
 import novah.range.CharRange
 import novah.range.IntRange
 import novah.range.LongRange
+import org.objectweb.asm.Type
 import java.lang.reflect.Method
+import io.lacuna.bifurcan.List as PList
+import io.lacuna.bifurcan.Set as PSet
+
+/**
+ * The signature of the uncurried static method of a top-level function.
+ */
+data class StaticEntry(val className: String, val name: String, val pars: List<Clazz>, val ret: Clazz)
+
+/**
+ * One step from a type class instance to one of its fields.
+ */
+sealed class Projection {
+    data class Field(val ctor: String, val field: Int) : Projection()
+    data class Label(val label: String) : Projection()
+}
+
+/**
+ * What the optimizer knows about the top-level declarations of all modules being compiled.
+ *
+ * @param entries the uncurried static methods keyed by the function's full name
+ * @param instances the type class instances which are constant constructor applications
+ * @param methods the type class methods, like `(+)`, and how they project their instance
+ * @param privates the full names of all non-public declarations, types and constructors
+ * @param inlines the functions small enough to be inlined
+ */
+class Globals(
+    val entries: Map<String, StaticEntry>,
+    val instances: Map<String, Expr>,
+    val methods: Map<String, List<Projection>>,
+    val privates: Set<String>,
+    val inlines: Map<String, InlineCandidate> = emptyMap()
+) {
+
+    /**
+     * What is known about the declarations of this module only.
+     * @param module the internal name of the module, like `novah/list`
+     */
+    fun ofModule(module: String): Globals {
+        fun inModule(name: String) = name.substringBeforeLast('/') == module
+        return Globals(
+            entries.filterKeys(::inModule),
+            instances.filterKeys(::inModule),
+            methods.filterKeys(::inModule),
+            privates.filter(::inModule).toSet(),
+            inlines.filterKeys(::inModule)
+        )
+    }
+
+    operator fun plus(other: Globals) = Globals(
+        entries + other.entries,
+        instances + other.instances,
+        methods + other.methods,
+        privates + other.privates,
+        inlines + other.inlines
+    )
+
+    companion object {
+        val EMPTY = Globals(emptyMap(), emptyMap(), emptyMap(), emptySet())
+    }
+}
 
 object Optimization {
 
-    fun run(ast: Module): Module {
-        return optimize(ast, comp(::optimizeCtorApplication, ::optimizeFunctionAndOperatorApplication))
+    fun run(ast: Module, globals: Globals): Module {
+        val className = "${ast.name}/\$Module"
+        val inliner = Inliner(globals, className)
+        val opt = optimize(
+            ast,
+            comp(
+                preInline(globals, className),
+                inliner::run,
+                optimizeStaticCalls(globals.entries)
+            )
+        )
+        // inlined functions and fused folds may create lambdas
+        val inlined = if (!opt.hasLambda && (inliner.inlined || hasLambda(opt))) opt.copy(hasLambda = true) else opt
+        return if (inlined.hasLambda) LambdaLifter(className).run(inlined) else inlined
+    }
+
+    /**
+     * The optimizations that run before inlining.
+     * Inlined functions already went through them.
+     */
+    private fun preInline(globals: Globals, className: String): (Expr) -> Expr = comp(
+        ::optimizeCtorApplication,
+        ::optimizeFunctionAndOperatorApplication,
+        fuseCollectionPipelines(globals),
+        ::batchPersistentUpdates,
+        ::fuseComprehensions,
+        specializeInstances(globals, className)
+    )
+
+    /**
+     * @param known what is known about the modules that are not generated again
+     */
+    fun collectGlobals(mods: List<Module>, known: Globals = Globals.EMPTY): Globals {
+        val instances = mutableMapOf<String, Expr>()
+        val methods = mutableMapOf<String, List<Projection>>()
+        val privates = mutableSetOf<String>()
+        for (mod in mods) {
+            val className = "${mod.name}/\$Module"
+            for (d in mod.decls) {
+                if (d !is Decl.ValDecl) continue
+                val name = "$className.${d.name}"
+                if (d.visibility != Visibility.PUBLIC) privates += name
+                if (d.isInstance && (d.exp is Expr.ShapeNew || ctorArgs(d.exp) != null)) instances[name] = d.exp
+                val path = classMethod(d.exp)
+                if (path != null) methods[name] = path
+            }
+            for (d in mod.decls) {
+                if (d !is Decl.TypeDecl) continue
+                if (d.visibility != Visibility.PUBLIC) privates += "${mod.name}/${d.name}"
+                for (ctor in d.dataCtors) {
+                    if (ctor.visibility != Visibility.PUBLIC) privates += "${mod.name}/${ctor.name}"
+                }
+            }
+        }
+        val globals = known + Globals(collectStaticEntries(mods), instances, methods, privates)
+
+        // type class methods and instances are specialized instead
+        val inlines = mutableMapOf<String, InlineCandidate>()
+        for (mod in mods) {
+            val className = "${mod.name}/\$Module"
+            val pre = preInline(globals, className)
+            for (d in mod.decls) {
+                if (d !is Decl.ValDecl || d.isInstance) continue
+                val name = "$className.${d.name}"
+                if (name in methods) continue
+                val cand = Inliner.candidate(name, className, pre(d.exp), privates)
+                if (cand != null) inlines[name] = cand
+            }
+        }
+        return Globals(globals.entries, globals.instances, globals.methods, globals.privates, known.inlines + inlines)
+    }
+
+    /**
+     * Collects the uncurried static methods of every function in these modules,
+     * keyed by the function's full name.
+     */
+    fun collectStaticEntries(mods: List<Module>): Map<String, StaticEntry> {
+        val entries = mutableMapOf<String, StaticEntry>()
+        for (mod in mods) {
+            val className = "${mod.name}/\$Module"
+            for (d in mod.decls) {
+                if (d !is Decl.ValDecl || d.arity == 0) continue
+                val lambdas = d.exp.nestedLambdas().take(d.arity)
+                val pars = lambdas.map { it.type.pars[0] }
+                entries["$className.${d.name}"] = StaticEntry(className, d.name, pars, lambdas.last().type.pars[1])
+            }
+        }
+        return entries
+    }
+
+    /**
+     * Lifts the fields of constant instances to top-level values
+     * so calls to them can be specialized to static calls.
+     * Ex.: plusFoo = Plus { plus: \x y -> ... } ->
+     *      plusFoo$plus = \x y -> ...
+     *      plusFoo = Plus { plus: plusFoo$plus }
+     */
+    fun liftInstanceFields(ast: Module): Module {
+        val className = "${ast.name}/\$Module"
+        val decls = ArrayList<Decl>(ast.decls.size)
+        for (d in ast.decls) {
+            if (d !is Decl.ValDecl || !d.isInstance) {
+                decls += d
+                continue
+            }
+            fun lift(exp: Expr, field: String): Expr {
+                if (exp is Var || exp.isPrimitive() || exp is Expr.StringE || exp is Expr.RecordExtend) return exp
+                val name = "${d.name}\$$field"
+                val arity = exp.nestedLambdas().size.let { if (it >= Optimizer.MIN_UNCURRIED_ARITY) it else 0 }
+                decls += Decl.ValDecl(name, exp, d.visibility, exp.span, arity)
+                return Var(name, className, exp.type, exp.span)
+            }
+
+            fun liftRecord(rec: Expr.ShapeNew): Expr =
+                rec.copy(values = rec.values.mapIndexed { i, v -> lift(v, rec.shape.labels[i]) })
+
+            val ctorArgs = ctorArgs(d.exp)
+            decls += when {
+                // instances of erased types are the record itself
+                d.exp is Expr.ShapeNew -> d.copy(exp = liftRecord(d.exp))
+                ctorArgs != null -> {
+                    val (ctor, args) = ctorArgs
+                    val newArgs = args.mapIndexed { i, arg ->
+                        if (arg is Expr.ShapeNew) liftRecord(arg) else lift(arg, "v${i + 1}")
+                    }
+                    d.copy(exp = Expr.CtorApp(ctor, newArgs, d.exp.type, d.exp.span))
+                }
+                else -> d
+            }
+        }
+        return ast.copy(decls = decls)
     }
 
     private fun optimize(ast: Module, f: (Expr) -> Expr): Module {
@@ -37,7 +232,7 @@ object Optimization {
         for (d in ast.decls) {
             decls += when (d) {
                 is Decl.TypeDecl -> d
-                is Decl.ValDecl -> Decl.ValDecl(d.name, f(d.exp), d.visibility, d.span)
+                is Decl.ValDecl -> d.copy(exp = f(d.exp))
             }
         }
         return Module(ast.name, ast.sourceName, ast.hasLambda, decls)
@@ -77,6 +272,7 @@ object Optimization {
     private const val gtEq = "\$greater\$equals"
     private const val lt = "\$smaller"
     private const val ltEq = "\$smaller\$equals"
+    private const val plusPlus = "\$plus\$plus"
     private const val dotDot = "\$dot\$dot"
     private const val dotDotDot = "\$dot\$dot\$dot"
 
@@ -96,6 +292,7 @@ object Optimization {
      * Ex.: ((&& ((&& true) a)) y) -> (&& true a y)
      */
     private fun optimizeFunctionAndOperatorApplication(expr: Expr): Expr {
+        var loops = 0
         return expr.everywhere { e ->
             if (e !is App) e
             else {
@@ -129,10 +326,21 @@ object Optimization {
                         if (from.type == to.type || to.type == OBJECT_TYPE) arg
                         else Expr.Cast(arg, to, e.span)
                     }
-                    // optimize `format "..." [...]` to `String.format "..." <literal-array>` 
+                    // optimize `++` for strings
+                    fn is App && fn.fn is App && fn.fn.fn is Var && fn.fn.fn.fullname() == "$coreMod.$plusPlus"
+                            && fn.fn.arg is Var && fn.fn.arg.fullname() == "$coreMod.concatString" -> {
+                        concatStrings(fn.arg, arg, e)
+                    }
+                    // optimize `format "..." [...]` to a string concatenation if
+                    // the format only has `%s`, or to `String.format "..." <literal-array>`
                     fn is App && fn.fn is Var && fn.fn.fullname() == "$coreMod.format" && arg is Expr.ListLiteral -> {
-                        val arr = Expr.ArrayLiteral(arg.exps, Clazz(ARRAY_TYPE, arg.type.pars), e.span)
-                        Expr.NativeStaticMethod(stringFormat, listOf(fn.arg, arr), e.type, e.span)
+                        val fmt = fn.arg
+                        val parts = if (fmt is Expr.StringE) formatParts(fmt, arg.exps) else null
+                        if (parts != null) mkConcat(parts, e)
+                        else {
+                            val arr = Expr.ArrayLiteral(arg.exps, Clazz(ARRAY_TYPE, arg.type.pars), e.span)
+                            Expr.NativeStaticMethod(stringFormat, listOf(fn.arg, arr), e.type, e.span)
+                        }
                     }
                     // optimize fully applied numeric operators like +, -, etc
                     fn is App && fn.fn is App && fn.fn.fn is Var && fn.fn.fn.className == coreMod
@@ -225,7 +433,8 @@ object Optimization {
                     }
                     // optimize `forEachRange`
                     fn is App && fn.fn is Var && fn.fn.fullname() == "$coreMod.forEachRange" -> {
-                        Expr.NativeMethod(forEachRange, fn.arg, listOf(arg), e.type, e.span)
+                        countedLoop(fn.arg, arg, e, loops++)
+                            ?: Expr.NativeMethod(forEachRange, fn.arg, listOf(arg), e.type, e.span)
                     }
                     // optimize `..` and '...'
                     fn is App && fn.fn is App && fn.fn.fn is Var && fn.fn.fn.fullname() == "$coreMod.$dotDot" -> {
@@ -262,6 +471,703 @@ object Optimization {
         }
     }
 
+    private const val listMod = "novah/list/\$Module"
+    private const val setMod = "novah/set/\$Module"
+    private const val mapMod = "novah/map/\$Module"
+    private const val compMod = "novah/computation/\$Module"
+    private const val linkedListMod = "novah/linkedList"
+
+    /**
+     * Fuse saturated chains of `map`, `filter` and `foldl` of lists and sets
+     * into a single traversal that doesn't build intermediate collections.
+     * Ex.: (filter p (map f xs)) -> fuseList("fm", [p, f], xs)
+     *      (foldl g z (map f xs)) -> fuseFoldList("m", \acc x -> g acc x, z, [f], xs)
+     * Functions are kept in evaluation order, outermost first.
+     * Fused stages run interleaved, so only pipelines of pure stages are fused.
+     * Maps of sets are never folded as they may remove duplicated elements.
+     */
+    private fun fuseCollectionPipelines(globals: Globals): (Expr) -> Expr = { expr ->
+        var ids = 0
+        expr.everywhere { e ->
+            if (e !is App) e
+            else {
+                val args = mutableListOf<Expr>()
+                var fn: Expr = e
+                while (fn is App) {
+                    args += fn.arg
+                    fn = fn.fn
+                }
+                args.reverse()
+                val isList = fn is Var && fn.className == listMod
+                val inner = if (fn is Var && (isList || fn.className == setMod)) pipeline(args.last(), isList) else null
+                val name = (fn as? Var)?.name
+                when {
+                    inner == null || inner.fns.any { !isPureFunction(it, globals) } -> e
+                    (name == "map" || name == "filter") && args.size == 2 -> {
+                        if (!isPureFunction(args[0], globals)) return@everywhere e
+                        val stage = if (name == "map") "m" else "f"
+                        val fns = fnArray(listOf(stageFn(args[0])) + inner.fns, e)
+                        val method = if (isList) fuseList else fuseSet
+                        val pars = listOf(stagesExp(stage + inner.stages, e), fns, castTo(inner.source, method, 2))
+                        Expr.NativeStaticMethod(method, pars, e.type, e.span)
+                    }
+                    name == "foldl" && args.size == 3 && (isList || 'm' !in inner.stages) -> {
+                        val method = if (isList) fuseFoldList else fuseFoldSet
+                        val id = ids++
+                        val g = args[0]
+                        // the folding function is evaluated once, before the other arguments
+                        val bound = if (isCheapFn(g)) null else Expr.LocalVar("fold\$fn\$$id", g.type, g.span)
+                        val f = castTo(uncurriedFold(bound ?: g, id), method, 1)
+                        val source = castTo(inner.source, method, 4)
+                        val pars = listOf(stagesExp(inner.stages, e), f, args[1], fnArray(inner.fns, e), source)
+                        val fused = Expr.NativeStaticMethod(method, pars, e.type, e.span)
+                        if (bound == null) fused else Expr.Let(bound.name, g, fused, e.type, e.span)
+                    }
+                    else -> e
+                }
+            }
+        }
+    }
+
+    private class Pipeline(val stages: String, val fns: List<Expr>, val source: Expr)
+
+    private fun isCheapFn(fn: Expr): Boolean = when (fn) {
+        is Expr.Lambda, is Var, is Expr.LocalVar -> true
+        else -> false
+    }
+
+    /**
+     * Wraps a curried folding function in a two argument lambda,
+     * so the fold calls it through the multi-arity interface with all arguments at once.
+     */
+    private fun uncurriedFold(fn: Expr, id: Int): Expr {
+        val obj = Clazz(OBJECT_TYPE)
+        val span = fn.span
+        val (accType, inner) = fn.type.pars
+        val (elemType, ret) = inner.pars
+        fun coerce(e: Expr, to: Clazz) = if (e.type.type == to.type) e else Expr.Cast(e, to, span)
+
+        val acc = Expr.LocalVar("fold\$acc\$$id", obj, span)
+        val elem = Expr.LocalVar("fold\$elem\$$id", obj, span)
+        val app = App(App(fn, coerce(acc, accType), inner, span), coerce(elem, elemType), ret, span)
+        val innerType = Clazz(FUNCTION_TYPE, listOf(obj, obj))
+        val lambda = Expr.Lambda(elem.name, coerce(app, obj), type = innerType, span = span)
+        return Expr.Lambda(acc.name, lambda, type = Clazz(FUNCTION_TYPE, listOf(obj, innerType)), span = span)
+    }
+
+    /**
+     * Returns true if applying this stage function has no effects and can't fail,
+     * so it can run interleaved with the other stages of a pipeline.
+     * Small top-level functions are checked through their inlining candidates.
+     */
+    private fun isPureFunction(fn: Expr, globals: Globals, depth: Int = 0): Boolean {
+        val f = stripCasts(fn)
+        if (f is Expr.Lambda) return isPureExp(f.body, globals, depth)
+        if (f is Expr.Constructor) return true
+        val args = mutableListOf<Expr>()
+        var head = f
+        while (head is App) {
+            args += head.arg
+            head = head.fn
+        }
+        if (head !is Var || depth >= Inliner.MAX_INLINE_DEPTH) return false
+        val lambdas = globals.inlines[head.fullname()]?.fn?.nestedLambdas() ?: return false
+        // the lambda that receives the element
+        val lambda = lambdas.getOrNull(args.size) ?: return false
+        return args.all { isPureExp(it, globals, depth) } && isPureExp(lambda.body, globals, depth + 1)
+    }
+
+    private fun isPureExp(e: Expr, globals: Globals, depth: Int): Boolean {
+        fun pure(ex: Expr) = isPureExp(ex, globals, depth)
+        return when (e) {
+            is Expr.StringE, is Expr.LocalVar, is Expr.Constructor, is Expr.Lambda, is Expr.Unit, is Expr.Null,
+            is Expr.RecordEmpty, is Expr.ClassConstant, is Expr.RegexConstant -> true
+            // reading a top-level value may initialize it
+            is Var -> e.type.isFunction()
+            // integer division can fail
+            is Expr.OperatorApp -> (e.name != "/" || e.type.type.sort in floatSorts) && e.operands.all(::pure)
+            is Expr.If -> e.conds.all { (c, t) -> pure(c) && pure(t) } && pure(e.elseCase)
+            is Expr.Switch -> pure(e.exp) && e.cases.all { pure(it.second) } && pure(e.default)
+            is Expr.StringSwitch -> pure(e.exp) && e.cases.all { pure(it.second) } && pure(e.default)
+            is Expr.Let -> pure(e.bindExpr) && pure(e.body)
+            is Expr.Do -> e.exps.all(::pure)
+            is Expr.CtorApp -> e.args.all(::pure)
+            is Expr.ConstructorAccess -> pure(e.ctor)
+            is Expr.ConstructorTag -> pure(e.exp)
+            is Expr.InstanceOf -> pure(e.exp)
+            is Expr.RecordSelect -> pure(e.expr)
+            is Expr.RecordExtend -> pure(e.expr) && e.labels.allList(::pure)
+            is Expr.RecordRestrict -> pure(e.expr)
+            is Expr.RecordUpdate ->
+                pure(e.expr) && pure(e.value) && (e.isSet || isPureFunction(e.value, globals, depth + 1))
+            is Expr.RecordMerge -> pure(e.exp1) && pure(e.exp2)
+            is Expr.ShapeNew -> e.values.all(::pure)
+            is Expr.StringConcat -> e.parts.all(::pure)
+            is Expr.ListLiteral -> e.exps.all(::pure)
+            is Expr.SetLiteral -> e.exps.all(::pure)
+            is Expr.Unbox -> pure(e.exp)
+            // boxing and up casts can't fail
+            is Expr.Cast -> {
+                val from = e.expr.type.type
+                pure(e.expr) && (from.isPrimitive() || from == e.type.type || e.type.type == OBJECT_TYPE)
+            }
+            // a saturated call of a pure function or a partial application
+            is App -> {
+                val lambdas = appHeadLambdas(e, globals)
+                var args = 0
+                var app: Expr = e
+                while (app is App) {
+                    if (!pure(app.arg)) return false
+                    args++
+                    app = app.fn
+                }
+                when {
+                    app is Expr.Constructor -> true
+                    lambdas == null || depth >= Inliner.MAX_INLINE_DEPTH -> false
+                    args < lambdas.size -> true
+                    args == lambdas.size -> isPureExp(lambdas.last().body, globals, depth + 1)
+                    else -> false
+                }
+            }
+            else -> e.isPrimitive()
+        }
+    }
+
+    private fun appHeadLambdas(e: App, globals: Globals): List<Expr.Lambda>? {
+        var head: Expr = e
+        while (head is App) head = head.fn
+        return if (head is Var) globals.inlines[head.fullname()]?.fn?.nestedLambdas() else null
+    }
+
+    private val floatSorts = setOf(Type.FLOAT, Type.DOUBLE)
+
+    private fun hasLambda(ast: Module): Boolean {
+        var has = false
+        for (d in ast.decls) {
+            if (d is Decl.ValDecl) d.exp.everywherUnit { if (it is Expr.Lambda) has = true }
+        }
+        return has
+    }
+
+    /**
+     * Returns the stages of this expression if it's a saturated `map` or `filter`
+     * or an already fused pipeline.
+     */
+    private fun pipeline(exp: Expr, isList: Boolean): Pipeline? {
+        if (exp is Expr.NativeStaticMethod && exp.method == (if (isList) fuseList else fuseSet)) {
+            val stages = exp.pars[0] as Expr.StringE
+            val fns = exp.pars[1] as Expr.ArrayLiteral
+            return Pipeline(stages.v, fns.exps, exp.pars[2])
+        }
+        if (exp !is App || exp.fn !is App) return null
+        val fn = exp.fn.fn
+        if (fn !is Var || fn.className != (if (isList) listMod else setMod)) return null
+        val stage = when (fn.name) {
+            "map" -> "m"
+            "filter" -> "f"
+            else -> return null
+        }
+        return Pipeline(stage, listOf(stageFn(exp.fn.arg)), exp.arg)
+    }
+
+    private fun stageFn(fn: Expr): Expr =
+        if (fn.type.type == OBJECT_TYPE) fn else Expr.Cast(fn, Clazz(OBJECT_TYPE), fn.span)
+
+    /**
+     * Makes sure this expression has the type of the `i`th parameter of the method.
+     */
+    private fun castTo(exp: Expr, method: Method, i: Int): Expr {
+        val type = Type.getType(method.parameterTypes[i])
+        return if (exp.type.type == type) exp else Expr.Cast(exp, Clazz(type), exp.span)
+    }
+
+    private fun stagesExp(stages: String, e: Expr): Expr =
+        Expr.StringE(stages, Clazz(Type.getType(String::class.java)), e.span)
+
+    private fun fnArray(fns: List<Expr>, e: Expr): Expr =
+        Expr.ArrayLiteral(fns, Clazz(ARRAY_TYPE, listOf(Clazz(OBJECT_TYPE))), e.span)
+
+    /**
+     * Runs saturated chains of updates to maps, sets and lists on a single
+     * linear collection, as the intermediate collections can't be observed.
+     * Nested record extensions are merged into one.
+     * Ex.: (put k2 v2 (put k1 v1 m)) -> batchMap("pp", [k2, v2, k1, v1], m)
+     *      { a: 1 | { b: 2 | r } } -> { a: 1, b: 2 | r }
+     * Updates are kept in evaluation order, outermost first.
+     */
+    private fun batchPersistentUpdates(expr: Expr): Expr {
+        return expr.everywhere { e ->
+            when (e) {
+                is App -> {
+                    val upd = update(e)
+                    val inner = if (upd != null) updates(upd.source, upd.method) else null
+                    if (upd == null || inner == null) e
+                    else {
+                        val method = upd.method
+                        val args = fnArray((upd.args + inner.args).map(::stageFn), e)
+                        val pars = listOf(stagesExp(upd.ops + inner.ops, e), args, castTo(inner.source, method, 2))
+                        Expr.NativeStaticMethod(method, pars, e.type, e.span)
+                    }
+                }
+                is Expr.RecordExtend -> {
+                    val inner = e.expr
+                    // labels are evaluated in order, so only merge if the order doesn't matter
+                    if (inner !is Expr.RecordExtend || !(e.labels.allList(::isTrivial) || inner.labels.allList(::isTrivial))) e
+                    else e.copy(labels = e.labels.merge(inner.labels), expr = inner.expr)
+                }
+                else -> e
+            }
+        }
+    }
+
+    private class Updates(val method: Method, val ops: String, val args: List<Expr>, val source: Expr)
+
+    /**
+     * Returns the updates of this expression if it's a saturated update
+     * of a map, set or list or an already batched chain of updates.
+     */
+    private fun updates(exp: Expr, method: Method): Updates? {
+        if (exp is Expr.NativeStaticMethod && exp.method == method) {
+            val ops = exp.pars[0] as Expr.StringE
+            val args = exp.pars[1] as Expr.ArrayLiteral
+            return Updates(method, ops.v, args.exps, exp.pars[2])
+        }
+        return update(exp)?.takeIf { it.method == method }
+    }
+
+    private fun update(exp: Expr): Updates? {
+        val args = mutableListOf<Expr>()
+        var fn: Expr = exp
+        while (fn is App) {
+            args += fn.arg
+            fn = fn.fn
+        }
+        if (fn !is Var) return null
+        args.reverse()
+        val (method, op) = when ("${fn.className}.${fn.name}" to args.size) {
+            "$mapMod.put" to 3 -> batchMap to "p"
+            "$mapMod.remove" to 2 -> batchMap to "r"
+            "$setMod.add" to 2 -> batchSet to "a"
+            "$setMod.remove" to 2 -> batchSet to "r"
+            "$coreMod.addFirst" to 2, "$listMod.push" to 2 -> batchList to "f"
+            "$coreMod.addLast" to 2 -> batchList to "l"
+            else -> return null
+        }
+        return Updates(method, op, args.dropLast(1), args.last())
+    }
+
+    private fun isTrivial(e: Expr): Boolean = when (e) {
+        is Expr.StringE, is Var, is Expr.LocalVar, is Expr.Constructor, is Expr.Lambda, is Expr.Null,
+        is Expr.Unit -> true
+        is Expr.Cast -> isTrivial(e.expr)
+        else -> e.isPrimitive()
+    }
+
+    private enum class Builder { LIST, SET, LINKED_LIST }
+
+    /**
+     * Turns `do.list`, `do.set` and `do.linkedList` comprehensions into nested loops
+     * that add every yielded element to a single linear collection,
+     * instead of creating a collection for every element and concatenating them.
+     * Ex.: do.list { for x in xs do yield f x } ->
+     *      let acc = []#linear() in
+     *      { for x in xs do acc = acc#addLast(f x); acc#forked() }
+     * Inner comprehensions are fused first and then spliced into the outer ones.
+     * Linked lists are built backwards and reversed at the end.
+     */
+    private fun fuseComprehensions(expr: Expr): Expr {
+        var ids = 0
+        val fused = mutableMapOf<String, Builder>()
+
+        return expr.everywhere { e ->
+            val op = if (e is App) builderOp(e) else null
+            if (op == null || (op.second != "for" && op.second != "combine")) e
+            else {
+                val id = ids++
+                val acc = Expr.LocalVar("acc\$comp$id", e.type, e.span)
+                val stmt = ComprehensionFuser(op.first, acc, fused) { ids++ }.statement(e)
+                if (stmt == null) e
+                else {
+                    fused[acc.name] = op.first
+                    val done = when (op.first) {
+                        Builder.LIST -> Expr.NativeMethod(listForked, acc, emptyList(), e.type, e.span)
+                        Builder.SET -> Expr.NativeMethod(setForked, acc, emptyList(), e.type, e.span)
+                        Builder.LINKED_LIST -> {
+                            val reverse = Var("reverse", "$linkedListMod/\$Module", Clazz(FUNCTION_TYPE, listOf(e.type, e.type)), e.span)
+                            App(reverse, acc, e.type, e.span)
+                        }
+                    }
+                    val init = when (op.first) {
+                        Builder.LIST ->
+                            Expr.NativeMethod(listLinear, Expr.ListLiteral(emptyList(), e.type, e.span), emptyList(), e.type, e.span)
+                        Builder.SET ->
+                            Expr.NativeMethod(setLinear, Expr.SetLiteral(emptyList(), e.type, e.span), emptyList(), e.type, e.span)
+                        Builder.LINKED_LIST -> Expr.Constructor("$linkedListMod/Nil", 0, e.type, e.span)
+                    }
+                    Expr.Let(acc.name, init, Expr.Do(listOf(stmt, done), e.type, e.span), e.type, e.span)
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the builder and the operation if this is an operation of a fusable builder.
+     * Ex.: (list.for xs) -> (LIST, "for")
+     */
+    private fun builderOp(exp: Expr): Pair<Builder, String>? {
+        var fn = stripCasts(exp)
+        while (fn is App) fn = stripCasts(fn.fn)
+        if (fn !is Expr.RecordSelect) return null
+        val builder = stripCasts(fn.expr)
+        if (builder !is Var || builder.className != compMod) return null
+        return when (builder.name) {
+            "list" -> Builder.LIST
+            "set" -> Builder.SET
+            "linkedList" -> Builder.LINKED_LIST
+            else -> return null
+        } to fn.label
+    }
+
+    /**
+     * Converts the body of a comprehension into statements that add to `acc`.
+     */
+    private class ComprehensionFuser(
+        val builder: Builder,
+        val acc: Expr.LocalVar,
+        val fused: Map<String, Builder>,
+        val nextId: () -> Int
+    ) {
+        private val unit = Clazz(UNIT_TYPE)
+
+        /**
+         * Returns null if some part of the expression can't be fused.
+         */
+        fun statement(e: Expr): Expr? {
+            val exp = stripCasts(e)
+            val span = exp.span
+            // an already fused inner comprehension
+            if (exp is Expr.Let && fused[exp.binder] == builder) {
+                val stmt = (exp.body as Expr.Do).exps[0]
+                return stmt.everywhere { ex ->
+                    when {
+                        ex is Expr.LocalVar && ex.name == exp.binder -> acc
+                        ex is Expr.SetLocalVar && ex.name == exp.binder -> ex.copy(name = acc.name)
+                        else -> ex
+                    }
+                }
+            }
+            if (exp is App) {
+                val (b, label) = builderOp(exp) ?: return null
+                if (b != builder) return null
+                val fn = stripCasts(exp.fn)
+                return when {
+                    label == "yield" && fn is Expr.RecordSelect -> add(exp.arg)
+                    label == "combine" && fn is App && stripCasts(fn.fn) is Expr.RecordSelect -> {
+                        val first = statement(fn.arg) ?: return null
+                        val second = statement(exp.arg) ?: return null
+                        Expr.Do(listOf(first, second), unit, span)
+                    }
+                    label == "for" && fn is App && stripCasts(fn.fn) is Expr.RecordSelect -> loop(fn.arg, exp.arg)
+                    else -> null
+                }
+            }
+            return when (exp) {
+                is Expr.RecordSelect -> {
+                    val (b, label) = builderOp(exp) ?: return null
+                    if (b == builder && label == "zero") Expr.Unit(unit, span) else null
+                }
+                is Expr.If -> {
+                    val conds = exp.conds.map { (c, t) -> c to (statement(t) ?: return null) }
+                    Expr.If(conds, statement(exp.elseCase) ?: return null, unit, span)
+                }
+                is Expr.Switch -> {
+                    val cases = exp.cases.map { (k, c) -> k to (statement(c) ?: return null) }
+                    exp.copy(cases = cases, default = statement(exp.default) ?: return null, type = unit)
+                }
+                is Expr.Let -> exp.copy(body = statement(exp.body) ?: return null, type = unit)
+                is Expr.Do -> {
+                    val last = statement(exp.exps.last()) ?: return null
+                    Expr.Do(exp.exps.dropLast(1) + last, unit, span)
+                }
+                is Expr.Throw -> exp
+                else -> null
+            }
+        }
+
+        private fun add(elem: Expr): Expr {
+            val span = elem.span
+            val added = when (builder) {
+                Builder.LIST -> Expr.NativeMethod(listAddLast, acc, listOf(elem), acc.type, span)
+                Builder.SET -> Expr.NativeMethod(setAdd, acc, listOf(elem), acc.type, span)
+                Builder.LINKED_LIST -> {
+                    val cons = Expr.Constructor("$linkedListMod/Cons", 2, Clazz(FUNCTION_TYPE), span)
+                    Expr.CtorApp(cons, listOf(elem, acc), acc.type, span)
+                }
+            }
+            return Expr.Do(listOf(Expr.SetLocalVar(acc.name, added, unit)), unit, span)
+        }
+
+        /**
+         * Loops over the elements of `src`, running the body of `fn` for each.
+         */
+        private fun loop(src: Expr, function: Expr): Expr? {
+            val fn = stripCasts(function)
+            if (fn !is Expr.Lambda || !canMoveBody(fn)) return null
+            val srcType = src.type.type
+            val listLike = srcType == LIST_TYPE || srcType == SET_TYPE
+            if (if (builder == Builder.LINKED_LIST) srcType != LINKED_LIST_TYPE else !listLike) return null
+            val body = statement(fn.body) ?: return null
+
+            val id = nextId()
+            val span = src.span
+            val obj = Clazz(OBJECT_TYPE)
+            val srcVar = Expr.LocalVar("src\$comp$id", src.type, span)
+            fun elem(exp: Expr): Expr {
+                val par = fn.type.pars[0]
+                return if (par.type == OBJECT_TYPE) exp else Expr.Cast(exp, par, span)
+            }
+            fun bodyWith(elem: Expr, next: Expr.SetLocalVar): Expr =
+                Expr.Do(listOf(Expr.Let(fn.binder, elem(elem), body, unit, span), next), unit, span)
+
+            if (builder == Builder.LINKED_LIST) {
+                val consType = Clazz(Type.getObjectType("$linkedListMod/Cons"))
+                val cons = Expr.Cast(srcVar, consType, span)
+                val head = Expr.ConstructorAccess("$linkedListMod/Cons", 1, cons, obj, span)
+                val tail = Expr.ConstructorAccess("$linkedListMod/Cons", 2, cons, Clazz(LINKED_LIST_TYPE), span)
+                val next = Expr.SetLocalVar(srcVar.name, tail, unit)
+                val loop = Expr.While(Expr.InstanceOf(srcVar, consType, span), listOf(bodyWith(head, next)), unit, span)
+                return Expr.Let(srcVar.name, src, loop, unit, span)
+            }
+            val long = Clazz(Type.LONG_TYPE)
+            val idx = Expr.LocalVar("idx\$comp$id", long, span)
+            val size = Expr.LocalVar("size\$comp$id", long, span)
+            val isList = srcType == LIST_TYPE
+            val nth = Expr.NativeMethod(if (isList) listNth else setNth, srcVar, listOf(idx), obj, span)
+            val inc = Expr.OperatorApp("+", listOf(idx, Expr.Int64(1, long, span)), long, span)
+            val cond = Expr.OperatorApp("<", listOf(idx, size), Clazz(Type.BOOLEAN_TYPE), span)
+            val loop = Expr.While(cond, listOf(bodyWith(nth, Expr.SetLocalVar(idx.name, inc, unit))), unit, span)
+            val getSize = Expr.NativeMethod(if (isList) listSizeOf else setSizeOf, srcVar, emptyList(), long, span)
+            val withIdx = Expr.Let(idx.name, Expr.Int64(0, long, span), loop, unit, span)
+            return Expr.Let(srcVar.name, src, Expr.Let(size.name, getSize, withIdx, unit, span), unit, span)
+        }
+
+        /**
+         * The body of this lambda can only be moved out of its own method if it doesn't
+         * return early from it or has a try expression, which needs an empty stack.
+         */
+        private fun canMoveBody(lambda: Expr.Lambda): Boolean {
+            var can = true
+            lambda.body.everywherUnit { if (it is Expr.Return || it is Expr.TryCatch) can = false }
+            return can
+        }
+    }
+
+    private fun stripCasts(e: Expr): Expr = if (e is Expr.Cast) stripCasts(e.expr) else e
+
+    /**
+     * Make a saturated application of a top-level function into
+     * a direct call to its uncurried static method.
+     * Ex.: ((foo 1) 2) -> foo(1, 2)
+     */
+    private fun optimizeStaticCalls(entries: Map<String, StaticEntry>): (Expr) -> Expr = { expr ->
+        expr.everywhere { e ->
+            if (e !is App) e
+            else {
+                val apps = mutableListOf<App>()
+                var exp: Expr = e
+                while (exp is App) {
+                    apps += exp
+                    exp = exp.fn
+                }
+                val entry = if (exp is Var) entries[exp.fullname()] else null
+                // over-saturated applications were already optimized when visiting the inner `App`
+                if (entry == null || apps.size != entry.pars.size) e
+                else {
+                    val args = apps.reversed().map { it.arg }
+                    Expr.StaticCall(entry.className, entry.name, args, entry.pars, entry.ret, e.type, e.span)
+                }
+            }
+        }
+    }
+
+    /**
+     * Replace a type class method applied to a constant instance
+     * with the field of the instance it projects.
+     * Ex.: ((+) plusFoo) -> plusFoo$plus
+     *      (show showFoo) -> showFoo
+     */
+    private fun specializeInstances(globals: Globals, className: String): (Expr) -> Expr = { expr ->
+        fun isVisible(v: Var) = v.className == className || v.fullname() !in globals.privates
+
+        expr.everywhere { e ->
+            val path = if (e is App && e.fn is Var) globals.methods[e.fn.fullname()] else null
+            if (e !is App || path == null) e
+            else {
+                val field = when {
+                    // the method is the instance itself
+                    path.isEmpty() -> e.arg
+                    e.arg is Var -> globals.instances[e.arg.fullname()]?.let { project(it, path, globals.instances) }
+                    else -> null
+                }
+                // the field takes the type of the call site
+                // so primitive arguments are passed correctly
+                when {
+                    field == null || (field is Var && !isVisible(field)) -> e
+                    field.type == e.type -> field
+                    field.type.type == e.type.type && field is Var -> field.copy(type = e.type)
+                    field.type.type == e.type.type && field is Expr.LocalVar -> field.copy(type = e.type)
+                    else -> Expr.Cast(field, e.type, e.span)
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the field of this instance reached by following `path`
+     * if it's a top-level value or a literal.
+     */
+    private fun project(instance: Expr, path: List<Projection>, instances: Map<String, Expr>): Expr? {
+        var exp = instance
+        for (proj in path) {
+            if (exp is Var) exp = instances[exp.fullname()] ?: return null
+            exp = when (proj) {
+                is Projection.Field -> {
+                    val (ctor, args) = ctorArgs(exp) ?: return null
+                    if (ctor.fullName != proj.ctor) return null
+                    args.getOrNull(proj.field - 1)
+                }
+                is Projection.Label -> {
+                    if (exp !is Expr.ShapeNew) return null
+                    exp.values.getOrNull(exp.shape.labels.indexOf(proj.label))
+                }
+            } ?: return null
+        }
+        return if (exp is Var || exp.isPrimitive() || exp is Expr.StringE) exp else null
+    }
+
+    /**
+     * Returns the constructor and arguments of this expression
+     * if it's a saturated constructor application.
+     */
+    private fun ctorArgs(exp: Expr): Pair<Expr.Constructor, List<Expr>>? {
+        if (exp is Expr.CtorApp) return exp.ctor to exp.args
+        val args = mutableListOf<Expr>()
+        var e = exp
+        while (e is App) {
+            args += e.arg
+            e = e.fn
+        }
+        return if (e is Expr.Constructor && args.isNotEmpty() && args.size == e.arity) e to args.reversed() else null
+    }
+
+    /**
+     * Returns how this function projects its first argument
+     * if it's a type class method: a function that applies a field of
+     * its instance, or the instance itself, to the rest of its arguments.
+     * Ex.: (+) {{Plus plus}} x y = plus.plus x y
+     */
+    private fun classMethod(exp: Expr): List<Projection>? {
+        if (exp !is Expr.Lambda) return null
+        val paths = mutableMapOf(exp.binder to emptyList<Projection>())
+        fun path(e: Expr): List<Projection>? = when (e) {
+            is Expr.LocalVar -> paths[e.name]
+            is Expr.Cast -> path(e.expr)
+            is Expr.ConstructorAccess -> path(e.ctor)?.plus(Projection.Field(e.fullName, e.field))
+            is Expr.RecordSelect -> path(e.expr)?.plus(Projection.Label(e.label))
+            else -> null
+        }
+
+        val pars = mutableListOf<String>()
+        var body = exp.body
+        while (body is Expr.Lambda || body is Expr.Let) {
+            if (body is Expr.Lambda) {
+                if (body.binder in paths) return null
+                pars += body.binder
+                body = body.body
+            } else if (body is Expr.Let) {
+                if (body.binder in pars) return null
+                paths[body.binder] = path(body.bindExpr) ?: return null
+                body = body.body
+            }
+        }
+        val args = mutableListOf<Expr>()
+        while (body is App) {
+            args += body.arg
+            body = body.fn
+        }
+        args.reverse()
+        if (args.size != pars.size) return null
+        for (i in args.indices) {
+            val arg = args[i]
+            if (arg !is Expr.LocalVar || arg.name != pars[i]) return null
+        }
+        return path(body)
+    }
+
+    /**
+     * Joins two strings in a single concatenation, flattening nested ones.
+     * Ex.: a ++ (b ++ c) -> concat(a, b, c)
+     */
+    private fun concatStrings(left: Expr, right: Expr, e: Expr): Expr {
+        fun parts(exp: Expr) = if (exp is Expr.StringConcat) exp.parts else listOf(exp)
+        val ls = parts(left)
+        val rs = parts(right)
+        val parts = when {
+            args(ls) + args(rs) <= MAX_CONCAT_ARGS -> ls + rs
+            args(ls) < MAX_CONCAT_ARGS -> ls + right
+            else -> listOf(left, right)
+        }
+        return mkConcat(parts, e)
+    }
+
+    /**
+     * Concatenations of constants are folded.
+     */
+    private fun mkConcat(parts: List<Expr>, e: Expr): Expr =
+        if (parts.all { it is Expr.StringE }) Expr.StringE(parts.joinToString("") { (it as Expr.StringE).v }, e.type, e.span)
+        else Expr.StringConcat(parts, e.type, e.span)
+
+    /**
+     * Splits a format string into the parts of a string concatenation.
+     * Returns null if the format has anything other than `%s` and `%%`
+     * or if the number of arguments doesn't match.
+     * Ex.: "Hello %s!" [name] -> ["Hello ", name, "!"]
+     */
+    private fun formatParts(fmt: Expr.StringE, args: List<Expr>): List<Expr>? {
+        if (args.size > MAX_CONCAT_ARGS) return null
+        val parts = mutableListOf<Expr>()
+        val str = StringBuilder()
+        var arg = 0
+        var i = 0
+        val f = fmt.v
+        while (i < f.length) {
+            val c = f[i]
+            if (c != '%') str.append(c)
+            else {
+                when (f.getOrNull(i + 1)) {
+                    '%' -> str.append('%')
+                    's' -> {
+                        if (arg == args.size) return null
+                        if (str.isNotEmpty()) parts += Expr.StringE(str.toString(), fmt.type, fmt.span)
+                        str.clear()
+                        parts += args[arg++]
+                    }
+                    else -> return null
+                }
+                i++
+            }
+            i++
+        }
+        if (arg != args.size) return null
+        if (str.isNotEmpty() || parts.isEmpty()) parts += Expr.StringE(str.toString(), fmt.type, fmt.span)
+        return parts
+    }
+
+    private fun args(parts: List<Expr>) = parts.count { it !is Expr.StringE }
+
+    // StringConcatFactory accepts at most 200 argument slots
+    private const val MAX_CONCAT_ARGS = 99
+
     private fun makeRangeCtor(e: Expr, arg1: Expr, arg2: Expr, open: Boolean): Expr =
         when (arg2.type.type.sort) {
             5 -> {
@@ -287,6 +1193,50 @@ object Optimization {
             else -> e
         }
 
+    /**
+     * Turns a `forEachRange` over an int or long range literal into a counted loop
+     * that passes the unboxed index straight to the function.
+     * Ex.: forEachRange (0 ... n) f ->
+     *      let from = 0, to = n, fn = f, i = from in
+     *      if from <= to then while i < to do { fn i; i = i + 1 }
+     *      else while i > to do { fn i; i = i - 1 }
+     * @param id unique id of this loop inside its declaration
+     */
+    private fun countedLoop(range: Expr, fn: Expr, e: Expr, id: Int): Expr? {
+        if (range !is Expr.NativeCtor || !fn.type.isFunction()) return null
+        val (type, open) = when (range.ctor) {
+            newIntRange -> Type.INT_TYPE to false
+            newIntOpenRange -> Type.INT_TYPE to true
+            newLongRange -> Type.LONG_TYPE to false
+            newLongOpenRange -> Type.LONG_TYPE to true
+            else -> return null
+        }
+        val span = e.span
+        val clazz = Clazz(type)
+        val bool = Clazz(Type.BOOLEAN_TYPE)
+        val one = if (type == Type.INT_TYPE) Expr.Int32(1, clazz, span) else Expr.Int64(1, clazz, span)
+        val from = Expr.LocalVar("from\$$id", clazz, span)
+        val to = Expr.LocalVar("to\$$id", clazz, span)
+        val fnVar = Expr.LocalVar("fn\$$id", fn.type, span)
+        val idx = Expr.LocalVar("idx\$$id", clazz, span)
+        val (par, ret) = fn.type.pars
+        val arg = if (par.type == type) idx else Expr.Cast(idx, par, span)
+
+        fun loop(up: Boolean): Expr {
+            val cmp = if (up) (if (open) "<" else "<=") else (if (open) ">" else ">=")
+            val next = Expr.OperatorApp(if (up) "+" else "-", listOf(idx, one), clazz, span)
+            val body = Expr.Do(listOf(App(fnVar, arg, ret, span), Expr.SetLocalVar(idx.name, next, e.type)), e.type, span)
+            return Expr.While(Expr.OperatorApp(cmp, listOf(idx, to), bool, span), listOf(body), e.type, span)
+        }
+
+        val loops = Expr.If(listOf(Expr.OperatorApp("<=", listOf(from, to), bool, span) to loop(true)), loop(false), e.type, span)
+        fun bound(exp: Expr) = if (exp.type.type == type) exp else Expr.Cast(exp, clazz, exp.span)
+        val withIdx = Expr.Let(idx.name, from, loops, e.type, span)
+        val withFn = Expr.Let(fnVar.name, fn, withIdx, e.type, span)
+        val withTo = Expr.Let(to.name, bound(range.pars[1]), withFn, e.type, span)
+        return Expr.Let(from.name, bound(range.pars[0]), withTo, e.type, span)
+    }
+
     private fun comp(vararg fs: (Expr) -> Expr): (Expr) -> Expr = { e ->
         fs.fold(e) { ex, f -> f(ex) }
     }
@@ -313,6 +1263,13 @@ object Optimization {
     private lateinit var setSize: Method
     private lateinit var mapSize: Method
     private lateinit var stringGet: Method
+    private lateinit var fuseList: Method
+    private lateinit var fuseSet: Method
+    private lateinit var fuseFoldList: Method
+    private lateinit var fuseFoldSet: Method
+    private lateinit var batchMap: Method
+    private lateinit var batchSet: Method
+    private lateinit var batchList: Method
 
     init {
         Core::class.java.methods.forEach {
@@ -336,6 +1293,13 @@ object Optimization {
                 "setSize" -> setSize = it
                 "mapSize" -> mapSize = it
                 "stringGet" -> stringGet = it
+                "fuseList" -> fuseList = it
+                "fuseSet" -> fuseSet = it
+                "fuseFoldList" -> fuseFoldList = it
+                "fuseFoldSet" -> fuseFoldSet = it
+                "batchMap" -> batchMap = it
+                "batchSet" -> batchSet = it
+                "batchList" -> batchList = it
             }
         }
     }
@@ -354,6 +1318,19 @@ object Optimization {
     private val rangeToList = Range::class.java.methods.find { it.name == "toList" }!!
     private val rangeToSet = Range::class.java.methods.find { it.name == "toSet" }!!
     private val stringLength = String::class.java.methods.find { it.name == "length" }!!
+    private val listNth = PList::class.java.getMethod("nth", Long::class.java)
+    private val listSizeOf = PList::class.java.getMethod("size")
+    private val listAddLast = PList::class.java.getMethod("addLast", Any::class.java)
+    private val listLinear = PList::class.java.getMethod("linear")
+    private val listForked = PList::class.java.getMethod("forked")
+    private val setNth = PSet::class.java.getMethod("nth", Long::class.java)
+    private val setSizeOf = PSet::class.java.getMethod("size")
+    private val setAdd = PSet::class.java.getMethod("add", Any::class.java)
+    private val setLinear = PSet::class.java.getMethod("linear")
+    private val setForked = PSet::class.java.getMethod("forked")
+    private val LIST_TYPE = Type.getType(PList::class.java)
+    private val SET_TYPE = Type.getType(PSet::class.java)
+    private val LINKED_LIST_TYPE = Type.getObjectType("$linkedListMod/LinkedList")
 }
 
 private typealias App = Expr.App
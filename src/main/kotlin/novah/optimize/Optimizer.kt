@@ -28,6 +28,8 @@ import novah.backend.TypeUtil.isPrimitive
 import novah.backend.TypeUtil.wrapper
 import novah.collections.Record
 import novah.data.allList
+import novah.data.isEmpty
+import novah.data.isValidLabel
 import novah.data.forEachKeyList
 import novah.data.mapList
 import novah.frontend.Span
@@ -40,6 +42,7 @@ import novah.frontend.matching.PatternMatchingCompiler
 import novah.frontend.typechecker.*
 import novah.function.Function
 import novah.main.Environment
+import novah.main.Newtypes
 import novah.range.Range
 import org.objectweb.asm.Type
 import java.lang.reflect.Constructor
@@ -64,7 +67,12 @@ import novah.frontend.typechecker.Type as TType
  * Converts the canonical AST to the
  * optimized version, ready for codegen
  */
-class Optimizer(private val ast: CModule, private val ctorCache: MutableMap<String, Ctor>) {
+class Optimizer(
+    private val ast: CModule,
+    private val ctorCache: MutableMap<String, Ctor>,
+    private val newtypes: Newtypes,
+    private val specializer: Specializer? = null
+) {
 
     private var haslambda = false
     private val errors = mutableListOf<CompilerProblem>()
@@ -73,6 +81,9 @@ class Optimizer(private val ast: CModule, private val ctorCache: MutableMap<Stri
 
     private var genVar = 0
 
+    // the primitive types of the type variables of the function being specialized
+    private var typeSubst: kotlin.collections.Map<Id, TType> = emptyMap()
+
     fun errors(): List<CompilerProblem> = errors
 
     fun convert(): Module {
@@ -85,11 +96,18 @@ class Optimizer(private val ast: CModule, private val ctorCache: MutableMap<Stri
     private fun CModule.convert(): Module {
         val metaExpr = mutableListOf<Pair<String, Metadata>>()
         val ds = mutableListOf<Decl>()
+        val groups = tailCallGroups(decls)
         for (d in decls) {
             meta = d.metadata
             if (d.metadata != null) metaExpr += d.rawName() to d.metadata!!
-            if (d is CTypeDecl) ds += d.convert()
-            if (d is CValDecl && !d.typeError) ds += d.convert()
+            // erased types have no class
+            if (d is CTypeDecl && newtypes.find("${name.value}.${d.name.value}") == null) ds += d.convert()
+            if (d is CValDecl && !d.typeError) {
+                val group = groups[d.name.value]
+                if (group == null) ds += d.convert()
+                else if (d === group[0]) ds += convertGroup(group)
+                ds += d.convertSpecializations()
+            }
         }
         val allDecls = if (metaExpr.isEmpty()) ds
         else ds + makeMetaExpr(metaExpr)
@@ -98,13 +116,37 @@ class Optimizer(private val ast: CModule, private val ctorCache: MutableMap<Stri
 
     private var meta: Metadata? = null
 
-    private fun CValDecl.convert(): Decl.ValDecl {
-        val newExp = if (recursive && exp.isTailcall(name.value)) {
+    private fun CValDecl.convert(): Decl.ValDecl = toDecl(exp.convert())
+
+    private fun CValDecl.toDecl(convExp: Expr): Decl.ValDecl {
+        val newExp = if (recursive && exp.isTailcall(setOf(name.value))) {
             // optimize tail calls
             val fullname = internalize(ast.name.value + ".\$Module") + ".${name.value}"
-            tcoToLoop(fullname, exp.convert(), isLet = false)
-        } else exp.convert()
-        return Decl.ValDecl(Names.convert(name.value), newExp, visibility, span)
+            tcoToLoop(fullname, convExp, isLet = false)
+        } else convExp
+        val arity = newExp.nestedLambdas().size.let { if (it >= MIN_UNCURRIED_ARITY) it else 0 }
+        return Decl.ValDecl(Names.convert(name.value), newExp, visibility, span, arity, isInstance)
+    }
+
+    /**
+     * Compiles the copies of this function for the primitive types it's used at.
+     */
+    private fun CValDecl.convertSpecializations(): List<Decl.ValDecl> {
+        val specs = specializer?.specializationsOf(ast.name.value, name.value) ?: return emptyList()
+        val className = internalize(ast.name.value + ".\$Module")
+        return specs.map { spec ->
+            typeSubst = spec.subst
+            // problems were already reported for the original function
+            val errs = errors.size
+            val conv = exp.convert()
+            errors.subList(errs, errors.size).clear()
+            val newExp = if (recursive && exp.isTailcall(setOf(name.value))) {
+                tcoToLoop("$className.${Names.convert(spec.name)}", conv, isLet = false)
+            } else conv
+            typeSubst = emptyMap()
+            val arity = newExp.nestedLambdas().size.let { if (it >= MIN_UNCURRIED_ARITY) it else 0 }
+            Decl.ValDecl(Names.convert(spec.name), newExp, visibility, span, arity)
+        }
     }
 
     private fun CTypeDecl.convert(): Decl.TypeDecl =
@@ -143,8 +185,10 @@ class Optimizer(private val ast: CModule, private val ctorCache: MutableMap<Stri
                 val vvar = if (moduleName == null && conName in locals) {
                     Expr.LocalVar(conName, typ, span)
                 } else {
-                    val cname = internalize(moduleName ?: ast.name.value) + "/\$Module"
-                    Expr.Var(conName, cname, typ, span)
+                    val module = moduleName ?: ast.name.value
+                    val cname = internalize(module) + "/\$Module"
+                    val spec = specializer?.specialize(module, name, type!!, typeSubst)
+                    Expr.Var(if (spec != null) Names.convert(spec) else conName, cname, typ, span)
                 }
                 if (implicitContext != null) {
                     var v = vvar
@@ -159,9 +203,11 @@ class Optimizer(private val ast: CModule, private val ctorCache: MutableMap<Stri
                 val ctorName = fullname(moduleName ?: ast.name.value)
                 val arity = ctorCache[ctorName]?.arity
                     ?: internalError("Could not find constructor $name")
-                when (ctorName) {
-                    "prim.None" -> Expr.Null(typ, span)
-                    "prim.Some" -> Expr.NativeStaticFieldGet(some, typ, span)
+                when {
+                    ctorName == "prim.None" -> Expr.Null(typ, span)
+                    // erased constructors are the identity function
+                    ctorName == "prim.Some" || newtypes.isCtor(ctorName) ->
+                        Expr.NativeStaticFieldGet(some, typ, span)
                     else -> Expr.Constructor(internalize(ctorName), arity, typ, span)
                 }
             }
@@ -190,6 +236,9 @@ class Optimizer(private val ast: CModule, private val ctorCache: MutableMap<Stri
                     if (fn is CExpr.Constructor && fn.fullname() == "prim.Some" && !carg.type.type.isPrimitive()) {
                         // optimize `Some x` if x is not primitive
                         carg
+                    } else if (fn is CExpr.Constructor && newtypes.isCtor(fn.fullname(fn.moduleName ?: ast.name.value))) {
+                        // newtypes are erased to their field
+                        if (carg.type.type == typ.type) carg else Expr.Cast(carg, typ, span)
                     } else Expr.App(fn.convert(locals), carg, typ, span)
                 }
             }
@@ -202,7 +251,7 @@ class Optimizer(private val ast: CModule, private val ctorCache: MutableMap<Stri
             is CExpr.Let -> {
                 val binder = Names.convert(letDef.binder.convert())
                 val lcs = locals + binder
-                if (letDef.recursive && letDef.expr.isTailcall(letDef.binder.name)) {
+                if (letDef.recursive && letDef.expr.isTailcall(setOf(letDef.binder.name))) {
                     // optimize tail calls
                     val tcoed = tcoToLoop(binder, letDef.expr.convert(lcs), isLet = true)
                     Expr.Let(binder, tcoed, body.convert(lcs), typ, span)
@@ -227,16 +276,46 @@ class Optimizer(private val ast: CModule, private val ctorCache: MutableMap<Stri
             }
             is CExpr.Unit -> Expr.Unit(typ, span)
             is CExpr.RecordEmpty -> Expr.RecordEmpty(typ, span)
-            is CExpr.RecordExtend -> Expr.RecordExtend(
-                labels.mapList { it.convert(locals) },
-                exp.convert(locals), typ, span
-            )
-            is CExpr.RecordSelect -> Expr.RecordSelect(exp.convert(locals), label.value, typ, span)
-            is CExpr.RecordRestrict -> Expr.RecordRestrict(exp.convert(locals), label, typ, span)
+            is CExpr.RecordExtend -> {
+                val rec = exp.convert(locals)
+                val lbls = labels.mapList { it.convert(locals) }
+                val values = mutableMapOf<String, Expr>()
+                lbls.forEach { kv -> values[kv.key()] = kv.value().first() }
+                makeShape(type.recordShape(), values, listOf(rec to exp.type), typ, span)
+                    ?: Expr.RecordExtend(lbls, rec, typ, span)
+            }
+            is CExpr.RecordSelect -> Expr.RecordSelect(exp.convert(locals), label.value, typ, span, exp.type.recordShape())
+            is CExpr.RecordRestrict -> {
+                val rec = exp.convert(locals)
+                makeShape(type.recordShape(), emptyMap(), listOf(rec to exp.type), typ, span)
+                    ?: Expr.RecordRestrict(rec, label, typ, span)
+            }
             is CExpr.RecordUpdate -> {
-                Expr.RecordUpdate(exp.convert(locals), label.value, value.convert(locals), isSet, typ, span)
+                val rec = exp.convert(locals)
+                val v = value.convert(locals)
+                val shape = type.recordShape()
+                val recShape = exp.type.recordShape()
+                if (shape == null || recShape == null) {
+                    Expr.RecordUpdate(rec, label.value, v, isSet, typ, span)
+                } else if (isSet) {
+                    makeShape(shape, mapOf(label.value to v), listOf(rec to exp.type), typ, span)!!
+                } else {
+                    // bind the record first as we need to select the old value
+                    val name = "rec$${genVar++}"
+                    val recVar = Expr.LocalVar(name, rec.type, rec.span)
+                    val fieldType = typ.labels!!.get(label.value, null).first()
+                    val old = Expr.RecordSelect(recVar, label.value, fieldType, span, recShape)
+                    val newValue = Expr.App(v, old, fieldType, span)
+                    val shaped = makeShape(shape, mapOf(label.value to newValue), listOf(recVar to exp.type), typ, span)
+                    Expr.Let(name, rec, shaped!!, typ, span)
+                }
+            }
+            is CExpr.RecordMerge -> {
+                val rec1 = exp1.convert(locals)
+                val rec2 = exp2.convert(locals)
+                makeShape(type.recordShape(), emptyMap(), listOf(rec1 to exp1.type, rec2 to exp2.type), typ, span)
+                    ?: Expr.RecordMerge(rec1, rec2, typ, span)
             }
-            is CExpr.RecordMerge -> Expr.RecordMerge(exp1.convert(locals), exp2.convert(locals), typ, span)
             is CExpr.ListLiteral -> Expr.ListLiteral(exps.map { it.convert(locals) }, typ, span)
             is CExpr.SetLiteral -> Expr.SetLiteral(exps.map { it.convert(locals) }, typ, span)
             is CExpr.Index -> {
@@ -264,6 +343,9 @@ class Optimizer(private val ast: CModule, private val ctorCache: MutableMap<Stri
                 Expr.NativeFieldGet(f, exp.convert(locals), typ, span)
             }
             is CExpr.ForeignStaticMethod -> when {
+                // regex literals: #"..."
+                method == patternCompile && args.size == 1 && args[0] is CExpr.StringE ->
+                    Expr.RegexConstant((args[0] as CExpr.StringE).v, typ, span)
                 method != null -> Expr.NativeStaticMethod(method!!, args.map { it.convert(locals) }, typ, span)
                 ctor != null -> Expr.NativeCtor(ctor!!, args.map { it.convert(locals) }, typ, span)
                 else -> internalError("got null for java method")
@@ -287,11 +369,15 @@ class Optimizer(private val ast: CModule, private val ctorCache: MutableMap<Stri
 
     private fun TType.convert(): Clazz = when (this) {
         is TConst -> {
-            if (show(false)[0].isLowerCase()) Clazz(OBJECT_TYPE)
+            val newtype = newtypes.find(name)
+            if (newtype != null) newtype.field.convert()
+            else if (show(false)[0].isLowerCase()) Clazz(OBJECT_TYPE)
             else Clazz(getPrimitiveTypeName(this))
         }
         is TApp -> {
-            if (type is TConst && type.name == primArray) {
+            if (type is TConst && newtypes.find(type.name) != null) {
+                type.convert()
+            } else if (type is TConst && type.name == primArray) {
                 val of = types[0].convert()
                 Clazz(getPrimitiveArrayTypeName(of.type))
             } else if (type is TConst && type.name == primOption) {
@@ -306,8 +392,8 @@ class Optimizer(private val ast: CModule, private val ctorCache: MutableMap<Stri
         is TVar -> {
             when (val tv = tvar) {
                 is TypeVar.Link -> tv.type.convert()
-                is TypeVar.Generic -> Clazz(OBJECT_TYPE)
-                is TypeVar.Unbound -> Clazz(OBJECT_TYPE)
+                is TypeVar.Generic -> typeSubst[tv.id]?.convert() ?: Clazz(OBJECT_TYPE)
+                is TypeVar.Unbound -> typeSubst[tv.id]?.convert() ?: Clazz(OBJECT_TYPE)
             }
         }
         // records always have the same type
@@ -320,6 +406,59 @@ class Optimizer(private val ast: CModule, private val ctorCache: MutableMap<Stri
         is TImplicit -> type.convert()
     }
 
+    /**
+     * Returns the shape of this type if it's a closed
+     * record type without duplicated labels.
+     */
+    private fun TType?.recordShape(): RecordShape? {
+        val rec = this?.realType() as? TRecord ?: return null
+        val (rows, tail) = rec.row.collectRows()
+        if (tail.realType() !is TRowEmpty || rows.isEmpty() || rows.size() > MAX_SHAPE_LABELS) return null
+        val labels = mutableListOf<String>()
+        val types = mutableListOf<Type>()
+        for (kv in rows) {
+            if (kv.value().size() != 1L || !isValidLabel(kv.key())) return null
+            labels += kv.key()
+            val ty = kv.value().first().convert().type
+            types += if (ty.isPrimitive()) ty else OBJECT_TYPE
+        }
+        return RecordShape(labels, types)
+    }
+
+    /**
+     * Creates a record of the given shape if all the records in `sources`
+     * also have a known shape. Labels not in `values` are selected from the sources.
+     * Sources are evaluated first, in order, to keep evaluation order.
+     */
+    private fun makeShape(
+        shape: RecordShape?,
+        values: kotlin.collections.Map<String, Expr>,
+        sources: List<Pair<Expr, TType?>>,
+        typ: Clazz,
+        span: Span
+    ): Expr? {
+        if (shape == null) return null
+        val binds = mutableListOf<Pair<String, Expr>>()
+        val recs = mutableListOf<Pair<Expr, RecordShape>>()
+        for ((exp, ty) in sources) {
+            if (exp is Expr.RecordEmpty) continue
+            val srcShape = ty.recordShape() ?: return null
+            if (needVar(exp)) {
+                val name = "rec$${genVar++}"
+                binds += name to exp
+                recs += Expr.LocalVar(name, exp.type, exp.span) to srcShape
+            } else recs += exp to srcShape
+        }
+        val exps = shape.labels.map { label ->
+            values[label] ?: run {
+                val (rec, srcShape) = recs.find { label in it.second.labels }
+                    ?: internalError("Could not find label $label in record")
+                Expr.RecordSelect(rec, label, typ.labels!!.get(label, null).first(), span, srcShape)
+            }
+        }
+        return nestLets(binds, Expr.ShapeNew(shape, exps, typ, span), typ)
+    }
+
     /**
      * Uses a fixpoint operator to make recursive lets
      * work at runtime.
@@ -395,7 +534,19 @@ class Optimizer(private val ast: CModule, private val ctorCache: MutableMap<Stri
                 elseCase = elseCase.toLoop(name, pars, varCheck),
                 conds = conds.map { it.first to it.second.toLoop(name, pars, varCheck) }
             )
+        is Expr.Switch ->
+            copy(
+                cases = cases.map { it.first to it.second.toLoop(name, pars, varCheck) },
+                default = default.toLoop(name, pars, varCheck)
+            )
+        is Expr.StringSwitch ->
+            copy(
+                cases = cases.map { it.first to it.second.toLoop(name, pars, varCheck) },
+                default = default.toLoop(name, pars, varCheck)
+            )
         is Expr.Throw -> this
+        // the cast doesn't matter if the recursive call becomes a jump
+        is Expr.Cast -> if (expr.isCallTo(varCheck)) expr.toLoop(name, pars, varCheck) else Expr.Return(this)
         is Expr.App -> {
             var hasCall = false
             everywherUnit { if (varCheck(it)) hasCall = true }
@@ -424,36 +575,210 @@ class Optimizer(private val ast: CModule, private val ctorCache: MutableMap<Stri
     }
 
     /**
-     * Returns true if this expression is a tail recursive function.
+     * Finds the groups of top-level functions that call each other only in tail position.
+     * Returns every function in a group mapped to its group.
+     */
+    private fun tailCallGroups(decls: List<novah.ast.canonical.Decl>): kotlin.collections.Map<String, List<CValDecl>> {
+        val funs = decls.filterIsInstance<CValDecl>()
+            .filter { !it.typeError && !it.isInstance && it.exp.isLambda() }
+            .associateBy { it.name.value }
+        val calls = funs.mapValues { (_, d) ->
+            val cs = mutableSetOf<String>()
+            d.exp.everywhereUnit { if (it is CExpr.Var && it.moduleName == null && it.name in funs) cs += it.name }
+            cs
+        }
+        fun reachable(from: String): Set<String> {
+            val seen = mutableSetOf<String>()
+            val todo = ArrayDeque(calls[from]!!)
+            while (todo.isNotEmpty()) {
+                val n = todo.removeFirst()
+                if (seen.add(n)) todo += calls[n]!!
+            }
+            return seen
+        }
+
+        val reach = funs.keys.associateWith(::reachable)
+        val groups = mutableMapOf<String, List<CValDecl>>()
+        for (name in funs.keys) {
+            if (name in groups) continue
+            val names = funs.keys.filter { it == name || (it in reach[name]!! && name in reach[it]!!) }
+            if (names.size < 2) continue
+            val group = names.map { funs[it]!! }
+            if (group.all { it.exp.isTailcall(names.toSet()) }) names.forEach { groups[it] = group }
+        }
+        return groups
+    }
+
+    /**
+     * Compiles a group of mutually tail recursive functions to a single private function
+     * with a loop that dispatches on which function is running.
+     * The functions themselves just call this one.
+     * Falls back to converting every function by itself if they can't be merged.
+     */
+    private fun convertGroup(group: List<CValDecl>): List<Decl.ValDecl> {
+        val className = internalize(ast.name.value) + "/\$Module"
+        val names = group.map { Names.convert(it.name.value) }
+        val fnName = "${names[0]}\$tco"
+        val exps = group.map { d ->
+            meta = d.metadata
+            d.exp.convert()
+        }
+        fun fallback() = group.zip(exps).map { (d, exp) -> d.toDecl(exp) }
+        val lambdas = exps.map { it.nestedLambdas() }
+        val ret = lambdas[0].last().type.pars[1]
+        if (lambdas.any { it.last().type.pars[1].type != ret.type }) return fallback()
+        if (lambdas.sumOf { it.size } > MAX_TCO_GROUP_PARS) return fallback()
+
+        val span = group[0].span
+        val tagType = intType
+        val tag = "tco\$tag"
+        // the parameters of every function, renamed so they don't clash
+        val pars = lambdas.mapIndexed { i, ls -> ls.map { "tco$$i$${it.binder}" to it.type.pars[0] } }
+        val allPars = listOf(tag to tagType) + pars.flatten()
+
+        fun coerce(e: Expr, to: Clazz): Expr = if (e.type.type == to.type) e else Expr.Cast(e, to, e.span)
+        fun isGroupFun(e: Expr) = e is Expr.Var && e.className == className && e.name in names
+
+        fun Expr.toGroupLoop(): Expr = when (this) {
+            is Expr.Do -> copy(exps = exps.dropLast(1) + exps.last().toGroupLoop())
+            is Expr.Let -> copy(body = body.toGroupLoop())
+            is Expr.If -> copy(
+                conds = conds.map { it.first to it.second.toGroupLoop() },
+                elseCase = elseCase.toGroupLoop()
+            )
+            is Expr.Switch -> copy(
+                cases = cases.map { it.first to it.second.toGroupLoop() },
+                default = default.toGroupLoop()
+            )
+            is Expr.StringSwitch -> copy(
+                cases = cases.map { it.first to it.second.toGroupLoop() },
+                default = default.toGroupLoop()
+            )
+            is Expr.Throw -> this
+            is Expr.Cast -> if (expr.isCallTo(::isGroupFun)) expr.toGroupLoop() else Expr.Return(coerce(this, ret))
+            is Expr.App -> {
+                val args = mutableListOf<Expr>()
+                var app: Expr = this
+                while (app is Expr.App) {
+                    args += app.arg
+                    app = app.fn
+                }
+                args.reverse()
+                val fn = app
+                val j = if (fn is Expr.Var && fn.className == className) names.indexOf(fn.name) else -1
+                if (j == -1) Expr.Return(coerce(this, ret))
+                else {
+                    if (pars[j].size != args.size) throw TCOError(group[j].name.value)
+                    // rewrite this call to set the parameters of the called function and jump to it
+                    val newBinds = args.mapIndexed { k, arg -> "tmp$$k" to coerce(arg, pars[j][k].second) }
+                    val sets = pars[j].zip(newBinds).map { (par, v) ->
+                        Expr.SetLocalVar(par.first, Expr.LocalVar(v.first, v.second.type, v.second.span), Clazz(UNIT_TYPE))
+                    }
+                    val setTag = Expr.SetLocalVar(tag, Expr.Int32(j, tagType, span), Clazz(UNIT_TYPE))
+                    nestLets(newBinds, Expr.Do(sets + setTag, type, span), type)
+                }
+            }
+            else -> Expr.Return(coerce(this, ret))
+        }
+
+        val bodies = try {
+            lambdas.mapIndexed { i, ls ->
+                val parMap = ls.associate { it.binder to "tco$$i$${it.binder}" }
+                ls.last().body.everywhere {
+                    if (it is Expr.LocalVar && it.name in parMap) it.copy(name = parMap[it.name]!!) else it
+                }.toGroupLoop()
+            }
+        } catch (e: TCOError) {
+            errors += mkWarn(E.cannotTCO(e.msg), span)
+            return fallback()
+        }
+
+        val tru = Expr.Bool(true, boolType, span)
+        val cases = bodies.dropLast(1).mapIndexed { i, body -> i to body }
+        val switch = Expr.Switch(Expr.LocalVar(tag, tagType, span), cases, bodies.last(), ret, span)
+        val loop = Expr.While(tru, listOf(switch), ret, span)
+        // the loop variables are initialized with the parameters of the function
+        val binds = allPars.map { (name, type) -> name to Expr.LocalVar("$name\$arg", type, span) }
+        val fnType = allPars.foldRight(ret) { (_, type), acc -> Clazz(FUNCTION_TYPE, listOf(type, acc)) }
+        val groupExp = binds.foldRight(nestLets(binds, loop, ret)) { (_, par), acc ->
+            Expr.Lambda(par.name, acc, type = Clazz(FUNCTION_TYPE, listOf(par.type, acc.type)), span = span)
+        }
+        val groupDecl = Decl.ValDecl(fnName, groupExp, Visibility.PRIVATE, span, allPars.size)
+
+        val decls = group.mapIndexed { i, d ->
+            val args = listOf(Expr.Int32(i, tagType, d.span)) + pars.flatMapIndexed { k, ps ->
+                ps.mapIndexed { n, (_, type) ->
+                    if (k == i) Expr.LocalVar(lambdas[i][n].binder, type, d.span) else zeroValue(type, d.span)
+                }
+            }
+            var call: Expr = Expr.Var(fnName, className, fnType, d.span)
+            for (arg in args) call = Expr.App(call, arg, call.type.pars[1], d.span)
+            val exp = lambdas[i].foldRight(call) { l, acc -> l.copy(body = acc) }
+            val arity = lambdas[i].size.let { if (it >= MIN_UNCURRIED_ARITY) it else 0 }
+            Decl.ValDecl(names[i], exp, d.visibility, d.span, arity, d.isInstance)
+        }
+        return decls + groupDecl
+    }
+
+    private tailrec fun CExpr.isLambda(): Boolean = if (this is CExpr.Ann) exp.isLambda() else this is CExpr.Lambda
+
+    /**
+     * Returns true if this expression is an application of a function
+     * that passes `check`, looking through casts.
+     */
+    private tailrec fun Expr.isCallTo(check: (Expr) -> Boolean): Boolean = when (this) {
+        is Expr.Cast -> expr.isCallTo(check)
+        is Expr.App -> {
+            var fn = fn
+            while (fn is Expr.App) fn = fn.fn
+            check(fn)
+        }
+        else -> false
+    }
+
+    private fun zeroValue(type: Clazz, span: Span): Expr = when (type.type.sort) {
+        Type.BOOLEAN -> Expr.Bool(false, type, span)
+        Type.CHAR -> Expr.CharE(0.toChar(), type, span)
+        Type.BYTE -> Expr.ByteE(0, type, span)
+        Type.SHORT -> Expr.Int16(0, type, span)
+        Type.INT -> Expr.Int32(0, type, span)
+        Type.LONG -> Expr.Int64(0, type, span)
+        Type.FLOAT -> Expr.Float32(0f, type, span)
+        Type.DOUBLE -> Expr.Float64(0.0, type, span)
+        else -> Expr.Null(type, span)
+    }
+
+    /**
+     * Returns true if this expression only calls the functions in `names` in tail position.
      */
-    private fun CExpr.isTailcall(name: String, tail: Boolean = true): Boolean = when (this) {
-        is CExpr.Lambda -> body.isTailcall(name, tail)
+    private fun CExpr.isTailcall(names: Set<String>, tail: Boolean = true): Boolean = when (this) {
+        is CExpr.Lambda -> body.isTailcall(names, tail)
         is CExpr.Do -> {
-            exps.dropLast(1).all { it.isTailcall(name, false) } && exps.last().isTailcall(name, tail)
+            exps.dropLast(1).all { it.isTailcall(names, false) } && exps.last().isTailcall(names, tail)
         }
-        is CExpr.Let -> letDef.expr.isTailcall(name, false) && body.isTailcall(name, tail)
+        is CExpr.Let -> letDef.expr.isTailcall(names, false) && body.isTailcall(names, tail)
         is CExpr.If -> {
-            cond.isTailcall(name, false) && thenCase.isTailcall(name, tail) && elseCase.isTailcall(name, tail)
+            cond.isTailcall(names, false) && thenCase.isTailcall(names, tail) && elseCase.isTailcall(names, tail)
         }
-        is CExpr.Ann -> exp.isTailcall(name, tail)
-        is CExpr.TypeCast -> exp.isTailcall(name, tail)
+        is CExpr.Ann -> exp.isTailcall(names, tail)
+        is CExpr.TypeCast -> exp.isTailcall(names, tail)
         is CExpr.While -> false
         is CExpr.TryCatch -> false
         is CExpr.Throw -> false
-        is CExpr.Match -> exps.all { it.isTailcall(name, false) } && cases.all { it.exp.isTailcall(name, tail) }
-        is CExpr.App -> fn.isTailcall(name, tail) && arg.isTailcall(name, false)
-        is CExpr.Var -> if (fullname() == name) tail else true
-        is CExpr.RecordExtend -> exp.isTailcall(name, false) && labels.allList { it.isTailcall(name, false) }
-        is CExpr.RecordMerge -> exp1.isTailcall(name, false) && exp2.isTailcall(name, false)
-        is CExpr.RecordRestrict -> exp.isTailcall(name, false)
-        is CExpr.RecordUpdate -> exp.isTailcall(name, false) && value.isTailcall(name, false)
-        is CExpr.ListLiteral -> exps.all { it.isTailcall(name, false) }
-        is CExpr.SetLiteral -> exps.all { it.isTailcall(name, false) }
-        is CExpr.ForeignField -> exp.isTailcall(name, false)
-        is CExpr.ForeignFieldSetter -> field.isTailcall(name, false) && value.isTailcall(name, false)
-        is CExpr.ForeignStaticFieldSetter -> value.isTailcall(name, false)
-        is CExpr.ForeignStaticMethod -> args.all { it.isTailcall(name, false) }
-        is CExpr.ForeignMethod -> exp.isTailcall(name, false) && args.all { it.isTailcall(name, false) }
+        is CExpr.Match -> exps.all { it.isTailcall(names, false) } && cases.all { it.exp.isTailcall(names, tail) }
+        is CExpr.App -> fn.isTailcall(names, tail) && arg.isTailcall(names, false)
+        is CExpr.Var -> if (fullname() in names) tail else true
+        is CExpr.RecordExtend -> exp.isTailcall(names, false) && labels.allList { it.isTailcall(names, false) }
+        is CExpr.RecordMerge -> exp1.isTailcall(names, false) && exp2.isTailcall(names, false)
+        is CExpr.RecordRestrict -> exp.isTailcall(names, false)
+        is CExpr.RecordUpdate -> exp.isTailcall(names, false) && value.isTailcall(names, false)
+        is CExpr.ListLiteral -> exps.all { it.isTailcall(names, false) }
+        is CExpr.SetLiteral -> exps.all { it.isTailcall(names, false) }
+        is CExpr.ForeignField -> exp.isTailcall(names, false)
+        is CExpr.ForeignFieldSetter -> field.isTailcall(names, false) && value.isTailcall(names, false)
+        is CExpr.ForeignStaticFieldSetter -> value.isTailcall(names, false)
+        is CExpr.ForeignStaticMethod -> args.all { it.isTailcall(names, false) }
+        is CExpr.ForeignMethod -> exp.isTailcall(names, false) && args.all { it.isTailcall(names, false) }
         else -> true
     }
 
@@ -529,42 +854,32 @@ class Optimizer(private val ast: CModule, private val ctorCache: MutableMap<Stri
             is Pattern.Wildcard -> PatternResult(tru)
             is Pattern.Var -> PatternResult(tru, listOf(VarDef(Names.convert(p.v.name), exp)))
             is Pattern.Unit -> PatternResult(tru)
-            is Pattern.LiteralP -> {
-                val lit = p.lit.e.convert(locals)
-                when (p.lit) {
-                    is LiteralPattern.StringLiteral -> {
-                        PatternResult(Expr.NativeMethod(eqString, lit, listOf(exp), boolType, exp.span))
-                    }
-                    is LiteralPattern.BigintLiteral -> {
-                        PatternResult(Expr.NativeMethod(bigIntEquals, lit, listOf(exp), boolType, exp.span))
-                    }
-                    is LiteralPattern.BigdecLiteral -> {
-                        PatternResult(Expr.NativeMethod(bigDecEquals, lit, listOf(exp), boolType, exp.span))
-                    }
-                    else -> {
-                        PatternResult(Expr.OperatorApp("==", listOf(lit, exp), boolType, exp.span))
-                    }
-                }
-            }
+            is Pattern.LiteralP -> PatternResult(literalTest(p, exp, locals))
             is Pattern.Regex -> {
-                val regex = Expr.StringE(p.regex, stringType, p.span)
-                val method = Expr.NativeStaticMethod(patternMatches, listOf(regex, exp), boolType, exp.span)
-                PatternResult(method)
+                val regex = Expr.RegexConstant(p.regex, patternType, p.span)
+                val matcher = Expr.NativeMethod(patternMatcher, regex, listOf(exp), matcherType, exp.span)
+                PatternResult(Expr.NativeMethod(matcherMatches, matcher, emptyList(), boolType, exp.span))
             }
             is Pattern.Ctor -> {
                 val conds = mutableListOf<Expr>()
                 val vars = mutableListOf<VarDef>()
 
-                when (val name = p.ctor.fullname(p.ctor.moduleName ?: ast.name.value)) {
-                    "prim.Some" -> {
+                val name = p.ctor.fullname(p.ctor.moduleName ?: ast.name.value)
+                when {
+                    name == "prim.Some" -> {
                         conds += Expr.OperatorApp("!=null", listOf(exp), boolType, exp.span)
                         val (cond, vs) = desugarPattern(p.fields[0], Expr.Unbox(exp, toPrimitive(exp.type)))
                         conds += cond
                         vars += vs
                     }
-                    "prim.None" -> {
+                    name == "prim.None" -> {
                         conds += Expr.OperatorApp("=null", listOf(exp), boolType, exp.span)
                     }
+                    newtypes.isCtor(name) -> {
+                        val (cond, vs) = desugarPattern(p.fields[0], eraseField(exp, p.fields[0]))
+                        conds += cond
+                        vars += vs
+                    }
                     else -> {
                         val ctor = p.ctor.convert(locals) as Expr.Constructor
                         val ctorType = Clazz(Type.getObjectType(internalize(name)), pars = ctor.type.pars.dropLast(1))
@@ -626,6 +941,7 @@ class Optimizer(private val ast: CModule, private val ctorCache: MutableMap<Stri
                 PatternResult(cond, vars + VarDef(p.name.value, exp))
             }
             is Pattern.TypeTest -> {
+                reportErasedTypeTest(p.test, p.span)
                 val castType = p.test.convert()
                 val cond = Expr.InstanceOf(exp, castType, p.span)
                 val vs = if (p.alias != null) listOf(VarDef(p.alias, Expr.Cast(exp, castType, p.span))) else emptyList()
@@ -633,14 +949,6 @@ class Optimizer(private val ast: CModule, private val ctorCache: MutableMap<Stri
             }
         }
 
-        tailrec fun varToLet(vdefs: List<VarDef>, exp: Expr): Expr {
-            return if (vdefs.isEmpty()) exp
-            else {
-                val v = vdefs[0]
-                varToLet(vdefs.drop(1), Expr.Let(v.name, v.exp, exp, exp.type, exp.span))
-            }
-        }
-
         val exps = m.exps.map {
             val exp = it.convert(locals)
             if (needVar(exp)) {
@@ -648,6 +956,11 @@ class Optimizer(private val ast: CModule, private val ctorCache: MutableMap<Stri
                 PatternExp(Expr.LocalVar(name, exp.type, exp.span), name, exp)
             } else PatternExp(exp, null, exp)
         }
+        val vars = exps.filter { it.varName != null }.map { it.varName!! to it.original }
+
+        val tree = compileDecisionTree(m, exps.map { it.exp }, type, locals)
+        if (tree != null) return nestLets(vars, tree, type)
+
         val pats = m.cases.map { case ->
             val (cond, vars) = if (case.patterns.size == 1) {
                 desugarPattern(case.patterns[0], exps[0].exp)
@@ -674,10 +987,287 @@ class Optimizer(private val ast: CModule, private val ctorCache: MutableMap<Stri
         val ifExp = if (pats.size == 1 && pats[0].first == tru) {
             pats[0].second
         } else Expr.If(pats, makeThrow("Failed pattern match at ${m.span}."), type, pats[0].second.span)
-        val vars = exps.filter { it.varName != null }.map { it.varName!! to it.original }
         return nestLets(vars, ifExp, type)
     }
 
+    private fun literalTest(p: Pattern.LiteralP, exp: Expr, locals: List<String>): Expr {
+        val lit = p.lit.e.convert(locals)
+        return when (p.lit) {
+            is LiteralPattern.StringLiteral -> Expr.NativeMethod(eqString, lit, listOf(exp), boolType, exp.span)
+            is LiteralPattern.BigintLiteral -> Expr.NativeMethod(bigIntEquals, lit, listOf(exp), boolType, exp.span)
+            is LiteralPattern.BigdecLiteral -> Expr.NativeMethod(bigDecEquals, lit, listOf(exp), boolType, exp.span)
+            else -> Expr.OperatorApp("==", listOf(lit, exp), boolType, exp.span)
+        }
+    }
+
+    private tailrec fun varToLet(vdefs: List<VarDef>, exp: Expr): Expr {
+        return if (vdefs.isEmpty()) exp
+        else {
+            val v = vdefs[0]
+            varToLet(vdefs.drop(1), Expr.Let(v.name, v.exp, exp, exp.type, exp.span))
+        }
+    }
+
+    /**
+     * A row of the pattern matrix: the patterns still to be tested
+     * and the variables already bound by this case.
+     */
+    private class MatchRow(val pats: List<Pattern>, val vars: List<VarDef>, val case: Case)
+
+    /**
+     * The keys of a switch, one for each test.
+     */
+    private sealed class SwitchTable(val exp: Expr) {
+        class Ints(exp: Expr, val keys: List<Int>) : SwitchTable(exp)
+        class Strings(exp: Expr, val keys: List<String>) : SwitchTable(exp)
+    }
+
+    private sealed class MatchTree {
+        class Leaf(val row: MatchRow) : MatchTree()
+        class Guard(val row: MatchRow, val otherwise: MatchTree) : MatchTree()
+        class Switch(
+            val tests: List<Pair<Expr, MatchTree>>,
+            val otherwise: MatchTree,
+            val table: SwitchTable? = null
+        ) : MatchTree()
+        class Bind(val binds: List<Pair<String, Expr>>, val tree: MatchTree) : MatchTree()
+        object Fail : MatchTree()
+    }
+
+    /**
+     * Compiles this match to a decision tree where every sub-term of the
+     * scrutinees is tested at most once (Maranget, "Compiling pattern matching to good decision trees").
+     * Returns null if some pattern can't be compiled this way (lists, records, regexes and type tests)
+     * or if the tree would duplicate too many cases. In that case a linear chain of ifs should be used.
+     */
+    private fun compileDecisionTree(m: CExpr.Match, scrutinees: List<Expr>, type: Clazz, locals: List<String>): Expr? {
+        fun isTreePattern(p: Pattern): Boolean = when (p) {
+            is Pattern.Wildcard, is Pattern.Var, is Pattern.Unit, is Pattern.LiteralP -> true
+            is Pattern.Named -> isTreePattern(p.pat)
+            is Pattern.Ctor -> p.fields.all(::isTreePattern)
+            is Pattern.Record, is Pattern.ListP, is Pattern.TypeTest, is Pattern.Regex -> false
+        }
+        if (!m.cases.all { c -> c.patterns.all(::isTreePattern) }) return null
+
+        val maxLeaves = m.cases.size * MAX_CASE_DUPLICATION
+        var leaves = 0
+
+        fun ctorName(p: Pattern.Ctor) = p.ctor.fullname(p.ctor.moduleName ?: ast.name.value)
+
+        fun literalKey(l: LiteralPattern): Any = when (l) {
+            is LiteralPattern.BoolLiteral -> l.e.v
+            is LiteralPattern.CharLiteral -> l.e.v
+            is LiteralPattern.StringLiteral -> l.e.v
+            is LiteralPattern.Int32Literal -> l.e.v
+            is LiteralPattern.Int64Literal -> l.e.v
+            is LiteralPattern.Float32Literal -> l.e.v
+            is LiteralPattern.Float64Literal -> l.e.v
+            is LiteralPattern.BigintLiteral -> l.e.v
+            is LiteralPattern.BigdecLiteral -> l.e.v
+        }
+
+        // binds variables and removes patterns that can't fail
+        fun normalize(row: MatchRow, occs: List<Expr>): MatchRow {
+            val vars = row.vars.toMutableList()
+            val pats = row.pats.mapIndexed { i, pat ->
+                var p = pat
+                while (p is Pattern.Named || p is Pattern.Var || p is Pattern.Unit) {
+                    p = when (p) {
+                        is Pattern.Named -> {
+                            vars += VarDef(p.name.value, occs[i])
+                            p.pat
+                        }
+                        is Pattern.Var -> {
+                            vars += VarDef(Names.convert(p.v.name), occs[i])
+                            Pattern.Wildcard(p.span)
+                        }
+                        else -> Pattern.Wildcard(p.span)
+                    }
+                }
+                p
+            }
+            return MatchRow(pats, vars, row.case)
+        }
+
+        // int, char and string literals can be switched on
+        fun literalTable(occ: Expr, lits: List<LiteralPattern>): SwitchTable? {
+            val ty = occ.type.type
+            return when {
+                ty == Type.INT_TYPE && lits.all { it is LiteralPattern.Int32Literal } ->
+                    SwitchTable.Ints(occ, lits.map { (it as LiteralPattern.Int32Literal).e.v })
+                ty == Type.CHAR_TYPE && lits.all { it is LiteralPattern.CharLiteral } ->
+                    SwitchTable.Ints(occ, lits.map { (it as LiteralPattern.CharLiteral).e.v.code })
+                ty == stringType.type && lits.all { it is LiteralPattern.StringLiteral } ->
+                    SwitchTable.Strings(occ, lits.map { (it as LiteralPattern.StringLiteral).e.v })
+                else -> null
+            }
+        }
+
+        fun MatchRow.replace(col: Int, pats: List<Pattern>) =
+            MatchRow(this.pats.take(col) + pats + this.pats.drop(col + 1), vars, case)
+
+        // binds the sub-terms that will be tested or bound to a local variable
+        fun bindSubterms(subterms: List<Expr>, rows: List<MatchRow>, col: Int, binds: MutableList<Pair<String, Expr>>) =
+            subterms.mapIndexed { i, exp ->
+                if (rows.all { it.pats[col + i] is Pattern.Wildcard }) exp
+                else {
+                    val name = "case$${genVar++}"
+                    binds += name to exp
+                    Expr.LocalVar(name, exp.type, exp.span)
+                }
+            }
+
+        fun compile(occs: List<Expr>, matrix: List<MatchRow>): MatchTree? {
+            if (matrix.isEmpty()) return MatchTree.Fail
+            val rows = matrix.map { normalize(it, occs) }
+            val first = rows[0]
+            val col = first.pats.indexOfFirst { it !is Pattern.Wildcard }
+            if (col == -1) {
+                if (++leaves > maxLeaves) return null
+                if (first.case.guard == null) return MatchTree.Leaf(first)
+                return MatchTree.Guard(first, compile(occs, rows.drop(1)) ?: return null)
+            }
+
+            val occ = occs[col]
+            val restOccs = occs.take(col) + occs.drop(col + 1)
+            val default = rows.filter { it.pats[col] is Pattern.Wildcard }.map { it.replace(col, emptyList()) }
+
+            when (val pat = first.pats[col]) {
+                is Pattern.LiteralP -> {
+                    val lits = rows.mapNotNull { it.pats[col] as? Pattern.LiteralP }.distinctBy { literalKey(it.lit) }
+                    val branches = lits.map { lit ->
+                        val key = literalKey(lit.lit)
+                        val spec = rows.filter {
+                            val p = it.pats[col]
+                            p is Pattern.Wildcard || (p is Pattern.LiteralP && literalKey(p.lit) == key)
+                        }.map { it.replace(col, emptyList()) }
+                        literalTest(lit, occ, locals) to (compile(restOccs, spec) ?: return null)
+                    }
+                    // both booleans are covered: the last one doesn't need to be tested
+                    if (pat.lit is LiteralPattern.BoolLiteral && branches.size == 2)
+                        return MatchTree.Switch(branches.dropLast(1), branches.last().second)
+                    val table = literalTable(occ, lits.map { it.lit })
+                    return MatchTree.Switch(branches, compile(restOccs, default) ?: return null, table)
+                }
+                is Pattern.Ctor -> {
+                    val name = ctorName(pat)
+                    if (name == "prim.Some" || name == "prim.None") {
+                        val binds = mutableListOf<Pair<String, Expr>>()
+                        val someRows = rows.mapNotNull {
+                            when (val p = it.pats[col]) {
+                                is Pattern.Wildcard -> it.replace(col, listOf(p))
+                                is Pattern.Ctor -> if (ctorName(p) == "prim.Some") it.replace(col, p.fields) else null
+                                else -> null
+                            }
+                        }
+                        val noneRows = rows.filter {
+                            val p = it.pats[col]
+                            p is Pattern.Wildcard || (p is Pattern.Ctor && ctorName(p) == "prim.None")
+                        }.map { it.replace(col, emptyList()) }
+                        val unboxed = bindSubterms(listOf(Expr.Unbox(occ, toPrimitive(occ.type))), someRows, col, binds)
+                        val someTree = compile(occs.take(col) + unboxed + occs.drop(col + 1), someRows) ?: return null
+                        val test = Expr.OperatorApp("!=null", listOf(occ), boolType, occ.span)
+                        val someBranch = if (binds.isEmpty()) someTree else MatchTree.Bind(binds, someTree)
+                        return MatchTree.Switch(listOf(test to someBranch), compile(restOccs, noneRows) ?: return null)
+                    }
+
+                    if (newtypes.isCtor(name)) {
+                        // erased constructors can't fail: the field is the value itself
+                        val spec = rows.map {
+                            when (val p = it.pats[col]) {
+                                is Pattern.Ctor -> it.replace(col, p.fields)
+                                else -> it.replace(col, listOf(p))
+                            }
+                        }
+                        val binds = mutableListOf<Pair<String, Expr>>()
+                        val field = bindSubterms(listOf(eraseField(occ, pat.fields[0])), spec, col, binds)
+                        val tree = compile(occs.take(col) + field + occs.drop(col + 1), spec) ?: return null
+                        return if (binds.isEmpty()) tree else MatchTree.Bind(binds, tree)
+                    }
+
+                    val ctors = rows.mapNotNull { it.pats[col] as? Pattern.Ctor }.distinctBy { ctorName(it) }
+                    val branches = ctors.map { p ->
+                        val cname = ctorName(p)
+                        val ctor = p.ctor.convert(locals) as Expr.Constructor
+                        val ctorType = Clazz(Type.getObjectType(internalize(cname)), pars = ctor.type.pars.dropLast(1))
+                        val (fieldTypes, _) = peelArgs(Environment.findConstructor(cname)!!)
+                        val expectedFieldTypes = p.fields.map { it.type!!.convert() }
+
+                        val spec = rows.mapNotNull {
+                            when (val fp = it.pats[col]) {
+                                is Pattern.Wildcard -> it.replace(col, p.fields.map { f -> Pattern.Wildcard(f.span) })
+                                is Pattern.Ctor -> if (ctorName(fp) == cname) it.replace(col, fp.fields) else null
+                                else -> null
+                            }
+                        }
+                        val binds = mutableListOf<Pair<String, Expr>>()
+                        val usesFields = p.fields.indices.any { i -> spec.any { it.pats[col + i] !is Pattern.Wildcard } }
+                        val casted = if (usesFields) {
+                            val castName = "case$${genVar++}"
+                            binds += castName to Expr.Cast(occ, ctorType, occ.span)
+                            Expr.LocalVar(castName, ctorType, occ.span)
+                        } else Expr.Cast(occ, ctorType, occ.span)
+                        val fields = p.fields.indices.map { i ->
+                            val field = Expr.ConstructorAccess(ctor.fullName, i + 1, casted, fieldTypes[i], occ.span)
+                            val expected = expectedFieldTypes[i]
+                            if (fieldTypes[i] == expected || expected.type == OBJECT_TYPE) field
+                            else Expr.Cast(field, expected, occ.span)
+                        }
+                        val fieldOccs = bindSubterms(fields, spec, col, binds)
+                        val tree = compile(occs.take(col) + fieldOccs + occs.drop(col + 1), spec) ?: return null
+                        val test = Expr.InstanceOf(occ, ctorType, p.span)
+                        test to if (binds.isEmpty()) tree else MatchTree.Bind(binds, tree)
+                    }
+                    val tags = ctors.mapNotNull { ctorCache[ctorName(it)]?.tag }
+                    val table = if (tags.size == ctors.size) {
+                        val (_, adtType) = peelArgs(Environment.findConstructor(name)!!)
+                        val tag = Expr.ConstructorTag(occ, adtType.type.internalName, intType, occ.span)
+                        SwitchTable.Ints(tag, tags)
+                    } else null
+                    // all constructors are covered: the last one doesn't need to be tested
+                    if (ctorCache[name]?.span == ctors.size)
+                        return MatchTree.Switch(branches.dropLast(1), branches.last().second, table)
+                    return MatchTree.Switch(branches, compile(restOccs, default) ?: return null, table)
+                }
+                else -> internalError("Got unexpected pattern in decision tree: ${pat.show()}")
+            }
+        }
+
+        fun caseBody(row: MatchRow): Expr =
+            varToLet(row.vars, row.case.exp.convert(locals + row.vars.map { it.name }))
+
+        fun toExpr(tree: MatchTree): Expr = when (tree) {
+            is MatchTree.Leaf -> caseBody(tree.row)
+            is MatchTree.Guard -> {
+                val row = tree.row
+                val guard = varToLet(row.vars, row.case.guard!!.convert(locals + row.vars.map { it.name }))
+                Expr.If(listOf(guard to caseBody(row)), toExpr(tree.otherwise), type, guard.span)
+            }
+            is MatchTree.Switch -> {
+                val table = tree.table
+                if (tree.tests.isEmpty()) toExpr(tree.otherwise)
+                else if (table != null && tree.tests.size >= MIN_SWITCH_TESTS) {
+                    val cases = tree.tests.map { toExpr(it.second) }
+                    val otherwise = toExpr(tree.otherwise)
+                    when (table) {
+                        is SwitchTable.Ints -> Expr.Switch(table.exp, table.keys.zip(cases), otherwise, type, m.span)
+                        is SwitchTable.Strings ->
+                            Expr.StringSwitch(table.exp, table.keys.zip(cases), otherwise, type, m.span)
+                    }
+                } else {
+                    val conds = tree.tests.map { (test, t) -> test to toExpr(t) }
+                    Expr.If(conds, toExpr(tree.otherwise), type, conds[0].second.span)
+                }
+            }
+            is MatchTree.Bind -> nestLets(tree.binds, toExpr(tree.tree), type)
+            is MatchTree.Fail -> makeThrow("Failed pattern match at ${m.span}.")
+        }
+
+        val rows = m.cases.map { MatchRow(it.patterns, emptyList(), it) }
+        val tree = compile(scrutinees, rows) ?: return null
+        return toExpr(tree)
+    }
+
     private fun makeMetaExpr(meta: List<Pair<String, Metadata>>): Decl.ValDecl {
         fun register(decl: String, exp: CExpr.RecordExtend): Expr {
             val modExpr = Expr.StringE(ast.name.value, stringType, Span.empty())
@@ -690,6 +1280,15 @@ class Optimizer(private val ast: CModule, private val ctorCache: MutableMap<Stri
         return Decl.ValDecl("\$meta", expr, Visibility.PRIVATE, Span.empty())
     }
 
+    /**
+     * The field of an erased constructor is the value itself.
+     */
+    private fun eraseField(exp: Expr, field: Pattern): Expr {
+        val expected = field.type!!.convert()
+        return if (exp.type == expected || expected.type == OBJECT_TYPE) exp
+        else Expr.Cast(exp, expected, exp.span)
+    }
+
     private fun needVar(exp: Expr): Boolean = when (exp) {
         is Expr.Var, is Expr.LocalVar, is Expr.ByteE, is Expr.Int16,
         is Expr.Int32, is Expr.Int64, is Expr.Float32, is Expr.Float64,
@@ -744,6 +1343,16 @@ class Optimizer(private val ast: CModule, private val ctorCache: MutableMap<Stri
         errors += errs
     }
 
+    /**
+     * Erased types have no class of their own, so they cannot be tested at runtime.
+     */
+    private fun reportErasedTypeTest(type: TType, span: Span) {
+        val name = (type as? TConst)?.name ?: ((type as? TApp)?.type as? TConst)?.name ?: return
+        if (newtypes.find(name) != null) {
+            errors += CompilerProblem(E.erasedTypeTest(name), span, ast.sourceName, ast.name.value)
+        }
+    }
+
     private fun mkWarn(msg: String, span: Span): CompilerProblem =
         CompilerProblem(
             msg,
@@ -757,6 +1366,23 @@ class Optimizer(private val ast: CModule, private val ctorCache: MutableMap<Stri
 
         class TCOError(val msg: String) : java.lang.RuntimeException(msg)
 
+        // top-level functions with at least this many arguments get an uncurried static method
+        const val MIN_UNCURRIED_ARITY = 2
+
+        // groups of mutually tail recursive functions with more parameters than this are not merged
+        private const val MAX_TCO_GROUP_PARS = 32
+
+        // decision trees may duplicate cases, if they get bigger than
+        // this factor we fall back to a linear chain of ifs
+        private const val MAX_CASE_DUPLICATION = 2
+
+        // tests on constructors and literals are compiled to a switch
+        // if there are at least this many of them
+        private const val MIN_SWITCH_TESTS = 2
+
+        // bigger records are kept as maps
+        private const val MAX_SHAPE_LABELS = 32
+
         private fun getPrimitiveTypeName(tvar: TConst): Type = when (tvar.name) {
             primByte -> Type.getType(Byte::class.java)
             primInt16 -> Type.getType(Short::class.java)
@@ -806,9 +1432,9 @@ class Optimizer(private val ast: CModule, private val ctorCache: MutableMap<Stri
         private fun internalize(name: String) = name.replace('.', '/')
 
         private val RECORD_TYPE = Type.getType(Record::class.java)
-        private val FUNCTION_TYPE = Type.getType(Function::class.java)
+        val FUNCTION_TYPE = Type.getType(Function::class.java)!!
         private val LIST_TYPE = Type.getType(PList::class.java)
-        private val UNIT_TYPE = Type.getObjectType(internalize("novah.Unit"))
+        val UNIT_TYPE = Type.getObjectType(internalize("novah.Unit"))
         val OBJECT_TYPE = Type.getType(Object::class.java)!!
         val ARRAY_TYPE = Type.getType(Array::class.java)!!
 
@@ -824,7 +1450,13 @@ class Optimizer(private val ast: CModule, private val ctorCache: MutableMap<Stri
         private val eqString = String::class.java.methods.find { it.name == "equals" }!!
         val newRecFun: Constructor<*> = RecFunction::class.java.constructors.first()
         val recFunField = RecFunction::class.java.fields.find { it.name == "fun" }!!
-        val patternMatches = java.util.regex.Pattern::class.java.methods.find { it.name == "matches" }!!
+        private val patternCompile = java.util.regex.Pattern::class.java.methods.find {
+            it.name == "compile" && it.parameterCount == 1
+        }!!
+        private val patternMatcher = java.util.regex.Pattern::class.java.methods.find { it.name == "matcher" }!!
+        private val matcherMatches = java.util.regex.Matcher::class.java.methods.find { it.name == "matches" }!!
+        private val patternType = Clazz(Type.getType(java.util.regex.Pattern::class.java))
+        private val matcherType = Clazz(Type.getType(java.util.regex.Matcher::class.java))
         val registerMetas = novah.Metadata::class.java.methods.find { it.name == "registerMetas" }!!
         val bigIntEquals = BigInteger::class.java.methods.find { it.name == "equals" }!!
         val bigDecEquals = BigDecimal::class.java.methods.find { it.name == "equals" }!!
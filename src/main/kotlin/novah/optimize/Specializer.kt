@@ -0,0 +1,249 @@
+/**
+ * Copyright 2022 Islon Scherer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package novah.optimize
+
+import novah.Util.internalError
+import novah.ast.canonical.Expr
+import novah.ast.canonical.Metadata
+import novah.ast.canonical.Module
+import novah.ast.canonical.everywhereUnit
+import novah.ast.canonical.isTrue
+import novah.data.forEachList
+import novah.data.mapList
+import novah.frontend.typechecker.*
+import novah.ast.canonical.Decl.ValDecl as CValDecl
+import novah.frontend.typechecker.Type as TType
+
+/**
+ * A copy of a polymorphic function where some type variables are primitive types.
+ *
+ * @param name the name of the copy, like `sum$Int32`
+ * @param subst the types of the specialized type variables by id
+ */
+class Specialization(val name: String, val subst: Map<Id, TType>)
+
+/**
+ * A function marked with `#[specialize]` of a module that is not generated again.
+ *
+ * @param type the type of the function
+ * @param keys the specializations the module was generated with
+ */
+class ReusedCandidate(val type: TType, val keys: Set<String>)
+
+/**
+ * Finds all the calls to functions marked with `#[specialize]` where
+ * some of their type variables are primitive types, so a copy of the function
+ * can be compiled for these types without boxing.
+ * Specialized functions may call other specialized functions.
+ *
+ * All modules have to be known in advance as the copy lives in the module
+ * of the function and the calls can come from any module.
+ * Modules that are not generated again keep the copies they were generated with:
+ * calls to them use these copies, any other call uses the polymorphic function.
+ *
+ * @param reused the functions to specialize of modules that are not generated again, by full name
+ */
+class Specializer(mods: Collection<Module>, private val reused: Map<String, ReusedCandidate> = emptyMap()) {
+
+    // the functions that can be specialized by full name
+    private val candidates = mutableMapOf<String, CValDecl>()
+
+    private val specs = mutableMapOf<String, MutableMap<String, Specialization>>()
+
+    init {
+        for (mod in mods) {
+            for (d in mod.decls) {
+                if (d is CValDecl && !d.typeError && !d.isInstance && d.metadata.isTrue(Metadata.SPECIALIZE)) {
+                    candidates["${mod.name.value}.${d.name.value}"] = d
+                }
+            }
+        }
+        if (candidates.isNotEmpty()) {
+            for (mod in mods) {
+                for (d in mod.decls) {
+                    if (d is CValDecl && !d.typeError) collect(mod.name.value, d.exp, emptyMap())
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the name of the specialized copy of this top-level function
+     * for the type it's used at, if there's one.
+     * @param module the module of the function
+     * @param subst the specialization of the function being compiled, if any
+     */
+    fun specialize(module: String, name: String, type: TType, subst: Map<Id, TType>): String? {
+        val decl = candidates["$module.$name"]
+        if (decl == null) {
+            val cand = reused["$module.$name"] ?: return null
+            val key = key(cand.type, type, subst) ?: return null
+            return if (key in cand.keys) "$name\$$key" else null
+        }
+        val key = key(declType(decl), type, subst) ?: return null
+        return specs["$module.$name"]?.get(key)?.name
+    }
+
+    /**
+     * All the specialized copies of this function.
+     */
+    fun specializationsOf(module: String, name: String): Collection<Specialization> =
+        specs["$module.$name"]?.values ?: emptyList()
+
+    /**
+     * The keys of the specialized copies of every function of this module, by name.
+     */
+    fun keysOf(module: String): Map<String, Set<String>> =
+        specs.filter { (name, declSpecs) -> name.substringBeforeLast('.') == module && declSpecs.isNotEmpty() }
+            .entries.associate { (name, declSpecs) -> name.substringAfterLast('.') to declSpecs.keys.toSet() }
+
+    private fun collect(module: String, exp: Expr, subst: Map<Id, TType>) {
+        exp.everywhereUnit { e ->
+            if (e is Expr.Var) {
+                val mod = e.moduleName ?: module
+                val fullname = "$mod.${e.name}"
+                val decl = candidates[fullname]
+                val type = e.type
+                if (decl != null && type != null) {
+                    val key = key(declType(decl), type, subst)
+                    val declSpecs = specs.getOrPut(fullname) { mutableMapOf() }
+                    if (key != null && key !in declSpecs) {
+                        val vars = primitiveVars(declType(decl), type, subst)
+                        val spec = Specialization("${decl.name.value}\$$key", vars)
+                        declSpecs[key] = spec
+                        collect(mod, decl.exp, spec.subst)
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Identifies a specialization by the types of all type variables
+     * of the function in order. `o` is used for non-primitive types.
+     * Returns null if no type variable is a primitive.
+     */
+    private fun key(declType: TType, type: TType, subst: Map<Id, TType>): String? {
+        val prims = primitiveVars(declType, type, subst)
+        if (prims.isEmpty()) return null
+        return typeVars(declType).joinToString("\$") { id ->
+            val prim = prims[id]
+            if (prim is TConst) prim.name.substringAfterLast('.') else "o"
+        }
+    }
+
+    private fun primitiveVars(declType: TType, type: TType, subst: Map<Id, TType>): Map<Id, TType> {
+        val vars = mutableMapOf<Id, TType>()
+        match(declType, substitute(type, subst), vars)
+        return vars.filterValues { it is TConst && it.name in primitives }
+    }
+
+    private fun declType(decl: CValDecl): TType =
+        decl.exp.type ?: internalError("Received declaration without type after type checking: ${decl.name.value}")
+
+    companion object {
+        private val primitives =
+            setOf(primByte, primInt16, primInt32, primInt64, primFloat32, primFloat64, primBoolean, primChar)
+
+        /**
+         * Binds the type variables of `decl` to the matching types in `use`.
+         */
+        private fun match(decl: TType, use: TType, vars: MutableMap<Id, TType>) {
+            val ty = use.realType()
+            when (val d = decl.realType()) {
+                is TVar -> when (val tv = d.tvar) {
+                    is TypeVar.Generic -> vars.putIfAbsent(tv.id, ty)
+                    is TypeVar.Unbound -> vars.putIfAbsent(tv.id, ty)
+                    is TypeVar.Link -> {}
+                }
+                is TApp -> if (ty is TApp && ty.types.size == d.types.size) {
+                    match(d.type, ty.type, vars)
+                    d.types.zip(ty.types).forEach { (a, b) -> match(a, b, vars) }
+                }
+                is TArrow -> if (ty is TArrow && ty.args.size == d.args.size) {
+                    d.args.zip(ty.args).forEach { (a, b) -> match(a, b, vars) }
+                    match(d.ret, ty.ret, vars)
+                }
+                is TImplicit -> if (ty is TImplicit) match(d.type, ty.type, vars)
+                is TRecord -> if (ty is TRecord) match(d.row, ty.row, vars)
+                is TRowExtend -> {
+                    // labels are matched by name, the rest of a row is never a primitive
+                    val labels = d.collectRows().first
+                    val useLabels = ty.collectRows().first
+                    labels.forEach { kv ->
+                        val uses = useLabels.get(kv.key(), null)
+                        if (uses != null) kv.value().zip(uses).forEach { (a, b) -> match(a, b, vars) }
+                    }
+                }
+                else -> {}
+            }
+        }
+
+        /**
+         * The ids of the type variables in this type in order of appearance.
+         */
+        private fun typeVars(type: TType): List<Id> {
+            val ids = LinkedHashSet<Id>()
+            fun go(t: TType) {
+                when (val ty = t.realType()) {
+                    is TVar -> when (val tv = ty.tvar) {
+                        is TypeVar.Generic -> ids += tv.id
+                        is TypeVar.Unbound -> ids += tv.id
+                        is TypeVar.Link -> {}
+                    }
+                    is TApp -> {
+                        go(ty.type)
+                        ty.types.forEach(::go)
+                    }
+                    is TArrow -> {
+                        ty.args.forEach(::go)
+                        go(ty.ret)
+                    }
+                    is TImplicit -> go(ty.type)
+                    is TRecord -> go(ty.row)
+                    is TRowExtend -> {
+                        ty.labels.forEachList(::go)
+                        go(ty.row)
+                    }
+                    else -> {}
+                }
+            }
+            go(type)
+            return ids.toList()
+        }
+
+        /**
+         * Replaces the type variables in `subst` with their types.
+         */
+        fun substitute(type: TType, subst: Map<Id, TType>): TType {
+            if (subst.isEmpty()) return type
+            return when (val ty = type.realType()) {
+                is TVar -> when (val tv = ty.tvar) {
+                    is TypeVar.Generic -> subst[tv.id] ?: ty
+                    is TypeVar.Unbound -> subst[tv.id] ?: ty
+                    is TypeVar.Link -> ty
+                }
+                is TApp -> ty.copy(type = substitute(ty.type, subst), types = ty.types.map { substitute(it, subst) })
+                is TArrow -> ty.copy(args = ty.args.map { substitute(it, subst) }, ret = substitute(ty.ret, subst))
+                is TImplicit -> ty.copy(type = substitute(ty.type, subst))
+                is TRecord -> ty.copy(row = substitute(ty.row, subst))
+                is TRowExtend ->
+                    ty.copy(labels = ty.labels.mapList { substitute(it, subst) }, row = substitute(ty.row, subst))
+                else -> ty
+            }
+        }
+    }
+}
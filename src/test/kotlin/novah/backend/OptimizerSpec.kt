@@ -20,8 +20,14 @@ import io.kotest.matchers.shouldBe
 import io.kotest.matchers.types.shouldBeInstanceOf
 import novah.ast.optimized.Decl
 import novah.ast.optimized.Expr
+import novah.ast.optimized.RecordShape
+import novah.ast.optimized.everywherUnit
+import novah.ast.optimized.nestedLambdas
 import novah.frontend.TestUtil
 import novah.frontend.TestUtil.module
+import novah.optimize.GlobalsSerializer
+import novah.optimize.Optimization
+import org.objectweb.asm.Type
 
 class OptimizerSpec : StringSpec({
 
@@ -54,4 +60,371 @@ class OptimizerSpec : StringSpec({
         s.shouldBeInstanceOf<Expr.StringE>()
         s.v shouldBe "d"
     }
-})
\ No newline at end of file
+
+    "saturated applications of top-level functions are optimized to static calls" {
+        val code = """
+            add : Int -> Int -> Int
+            add x y = x + y
+            
+            f = add 1 2
+            
+            g = add 1
+        """.module()
+
+        val res = TestUtil.compileAndOptimizeCode(code)
+        val add = res.decls.find { it is Decl.ValDecl && it.name == "add" }!! as Decl.ValDecl
+        add.arity shouldBe 2
+
+        val f = res.decls.find { it is Decl.ValDecl && it.name == "f" }!! as Decl.ValDecl
+        val call = f.exp
+        call.shouldBeInstanceOf<Expr.StaticCall>()
+        call.name shouldBe "add"
+        call.args.size shouldBe 2
+
+        val g = res.decls.find { it is Decl.ValDecl && it.name == "g" }!! as Decl.ValDecl
+        g.exp.shouldBeInstanceOf<Expr.App>()
+    }
+
+    "single constructor single field types are erased" {
+        val code = """
+            type Wrap = Wrap Int
+            
+            f = Wrap 3
+        """.module()
+
+        val res = TestUtil.compileAndOptimizeCode(code)
+        res.decls.any { it is Decl.TypeDecl && it.name == "Wrap" } shouldBe false
+
+        val f = res.decls.find { it is Decl.ValDecl && it.name == "f" }!! as Decl.ValDecl
+        f.exp.shouldBeInstanceOf<Expr.Int32>()
+    }
+
+    "types are not erased after they get more constructors" {
+        val erased = TestUtil.compileAndOptimizeCode("type Wrap = Wrap Int\n\nf = Wrap 3".module())
+        erased.decls.any { it is Decl.TypeDecl && it.name == "Wrap" } shouldBe false
+
+        // the same module compiled again in the same JVM, like the REPL and the language server do
+        val res = TestUtil.compileAndOptimizeCode("type Wrap = Wrap Int | Other\n\nf = Wrap 3".module())
+        res.decls.any { it is Decl.TypeDecl && it.name == "Wrap" } shouldBe true
+        val f = res.decls.find { it is Decl.ValDecl && it.name == "f" }!! as Decl.ValDecl
+        f.exp.shouldBeInstanceOf<Expr.CtorApp>()
+    }
+
+    "only computed values are initialized lazily" {
+        val code = """
+            n = 10
+            
+            s = "str"
+            
+            f x = x + 1
+            
+            g : Int -> Int
+            g x = x + 1
+            
+            xs = [1, 2, 3]
+            
+            t = println "hi"
+        """.module()
+
+        val menv = TestUtil.compileCode(code)
+        Codegen.collectLazyValues(menv.ast) shouldBe setOf("test/\$Module.xs")
+    }
+
+    "small functions are inlined" {
+        val code = """
+            addOne : Int -> Int
+            addOne x = x + 1
+            
+            loop : Int -> Int
+            loop x = loop (x + 1)
+            
+            f = addOne 2
+            
+            g = (\x -> x) 'a'
+            
+            h = loop 1
+        """.module()
+
+        val res = TestUtil.compileAndOptimizeCode(code)
+        val f = res.decls.find { it is Decl.ValDecl && it.name == "f" }!! as Decl.ValDecl
+        val g = res.decls.find { it is Decl.ValDecl && it.name == "g" }!! as Decl.ValDecl
+        val h = res.decls.find { it is Decl.ValDecl && it.name == "h" }!! as Decl.ValDecl
+        val exp = f.exp
+        exp.shouldBeInstanceOf<Expr.OperatorApp>()
+        exp.operands.map { (it as Expr.Int32).v } shouldBe listOf(2, 1)
+        g.exp.shouldBeInstanceOf<Expr.CharE>()
+        h.exp.shouldBeInstanceOf<Expr.App>()
+    }
+
+    "partial applications are not inlined into lambdas" {
+        val code = """
+            loop : Int -> Int -> Int
+            loop x y = loop (x + y) y
+            
+            f : Int -> Int -> Int
+            f z =
+              let p = loop z
+              \y -> p y
+        """.module()
+
+        val res = TestUtil.compileAndOptimizeCode(code)
+        val f = res.decls.find { it is Decl.ValDecl && it.name == "f" }!! as Decl.ValDecl
+        (f.exp as Expr.Lambda).body.shouldBeInstanceOf<Expr.Let>()
+    }
+
+    "point-free values are not inlined into lambdas" {
+        val code = """
+            loop : Int -> Int -> Int
+            loop x y = loop (x + y) y
+            
+            inc : Int -> Int
+            inc = loop 1
+            
+            f : Int -> Int -> Int
+            f z =
+              let p = inc
+              \y -> p (y + z)
+            
+            g : Int -> Int -> Int
+            g z =
+              let p = loop
+              \y -> p z y
+        """.module()
+
+        val res = TestUtil.compileAndOptimizeCode(code)
+        val f = res.decls.find { it is Decl.ValDecl && it.name == "f" }!! as Decl.ValDecl
+        (f.exp as Expr.Lambda).body.shouldBeInstanceOf<Expr.Let>()
+        // real functions are still substituted
+        val g = res.decls.find { it is Decl.ValDecl && it.name == "g" }!! as Decl.ValDecl
+        (g.exp as Expr.Lambda).body.shouldBeInstanceOf<Expr.Lambda>()
+    }
+
+    "list pipelines are fused" {
+        val code = """
+            import novah.list as List
+            
+            f : List Int -> Int
+            f xs = xs |> List.map (_ + 1) |> List.filter (_ > 2) |> List.foldl (+) 0
+        """.module()
+
+        val res = TestUtil.compileAndOptimizeCode(code)
+        val f = res.decls.find { it is Decl.ValDecl && it.name == "f" }!! as Decl.ValDecl
+        // the folding function is not a lambda so it's bound once before the fold
+        val let = (f.exp as Expr.Lambda).body
+        let.shouldBeInstanceOf<Expr.Let>()
+        val exp = let.body
+        exp.shouldBeInstanceOf<Expr.NativeStaticMethod>()
+        exp.method.name shouldBe "fuseFoldList"
+        (exp.pars[0] as Expr.StringE).v shouldBe "fm"
+    }
+
+    "pipelines with effects are not fused" {
+        val code = """
+            import novah.list as List
+            
+            log : Int -> Int
+            log x =
+              println x
+              x
+            
+            f : List Int -> List Int
+            f xs = xs |> List.map (_ + 1) |> List.map log
+        """.module()
+
+        val res = TestUtil.compileAndOptimizeCode(code)
+        val f = res.decls.find { it is Decl.ValDecl && it.name == "f" }!! as Decl.ValDecl
+        var fused = false
+        f.exp.everywherUnit { if (it is Expr.NativeStaticMethod && it.method.name == "fuseList") fused = true }
+        fused shouldBe false
+    }
+
+    "consecutive updates are batched" {
+        val code = """
+            import novah.map as Map
+            
+            f : Map String Int -> Map String Int
+            f m = m |> Map.put "a" 1 |> Map.remove "b" |> Map.put "c" 3
+        """.module()
+
+        val res = TestUtil.compileAndOptimizeCode(code)
+        val f = res.decls.find { it is Decl.ValDecl && it.name == "f" }!! as Decl.ValDecl
+        val exp = (f.exp as Expr.Lambda).body
+        exp.shouldBeInstanceOf<Expr.NativeStaticMethod>()
+        exp.method.name shouldBe "batchMap"
+        (exp.pars[0] as Expr.StringE).v shouldBe "prp"
+        (exp.pars[1] as Expr.ArrayLiteral).exps.size shouldBe 5
+    }
+
+    "comprehensions are fused" {
+        val code = """
+            import novah.computation
+            
+            f : List Int -> List Int
+            f xs =
+              do.list
+                for x in xs do
+                  for y in xs do
+                    if x < y then yield x * y
+        """.module()
+
+        val res = TestUtil.compileAndOptimizeCode(code)
+        val f = res.decls.find { it is Decl.ValDecl && it.name == "f" }!! as Decl.ValDecl
+        val exp = (f.exp as Expr.Lambda).body
+        exp.shouldBeInstanceOf<Expr.Let>()
+        val init = exp.bindExpr
+        init.shouldBeInstanceOf<Expr.NativeMethod>()
+        init.method.name shouldBe "linear"
+        var loops = 0
+        exp.everywherUnit { if (it is Expr.While) loops++ }
+        loops shouldBe 2
+    }
+
+    "string concatenations are joined" {
+        val code = """
+            f : String -> String
+            f name = "hello " ++ name ++ format "%s!" [name]
+        """.module()
+
+        val res = TestUtil.compileAndOptimizeCode(code)
+        val f = res.decls.find { it is Decl.ValDecl && it.name == "f" }!! as Decl.ValDecl
+        val exp = (f.exp as Expr.Lambda).body
+        exp.shouldBeInstanceOf<Expr.StringConcat>()
+        exp.parts.size shouldBe 4
+    }
+
+    "mutually tail recursive functions are merged" {
+        val code = """
+            isEven : Int -> Boolean
+            isEven n = if n == 0 then true else isOdd (n - 1)
+            
+            isOdd : Int -> Boolean
+            isOdd n = if n == 0 then false else isEven (n - 1)
+        """.module()
+
+        val res = TestUtil.compileAndOptimizeCode(code)
+        val group = res.decls.find { it is Decl.ValDecl && it.name == "isEven\$tco" }!! as Decl.ValDecl
+        group.arity shouldBe 3
+        group.exp.nestedLambdas().last().body.shouldBeInstanceOf<Expr.Let>()
+        val isOdd = res.decls.find { it is Decl.ValDecl && it.name == "isOdd" }!! as Decl.ValDecl
+        val call = (isOdd.exp as Expr.Lambda).body
+        call.shouldBeInstanceOf<Expr.App>()
+    }
+
+    "tail calls are found through casts" {
+        val code = """
+            isEven : Int -> Boolean
+            isEven n = if n == 0 then true else (isOdd (n - 1) as Boolean)
+            
+            isOdd : Int -> Boolean
+            isOdd n = if n == 0 then false else (isEven (n - 1) as Boolean)
+        """.module()
+
+        val res = TestUtil.compileAndOptimizeCode(code)
+        val group = res.decls.find { it is Decl.ValDecl && it.name == "isEven\$tco" }!! as Decl.ValDecl
+        var calls = 0
+        group.exp.everywherUnit { if (it is Expr.Var && (it.name == "isEven" || it.name == "isOdd")) calls++ }
+        calls shouldBe 0
+    }
+
+    "local functions are lifted" {
+        val code = """
+            f : Int -> Int
+            f n =
+              let go x = if x < 2 then n else go (x - 1) + x
+              go 10 + go 20
+        """.module()
+
+        val res = TestUtil.compileAndOptimizeCode(code)
+        val lifted = res.decls.find { it is Decl.ValDecl && it.name == "f\$go\$0" }!! as Decl.ValDecl
+        lifted.arity shouldBe 2
+        val f = res.decls.find { it is Decl.ValDecl && it.name == "f" }!! as Decl.ValDecl
+        val exp = (f.exp as Expr.Lambda).body
+        exp.shouldBeInstanceOf<Expr.OperatorApp>()
+        exp.operands.forEach { it.shouldBeInstanceOf<Expr.StaticCall>() }
+    }
+
+    "functions are specialized at primitive types" {
+        val code = """
+            #[specialize]
+            twice : {{ Plus a }} -> a -> a
+            twice {{Plus p}} x = p.plus x x
+            
+            f : Int64 -> Int64
+            f x = twice x
+        """.module()
+
+        val res = TestUtil.compileAndOptimizeCode(code)
+        val spec = res.decls.find { it is Decl.ValDecl && it.name == "twice\$Int64" }!! as Decl.ValDecl
+        spec.exp.nestedLambdas().last().type.pars[1].type shouldBe Type.LONG_TYPE
+    }
+
+    "functions are specialized at primitive types in records" {
+        val code = """
+            #[specialize]
+            sumFields : {{ Plus a }} -> { x : a, y : a } -> { total : a }
+            sumFields {{Plus p}} r = { total: p.plus r.x r.y }
+            
+            f : Unit -> { total : Float64 }
+            f _ = sumFields { x: 1.0, y: 2.0 }
+        """.module()
+
+        val res = TestUtil.compileAndOptimizeCode(code)
+        res.decls.any { it is Decl.ValDecl && it.name == "sumFields\$Float64" } shouldBe true
+    }
+
+    "stdlib numeric helpers are specialized with primitive accumulators" {
+        val code = """
+            import novah.list as List
+            
+            f : List Int32 -> Int32
+            f xs = List.sum xs
+        """.module()
+
+        val res = TestUtil.compileAndOptimizeCode(code, moduleName = "novah.list")
+        val sum = res.decls.find { it is Decl.ValDecl && it.name == "sum\$Int32" }!! as Decl.ValDecl
+        sum.exp.nestedLambdas().last().type.pars[1].type shouldBe Type.INT_TYPE
+        val fold = res.decls.find { it is Decl.ValDecl && it.name == "foldlFrom\$Int32\$Int32" }!! as Decl.ValDecl
+        val lambdas = fold.exp.nestedLambdas()
+        lambdas[1].type.pars[0].type shouldBe Type.INT_TYPE
+        lambdas.last().type.pars[1].type shouldBe Type.INT_TYPE
+    }
+
+        "what is known about a module survives being saved in its interface" {
+        val code = """
+            import novah.list as List
+            
+            foreign import java.lang.Math
+            
+            type Box = Box Int32 String
+            
+            inc : Int32 -> Int32
+            inc x = Math#abs(x) + 1
+            
+            pub
+            label : Box -> String
+            label (Box n s) = s ++ toString (inc n)
+            
+            pub
+            total : List Int32 -> { sum : Int32, names : Set String }
+            total xs = { sum: List.sum xs, names: #{"a", "b"} }
+        """.module()
+
+        val res = TestUtil.compileAndOptimizeCode(code)
+        val globals = Optimization.collectGlobals(listOf(res))
+        val read = GlobalsSerializer.read(GlobalsSerializer.write(globals), javaClass.classLoader)!!
+        read.entries shouldBe globals.entries
+        read.instances shouldBe globals.instances
+        read.methods shouldBe globals.methods
+        read.privates shouldBe globals.privates
+        read.inlines.mapValues { it.value.fn } shouldBe globals.inlines.mapValues { it.value.fn }
+    }
+
+    "record shapes with long labels have bounded class names" {
+        val labels = List(32) { "label${it}WithAVeryLongNameThatKeepsGoing" }
+        val shape = RecordShape(labels, labels.map { Type.INT_TYPE })
+        val other = RecordShape(labels.dropLast(1) + "another", labels.map { Type.INT_TYPE })
+
+        shape.className.substringAfterLast('/').length shouldBe 63
+        (shape.className == other.className) shouldBe false
+    }
+})
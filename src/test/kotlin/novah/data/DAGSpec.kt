@@ -17,6 +17,7 @@ package novah.data
 
 import io.kotest.core.spec.style.StringSpec
 import io.kotest.matchers.shouldBe
+import java.util.Collections
 
 class DAGSpec : StringSpec({
 
@@ -106,4 +107,34 @@ class DAGSpec : StringSpec({
 
         dag.topoSort().toList() shouldBe listOf(n4, n1, n2, n3, n5, n6)
     }
-})
\ No newline at end of file
+
+    "run a DAG in parallel after the dependencies of every node" {
+        val dag = DAG<Int, Nothing?>()
+
+        val n1 = DagNode(1, null)
+        val n2 = DagNode(2, null)
+        val n3 = DagNode(3, null)
+        val n4 = DagNode(4, null)
+        val n5 = DagNode(5, null)
+        val n6 = DagNode(6, null)
+
+        n1.link(n2)
+        n1.link(n3)
+        n2.link(n3)
+        n4.link(n1)
+        n4.link(n5)
+        n5.link(n6)
+        n5.link(n6)
+
+        dag.addNodes(listOf(n1, n2, n3, n4, n5, n6))
+
+        val ran = Collections.synchronizedList(mutableListOf<Int>())
+        dag.wavefront(4) { ran += it.value }
+
+        ran.sorted() shouldBe listOf(1, 2, 3, 4, 5, 6)
+        ran.indexOf(4) shouldBe 0
+        (ran.indexOf(1) < ran.indexOf(2)) shouldBe true
+        (ran.indexOf(2) < ran.indexOf(3)) shouldBe true
+        (ran.indexOf(5) < ran.indexOf(6)) shouldBe true
+    }
+})
@@ -20,11 +20,14 @@ import novah.data.Result
 import novah.data.mapList
 import novah.data.unwrapOrElse
 import novah.frontend.error.CompilerProblem
+import novah.frontend.matching.Ctor
+import novah.frontend.matching.PatternMatchingCompiler
 import novah.frontend.typechecker.*
 import novah.frontend.typechecker.Type
 import novah.main.*
 import novah.optimize.Optimization
 import novah.optimize.Optimizer
+import novah.optimize.Specializer
 import java.io.File
 import java.nio.file.Path
 import novah.ast.optimized.Module as OModule
@@ -75,10 +78,16 @@ object TestUtil {
         return out
     }
 
-    fun compilerFor(path: String, verbose: Boolean = false, devMode: Boolean = true, stdlib: Boolean = true): Compiler {
+    fun compilerFor(
+        path: String,
+        verbose: Boolean = false,
+        devMode: Boolean = true,
+        stdlib: Boolean = true,
+        lazyInit: Boolean = false
+    ): Compiler {
         val sources = File("src/test/resources/$path").walkBottomUp().filter { it.extension == "novah" }
             .map { it.toPath() }
-        return Compiler.new(sources, null, null, Options(verbose, devMode, stdlib))
+        return Compiler.new(sources, null, null, Options(verbose, devMode, stdlib, lazyInit = lazyInit))
     }
 
     private fun compilerForCode(code: String, verbose: Boolean = false, devMode: Boolean = true): Compiler {
@@ -95,15 +104,20 @@ object TestUtil {
         return compiler.getModules()[moduleName]!!
     }
 
-    fun compileAndOptimizeCode(code: String, verbose: Boolean = false): OModule {
+    fun compileAndOptimizeCode(code: String, verbose: Boolean = false, moduleName: String = "test"): OModule {
         val compiler = compilerForCode(code, verbose)
-        val ast = compiler.compile().values.last().ast
-        val opt = Optimizer(ast, mutableMapOf())
+        val mods = compiler.compile().values
+        val ast = mods.first { it.ast.name.value == moduleName }.ast
+        // the module may match on constructors of the stdlib, like type class instances
+        val ctorCache = mutableMapOf("prim.Some" to Ctor("Some", 1, 2), "prim.None" to Ctor("None", 0, 2))
+        mods.forEach { PatternMatchingCompiler<Nothing>(ctorCache).addConsToCache(it.ast) }
+        val opt = Optimizer(ast, ctorCache, compiler.env.newtypes(), Specializer(mods.map { it.ast }))
         val conv = opt.convert()
         if (opt.errors().isNotEmpty()) {
             opt.errors().forEach { println(it.formatToConsole()) }
         }
-        return Optimization.run(conv)
+        val lifted = Optimization.liftInstanceFields(conv)
+        return Optimization.run(lifted, Optimization.collectGlobals(listOf(lifted)))
     }
 
     fun _i(i: Int) = Expr.Int32(i, "$i")
@@ -16,9 +16,23 @@
 package novah.main
 
 import io.kotest.assertions.throwables.shouldNotThrowAny
+import io.kotest.assertions.throwables.shouldThrow
 import io.kotest.core.spec.style.StringSpec
+import io.kotest.matchers.shouldBe
+import io.kotest.matchers.shouldNotBe
 import novah.frontend.TestUtil
 import novah.frontend.TestUtil.cleanAndGetOutDir
+import org.objectweb.asm.ClassReader
+import org.objectweb.asm.ClassVisitor
+import org.objectweb.asm.MethodVisitor
+import org.objectweb.asm.Opcodes
+import java.io.File
+import java.net.URLClassLoader
+import java.nio.file.Files
+import java.nio.file.Path
+import java.util.jar.JarEntry
+import java.util.jar.JarOutputStream
+import novah.ast.canonical.Decl as CDecl
 
 class CompilationSpec : StringSpec({
 
@@ -29,4 +43,185 @@ class CompilationSpec : StringSpec({
             compiler.run(cleanAndGetOutDir())
         }
     }
-})
\ No newline at end of file
+
+    "modules that didn't change are loaded from their interface" {
+        val out = cleanAndGetOutDir()
+        fun compile(a: String): Set<String> {
+            val sources = sequenceOf(
+                Source.SString(Path.of("a.novah"), "module inc.a\n\n$a"),
+                Source.SString(Path.of("b.novah"), "module inc.b\n\nimport inc.a (foo)\n\npub\nbar : Int32\nbar = foo + 1"),
+                Source.SString(Path.of("c.novah"), "module inc.c\n\npub\nbaz : Int32\nbaz = 3")
+            )
+            val compiler = Compiler(sources, null, null, Options(devMode = true))
+            compiler.run(out)
+            return compiler.env.reusedModules().filter { it.startsWith("inc.") }.toSet()
+        }
+
+        compile("pub\nfoo : Int32\nfoo = 1") shouldBe emptySet()
+        compile("pub\nfoo : Int32\nfoo = 1") shouldBe setOf("inc.a", "inc.b", "inc.c")
+        // only the body changed
+        compile("pub\nfoo : Int32\nfoo = 2") shouldBe setOf("inc.b", "inc.c")
+        // the interface changed
+        compile("pub\nfoo : Int32\nfoo = 2\n\npub\nqux : Int32\nqux = 4") shouldBe setOf("inc.c")
+    }
+
+    "modules loaded from their interface keep their optimizations in normal mode" {
+        val out = cleanAndGetOutDir()
+        val a = "module opt.a\n\n#[specialize]\npub\nrepeat : {{ Plus a }} -> a -> Int32 -> a -> a\n" +
+                "repeat {{Plus p}} x n acc = if n <= 0 then acc else repeat x (n - 1) (p.plus acc x)\n\n" +
+                "pub\ninc : Int32 -> Int32\ninc x = x + 1"
+        fun compile(bar: String): Set<String> {
+            val sources = sequenceOf(
+                Source.SString(Path.of("a.novah"), a),
+                Source.SString(Path.of("b.novah"), "module opt.b\n\nimport opt.a (repeat, inc)\n\npub\n$bar")
+            )
+            val compiler = Compiler(sources, null, null, Options())
+            compiler.run(out)
+            return compiler.env.reusedModules().filter { it.startsWith("opt.") }.toSet()
+        }
+        // the methods of `opt.a` called by `opt.b`
+        fun calls(): Set<String> {
+            val names = mutableSetOf<String>()
+            val visitor = object : ClassVisitor(Opcodes.ASM9) {
+                override fun visitMethod(
+                    access: Int,
+                    name: String,
+                    desc: String,
+                    signature: String?,
+                    exceptions: Array<out String>?
+                ): MethodVisitor = object : MethodVisitor(Opcodes.ASM9) {
+                    override fun visitMethodInsn(op: Int, owner: String, name: String, desc: String, itf: Boolean) {
+                        if (owner == "opt/a/\$Module") names += name
+                    }
+                }
+            }
+            ClassReader(out.resolve("opt/b/\$Module.class").readBytes()).accept(visitor, 0)
+            return names
+        }
+
+        compile("bar : Int32 -> Int32\nbar x = inc (repeat x 2 0)") shouldBe emptySet()
+        calls() shouldBe setOf("repeat\$Int32")
+        compile("bar : Int32 -> Int32\nbar x = inc (repeat x 3 0)") shouldBe setOf("opt.a")
+        // still specialized and inlined
+        calls() shouldBe setOf("repeat\$Int32")
+        // `opt.a` has no copy for this type so the polymorphic function is called
+        compile("bar : Float64 -> Float64\nbar x = repeat x (inc 2) 0.0") shouldBe setOf("opt.a")
+        calls() shouldBe setOf("repeat")
+    }
+
+    "modules of compiled libraries are loaded from their interface" {
+        val libOut = Files.createTempDirectory("libOutput").toFile()
+        val jar = File.createTempFile("lib", ".jar")
+        try {
+            val lib = sequenceOf(Source.SString(Path.of("a.novah"), "module lib.a\n\npub\nfoo : Int32\nfoo = 1"))
+            Compiler(lib, null, null, Options(devMode = true)).run(libOut)
+            JarOutputStream(jar.outputStream()).use { os ->
+                libOut.walkTopDown().filter { it.isFile }.forEach { file ->
+                    os.putNextEntry(JarEntry(file.relativeTo(libOut).invariantSeparatorsPath))
+                    os.write(file.readBytes())
+                    os.closeEntry()
+                }
+            }
+
+            val out = cleanAndGetOutDir()
+            val app = sequenceOf(
+                Source.SString(Path.of("app.novah"), "module app\n\nimport lib.a (foo)\n\npub\nbar : Int32\nbar = foo + 1")
+            )
+            val compiler = Compiler(app, jar.path, jar.path, Options(devMode = true))
+            compiler.run(out)
+
+            ("lib.a" in compiler.env.reusedModules()) shouldBe true
+            out.resolve("lib/a/\$Module.class").exists() shouldBe false
+            out.resolve("app/\$Module.class").exists() shouldBe true
+        } finally {
+            libOut.deleteRecursively()
+            jar.delete()
+        }
+    }
+
+    "libraries can be used by modules compiled with other initialization modes" {
+        for (libLazy in listOf(true, false)) {
+            val libOut = Files.createTempDirectory("libOutput").toFile()
+            val jar = File.createTempFile("lib", ".jar")
+            try {
+                val libCode = "module lib.a\n\nimport novah.list as List\n\n" +
+                        "pub\nfoo : List Int32\nfoo = List.map (_ + 1) [1, 2]"
+                val lib = sequenceOf(Source.SString(Path.of("a.novah"), libCode))
+                Compiler(lib, null, null, Options(devMode = true, lazyInit = libLazy)).run(libOut)
+                JarOutputStream(jar.outputStream()).use { os ->
+                    // only the classes of the library, the application has its own stdlib
+                    val files = libOut.resolve("lib").walkTopDown().filter { it.isFile }
+                    files.forEach { file ->
+                        os.putNextEntry(JarEntry(file.relativeTo(libOut).invariantSeparatorsPath))
+                        os.write(file.readBytes())
+                        os.closeEntry()
+                    }
+                }
+
+                val out = cleanAndGetOutDir()
+                val appCode = "module app\n\nimport lib.a (foo)\nimport novah.list as List\n\n" +
+                        "pub\nbar : Int32\nbar = List.sum foo"
+                val app = sequenceOf(Source.SString(Path.of("app.novah"), appCode))
+                Compiler(app, jar.path, jar.path, Options(devMode = true, lazyInit = !libLazy)).run(out)
+
+                val urls = arrayOf(out.toURI().toURL(), jar.toURI().toURL())
+                URLClassLoader(urls, javaClass.classLoader).use { loader ->
+                    val bar = loader.loadClass("app.\$Module").getDeclaredMethod("bar")
+                    bar.invoke(null) shouldBe 5
+                }
+            } finally {
+                libOut.deleteRecursively()
+                jar.delete()
+            }
+        }
+    }
+
+    "the stdlib is loaded from the snapshot with the same environment as from its sources" {
+        for (opts in listOf(Options(), Options(devMode = true), Options(lazyInit = true))) {
+            // the test classpath has the snapshot like the compiler's jar
+            val ifaces = StdlibSnapshot.interfaces(opts)!!
+            ifaces.all { it.options == ModuleInterface.options(opts) } shouldBe true
+
+            val env = Environment(null, null, opts)
+            val snapshot = env.parseSources(emptySequence())
+            env.isStdlibFromSnapshot() shouldBe true
+            val sources = Environment(null, null, opts, useSnapshot = false).parseSources(emptySequence())
+
+            snapshot.keys shouldBe sources.keys
+            for ((name, menv) in sources) {
+                val loaded = snapshot[name]!!
+                loaded.env.decls shouldBe menv.env.decls
+                loaded.env.types shouldBe menv.env.types
+                loaded.typeVarsMap shouldBe menv.typeVarsMap
+                loaded.aliases.map { it.name to it.expanded } shouldBe menv.aliases.map { it.name to it.expanded }
+                val values = menv.ast.decls.filterIsInstance<CDecl.ValDecl>()
+                loaded.declSpans shouldBe values.associate { it.name.value to it.span }
+            }
+        }
+    }
+
+    "the classes of the stdlib are copied from the snapshot" {
+        val out = cleanAndGetOutDir()
+        val env = Environment(null, null, Options(devMode = true))
+        env.parseSources(sequenceOf(Source.SString(Path.of("a.novah"), "module a\n\npub\nfoo : Int32\nfoo = 1")))
+        env.generateCode(out)
+
+        env.isStdlibFromSnapshot() shouldBe true
+        out.resolve("novah/core/\$Module.class").exists() shouldBe true
+        ModuleInterface.read(out, "novah.core", ModuleInterface.options(Options(devMode = true))) shouldNotBe null
+    }
+
+    "erased types are seen as their field from Java" {
+        val out = cleanAndGetOutDir()
+        val code = "module erased\n\npub+\ntype Meters = Meters Int32\n\npub\n" +
+                "add : Meters -> Meters -> Meters\nadd (Meters a) (Meters b) = Meters (a + b)"
+        Compiler(sequenceOf(Source.SString(Path.of("erased.novah"), code)), null, null, Options(devMode = true)).run(out)
+
+        URLClassLoader(arrayOf(out.toURI().toURL()), javaClass.classLoader).use { loader ->
+            val add = loader.loadClass("erased.\$Module").getMethod("add", Int::class.java, Int::class.java)
+            add.returnType shouldBe Int::class.java
+            add.invoke(null, 1, 2) shouldBe 3
+            shouldThrow<ClassNotFoundException> { loader.loadClass("erased.Meters") }
+        }
+    }
+})
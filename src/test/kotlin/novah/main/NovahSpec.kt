@@ -29,6 +29,11 @@ class NovahSpec : StringSpec({
         compiler.run(TestUtil.cleanAndGetOutDir())
     }
 
+    fun compileLazyStdlibTests() {
+        val compiler = TestUtil.compilerFor("test", devMode = false, lazyInit = true)
+        compiler.run(TestUtil.cleanAndGetOutDir())
+    }
+
     fun compileNoStdlibTests() {
         val compiler = TestUtil.compilerFor("nostdlib", devMode = false, stdlib = false)
         compiler.run(TestUtil.cleanAndGetOutDir())
@@ -59,6 +64,11 @@ class NovahSpec : StringSpec({
         runStdlibTests() shouldBe 0
     }
 
+    "run standard library tests with lazy values" {
+        compileLazyStdlibTests()
+        runStdlibTests() shouldBe 0
+    }
+
     "!run no standard library tests" {
         compileNoStdlibTests()
         runCommand("java -cp output novah.core.\$Module", File("."))